@@ -23,6 +23,7 @@
 package org.gjt.sp.jedit;
 
 //{{{ Imports
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
@@ -64,6 +65,10 @@ public class BeanShell
 {
 	private static final BeanShellFacade<View> bsh = new MyBeanShellFacade();
 
+	/** The parsed macros and startup scripts. */
+	private static final BeanShellScriptCache scriptCache =
+		new BeanShellScriptCache(50);
+
 	static void init()
 	{
 		Log.log(Log.MESSAGE, BeanShell.class, "Beanshell Init");
@@ -323,16 +328,37 @@ public class BeanShell
 
 		try
 		{
+			Interpreter.ParsedScript script = null;
 			if(in == null)
 			{
-				Buffer buffer = jEdit.openTemporary(null,
-					null,path,false);
-
-				if(!buffer.isLoaded())
-					TaskManager.instance.waitForIoTasks();
+				File file = BeanShellScriptCache.getFile(path);
+				long modified = 0L;
+				long length = 0L;
+				if(file != null)
+				{
+					modified = file.lastModified();
+					length = file.length();
+					script = scriptCache.get(path,modified,length);
+				}
 
-				in = new StringReader(buffer.getText(0,
-					buffer.getLength()));
+				if(script == null)
+				{
+					Buffer buffer = jEdit.openTemporary(null,
+						null,path,false);
+
+					if(!buffer.isLoaded())
+						TaskManager.instance.waitForIoTasks();
+
+					String text = buffer.getText(0,
+						buffer.getLength());
+					if(file != null)
+					{
+						script = scriptCache.put(path,modified,
+							length,text);
+					}
+					if(script == null)
+						in = new StringReader(text);
+				}
 			}
 
 			bsh.setupDefaultVariables(namespace,view);
@@ -340,7 +366,10 @@ public class BeanShell
 
 			running = true;
 
-			interp.eval(in,namespace,path);
+			if(script != null)
+				interp.eval(script,namespace);
+			else
+				interp.eval(in,namespace,path);
 		}
 		catch(Exception e)
 		{
@@ -464,10 +493,12 @@ public class BeanShell
 	//{{{ resetClassManager() method
 	/**
 	 * Causes BeanShell internal structures to drop references to cached
-	 * Class instances.
+	 * Class instances, including the parsed scripts whose call sites
+	 * cache the methods they invoke.
 	 */
 	static void resetClassManager()
 	{
+		scriptCache.clear();
 		bsh.resetClassManager();
 	} //}}}
 
@@ -0,0 +1,165 @@
+/*
+ * BeanShellScriptCache.java - Parsed BeanShell script files
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit;
+
+//{{{ Imports
+import java.io.File;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gjt.sp.jedit.bsh.EvalError;
+import org.gjt.sp.jedit.bsh.Interpreter;
+import org.gjt.sp.util.Log;
+//}}}
+
+/**
+ * The parsed statements of the BeanShell script files run recently, so
+ * that macros and startup scripts run again are not parsed again. The
+ * entries are keyed by path, and are valid as long as the modification
+ * time and the length of the file do not change. The least recently run
+ * scripts are dropped past a number of scripts.<p>
+ *
+ * Only local files are cached, and only when they are not open in a
+ * modified buffer, since the script is then read from the buffer.
+ *
+ * @since jEdit 5.7pre1
+ */
+class BeanShellScriptCache
+{
+	//{{{ BeanShellScriptCache constructor
+	/**
+	 * @param maxScripts The number of scripts kept
+	 */
+	BeanShellScriptCache(int maxScripts)
+	{
+		scripts = new LinkedHashMap<String, CachedScript>(16,0.75f,true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedScript> eldest)
+			{
+				return size() > maxScripts;
+			}
+		};
+	} //}}}
+
+	//{{{ getFile() method
+	/**
+	 * @return the file of a script path, or null if the script cannot be
+	 * cached
+	 */
+	static File getFile(String path)
+	{
+		if(MiscUtilities.isURL(path))
+			return null;
+		if(jEdit.getBufferManager().getBuffer(path)
+			.filter(Buffer::isDirty).isPresent())
+			return null;
+		File file = new File(path);
+		return file.isFile() ? file : null;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * @param path The script path
+	 * @param modified The modification time of the file
+	 * @param length The length of the file
+	 * @return the parsed script, or null if it is not cached or if the
+	 * file changed since it was parsed
+	 */
+	synchronized Interpreter.ParsedScript get(String path, long modified,
+		long length)
+	{
+		CachedScript cached = scripts.get(path);
+		if(cached == null)
+			return null;
+		if(cached.modified != modified || cached.length != length)
+		{
+			scripts.remove(path);
+			return null;
+		}
+		return cached.script;
+	} //}}}
+
+	//{{{ put() method
+	/**
+	 * Parses a script and caches it.
+	 * @param path The script path
+	 * @param modified The modification time of the file, before it was
+	 * read
+	 * @param length The length of the file, before it was read
+	 * @param text The text of the script
+	 * @return the parsed script, or null if it has syntax errors. They
+	 * are reported when the script is run from its source.
+	 */
+	Interpreter.ParsedScript put(String path, long modified, long length,
+		String text)
+	{
+		Interpreter.ParsedScript script;
+		try
+		{
+			script = Interpreter.parse(new StringReader(text),path);
+		}
+		catch(EvalError e)
+		{
+			Log.log(Log.DEBUG,this,"Not caching " + path + ": "
+				+ e.getMessage());
+			return null;
+		}
+
+		synchronized(this)
+		{
+			scripts.put(path,new CachedScript(script,modified,length));
+		}
+		return script;
+	} //}}}
+
+	//{{{ clear() method
+	/**
+	 * Drops all the parsed scripts.
+	 */
+	synchronized void clear()
+	{
+		scripts.clear();
+	} //}}}
+
+	//{{{ Private members
+	private final Map<String, CachedScript> scripts;
+
+	//{{{ CachedScript class
+	private static class CachedScript
+	{
+		final Interpreter.ParsedScript script;
+		final long modified;
+		final long length;
+
+		CachedScript(Interpreter.ParsedScript script, long modified, long length)
+		{
+			this.script = script;
+			this.modified = modified;
+			this.length = length;
+		}
+	} //}}}
+
+	//}}}
+}
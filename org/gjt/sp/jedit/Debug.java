@@ -90,7 +90,9 @@ public class Debug
 	public static boolean PAINT_TIMER;
 
 	/**
-	 * Show time taken for each EBComponent.
+	 * Record the time taken by each EditBus handler. The latency
+	 * histograms are logged by {@link EditBus#logHandlerStatistics()},
+	 * which is called on exit.
 	 */
 	public static boolean EB_TIMER;
 
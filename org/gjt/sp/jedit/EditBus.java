@@ -24,10 +24,16 @@ package org.gjt.sp.jedit;
 
 import java.awt.*;
 import java.lang.annotation.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.gjt.sp.util.Log;
 import org.gjt.sp.util.ThreadUtilities;
@@ -117,6 +123,20 @@ public class EditBus
 		 * the parameter, instead of a compatible type.
 		 */
 		boolean exact() default false;
+
+		/**
+		 * @return Whether the handler can be called from a thread
+		 * other than the AWT thread. Such handlers receive messages
+		 * on a dedicated background thread, in the order in which
+		 * the messages were sent, and senders do not wait for them
+		 * to finish. This is meant for expensive handlers that do
+		 * not touch the user interface, like indexers or parsers.
+		 * This attribute has no effect on the
+		 * {@link EBComponent#handleMessage(EBMessage)} method.
+		 *
+		 * @since jEdit 5.7pre1
+		 */
+		boolean threadSafe() default false;
 	} //}}}
 
 	//{{{ addToBus() method
@@ -177,7 +197,10 @@ public class EditBus
 	 * Sends a message to all components on the bus in turn.
 	 * The message is delivered to components in the AWT thread,
 	 * and this method will wait until all handlers receive the
-	 * message before returning.
+	 * message before returning. Handlers declared as
+	 * {@link EBHandler#threadSafe() thread safe} are the exception:
+	 * they receive the message on the EditBus background thread,
+	 * and this method does not wait for them.
 	 * <p>
 	 * This method uses {@link ThreadUtilities#runInDispatchThreadNow},
 	 * read the notes there for possible deadlocks.
@@ -199,6 +222,9 @@ public class EditBus
 	 */
 	public static void send(EBMessage message)
 	{
+		if (!sendInBackground(message))
+			return;
+
 		Runnable sender = new SendMessage(message);
 
 		if (EventQueue.isDispatchThread())
@@ -224,78 +250,76 @@ public class EditBus
 	 */
 	public static void sendAsync(EBMessage message)
 	{
-		EventQueue.invokeLater(new SendMessage(message));
+		if (sendInBackground(message))
+			EventQueue.invokeLater(new SendMessage(message));
+	} //}}}
+
+	//{{{ logHandlerStatistics() method
+	/**
+	 * Logs the latency histogram of every message handler on the bus.
+	 * Latencies are only recorded while {@link Debug#EB_TIMER} is set.
+	 *
+	 * @since jEdit 5.7pre1
+	 */
+	public static void logHandlerStatistics()
+	{
+		for (EBMessageHandler emh : components.getHandlers())
+		{
+			LatencyHistogram times = emh.times;
+			if (times != null)
+				Log.log(Log.DEBUG, EditBus.class, emh.getName() + ": " + times);
+		}
 	} //}}}
 
 	//{{{ Private members
 	private static final HandlerList components = new HandlerList();
 
+	/** Delivers messages to thread safe handlers, in order. */
+	private static final ExecutorService backgroundLane =
+		Executors.newSingleThreadExecutor(r ->
+		{
+			Thread t = new Thread(r, "jEdit EditBus");
+			t.setDaemon(true);
+			return t;
+		});
+
 	// can't create new instances
 	private EditBus() {}
 
-	//{{{ dispatch() method
-	private static void dispatch(EBMessageHandler emh,
-				     EBMessage msg)
-		throws Exception
+	//{{{ sendInBackground() method
+	/**
+	 * Queues the message for the thread safe handlers.
+	 * @return true if there are handlers that must receive the message
+	 * in the AWT thread
+	 */
+	private static boolean sendInBackground(EBMessage message)
 	{
-		if (emh.handler != null && emh.comp != null)
-			emh.handler.invoke(emh.comp, msg);
-		else
-		{
-			assert (emh.comp instanceof EBComponent);
-			((EBComponent)emh.comp).handleMessage(msg);
-		}
+		DispatchTable table = components.getDispatchTable(message.getClass());
+		if (table.background.length != 0)
+			backgroundLane.execute(new SendInBackground(message, table.background));
+		if (table.dispatchThread.length != 0)
+			return true;
+		Log.log(Log.DEBUG,EditBus.class,message.toString());
+		return false;
 	} //}}}
 
 	//{{{ sendImpl() method
 	private static void sendImpl(EBMessage message)
 	{
-		boolean isExact = true;
-		Class<?> type = message.getClass();
-		while (!type.equals(Object.class))
+		DispatchTable table = components.getDispatchTable(message.getClass());
+		for (EBMessageHandler[] handlers : table.dispatchThread)
 		{
-			List<EBMessageHandler> handlers = components.get(type);
-			if (handlers != null)
+			try
 			{
-				try
-				{
-					for (EBMessageHandler emh : handlers)
-					{
-						if (!isExact &&
-						    emh.source != null &&
-						    emh.source.exact())
-						{
-							continue;
-						}
-						if(Debug.EB_TIMER)
-						{
-							long start = System.nanoTime();
-							dispatch(emh, message);
-							long time = System.nanoTime() - start;
-							if(time >= 1000000)
-							{
-								Log.log(Log.DEBUG,EditBus.class,emh.comp + ": " + time + " ns");
-							}
-						}
-						else
-							dispatch(emh, message);
-					}
-				}
-				catch (InvocationTargetException t)
-				{
-					Log.log(Log.ERROR,EditBus.class,"Exception"
-						+ " while sending message on EditBus:");
-					Log.log(Log.ERROR, EditBus.class, t.getCause());
-				}
-				catch(Throwable t)
-				{
-					Log.log(Log.ERROR,EditBus.class,"Exception"
-						+ " while sending message on EditBus:");
-					Log.log(Log.ERROR,EditBus.class,t);
-				}
+				for (EBMessageHandler emh : handlers)
+					emh.dispatch(message);
+			}
+			catch(Throwable t)
+			{
+				Log.log(Log.ERROR,EditBus.class,"Exception"
+					+ " while sending message on EditBus:");
+				Log.log(Log.ERROR,EditBus.class,t);
 			}
-			type = type.getSuperclass();
-			isExact = false;
 		}
 	} //}}}
 
@@ -312,11 +336,162 @@ public class EditBus
 			this.comp = comp;
 			this.handler = handler;
 			this.source = source;
+			this.invoker = bind(comp, handler);
+		}
+
+		//{{{ dispatch() method
+		void dispatch(EBMessage msg) throws Throwable
+		{
+			if(Debug.EB_TIMER)
+			{
+				long start = System.nanoTime();
+				try
+				{
+					invoke(msg);
+				}
+				finally
+				{
+					getTimes().record(System.nanoTime() - start);
+				}
+			}
+			else
+				invoke(msg);
+		} //}}}
+
+		//{{{ invoke() method
+		private void invoke(EBMessage msg) throws Throwable
+		{
+			if (invoker != null)
+				invoker.invokeExact(msg);
+			else if (handler != null)
+			{
+				try
+				{
+					handler.invoke(comp, msg);
+				}
+				catch (InvocationTargetException e)
+				{
+					throw e.getCause();
+				}
+			}
+			else
+			{
+				assert (comp instanceof EBComponent);
+				((EBComponent)comp).handleMessage(msg);
+			}
+		} //}}}
+
+		//{{{ getTimes() method
+		private synchronized LatencyHistogram getTimes()
+		{
+			if (times == null)
+				times = new LatencyHistogram();
+			return times;
+		} //}}}
+
+		//{{{ getName() method
+		String getName()
+		{
+			if (handler == null)
+				return comp + ".handleMessage()";
+			return comp + "." + handler.getName() + '('
+				+ handler.getParameterTypes()[0].getSimpleName() + ')';
+		} //}}}
+
+		//{{{ bind() method
+		/**
+		 * Binds the handler method to its component so that it can be
+		 * invoked without going through reflection. Returns null if
+		 * the method is not accessible through a public lookup (for
+		 * example, a public method of a non public class), in which
+		 * case the reflective call is used.
+		 */
+		private static MethodHandle bind(Object comp, Method handler)
+		{
+			if (handler == null)
+				return null;
+			try
+			{
+				return MethodHandles.publicLookup()
+					.unreflect(handler)
+					.bindTo(comp)
+					.asType(HANDLER_TYPE);
+			}
+			catch (IllegalAccessException | RuntimeException e)
+			{
+				return null;
+			}
+		} //}}}
+
+		private static final MethodType HANDLER_TYPE =
+			MethodType.methodType(void.class, EBMessage.class);
+
+		final Object comp;
+		final Method handler;
+		final EBHandler source;
+		private final MethodHandle invoker;
+		private volatile LatencyHistogram times;
+	} //}}}
+
+	//{{{ LatencyHistogram class
+	/**
+	 * Handler latencies recorded when {@link Debug#EB_TIMER} is set.
+	 * Bucket <i>i</i> counts the calls that took between
+	 * 2<sup>i-1</sup> and 2<sup>i</sup> microseconds.
+	 */
+	private static class LatencyHistogram
+	{
+		synchronized void record(long nanos)
+		{
+			long micros = nanos / 1000L;
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			buckets[Math.min(bucket, buckets.length - 1)]++;
+			count++;
+			total += nanos;
+			max = Math.max(max, nanos);
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			StringBuilder buf = new StringBuilder();
+			buf.append(count).append(" calls, avg ")
+				.append(count == 0 ? 0 : total / count / 1000L)
+				.append(" us, max ").append(max / 1000L).append(" us [");
+			for (int i = 0; i < buckets.length; i++)
+			{
+				if (buckets[i] == 0)
+					continue;
+				buf.append(" <").append(1L << i).append("us:")
+					.append(buckets[i]);
+			}
+			return buf.append(" ]").toString();
+		}
+
+		private final long[] buckets = new long[24];
+		private long count;
+		private long total;
+		private long max;
+	} //}}}
+
+	//{{{ DispatchTable class
+	private static class DispatchTable
+	{
+		DispatchTable(EBMessageHandler[][] dispatchThread,
+			      EBMessageHandler[] background)
+		{
+			this.dispatchThread = dispatchThread;
+			this.background = background;
 		}
 
-		Object comp;
-		Method handler;
-		EBHandler source;
+		/**
+		 * Handlers called in the AWT thread, grouped by level in the
+		 * type hierarchy, starting with the message type itself.
+		 */
+		final EBMessageHandler[][] dispatchThread;
+
+		/** Thread safe handlers. */
+		final EBMessageHandler[] background;
 	} //}}}
 
 	//{{{ HandlerList class
@@ -324,15 +499,89 @@ public class EditBus
 	 * A "special" hash map that has some optimizations for use by
 	 * the EditBus. Notably, it allows setting a "read only" mode
 	 * where modifications to the map are postponed until the map
-	 * is unlocked.
+	 * is unlocked.<p>
+	 *
+	 * The handlers for a given message type are resolved once, by
+	 * walking the type hierarchy of the message, and cached until
+	 * the set of components changes.
 	 */
 	private static class HandlerList extends HashMap<Class<?>, List<EBMessageHandler>>
 	{
 		public List<EBMessageHandler> safeGet(Class<?> type)
 		{
-			return computeIfAbsent(type, k -> new LinkedList<>());
+			return computeIfAbsent(type, k -> new ArrayList<>());
 		}
 
+		//{{{ getDispatchTable() method
+		/**
+		 * Returns the handlers for the given message type.
+		 */
+		public DispatchTable getDispatchTable(Class<?> type)
+		{
+			DispatchTable table = dispatchTables.get(type);
+			if (table != null)
+				return table;
+
+			synchronized (this)
+			{
+				table = dispatchTables.get(type);
+				if (table == null)
+				{
+					table = createDispatchTable(type);
+					dispatchTables.put(type, table);
+				}
+				return table;
+			}
+		} //}}}
+
+		//{{{ getHandlers() method
+		public synchronized List<EBMessageHandler> getHandlers()
+		{
+			List<EBMessageHandler> ret = new ArrayList<>();
+			for (List<EBMessageHandler> handlers : values())
+				ret.addAll(handlers);
+			return ret;
+		} //}}}
+
+		//{{{ createDispatchTable() method
+		private DispatchTable createDispatchTable(Class<?> type)
+		{
+			List<EBMessageHandler[]> levels = new ArrayList<>();
+			List<EBMessageHandler> background = new ArrayList<>();
+			boolean isExact = true;
+			while (!type.equals(Object.class))
+			{
+				List<EBMessageHandler> handlers = get(type);
+				if (handlers != null)
+				{
+					List<EBMessageHandler> level = new ArrayList<>(handlers.size());
+					for (EBMessageHandler emh : handlers)
+					{
+						if (!isExact &&
+						    emh.source != null &&
+						    emh.source.exact())
+						{
+							continue;
+						}
+						if (emh.source != null &&
+						    emh.source.threadSafe())
+						{
+							background.add(emh);
+						}
+						else
+							level.add(emh);
+					}
+					if (!level.isEmpty())
+						levels.add(level.toArray(new EBMessageHandler[0]));
+				}
+				type = type.getSuperclass();
+				isExact = false;
+			}
+			return new DispatchTable(
+				levels.toArray(new EBMessageHandler[0][]),
+				background.toArray(new EBMessageHandler[0]));
+		} //}}}
+
 		public synchronized void lock()
 		{
 			lock++;
@@ -368,6 +617,7 @@ public class EditBus
 					continue;
 				handlers.removeIf(emh -> emh.comp == comp);
 			}
+			dispatchTables.clear();
 		}
 
 		public synchronized void addComponent(Object comp)
@@ -404,10 +654,7 @@ public class EditBus
 					continue;
 				}
 
-				synchronized (components)
-				{
-					safeGet(params[0]).add(new EBMessageHandler(comp, m, source));
-				}
+				safeGet(params[0]).add(new EBMessageHandler(comp, m, source));
 			}
 
 			/*
@@ -416,8 +663,11 @@ public class EditBus
 			 */
 			if (comp instanceof EBComponent)
 				safeGet(EBMessage.class).add(new EBMessageHandler(comp, null, null));
+			dispatchTables.clear();
 		}
 
+		private final Map<Class<?>, DispatchTable> dispatchTables =
+			new ConcurrentHashMap<>();
 		private int lock;
 		private final List<Object> add = new LinkedList<>();
 		private final List<Object> remove = new LinkedList<>();
@@ -450,4 +700,35 @@ public class EditBus
 		private final EBMessage message;
 	} //}}}
 
+	//{{{ SendInBackground class
+	private static class SendInBackground implements Runnable
+	{
+		SendInBackground(EBMessage message, EBMessageHandler[] handlers)
+		{
+			this.message = message;
+			this.handlers = handlers;
+		}
+
+		@Override
+		public void run()
+		{
+			for (EBMessageHandler emh : handlers)
+			{
+				try
+				{
+					emh.dispatch(message);
+				}
+				catch(Throwable t)
+				{
+					Log.log(Log.ERROR,EditBus.class,"Exception"
+						+ " while sending message on EditBus:");
+					Log.log(Log.ERROR,EditBus.class,t);
+				}
+			}
+		}
+
+		private final EBMessage message;
+		private final EBMessageHandler[] handlers;
+	} //}}}
+
 }
@@ -61,6 +61,7 @@ public abstract class JEditActionContext<F extends JEditAbstractEditAction, E ex
 	public void addActionSet(E actionSet)
 	{
 		actionNames = null;
+		modCount++;
 		actionSets.addElement(actionSet);
 		actionSet.context = this;
 		String[] actions = actionSet.getActionNames();
@@ -85,6 +86,7 @@ public abstract class JEditActionContext<F extends JEditAbstractEditAction, E ex
 	public void removeActionSet(E actionSet)
 	{
 		actionNames = null;
+		modCount++;
 		actionSets.removeElement(actionSet);
 		actionSet.context = null;
 		String[] actions = actionSet.getActionNames();
@@ -131,6 +133,40 @@ public abstract class JEditActionContext<F extends JEditAbstractEditAction, E ex
 			return set.getAction(name);
 	} //}}}
 
+	//{{{ getLoadedAction() method
+	/**
+	 * Returns the specified action, if its action set is already loaded.
+	 * Unlike {@link #getAction(String)}, this never loads an action set.
+	 * @param name The action name
+	 * @return a JEditAbstractEditAction or null if it doesn't exist or
+	 * is not loaded yet
+	 * @since jEdit 5.7pre1
+	 */
+	@SuppressWarnings({"unchecked"})
+	public F getLoadedAction(String name)
+	{
+		E set = actionHash.get(name);
+		if(set == null)
+			return null;
+		JEditAbstractEditAction<?> action = set.actions.get(name);
+		if(action == JEditActionSet.placeholder)
+			return null;
+		return (F) action;
+	} //}}}
+
+	//{{{ getModCount() method
+	/**
+	 * Returns the number of changes of the actions of this context. It
+	 * changes when action sets are added or removed, and when actions
+	 * are added to or removed from the action sets, for example when a
+	 * deferred action set is loaded.
+	 * @since jEdit 5.7pre1
+	 */
+	public int getModCount()
+	{
+		return modCount;
+	} //}}}
+
 	//{{{ getActionSetForAction() method
 	/**
 	 * Returns the action set that contains the specified action.
@@ -174,6 +210,9 @@ public abstract class JEditActionContext<F extends JEditAbstractEditAction, E ex
 	
 	/** A map of built-in actions that were overridden by plugins. */
 	Hashtable<String, E> overriddenActions = new Hashtable<String, E>(); 
+
+	/** Incremented when the actions of the context change. */
+	int modCount;
 	//}}}
 
 	//{{{ Private members
@@ -190,6 +190,7 @@ public abstract class JEditActionSet<E extends JEditAbstractEditAction> implemen
 		if(context != null)
 		{
 			context.actionNames = null;
+			context.modCount++;
 			context.actionHash.put(action.getName(), this);
 		}
 	} //}}}
@@ -206,6 +207,7 @@ public abstract class JEditActionSet<E extends JEditAbstractEditAction> implemen
 		if(context != null)
 		{
 			context.actionNames = null;
+			context.modCount++;
 			context.actionHash.remove(name);
 		}
 	} //}}}
@@ -220,6 +222,7 @@ public abstract class JEditActionSet<E extends JEditAbstractEditAction> implemen
 		if(context != null)
 		{
 			context.actionNames = null;
+			context.modCount++;
 			String[] actions = getActionNames();
 			for (String action : actions)
 				context.actionHash.remove(action);
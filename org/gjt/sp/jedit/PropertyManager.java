@@ -23,8 +23,20 @@
 package org.gjt.sp.jedit;
 
 import java.io.*;
+import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The property layers of jEdit: system, plugins, site, localization,
+ * plugin localizations and user.<p>
+ *
+ * Properties are looked up in a flattened snapshot of all the layers,
+ * which is read without locking. It is rebuilt on the next lookup after a
+ * layer is loaded, added or removed, while changing a user property only
+ * updates that property. The properties registered by plugins must not be
+ * changed after they are added.
+ */
 class PropertyManager
 {
 	//{{{ getProperties() method
@@ -43,34 +55,38 @@ class PropertyManager
 	} //}}}
 
 	//{{{ loadSystemProps() method
-	void loadSystemProps(Reader in)
+	synchronized void loadSystemProps(Reader in)
 		throws IOException
 	{
 		loadProps(system,in);
+		invalidate();
 	} //}}}
 
 	//{{{ loadSiteProps() method
-	void loadSiteProps(InputStream in)
+	synchronized void loadSiteProps(InputStream in)
 		throws IOException
 	{
 		loadProps(site,in);
+		invalidate();
 	} //}}}
 
 	//{{{ loadLocalizationProps() method
-	void loadLocalizationProps(Reader in)
+	synchronized void loadLocalizationProps(Reader in)
 		throws IOException
 	{
 		if (in == null)
 			localization.clear();
 		else
 			loadProps(localization,in);
+		invalidate();
 	} //}}}
 
 	//{{{ loadUserProps() method
-	void loadUserProps(InputStream in)
+	synchronized void loadUserProps(InputStream in)
 		throws IOException
 	{
 		loadProps(user,in);
+		invalidate();
 	} //}}}
 
 	//{{{ saveUserProps() method
@@ -81,72 +97,89 @@ class PropertyManager
 	} //}}}
 
 	//{{{ loadPluginProps() method
-	Properties loadPluginProps(InputStream in)
+	synchronized Properties loadPluginProps(InputStream in)
 		throws IOException
 	{
 		Properties plugin = new Properties();
 		loadProps(plugin,in);
 		plugins.add(plugin);
+		invalidate();
 		return plugin;
 	} //}}}
 
 	//{{{ addPluginProps() method
-	void addPluginProps(Properties props)
+	synchronized void addPluginProps(Properties props)
 	{
 		plugins.add(props);
+		invalidate();
 	} //}}}
 
 	//{{{ removePluginProps() method
-	void removePluginProps(Properties props)
+	synchronized void removePluginProps(Properties props)
 	{
 		plugins.remove(props);
+		invalidate();
 	} //}}}
 
 	//{{{ loadPluginLocalizationProps() method
-	Properties loadPluginLocalizationProps(Reader in)
+	synchronized Properties loadPluginLocalizationProps(Reader in)
 		throws IOException
 	{
 		Properties pluginLocalization = new Properties();
 		loadProps(pluginLocalization,in);
 		pluginLocalizations.add(pluginLocalization);
+		invalidate();
 		return pluginLocalization;
 	} //}}}
 
 	//{{{ addPluginLocalizationProps() method
-	void addPluginLocalizationProps(Properties props)
+	synchronized void addPluginLocalizationProps(Properties props)
 	{
 		pluginLocalizations.add(props);
+		invalidate();
 	} //}}}
 
 	//{{{ removePluginLocalizationProps() method
-	void removePluginLocalizationProps(Properties props)
+	synchronized void removePluginLocalizationProps(Properties props)
 	{
 		pluginLocalizations.remove(props);
+		invalidate();
 	} //}}}
 
 	//{{{ getProperty() method
 	String getProperty(String name)
 	{
-		String value = user.getProperty(name);
-		if(value != null)
-			return value;
+		Snapshot snapshot = this.snapshot;
+		if(snapshot == null)
+			snapshot = createSnapshot();
+		return snapshot.get(name);
+	} //}}}
 
-		for (Properties pluginLocalization : pluginLocalizations)
+	//{{{ format() method
+	/**
+	 * Formats a property value with <code>java.text.MessageFormat</code>.
+	 * The parsed patterns are cached.
+	 */
+	String format(String pattern, Object[] args)
+	{
+		MessageFormat format = formats.get(pattern);
+		if(format == null)
 		{
-			value = pluginLocalization.getProperty(name);
-			if (value != null)
-				return value;
+			if(formats.size() >= MAX_FORMATS)
+				formats.clear();
+			format = new MessageFormat(pattern);
+			formats.put(pattern,format);
+		}
+		// the number and date formats used by a message format
+		// are not thread-safe
+		synchronized(format)
+		{
+			return format.format(args);
 		}
-
-		value = localization.getProperty(name);
-		if (value != null)
-			return value;
-
-		return getDefaultProperty(name);
 	} //}}}
 
 	//{{{ setProperty() method
-	void setProperty(String name, String value)
+	synchronized void setProperty(String name, String value)
 	{
 		String prop = getDefaultProperty(name);
 
@@ -171,28 +204,32 @@ class PropertyManager
 			else
 				user.setProperty(name,value);
 		}
+		propertyChanged(name);
 	} //}}}
 
 	//{{{ setTemporaryProperty() method
-	public void setTemporaryProperty(String name, String value)
+	public synchronized void setTemporaryProperty(String name, String value)
 	{
 		user.remove(name);
 		system.setProperty(name,value);
+		propertyChanged(name);
 	} //}}}
 
 	//{{{ unsetProperty() method
-	void unsetProperty(String name)
+	synchronized void unsetProperty(String name)
 	{
 		if(getDefaultProperty(name) != null)
 			user.setProperty(name,"");
 		else
 			user.remove(name);
+		propertyChanged(name);
 	} //}}}
 
 	//{{{ resetProperty() method
-	public void resetProperty(String name)
+	public synchronized void resetProperty(String name)
 	{
 		user.remove(name);
+		propertyChanged(name);
 	} //}}}
 
 	//{{{ Private members
@@ -203,6 +240,85 @@ class PropertyManager
 	private final List<Properties> pluginLocalizations = new LinkedList<>();
 	private final Properties user = new Properties();
 
+	/** The number of cached message formats. */
+	private static final int MAX_FORMATS = 512;
+	/** The flattened properties, null if a layer changed. */
+	private volatile Snapshot snapshot;
+	private final Map<String,MessageFormat> formats = new ConcurrentHashMap<>();
+
+	//{{{ createSnapshot() method
+	private synchronized Snapshot createSnapshot()
+	{
+		if(snapshot != null)
+			return snapshot;
+
+		// the layers with the lowest priority first
+		Map<String,String> properties = new HashMap<>();
+		putAll(properties,system);
+		for(ListIterator<Properties> iter = plugins.listIterator(plugins.size());
+			iter.hasPrevious();)
+			putAll(properties,iter.previous());
+		putAll(properties,site);
+		putAll(properties,localization);
+		for(ListIterator<Properties> iter = pluginLocalizations.listIterator(
+			pluginLocalizations.size()); iter.hasPrevious();)
+			putAll(properties,iter.previous());
+		putAll(properties,user);
+		snapshot = new Snapshot(properties);
+		return snapshot;
+	} //}}}
+
+	//{{{ putAll() method
+	private static void putAll(Map<String,String> into, Properties props)
+	{
+		for(String name : props.stringPropertyNames())
+			into.put(name,props.getProperty(name));
+	} //}}}
+
+	//{{{ invalidate() method
+	private void invalidate()
+	{
+		snapshot = null;
+		// the localization may have changed the locale
+		formats.clear();
+	} //}}}
+
+	//{{{ propertyChanged() method
+	/**
+	 * Updates the snapshot after a property changed. Must be called with
+	 * the manager lock held.
+	 */
+	private void propertyChanged(String name)
+	{
+		Snapshot snapshot = this.snapshot;
+		if(snapshot != null)
+			snapshot.changed.put(name,Snapshot.valueOf(lookupProperty(name)));
+	} //}}}
+
+	//{{{ lookupProperty() method
+	/**
+	 * Looks up a property in the layers.
+	 */
+	private String lookupProperty(String name)
+	{
+		String value = user.getProperty(name);
+		if(value != null)
+			return value;
+
+		for (Properties pluginLocalization : pluginLocalizations)
+		{
+			value = pluginLocalization.getProperty(name);
+			if (value != null)
+				return value;
+		}
+
+		value = localization.getProperty(name);
+		if (value != null)
+			return value;
+
+		return getDefaultProperty(name);
+	} //}}}
+
 	//{{{ getDefaultProperty() method
 	private String getDefaultProperty(String name)
 	{
@@ -250,4 +366,40 @@ class PropertyManager
 	} //}}}
 
 	//}}}
+
+	//{{{ Snapshot class
+	/**
+	 * The flattened properties, and the properties changed since they
+	 * were flattened.
+	 */
+	private static class Snapshot
+	{
+		/** Marks a property which was unset. */
+		private static final String UNSET = new String();
+
+		private final Map<String,String> properties;
+		private final Map<String,String> changed;
+
+		Snapshot(Map<String,String> properties)
+		{
+			this.properties = properties;
+			changed = new ConcurrentHashMap<>();
+		}
+
+		String get(String name)
+		{
+			if(!changed.isEmpty())
+			{
+				String value = changed.get(name);
+				if(value != null)
+					return value == UNSET ? null : value;
+			}
+			return properties.get(name);
+		}
+
+		static String valueOf(String value)
+		{
+			return value == null ? UNSET : value;
+		}
+	} //}}}
 }
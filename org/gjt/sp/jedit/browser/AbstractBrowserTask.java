@@ -46,6 +46,7 @@ abstract class AbstractBrowserTask extends Task
 		this.session = session;
 		this.vfs = vfs;
 		this.path = path;
+		setLane(Lane.INTERACTIVE_IO);
 		if (awtTask != null)
 		{
 			MyTaskListener listener = new MyTaskListener(awtTask);
@@ -39,6 +39,7 @@ import org.gjt.sp.jedit.*;
 import org.gjt.sp.util.GenericGUIUtilities;
 import org.gjt.sp.util.Log;
 import org.gjt.sp.util.ThreadUtilities;
+import org.gjt.sp.jedit.browser.VFSDirectoryEntryTableModel.Entry;
 //}}}
 
 /**
@@ -160,10 +161,32 @@ class BrowserView extends JPanel
 				new LoadingPlaceholder() });
 		}
 
-		final Object[] loadInfo = new Object[2];
+		// a new listing of the same directory replaces the pending one
+		final Object token = new Object();
+		loads.put(node,token);
+		Entry entry = (Entry)node;
+		VFSDirectoryEntryTableModel model = (VFSDirectoryEntryTableModel)table.getModel();
+		Comparator<Entry> order = model.getEntryOrder(node == null);
+
+		ListDirectoryBrowserTask.PageHandler pageHandler = (canonPath, entries, first) ->
+		{
+			if(loads.get(node) != token)
+				return;
+
+			if(first)
+			{
+				browser.directoryLoaded(node,canonPath,addToHistory);
+				if(node == null)
+					updateParentDirectories(canonPath);
+			}
+			table.addEntries(VFSManager.getVFSForPath(canonPath),
+				entry,entries,order,first,tmpExpanded);
+			if(first)
+				browser.directoryShown();
+		};
 		Runnable awtRunnable = () ->
 		{
-			browser.directoryLoaded(node,loadInfo,addToHistory);
+			loads.remove(node,token);
 			if (delayedAWTTask != null)
 				delayedAWTTask.run();
 
@@ -172,82 +195,8 @@ class BrowserView extends JPanel
 			splitPane.setDividerLocation(-1);
 		};
 		ThreadUtilities.runInBackground(new ListDirectoryBrowserTask(browser,
-			session, vfs, path, loadInfo, awtRunnable));
-	} //}}}
-
-	//{{{ directoryLoaded() method
-	/**
-	 * Rebuild the parent view after a directory has been loaded.
-	 *
-	 * @param node
-	 * @param path
-	 * @param directory
-	 */
-	public void directoryLoaded(Object node, String path, java.util.List<VFSFile> directory)
-	{
-		//{{{ If reloading root, update parent directory list
-		if(node == null)
-		{
-			DefaultListModel parentList = new DefaultListModel();
-
-			String parent = path;
-
-			while (true)
-			{
-				VFS _vfs = VFSManager.getVFSForPath(parent);
-				VFSFile file = null;
-				if (_vfs instanceof FileVFS)
-				{
-					Object session = _vfs.createVFSSession(path, browser);
-					try
-					{
-						file = _vfs._getFile(session, parent, browser);
-						if (file != null)
-						{
-							file.setName(_vfs.getFileName(parent));
-						}
-					}
-					catch (IOException e)
-					{
-						Log.log(Log.ERROR, this, e, e);
-					}
-				}
-				if (file == null)
-				{
-					// create a DirectoryEntry manually
-					// instead of using _vfs._getFile()
-					// since so many VFS's have broken
-					// implementations of this method
-					file = new VFSFile(
-							_vfs.getFileName(parent),
-							parent,parent,
-							VFSFile.DIRECTORY,
-							0L,false);
-				}
-
-
-				/*parentList.insertElementAt(new VFSFile(
-					_vfs.getFileName(parent),
-					parent,parent,
-					VFSFile.DIRECTORY,
-					0L,false),0);*/
-				parentList.insertElementAt(file,0);
-				String newParent = _vfs.getParentOfPath(parent);
-
-				if(MiscUtilities.pathsEqual(parent,newParent))
-					break;
-				else
-					parent = newParent;
-			}
-
-			parentDirectories.setModel(parentList);
-			int index = parentList.getSize() - 1;
-			parentDirectories.setSelectedIndex(index);
-			parentDirectories.ensureIndexIsVisible(index);
-		} //}}}
-
-		table.setDirectory(VFSManager.getVFSForPath(path),
-			node,directory,tmpExpanded);
+			session, vfs, path, browser.getListingFilter(), entry, order,
+			pageHandler, awtRunnable));
 	} //}}}
 
 	//{{{ updateFileView() method
@@ -340,11 +289,74 @@ class BrowserView extends JPanel
 	private final JSplitPane splitPane;
 	private final JList parentDirectories;
 	private final VFSDirectoryEntryTable table;
+	/** The pending listing of each directory, by table entry. */
+	private final Map<Object,Object> loads = new HashMap<>();
 	private final Set<String> tmpExpanded;
 	private BrowserCommandsMenu popup;
 	private boolean showIcons;
 	//}}}
 
+	//{{{ updateParentDirectories() method
+	private void updateParentDirectories(String path)
+	{
+		DefaultListModel parentList = new DefaultListModel();
+
+		String parent = path;
+
+		while (true)
+		{
+			VFS _vfs = VFSManager.getVFSForPath(parent);
+			VFSFile file = null;
+			if (_vfs instanceof FileVFS)
+			{
+				Object session = _vfs.createVFSSession(path, browser);
+				try
+				{
+					file = _vfs._getFile(session, parent, browser);
+					if (file != null)
+					{
+						file.setName(_vfs.getFileName(parent));
+					}
+				}
+				catch (IOException e)
+				{
+					Log.log(Log.ERROR, this, e, e);
+				}
+			}
+			if (file == null)
+			{
+				// create a DirectoryEntry manually
+				// instead of using _vfs._getFile()
+				// since so many VFS's have broken
+				// implementations of this method
+				file = new VFSFile(
+						_vfs.getFileName(parent),
+						parent,parent,
+						VFSFile.DIRECTORY,
+						0L,false);
+			}
+
+
+			/*parentList.insertElementAt(new VFSFile(
+				_vfs.getFileName(parent),
+				parent,parent,
+				VFSFile.DIRECTORY,
+				0L,false),0);*/
+			parentList.insertElementAt(file,0);
+			String newParent = _vfs.getParentOfPath(parent);
+
+			if(MiscUtilities.pathsEqual(parent,newParent))
+				break;
+			else
+				parent = newParent;
+		}
+
+		parentDirectories.setModel(parentList);
+		int index = parentList.getSize() - 1;
+		parentDirectories.setSelectedIndex(index);
+		parentDirectories.ensureIndexIsVisible(index);
+	} //}}}
+
 	//{{{ showFilePopup() method
 	private void showFilePopup(VFSFile[] files, Component comp,
 		Point point)
@@ -24,13 +24,19 @@
 package org.gjt.sp.jedit.browser;
 
 //{{{ Imports
+import org.gjt.sp.jedit.browser.VFSDirectoryEntryTableModel.Entry;
 import org.gjt.sp.jedit.io.VFS;
 import org.gjt.sp.jedit.io.VFSFile;
 import org.gjt.sp.jedit.io.VFSManager;
 import org.gjt.sp.jedit.jEdit;
 import org.gjt.sp.util.Log;
+import org.gjt.sp.util.ThreadUtilities;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
 //}}}
 
 /**
@@ -39,21 +45,36 @@ import java.io.IOException;
  */
 class ListDirectoryBrowserTask extends AbstractBrowserTask
 {
-	private final Object[] loadInfo;
+	private final Predicate<VFSFile> filter;
+	private final Entry node;
+	private final Comparator<Entry> order;
+	private final PageHandler pageHandler;
+	/** Only used in the I/O thread. */
+	private boolean first;
+
 	//{{{ BrowserIORequest constructor
 	/**
 	 * Creates a new browser I/O request.
 	 * @param browser The VFS browser instance
 	 * @param path The first path name to operate on
-	 * @param loadInfo A two-element array filled out by the request;
-	 * element 1 is the canonical path, element 2 is the file list.
+	 * @param filter The files to show, from
+	 * {@link VFSBrowser#getListingFilter()}
+	 * @param node The expanded entry, null for the root directory
+	 * @param order The order to sort the entries in
+	 * @param pageHandler Receives the pages of the listing, in the event
+	 * dispatch thread
 	 */
 	ListDirectoryBrowserTask(VFSBrowser browser,
 		Object session, VFS vfs, String path,
-		Object[] loadInfo, Runnable awtRunnable)
+		Predicate<VFSFile> filter, Entry node, Comparator<Entry> order,
+		PageHandler pageHandler, Runnable awtRunnable)
 	{
 		super(browser, session, vfs, path, awtRunnable);
-		this.loadInfo = loadInfo;
+		this.filter = filter;
+		this.node = node;
+		this.order = order;
+		this.pageHandler = pageHandler;
+		first = true;
 	} //}}}
 
 	//{{{ run() method
@@ -65,13 +86,17 @@ class ListDirectoryBrowserTask extends AbstractBrowserTask
 
 		String canonPath = path;
 
-		VFSFile[] directory = null;
 		try
 		{
 			setCancellable(true);
 
 			canonPath = vfs._canonPath(session, path,browser);
-			directory = vfs._listFiles(session,canonPath,browser);
+			if(canonPath != null)
+			{
+				String _canonPath = canonPath;
+				vfs._listFiles(session,canonPath,browser,
+					page -> addPage(_canonPath,page));
+			}
 		}
 		catch(IOException io)
 		{
@@ -97,8 +122,9 @@ class ListDirectoryBrowserTask extends AbstractBrowserTask
 
 		setCancellable(false);
 
-		loadInfo[0] = canonPath;
-		loadInfo[1] = directory;
+		// an empty listing is shown if there was an error
+		if(canonPath != null && first)
+			addPage(canonPath,new VFSFile[0]);
 	} //}}}
 
 	//{{{ toString() method
@@ -107,4 +133,41 @@ class ListDirectoryBrowserTask extends AbstractBrowserTask
 		return getClass().getName() + "[type=LIST_DIRECTORY"
 			+ ",vfs=" + vfs + ",path=" + path + ']';
 	} //}}}
-}
\ No newline at end of file
+
+	//{{{ addPage() method
+	/**
+	 * Filters and sorts a page of the listing, and sends it to the event
+	 * dispatch thread.
+	 */
+	private void addPage(String canonPath, VFSFile[] page)
+	{
+		List<VFSFile> files = new ArrayList<>(page.length);
+		for (VFSFile file : page)
+		{
+			if (file != null && filter.test(file))
+				files.add(file);
+		}
+
+		Entry[] entries = VFSDirectoryEntryTableModel.createEntries(node,
+			files,order);
+		boolean firstPage = first;
+		first = false;
+		ThreadUtilities.runInDispatchThread(() ->
+			pageHandler.pageLoaded(canonPath,entries,firstPage));
+	} //}}}
+
+	//{{{ PageHandler interface
+	/**
+	 * Receives the pages of a directory listing.
+	 * @since jEdit 5.7pre1
+	 */
+	interface PageHandler
+	{
+		/**
+		 * @param canonPath The canonical path of the directory
+		 * @param entries The sorted entries of the page
+		 * @param first True for the first page
+		 */
+		void pageLoaded(String canonPath, Entry[] entries, boolean first);
+	} //}}}
+}
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
 
 import org.gjt.sp.jedit.datatransfer.ListVFSFileTransferable;
 import org.gjt.sp.jedit.io.*;
@@ -1323,18 +1324,13 @@ check_selected:
 	boolean autoDetectEncoding;
 
 	//{{{ directoryLoaded() method
-	void directoryLoaded(Object node, Object[] loadInfo,
-		boolean addToHistory)
+	/**
+	 * Called with the first page of a directory listing.
+	 * @param node The expanded entry, null for the root directory
+	 * @param path The canonical path of the directory
+	 */
+	void directoryLoaded(Object node, String path, boolean addToHistory)
 	{
-		String path = (String)loadInfo[0];
-		if(path == null)
-		{
-			// there was an error
-			return;
-		}
-
-		VFSFile[] list = (VFSFile[])loadInfo[1];
-
 		if(node == null)
 		{
 			// This is the new, canonical path
@@ -1357,38 +1353,14 @@ check_selected:
 					.addItem(path);
 			}
 		}
+	} //}}}
 
-		boolean filterEnabled = filterCheckbox.isSelected();
-
-		List<VFSFile> directoryList = new ArrayList<VFSFile>();
-
-		if(list != null)
-		{
-			VFSFileFilter filter = getVFSFileFilter();
-
-			for (VFSFile file : list)
-			{
-				if (file.isHidden() && !showHiddenFiles)
-				{
-					continue;
-				}
-
-				if (filter != null &&
-				    (filterEnabled || filter instanceof DirectoriesOnlyFilter)
-				    && !filter.accept(file))
-				{
-					continue;
-				}
-
-				directoryList.add(file);
-			}
-
-			directoryList.sort(new VFS.DirectoryEntryCompare(sortMixFilesAndDirs, sortIgnoreCase));
-		}
-
-		browserView.directoryLoaded(node,path,
-			directoryList);
-
+	//{{{ directoryShown() method
+	/**
+	 * Called once the first page of a directory listing is shown.
+	 */
+	void directoryShown()
+	{
 		// to notify listeners that any existing
 		// selection has been deactivated
 
@@ -1403,6 +1375,28 @@ check_selected:
 			filesSelected();
 	} //}}}
 
+	//{{{ getListingFilter() method
+	/**
+	 * Returns the files to show in a directory listing, as selected by
+	 * the current options. The listing is filtered in the I/O thread, so
+	 * this must be called in the event dispatch thread before the listing
+	 * starts.
+	 * @since jEdit 5.7pre1
+	 */
+	Predicate<VFSFile> getListingFilter()
+	{
+		boolean showHidden = showHiddenFiles;
+		VFSFileFilter filter = getVFSFileFilter();
+		if(filter != null && !filterCheckbox.isSelected()
+			&& !(filter instanceof DirectoriesOnlyFilter))
+		{
+			filter = null;
+		}
+		VFSFileFilter _filter = filter;
+		return file -> (showHidden || !file.isHidden())
+			&& (_filter == null || _filter.accept(file));
+	} //}}}
+
 	//{{{ filesSelected() method
 	void filesSelected()
 	{
@@ -31,6 +31,7 @@ import java.awt.event.*;
 import java.awt.font.*;
 import java.awt.*;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.Set;
 
@@ -200,33 +201,27 @@ public class VFSDirectoryEntryTable extends JTable
 		}
 	} //}}}
 
-	//{{{ setDirectory() method
-	public void setDirectory(VFS vfs, Object node, java.util.List<VFSFile> list,
-		Set<String> tmpExpanded)
+	//{{{ addEntries() method
+	/**
+	 * Adds a page of a directory listing.
+	 * @see VFSDirectoryEntryTableModel#addEntries(VFS,Entry,Entry[],Comparator,boolean)
+	 * @since jEdit 5.7pre1
+	 */
+	void addEntries(VFS vfs, Entry parent, Entry[] entries,
+		Comparator<Entry> order, boolean first, Set<String> tmpExpanded)
 	{
-		timer.stop();
-		typeSelectBuffer.setLength(0);
-
 		VFSDirectoryEntryTableModel model = (VFSDirectoryEntryTableModel)getModel();
-		int startIndex;
-		if(node == null)
-		{
-			startIndex = 0;
-			model.setRoot(vfs,list);
-		}
-		else
+		if(first)
 		{
-			startIndex =
-				model.expand(
-				vfs,
-				(Entry)node,
-				list);
-			startIndex++;
+			timer.stop();
+			typeSelectBuffer.setLength(0);
 		}
 
-		for(int i = 0; i < list.size(); i++)
+		if(!model.addEntries(vfs,parent,entries,order,first))
+			return;
+
+		for (Entry e : entries)
 		{
-			Entry e = model.files[startIndex + i];
 			String path = e.dirEntry.getPath();
 			if(tmpExpanded.contains(path))
 			{
@@ -235,7 +230,10 @@ public class VFSDirectoryEntryTable extends JTable
 			}
 		}
 
-		resizeColumns();
+		if(first)
+			resizeColumns();
+		else
+			resizeNameColumn(entries);
 	} //}}}
 
 	//{{{ maybeReloadDirectory() method
@@ -490,6 +488,8 @@ public class VFSDirectoryEntryTable extends JTable
 	private final StringBuffer typeSelectBuffer = new StringBuffer();
 	private final Timer timer = new Timer(0, e -> typeSelectBuffer.setLength(0));
 	private boolean resizingColumns;
+	/** Width of the widest entry name, as of the last resize. */
+	private int nameWidth;
 
 	//{{{ doTypeSelect() method
 	private boolean doTypeSelect(String str, int start, int end,
@@ -532,16 +532,8 @@ public class VFSDirectoryEntryTable extends JTable
 			widths[i] = Math.max(widths[i],model.getColumnWidth(i));
 		}
 
-		for(int i = 0; i < model.files.length; i++)
-		{
-			Entry entry = model.files[i];
-			Font font = entry.dirEntry.getType()
-				== VFSFile.FILE
-				? renderer.plainFont : renderer.boldFont;
-
-			widths[0] = Math.max(widths[0],renderer.getEntryWidth(
-				entry,font,fontRenderContext));
-		}
+		nameWidth = getNameWidth(model.files,fontRenderContext);
+		widths[0] = Math.max(widths[0],nameWidth);
 
 		widths[0] += 10;
 
@@ -564,6 +556,51 @@ public class VFSDirectoryEntryTable extends JTable
 		doLayout();
 	} //}}}
 
+	//{{{ resizeNameColumn() method
+	/**
+	 * Widens the name column for entries added to the listing, without
+	 * measuring the other entries again.
+	 */
+	private void resizeNameColumn(Entry[] added)
+	{
+		int width = getNameWidth(added,new FontRenderContext(null,true,false));
+		if(width <= nameWidth)
+			return;
+		nameWidth = width;
+
+		TableColumn column = getColumnModel().getColumn(0);
+		if(column.getWidth() >= width + 10)
+			return;
+		try
+		{
+			resizingColumns = true;
+			column.setPreferredWidth(width + 10);
+			column.setWidth(width + 10);
+		}
+		finally
+		{
+			resizingColumns = false;
+		}
+
+		doLayout();
+	} //}}}
+
+	//{{{ getNameWidth() method
+	private int getNameWidth(Entry[] entries, FontRenderContext fontRenderContext)
+	{
+		int width = 0;
+		for (Entry entry : entries)
+		{
+			Font font = entry.dirEntry.getType()
+				== VFSFile.FILE
+				? renderer.plainFont : renderer.boldFont;
+
+			width = Math.max(width,renderer.getEntryWidth(
+				entry,font,fontRenderContext));
+		}
+		return width;
+	} //}}}
+
 	//{{{ saveWidths() method
 	private void saveWidths()
 	{
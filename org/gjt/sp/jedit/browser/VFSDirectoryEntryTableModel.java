@@ -47,79 +47,124 @@ public class VFSDirectoryEntryTableModel extends AbstractTableModel
 		extAttrs = new ArrayList<>();
 		sortColumnIndex = 0;
 		ascending = true;
+		order = new EntryCompare(getSortAttribute(sortColumnIndex), ascending);
 	} //}}}
 
-	//{{{ setRoot() method
-	public void setRoot(VFS vfs, List<VFSFile> list)
+	//{{{ createEntries() method
+	/**
+	 * Creates the entries of a page of a directory listing, sorted in the
+	 * given order. Can be called from any thread, so that the extended
+	 * attributes needed for sorting are fetched outside of the event
+	 * dispatch thread.
+	 * @param parent The expanded entry, null for the root directory
+	 * @param list The files of the page
+	 * @param order The order returned by {@link #getEntryOrder(boolean)}
+	 * @since jEdit 5.7pre1
+	 */
+	static Entry[] createEntries(Entry parent, List<VFSFile> list,
+		Comparator<Entry> order)
 	{
-		extAttrs.clear();
-		addExtendedAttributes(vfs);
-
-		/* if(files != null && files.length != 0)
-			fireTableRowsDeleted(0,files.length - 1); */
-
-		files = new Entry[list.size()];
-		for(int i = 0; i < files.length; i++)
+		Entry[] entries = new Entry[list.size()];
+		for(int i = 0; i < entries.length; i++)
 		{
-			files[i] = new Entry(list.get(i),0);
+			entries[i] = parent == null
+				? new Entry(list.get(i),0)
+				: new Entry(list.get(i),parent.level + 1,parent);
 		}
+		Arrays.sort(entries,order);
+		return entries;
+	} //}}}
 
-		/* if(files.length != 0)
-			fireTableRowsInserted(0,files.length - 1); */
-
-		Arrays.sort(files, new EntryCompare(getSortAttribute(sortColumnIndex), ascending));
-		fireTableStructureChanged();
+	//{{{ getEntryOrder() method
+	/**
+	 * Returns the order to sort the entries of a new listing in. A new
+	 * root listing picks up the changes to the sort options.
+	 * @param root True if the root directory is about to be listed
+	 * @since jEdit 5.7pre1
+	 */
+	Comparator<Entry> getEntryOrder(boolean root)
+	{
+		if(root)
+			order = new EntryCompare(getSortAttribute(sortColumnIndex), ascending);
+		return order;
 	} //}}}
 
-	//{{{ expand() method
-	public int expand(VFS vfs, Entry entry, List<VFSFile> list)
+	//{{{ addEntries() method
+	/**
+	 * Adds a page of a directory listing. The first page replaces the
+	 * root, or the previous children of the expanded entry, the next ones
+	 * are merged with the entries already shown.
+	 * @param vfs The VFS of the listed directory
+	 * @param parent The expanded entry, null for the root directory
+	 * @param entries The entries of the page, from
+	 * {@link #createEntries(Entry,List,Comparator)}
+	 * @param entryOrder The order the entries were sorted in
+	 * @param first True for the first page of the listing
+	 * @return false if the parent entry is not shown anymore
+	 * @since jEdit 5.7pre1
+	 */
+	boolean addEntries(VFS vfs, Entry parent, Entry[] entries,
+		Comparator<Entry> entryOrder, boolean first)
 	{
-		int startIndex = -1;
-		for(int i = 0; i < files.length; i++)
+		if(entryOrder != order)
 		{
-			if(files[i] == entry)
-				startIndex = i;
+			// sorted by another column in the meantime
+			Arrays.sort(entries,order);
 		}
-		if (startIndex != -1)
-			collapse(vfs,startIndex);
-
-		addExtendedAttributes(vfs);
-		entry.expanded = true;
 
-		if(list != null)
+		if(parent == null && first)
 		{
-			// make a large enough destination array
-			Entry[] newFiles = new Entry[files.length + list.size()];
-			Entry[] subdirFiles = new Entry[list.size()];
+			extAttrs.clear();
+			addExtendedAttributes(vfs);
+			files = entries;
+			fireTableStructureChanged();
+			return true;
+		}
 
-			for(int i = 0; i < list.size(); i++)
+		int parentIndex = parent == null ? -1 : indexOf(parent);
+		if(parent != null)
+		{
+			if(parentIndex == -1)
+				return false;
+			if(first)
 			{
-				subdirFiles[i] = new Entry(
-					list.get(i),entry.level + 1,entry);
+				collapse(vfs,parentIndex);
+				addExtendedAttributes(vfs);
+				parent.expanded = true;
 			}
-
-			// sort expanded entries according to current sort params
-			Arrays.sort(subdirFiles, new EntryCompare(
-				getSortAttribute(sortColumnIndex), ascending));
-			
-			// make room after expanded entry for subdir files
-			int nextIndex = startIndex + 1;
-			System.arraycopy(files,0,newFiles,0,nextIndex);
-			System.arraycopy(subdirFiles,0,newFiles,nextIndex,list.size());
-			System.arraycopy(files,nextIndex,newFiles,nextIndex + list.size(),
-				files.length - nextIndex);
-
-			this.files = newFiles;
-
-			/* fireTableRowsInserted(startIndex + 1,
-				startIndex + list.size() + 1); */
+			else if(!parent.expanded)
+				return false;
 		}
 
-		/* fireTableRowsUpdated(startIndex,startIndex); */
+		if(entries.length == 0)
+		{
+			if(first)
+				fireTableRowsUpdated(parentIndex,parentIndex);
+			return true;
+		}
 
-		fireTableStructureChanged();
+		// both are sorted, and the order keeps children with their
+		// parents, so a merge puts the new entries in place
+		Entry[] newFiles = new Entry[files.length + entries.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while(i < files.length && j < entries.length)
+		{
+			if(order.compare(files[i],entries[j]) <= 0)
+				newFiles[k++] = files[i++];
+			else
+				newFiles[k++] = entries[j++];
+		}
+		System.arraycopy(files,i,newFiles,k,files.length - i);
+		System.arraycopy(entries,j,newFiles,k + files.length - i,entries.length - j);
+		files = newFiles;
 
-		return startIndex;
+		if(first)
+			fireTableStructureChanged();
+		else
+			fireTableDataChanged();
+		return true;
 	} //}}}
 
 	//{{{ collapse() method
@@ -236,7 +281,8 @@ public class VFSDirectoryEntryTableModel extends AbstractTableModel
 		if(sortBy == VFS.EA_STATUS)
 			return false;
 
-		Arrays.sort(files, new EntryCompare(sortBy, ascending));
+		order = new EntryCompare(sortBy, ascending);
+		Arrays.sort(files, order);
 
 		// remember column
 		sortColumnIndex = columnIndex;
@@ -312,6 +358,18 @@ public class VFSDirectoryEntryTableModel extends AbstractTableModel
 	private final List<ExtendedAttribute> extAttrs;
 	private int sortColumnIndex;
 	private boolean ascending;
+	private EntryCompare order;
+
+	//{{{ indexOf() method
+	private int indexOf(Entry entry)
+	{
+		for(int i = 0; i < files.length; i++)
+		{
+			if(files[i] == entry)
+				return i;
+		}
+		return -1;
+	} //}}}
 
 	//{{{ addExtendedAttributes() method
 	private void addExtendedAttributes(VFS vfs)
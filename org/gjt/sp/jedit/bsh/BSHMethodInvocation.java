@@ -38,8 +38,20 @@ import java.lang.reflect.InvocationTargetException;
 
 class BSHMethodInvocation extends SimpleNode
 {
+	/** The Java methods invoked through this node */
+	private transient volatile CallSiteCache callSiteCache;
+
 	BSHMethodInvocation (int id) { super(id); }
 
+	CallSiteCache getCallSiteCache()
+	{
+		// threads racing here each get a working cache, one is kept
+		CallSiteCache cache = callSiteCache;
+		if ( cache == null )
+			callSiteCache = cache = new CallSiteCache();
+		return cache;
+	}
+
 	BSHAmbiguousName getNameNode() {
 		return (BSHAmbiguousName)jjtGetChild(0);
 	}
@@ -49,8 +49,20 @@ class BSHPrimarySuffix extends SimpleNode
 	Object index;
 	public String field;
 
+	/** The methods invoked by a NAME suffix with arguments */
+	private transient volatile CallSiteCache callSiteCache;
+
 	BSHPrimarySuffix(int id) { super(id); }
 
+	CallSiteCache getCallSiteCache()
+	{
+		// threads racing here each get a working cache, one is kept
+		CallSiteCache cache = callSiteCache;
+		if ( cache == null )
+			callSiteCache = cache = new CallSiteCache();
+		return cache;
+	}
+
 	/*
 		Perform a suffix operation on the given object and return the 
 		new value.
@@ -353,6 +353,7 @@ public class BshClassManager
         absoluteClassCache = new Hashtable();
         resolvedObjectMethods = new Hashtable();
         resolvedStaticMethods = new Hashtable();
+        CallSiteCache.clearAll();
     }
 
     /**
@@ -0,0 +1,235 @@
+package org.gjt.sp.jedit.bsh;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+	An inline cache of the Java methods invoked by a method invocation node,
+	so that a call repeated in a loop does not resolve its method again.
+	<p>
+
+	Each entry holds the method resolved for a receiver class, a method name
+	and argument types.  An invocation with exactly the same receiver class
+	and argument types (the guard) invokes that method directly; it does not
+	compute the signature, look up the class manager cache nor cast the
+	arguments which already have the parameter types.
+	<p>
+
+	The cache holds the methods of a few receiver classes (a polymorphic
+	call site), the others are resolved as usual.
+	<p>
+
+	All the caches are cleared with the class manager caches, so that the
+	classes of an unloaded plugin are not held by the parsed scripts.
+*/
+/*
+	Implementation notes: the entries are replaced by a new array when an
+	entry is added, so that the nodes of a script can be evaluated by
+	several threads without locking.
+*/
+class CallSiteCache
+{
+	/** The number of receiver classes and signatures cached by a call site. */
+	static final int MAX_ENTRIES = 4;
+
+	/**
+		False to resolve every invocation, with the bsh.callSiteCache system
+		property set to false, to measure the invocations without the caches.
+	*/
+	static final boolean ENABLED = Boolean.parseBoolean(
+		System.getProperty( "bsh.callSiteCache", "true" ) );
+
+	private static final Entry [] NO_ENTRIES = new Entry[0];
+
+	/** The caches of the live nodes, to clear them */
+	private static final Set<CallSiteCache> caches =
+		Collections.newSetFromMap( new WeakHashMap<CallSiteCache,Boolean>() );
+
+	private volatile Entry [] entries = NO_ENTRIES;
+
+	CallSiteCache()
+	{
+		synchronized( caches )
+		{
+			caches.add( this );
+		}
+	}
+
+	/**
+		Drop the methods cached by all the call sites.
+	*/
+	static void clearAll()
+	{
+		synchronized( caches )
+		{
+			for( CallSiteCache cache : caches )
+				cache.clear();
+		}
+	}
+
+	/**
+		Drop the cached methods.
+	*/
+	synchronized void clear()
+	{
+		entries = NO_ENTRIES;
+	}
+
+	/**
+		@return the number of receiver classes and signatures cached
+	*/
+	int size()
+	{
+		return entries.length;
+	}
+
+	/**
+		Invoke the method cached for a receiver class and the types of the
+		arguments.
+		@param clas the class of the object, or the class of a static method
+		@param object the object, null for a static method
+		@return the return value wrapped as Reflect.invokeMethod() does, or
+			null if the method is not cached
+	*/
+	Object invoke( Class<?> clas, Object object, String methodName,
+		Object [] args )
+		throws ReflectError, InvocationTargetException
+	{
+		Entry [] entries = this.entries;
+		for( int i=0; i<entries.length; i++ )
+		{
+			Entry entry = entries[i];
+			// a static invocation only finds static methods
+			if ( entry.clas == clas && ( object != null || entry.isStatic )
+				&& entry.matches( methodName, args )
+			)
+				return entry.invoke( object, args );
+		}
+		return null;
+	}
+
+	/**
+		Cache the method resolved for a receiver class and the types of the
+		arguments, unless the call site is megamorphic.
+	*/
+	void add( Class<?> clas, String methodName, Object [] args, Method method )
+	{
+		if ( !ENABLED || entries.length >= MAX_ENTRIES )
+			return;
+
+		Entry entry = new Entry( clas, methodName, args, method );
+		synchronized( this )
+		{
+			Entry [] oldEntries = entries;
+			if ( oldEntries.length >= MAX_ENTRIES )
+				return;
+			Entry [] newEntries = new Entry[ oldEntries.length + 1 ];
+			System.arraycopy( oldEntries, 0, newEntries, 0, oldEntries.length );
+			newEntries[ oldEntries.length ] = entry;
+			entries = newEntries;
+		}
+	}
+
+	private static final class Entry
+	{
+		final Class<?> clas;
+		final boolean isStatic;
+		final String methodName;
+		/** The types of the arguments, as in Types.getTypes() */
+		final Class<?> [] argTypes;
+		/**
+			The parameter types the arguments are cast to, null for the
+			arguments passed as they are
+		*/
+		final Class<?> [] castTypes;
+		final Method method;
+		final Class<?> returnType;
+
+		Entry( Class<?> clas, String methodName, Object [] args, Method method )
+		{
+			this.clas = clas;
+			this.isStatic = Modifier.isStatic( method.getModifiers() );
+			this.methodName = methodName;
+			this.method = method;
+			this.returnType = method.getReturnType();
+
+			Class<?> [] paramTypes = method.getParameterTypes();
+			argTypes = Types.getTypes( args );
+			castTypes = new Class<?>[ paramTypes.length ];
+			for( int i=0; i<paramTypes.length; i++ )
+			{
+				// the arguments which Types.castObject() would return
+				// unchanged are not cast
+				boolean isPrimitiveArg = args[i] instanceof Primitive;
+				if ( paramTypes[i].isPrimitive() ?
+					!( isPrimitiveArg && argTypes[i] == paramTypes[i] )
+					: ( isPrimitiveArg || argTypes[i] == null
+						|| !paramTypes[i].isAssignableFrom( argTypes[i] ) )
+				)
+					castTypes[i] = paramTypes[i];
+			}
+		}
+
+		boolean matches( String methodName, Object [] args )
+		{
+			int numArgs = args == null ? 0 : args.length;
+			if ( numArgs != argTypes.length
+				|| !this.methodName.equals( methodName ) )
+				return false;
+
+			for( int i=0; i<numArgs; i++ )
+			{
+				Object arg = args[i];
+				Class<?> type;
+				if ( arg == null )
+					type = null;
+				else if ( arg instanceof Primitive )
+					type = ((Primitive)arg).getType();
+				else
+					type = arg.getClass();
+				if ( type != argTypes[i] )
+					return false;
+			}
+			return true;
+		}
+
+		/**
+			Invoke the method, mapping the arguments and the return value
+			like Reflect.invokeMethod() does.
+		*/
+		Object invoke( Object object, Object [] args )
+			throws ReflectError, InvocationTargetException
+		{
+			Object [] values = new Object[ argTypes.length ];
+			try {
+				for( int i=0; i<values.length; i++ )
+				{
+					Object arg = args[i];
+					if ( castTypes[i] != null )
+						arg = Types.castObject(
+							arg, castTypes[i], Types.ASSIGNMENT );
+					values[i] = Primitive.unwrap( arg );
+				}
+			} catch ( UtilEvalError e ) {
+				throw new InterpreterError(
+					"illegal argument type in method invocation: "+e );
+			}
+
+			try {
+				Object returnValue = method.invoke( object, values );
+				if ( returnValue == null )
+					returnValue = Primitive.NULL;
+				return Primitive.wrap( returnValue, returnType );
+			} catch( IllegalAccessException e ) {
+				throw new ReflectError( "Cannot access method "
+					+ StringUtil.methodString(
+						method.getName(), method.getParameterTypes() )
+					+ " in '" + method.getDeclaringClass() + "' :" + e );
+			}
+		}
+	}
+}
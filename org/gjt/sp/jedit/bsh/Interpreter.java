@@ -34,6 +34,8 @@
 package org.gjt.sp.jedit.bsh;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 
@@ -637,25 +639,6 @@ public class Interpreter
                     node = (SimpleNode)localInterpreter.get_jjtree().rootNode();
 					// nodes remember from where they were sourced
 					node.setSourceFile( sourceFileInfo );
-
-					if ( TRACE )
-						println( "// " +node.getText() );
-
-                    retVal = node.eval( callstack, localInterpreter );
-
-					// sanity check during development
-					if ( callstack.depth() > 1 )
-						throw new InterpreterError(
-							"Callstack growing: "+callstack);
-
-                    if ( retVal instanceof ReturnControl ) {
-                        retVal = ((ReturnControl)retVal).value;
-						break; // non-interactive, return control now
-					}
-
-					if ( localInterpreter.showResults
-						&& retVal != Primitive.VOID )
-						println("<" + retVal + ">");
                 }
             } catch(ParseException e) {
 				/*
@@ -671,46 +654,198 @@ public class Interpreter
 				e.setErrorSourceFile( sourceFileInfo );
 				throw e;
 
-            } catch ( InterpreterError e ) {
-                e.printStackTrace();
-                throw new EvalError(
-					"Sourced file: "+sourceFileInfo+" internal Error: "
-					+ e.getMessage(), node, callstack);
-            } catch ( TargetError e ) {
-				// failsafe, set the Line as the origin of the error.
-				if ( e.getNode()==null )
-					e.setNode( node );
-				e.reThrow("Sourced file: "+sourceFileInfo);
-            } catch ( EvalError e) {
-                if ( DEBUG)
-                    e.printStackTrace();
-				// failsafe, set the Line as the origin of the error.
-				if ( e.getNode()==null )
-					e.setNode( node );
-				e.reThrow( "Sourced file: "+sourceFileInfo );
-            } catch ( Exception e) {
-                if ( DEBUG)
-                	e.printStackTrace();
-                throw new EvalError(
-					"Sourced file: "+sourceFileInfo+" unknown error: "
-					+ e.getMessage(), node, callstack);
             } catch(TokenMgrError e) {
                 throw new EvalError(
 					"Sourced file: "+sourceFileInfo+" Token Parsing Error: "
 					+ e.getMessage(), node, callstack );
             } finally {
                 localInterpreter.get_jjtree().reset();
+            }
 
-				// reinit the callstack
-				if ( callstack.depth() > 1 ) {
-					callstack.clear();
-					callstack.push( nameSpace );
+			if ( node != null ) {
+				retVal = evalStatement( node, callstack, nameSpace,
+					localInterpreter, sourceFileInfo );
+				if ( retVal instanceof ReturnControl ) {
+					retVal = ((ReturnControl)retVal).value;
+					break; // non-interactive, return control now
 				}
-            }
+			}
         }
 		return Primitive.unwrap( retVal );
     }
 
+	/**
+		Parse all the statements read from a reader, without evaluating
+		them.  The result can be evaluated any number of times with
+		eval( ParsedScript, NameSpace ), which does not read nor parse
+		the source again.
+
+		@param sourceFileInfo is for information purposes only, as in
+		eval( Reader, NameSpace, String ).
+		@throws ParseException on syntax errors
+		@throws EvalError on token errors
+	*/
+	public static ParsedScript parse( Reader in, String sourceFileInfo )
+		throws EvalError
+	{
+		Parser parser = new Parser( in );
+		List<SimpleNode> statements = new ArrayList<SimpleNode>();
+		boolean eof = false;
+		try {
+			while ( !eof ) {
+				eof = parser.Line();
+				if ( parser.jjtree.nodeArity() > 0 ) {
+					SimpleNode node = (SimpleNode)parser.jjtree.rootNode();
+					// nodes remember from where they were sourced
+					node.setSourceFile( sourceFileInfo );
+					statements.add( node );
+				}
+				parser.jjtree.reset();
+			}
+		} catch ( ParseException e ) {
+			e.setErrorSourceFile( sourceFileInfo );
+			throw e;
+		} catch ( TokenMgrError e ) {
+			throw new EvalError(
+				"Sourced file: "+sourceFileInfo+" Token Parsing Error: "
+				+ e.getMessage(), null, null );
+		}
+		return new ParsedScript(
+			statements.toArray( new SimpleNode[statements.size()] ),
+			sourceFileInfo );
+	}
+
+	/**
+		Evaluate the statements of a parsed script in the specified
+		namespace, like eval( Reader, NameSpace, String ) does with its
+		source.
+
+		@throws EvalError on script problems
+		@throws TargetError on unhandled exceptions from the script
+	*/
+	public Object eval( ParsedScript script, NameSpace nameSpace )
+		throws EvalError
+	{
+		Object retVal = null;
+		String sourceFileInfo = script.sourceFileInfo;
+		if ( Interpreter.DEBUG ) debug("eval: nameSpace = "+nameSpace);
+
+		// the statements are evaluated by a non-interactive local
+		// interpreter, which has nothing left to read
+		Interpreter localInterpreter =
+			new Interpreter( new StringReader(""), out, err, false,
+				nameSpace, this, sourceFileInfo );
+
+		CallStack callstack = new CallStack( nameSpace );
+
+		for ( SimpleNode node : script.statements )
+		{
+			retVal = evalStatement( node, callstack, nameSpace,
+				localInterpreter, sourceFileInfo );
+			if ( retVal instanceof ReturnControl ) {
+				retVal = ((ReturnControl)retVal).value;
+				break; // non-interactive, return control now
+			}
+		}
+		return Primitive.unwrap( retVal );
+	}
+
+	/**
+		Evaluate one top level statement for eval( Reader, NameSpace, String )
+		and eval( ParsedScript, NameSpace ).
+
+		@return the value of the statement, a ReturnControl if the script
+		returns
+	*/
+	private Object evalStatement(
+		SimpleNode node, CallStack callstack, NameSpace nameSpace,
+		Interpreter localInterpreter, String sourceFileInfo )
+		throws EvalError
+	{
+		try
+		{
+			if ( TRACE )
+				println( "// " +node.getText() );
+
+			Object retVal = node.eval( callstack, localInterpreter );
+
+			// sanity check during development
+			if ( callstack.depth() > 1 )
+				throw new InterpreterError(
+					"Callstack growing: "+callstack);
+
+			if ( !(retVal instanceof ReturnControl)
+				&& localInterpreter.showResults
+				&& retVal != Primitive.VOID )
+				println("<" + retVal + ">");
+			return retVal;
+		} catch ( InterpreterError e ) {
+			e.printStackTrace();
+			throw new EvalError(
+				"Sourced file: "+sourceFileInfo+" internal Error: "
+				+ e.getMessage(), node, callstack);
+		} catch ( TargetError e ) {
+			// failsafe, set the Line as the origin of the error.
+			if ( e.getNode()==null )
+				e.setNode( node );
+			e.reThrow("Sourced file: "+sourceFileInfo);
+		} catch ( EvalError e) {
+			if ( DEBUG)
+				e.printStackTrace();
+			// failsafe, set the Line as the origin of the error.
+			if ( e.getNode()==null )
+				e.setNode( node );
+			e.reThrow( "Sourced file: "+sourceFileInfo );
+		} catch ( Exception e) {
+			if ( DEBUG)
+				e.printStackTrace();
+			throw new EvalError(
+				"Sourced file: "+sourceFileInfo+" unknown error: "
+				+ e.getMessage(), node, callstack);
+		} finally {
+			// reinit the callstack
+			if ( callstack.depth() > 1 ) {
+				callstack.clear();
+				callstack.push( nameSpace );
+			}
+		}
+		return null; // reThrow() always throws
+	}
+
+	/**
+		The statements of a script, parsed by parse( Reader, String ).
+		They do not depend on the interpreter nor the namespace they are
+		evaluated in.
+		<p>
+
+		The nodes are shared by all the evaluations of the script, which
+		may run in several threads at the same time, and they keep the
+		state the evaluations leave in them: the invocation counts and
+		compiled forms of the scripted methods (BSHBlock) and the Java
+		methods cached at the call sites (CallSiteCache).  These fields
+		are volatile or immutable, so that they are safely published to
+		the other threads.
+	*/
+	public static final class ParsedScript
+	{
+		final SimpleNode[] statements;
+		final String sourceFileInfo;
+
+		ParsedScript( SimpleNode[] statements, String sourceFileInfo )
+		{
+			this.statements = statements;
+			this.sourceFileInfo = sourceFileInfo;
+		}
+
+		/**
+			@return the number of top level statements
+		*/
+		public int getStatementCount()
+		{
+			return statements.length;
+		}
+	}
+
 	/**
 		Evaluate the inputstream in this interpreter's global namespace.
 	*/
@@ -794,7 +794,7 @@ class Name implements java.io.Serializable
         if ( classOfStaticMethod != null )
 		{
 			return Reflect.invokeStaticMethod( 
-				bcm, classOfStaticMethod, methodName, args );
+				bcm, classOfStaticMethod, methodName, args, callerInfo );
 		}
 
 		if ( !Name.isCompound(value) )
@@ -868,7 +868,8 @@ class Name implements java.io.Serializable
 		classOfStaticMethod = clas;
 		
         if ( clas != null )
-			return Reflect.invokeStaticMethod( bcm, clas, methodName, args );
+			return Reflect.invokeStaticMethod(
+				bcm, clas, methodName, args, callerInfo );
 
         // return null; ???
 		throw new UtilEvalError("invokeMethod: unknown target: " + targetName);
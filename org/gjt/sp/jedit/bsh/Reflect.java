@@ -75,9 +75,25 @@ class Reflect
 				interpreter == null ? null : interpreter.getClassManager();
 			Class clas = object.getClass();
 
+			// the inline cache of the call site, for the objects
+			CallSiteCache cache = null;
+			if ( callerInfo != null && !(object instanceof Primitive) )
+			{
+				cache = callerInfo.getCallSiteCache();
+				if ( cache != null )
+				{
+					Object ret = cache.invoke( clas, object, methodName, args );
+					if ( ret != null )
+						return ret;
+				}
+			}
+
 			Method method = resolveExpectedJavaMethod(
 				bcm, clas, object, methodName, args, false );
 
+			if ( cache != null )
+				cache.add( clas, methodName, args, method );
+
 			return invokeMethod( method, object, args );
 		} catch ( UtilEvalError e ) {
 			throw e.toEvalError( callerInfo, callstack );
@@ -92,10 +108,35 @@ class Reflect
     public static Object invokeStaticMethod(
 		BshClassManager bcm, Class clas, String methodName, Object [] args )
         throws ReflectError, UtilEvalError, InvocationTargetException
+    {
+		return invokeStaticMethod( bcm, clas, methodName, args, null );
+    }
+
+    /** 
+		Invoke a method known to be static, through the inline cache of the
+		call site if callerInfo has one.
+	*/
+    static Object invokeStaticMethod(
+		BshClassManager bcm, Class<?> clas, String methodName, Object [] args,
+		SimpleNode callerInfo )
+        throws ReflectError, UtilEvalError, InvocationTargetException
     {
         Interpreter.debug("invoke static Method");
+		CallSiteCache cache =
+			callerInfo == null ? null : callerInfo.getCallSiteCache();
+		if ( cache != null )
+		{
+			Object ret = cache.invoke( clas, null, methodName, args );
+			if ( ret != null )
+				return ret;
+		}
+
         Method method = resolveExpectedJavaMethod( 
 			bcm, clas, null, methodName, args, true );
+
+		if ( cache != null )
+			cache.add( clas, methodName, args, method );
+
 		return invokeMethod( method, null, args );
     }
 
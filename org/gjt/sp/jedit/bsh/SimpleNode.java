@@ -201,6 +201,14 @@ class SimpleNode implements Node
 	}
 	*/
 
+	/**
+		Get the inline cache of the methods invoked by this node, or null if
+		this node does not invoke methods.
+	*/
+	CallSiteCache getCallSiteCache() {
+		return null;
+	}
+
 	/**
 		Get the text of the tokens comprising this node.
 	*/
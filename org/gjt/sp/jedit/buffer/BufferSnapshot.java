@@ -0,0 +1,218 @@
+/*
+ * BufferSnapshot.java - An immutable view of a buffer's text
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+/**
+ * The text and the line offsets of a buffer at a given version, returned
+ * by {@link JEditBuffer#getSnapshot()}.<p>
+ *
+ * A snapshot never changes, and can be read from any thread without
+ * holding the buffer lock, while the buffer is being edited. It is taken
+ * in constant time: the snapshot shares the arrays of the buffer, and the
+ * buffer copies them before its next change.<p>
+ *
+ * This allows a background task, like a search or a parser, to scan the
+ * buffer without blocking the edits. The results can be applied to the
+ * buffer if its version is still the one of the snapshot, see
+ * {@link #getVersion()}.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class BufferSnapshot implements CharSequence
+{
+	//{{{ BufferSnapshot constructor
+	/**
+	 * Must be called with the buffer lock held.
+	 */
+	BufferSnapshot(long version, ContentManager contentMgr, LineManager lineMgr)
+	{
+		this.version = version;
+		text = contentMgr.share();
+		length = contentMgr.getLength();
+		gapStart = contentMgr.getGapStart();
+		gapLength = text.length - length;
+		endOffsets = lineMgr.shareEndOffsets();
+		lineCount = lineMgr.getLineCount();
+		gapLine = lineMgr.getGapLine();
+		gapWidth = lineMgr.getGapWidth();
+	} //}}}
+
+	//{{{ getVersion() method
+	/**
+	 * @return the version of the buffer this snapshot was taken at
+	 * @see JEditBuffer#getVersion()
+	 */
+	public long getVersion()
+	{
+		return version;
+	} //}}}
+
+	//{{{ getLength() method
+	/**
+	 * @return the number of characters
+	 */
+	public int getLength()
+	{
+		return length;
+	} //}}}
+
+	//{{{ getLineCount() method
+	/**
+	 * @return the number of lines
+	 */
+	public int getLineCount()
+	{
+		return lineCount;
+	} //}}}
+
+	//{{{ getLineOfOffset() method
+	/**
+	 * @return the line containing an offset
+	 * @see JEditBuffer#getLineOfOffset(int)
+	 */
+	public int getLineOfOffset(int offset)
+	{
+		if(offset < 0 || offset > length)
+			throw new ArrayIndexOutOfBoundsException(offset);
+
+		int start = 0;
+		int end = lineCount - 1;
+		while(start < end)
+		{
+			int pivot = (start + end) >>> 1;
+			if(getLineEndOffset(pivot) <= offset)
+				start = pivot + 1;
+			else
+				end = pivot;
+		}
+		return start;
+	} //}}}
+
+	//{{{ getLineStartOffset() method
+	/**
+	 * @return the start offset of a line
+	 * @see JEditBuffer#getLineStartOffset(int)
+	 */
+	public int getLineStartOffset(int line)
+	{
+		if(line < 0 || line >= lineCount)
+			throw new ArrayIndexOutOfBoundsException(line);
+		return line == 0 ? 0 : getLineEndOffset(line - 1);
+	} //}}}
+
+	//{{{ getLineEndOffset() method
+	/**
+	 * @return the end offset of a line, after the line separator, or
+	 * one more than the length of the buffer for the last line
+	 * @see JEditBuffer#getLineEndOffset(int)
+	 */
+	public int getLineEndOffset(int line)
+	{
+		if(line < 0 || line >= lineCount)
+			throw new ArrayIndexOutOfBoundsException(line);
+		if(gapLine != -1 && line >= gapLine)
+			return endOffsets[line] + gapWidth;
+		return endOffsets[line];
+	} //}}}
+
+	//{{{ getLineSegment() method
+	/**
+	 * @return the text of a line, without the line separator
+	 */
+	public CharSequence getLineSegment(int line)
+	{
+		int start = getLineStartOffset(line);
+		return getSegment(start,getLineEndOffset(line) - start - 1);
+	} //}}}
+
+	//{{{ getSegment() method
+	/**
+	 * Returns a range of the text, without copying it.
+	 * @param start The start offset
+	 * @param len The number of characters
+	 */
+	public CharSequence getSegment(int start, int len)
+	{
+		if(start < 0 || len < 0 || start + len > length)
+			throw new ArrayIndexOutOfBoundsException(start + ":" + len);
+
+		if(start >= gapStart)
+			return new BufferSegment(text,start + gapLength,len);
+		else if(start + len <= gapStart)
+			return new BufferSegment(text,start,len);
+		else
+		{
+			return new BufferSegment(text,start,gapStart - start,
+				new BufferSegment(text,gapStart + gapLength,
+					start + len - gapStart));
+		}
+	} //}}}
+
+	//{{{ getText() method
+	/**
+	 * @return a range of the text
+	 */
+	public String getText(int start, int len)
+	{
+		return getSegment(start,len).toString();
+	} //}}}
+
+	//{{{ CharSequence implementation
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if(index < 0 || index >= length)
+			throw new ArrayIndexOutOfBoundsException(index);
+		return index < gapStart ? text[index] : text[index + gapLength];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return getSegment(start,end - start);
+	}
+
+	@Override
+	public String toString()
+	{
+		return getText(0,length);
+	} //}}}
+
+	//{{{ Private members
+	private final long version;
+	private final char[] text;
+	private final int length;
+	private final int gapStart;
+	private final int gapLength;
+	private final int[] endOffsets;
+	private final int lineCount;
+	private final int gapLine;
+	private final int gapWidth;
+	//}}}
+}
@@ -167,20 +167,51 @@ class ContentManager
 		this.text = text;
 		this.gapStart = length;
 		this.length = length;
+		shared = false;
 	} //}}}
 
 	//{{{ remove() method
 	public void remove(int start, int len)
 	{
+		unshare();
 		moveGapStart(start);
 		length -= len;
 	} //}}}
 
+	//{{{ share() method
+	/**
+	 * Returns the text array, for a {@link BufferSnapshot}. The array is
+	 * not changed anymore, it is copied before the next change.
+	 */
+	char[] share()
+	{
+		shared = true;
+		return text;
+	} //}}}
+
+	//{{{ getGapStart() method
+	int getGapStart()
+	{
+		return gapStart;
+	} //}}}
+
 	//{{{ Private members
 	private static final char[] EMPTY_TEXT = new char[0];
 	private char[] text = EMPTY_TEXT;
 	private int gapStart;
 	private int length;
+	/** Set if the text array is used by a snapshot. */
+	private boolean shared;
+
+	//{{{ unshare() method
+	private void unshare()
+	{
+		if(shared)
+		{
+			text = text.clone();
+			shared = false;
+		}
+	} //}}}
 
 	//{{{ gapEnd() method
 	private int gapEnd()
@@ -237,6 +268,7 @@ class ContentManager
 	//{{{ prepareGapForInsertion() method
 	private void prepareGapForInsertion(int start, int len)
 	{
+		unshare();
 		moveGapStart(start);
 		if(gapLength() < len)
 			ensureCapacity(length + len);
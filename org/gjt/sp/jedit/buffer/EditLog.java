@@ -0,0 +1,192 @@
+/*
+ * EditLog.java - The last edits of a buffer
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.util.Arrays;
+//}}}
+
+/**
+ * A bounded log of the last edits of a buffer, used to map offsets from
+ * one version of the buffer to a later one.<p>
+ *
+ * Each edit replaces <code>removed</code> characters at an offset by
+ * <code>inserted</code> characters, and is stamped with the version of
+ * the buffer it produced. The edits of a batch share the same version, and
+ * are logged from the last one to the first one, so that each one is
+ * relative to the buffer after the previous one. When the log is full,
+ * the oldest edits are dropped, and the versions before them can not be
+ * mapped anymore.<p>
+ *
+ * This class is not thread-safe, the buffer lock protects it.
+ *
+ * @since jEdit 5.7pre1
+ */
+class EditLog
+{
+	//{{{ EditLog constructor
+	EditLog(int capacity)
+	{
+		this.capacity = capacity;
+		versions = new long[16];
+		offsets = new int[16];
+		removed = new int[16];
+		inserted = new int[16];
+	} //}}}
+
+	//{{{ reset() method
+	/**
+	 * Drops all the edits. Only the offsets of the given version and the
+	 * later ones can be mapped.
+	 */
+	void reset(long version)
+	{
+		head = size = 0;
+		baseVersion = version;
+	} //}}}
+
+	//{{{ add() method
+	void add(long version, int offset, int removed, int inserted)
+	{
+		if(size == capacity)
+		{
+			baseVersion = versions[head];
+			head = (head + 1) % versions.length;
+			size--;
+		}
+		else if(size == versions.length)
+			grow();
+
+		int index = (head + size) % versions.length;
+		versions[index] = version;
+		offsets[index] = offset;
+		this.removed[index] = removed;
+		this.inserted[index] = inserted;
+		size++;
+	} //}}}
+
+	//{{{ canMap() method
+	/**
+	 * @return if the offsets of a version can still be mapped
+	 */
+	boolean canMap(long version)
+	{
+		return version >= baseVersion;
+	} //}}}
+
+	//{{{ mapOffset() method
+	/**
+	 * Maps an offset from a version of the buffer to a later one.
+	 * An offset in a removed range moves to the start of the text
+	 * inserted in its place. An offset at the start of an inserted text,
+	 * or in a replaced range, moves after that text if <code>after</code>
+	 * is set, and stays before it otherwise.
+	 * @param offset The offset
+	 * @param from The version the offset is relative to, for which
+	 * {@link #canMap(long)} must be true
+	 * @param to The version to map the offset to
+	 * @param after The side of the inserted text offsets move to
+	 */
+	int mapOffset(int offset, long from, long to, boolean after)
+	{
+		for(int i = firstAfter(from); i < size; i++)
+		{
+			int index = (head + i) % versions.length;
+			if(versions[index] > to)
+				break;
+
+			int start = offsets[index];
+			if(offset < start)
+				continue;
+			int end = start + removed[index];
+			if(offset > end)
+				offset += inserted[index] - removed[index];
+			else
+				offset = after ? start + inserted[index] : start;
+		}
+		return offset;
+	} //}}}
+
+	//{{{ Private members
+	private final int capacity;
+	/** The version of each edit, in increasing order. */
+	private long[] versions;
+	private int[] offsets;
+	private int[] removed;
+	private int[] inserted;
+	/** The index of the oldest edit. */
+	private int head;
+	private int size;
+	/** The oldest version that can be mapped. */
+	private long baseVersion;
+
+	//{{{ firstAfter() method
+	/**
+	 * @return the position in the log of the first edit made after a
+	 * version
+	 */
+	private int firstAfter(long version)
+	{
+		int low = 0;
+		int high = size - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(versions[(head + mid) % versions.length] <= version)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return low;
+	} //}}}
+
+	//{{{ grow() method
+	private void grow()
+	{
+		int length = Math.min(versions.length * 2,capacity);
+		versions = unwrap(versions,length);
+		offsets = unwrap(offsets,length);
+		removed = unwrap(removed,length);
+		inserted = unwrap(inserted,length);
+		head = 0;
+	} //}}}
+
+	//{{{ unwrap() methods
+	private long[] unwrap(long[] array, int length)
+	{
+		long[] copy = Arrays.copyOf(array,length);
+		System.arraycopy(array,head,copy,0,array.length - head);
+		System.arraycopy(array,0,copy,array.length - head,head);
+		return copy;
+	}
+
+	private int[] unwrap(int[] array, int length)
+	{
+		int[] copy = Arrays.copyOf(array,length);
+		System.arraycopy(array,head,copy,0,array.length - head);
+		System.arraycopy(array,0,copy,array.length - head,head);
+		return copy;
+	} //}}}
+
+	//}}}
+}
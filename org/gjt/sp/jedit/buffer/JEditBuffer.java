@@ -102,6 +102,7 @@ public class JEditBuffer
 		contentMgr = new ContentManager();
 		lineMgr = new LineManager();
 		positionMgr = new PositionManager(this);
+		editLog = new EditLog(EDIT_LOG_CAPACITY);
 		undoMgr = new UndoManager(this);
 		integerArray = new IntegerArray();
 		propertyLock = new Object();
@@ -339,6 +340,106 @@ public class JEditBuffer
 		return contentMgr.getLength();
 	} //}}}
 
+	//{{{ getVersion() method
+	/**
+	 * Returns the version of the buffer content, which is incremented
+	 * each time the content changes. This method is thread-safe.
+	 * @see #getSnapshot()
+	 * @since jEdit 5.7pre1
+	 */
+	public long getVersion()
+	{
+		return version;
+	} //}}}
+
+	//{{{ transformOffset() method
+	/**
+	 * Maps an offset from a previous version of the buffer to a later
+	 * one, so that offsets computed in the background, for example from a
+	 * {@link #getSnapshot() snapshot}, can be used once the buffer has
+	 * changed. An offset in a removed range moves to the start of the
+	 * text inserted in its place, and an offset where text is inserted
+	 * moves after it, like a {@link #createPosition(int) position}.<p>
+	 *
+	 * Only the last edits are kept, so the offsets of an old version can
+	 * not be mapped anymore. Loading the buffer also drops the edits.
+	 *
+	 * @param offset The offset, in the buffer at <code>fromVersion</code>
+	 * @param fromVersion The version the offset is relative to
+	 * @param toVersion The version to map the offset to, usually
+	 * {@link #getVersion()}
+	 * @return the offset in the buffer at <code>toVersion</code>, or -1
+	 * if the edits since <code>fromVersion</code> are not known anymore
+	 * @since jEdit 5.7pre1
+	 */
+	public int transformOffset(int offset, long fromVersion, long toVersion)
+	{
+		try
+		{
+			readLock();
+			if(!canTransform(fromVersion,toVersion))
+				return -1;
+			return editLog.mapOffset(offset,fromVersion,toVersion,true);
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
+	//{{{ transformRange() method
+	/**
+	 * Maps a range from a previous version of the buffer to a later one,
+	 * like {@link #transformOffset(int,long,long)}. Text inserted at the
+	 * start or at the end of the range is not added to it, and the range
+	 * becomes empty if its text is removed.
+	 * @param start The start offset of the range
+	 * @param end The end offset of the range
+	 * @param fromVersion The version the range is relative to
+	 * @param toVersion The version to map the range to
+	 * @return the start and end offsets of the range in the buffer at
+	 * <code>toVersion</code>, or null if the edits since
+	 * <code>fromVersion</code> are not known anymore
+	 * @since jEdit 5.7pre1
+	 */
+	public int[] transformRange(int start, int end, long fromVersion, long toVersion)
+	{
+		try
+		{
+			readLock();
+			if(!canTransform(fromVersion,toVersion))
+				return null;
+			int newStart = editLog.mapOffset(start,fromVersion,toVersion,true);
+			int newEnd = editLog.mapOffset(end,fromVersion,toVersion,false);
+			return new int[] { newStart, Math.max(newStart,newEnd) };
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
+	//{{{ getSnapshot() method
+	/**
+	 * Returns the current content of the buffer, which can then be read
+	 * from any thread without locking the buffer. This is a constant time
+	 * operation: the text is not copied. This method is thread-safe.
+	 * @see BufferSnapshot
+	 * @since jEdit 5.7pre1
+	 */
+	public BufferSnapshot getSnapshot()
+	{
+		try
+		{
+			readLock();
+			return new BufferSnapshot(version,contentMgr,lineMgr);
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
 	//{{{ getLineCount() method
 	/**
 	 * @return the number of physical lines in the buffer.
@@ -755,6 +856,7 @@ public class JEditBuffer
 				throw new ArrayIndexOutOfBoundsException(offset);
 
 			contentMgr.insert(offset,seq);
+			editLog.add(++version,offset,0,len);
 
 			integerArray.clear();
 
@@ -814,6 +916,7 @@ public class JEditBuffer
 			firePreContentRemoved(startLine,offset,numLines,length);
 
 			contentMgr.remove(offset,length);
+			editLog.add(++version,offset,length,0);
 			lineMgr.contentRemoved(startLine,offset,numLines,length);
 			positionMgr.contentRemoved(offset,length);
 
@@ -834,6 +937,133 @@ public class JEditBuffer
 		}
 	} //}}}
 
+	//{{{ applyEdits() method
+	/**
+	 * Applies a batch of edits in one step. The listeners are notified of
+	 * a single replacement of the range spanned by the edits, and the
+	 * batch is undone in one step. This is much faster than calling
+	 * {@link #remove(int,int)} and {@link #insert(int,CharSequence)} for
+	 * each edit when there are many of them, like when typing with a
+	 * caret on each occurrence of a word.
+	 * @param edits The edits
+	 * @see #getMultiEdit()
+	 * @since jEdit 5.7pre1
+	 */
+	public void applyEdits(MultiEdit edits)
+	{
+		if(edits.isEmpty())
+			return;
+
+		try
+		{
+			transaction = true;
+
+			writeLock();
+
+			int offset = edits.getStart();
+			int length = edits.getEnd() - offset;
+			if(edits.getEnd() > contentMgr.getLength())
+				throw new ArrayIndexOutOfBoundsException(offset + ":" + length);
+
+			String oldText = getText(offset,length);
+			String newText = edits.apply(oldText);
+			int newLength = newText.length();
+
+			int startLine = lineMgr.getLineOfOffset(offset);
+			int numLines = lineMgr.getLineOfOffset(offset + length) - startLine;
+
+			if(!undoInProgress && !loading)
+				undoMgr.contentReplaced(edits,!dirty);
+
+			multiEdit = edits;
+			version++;
+			for(int i = edits.getSize() - 1; i >= 0; i--)
+			{
+				editLog.add(version,edits.getOffset(i),
+					edits.getLength(i),edits.getText(i).length());
+			}
+
+			if(length != 0)
+			{
+				if(!loading)
+					firePreContentRemoved(startLine,offset,numLines,length);
+
+				contentMgr.remove(offset,length);
+				lineMgr.contentRemoved(startLine,offset,numLines,length);
+			}
+
+			// the positions are moved edit by edit, not collapsed to the
+			// start of the replaced range
+			positionMgr.contentRemoved(edits);
+
+			setDirty(true);
+
+			if(length != 0 && !loading)
+				fireContentRemoved(startLine,offset,numLines,length);
+
+			integerArray.clear();
+			if(newLength != 0)
+			{
+				contentMgr.insert(offset,newText);
+
+				for(int i = 0; i < newLength; i++)
+				{
+					if(newText.charAt(i) == '\n')
+						integerArray.add(i + 1);
+				}
+				int newNumLines = integerArray.getSize();
+
+				if(!loading)
+				{
+					firePreContentInserted(startLine,offset,newNumLines,
+						newLength);
+				}
+
+				lineMgr.contentInserted(startLine,offset,newNumLines,newLength,
+					integerArray);
+			}
+
+			positionMgr.contentInserted(edits);
+
+			setDirty(true);
+
+			if(!loading)
+			{
+				if(newLength != 0)
+				{
+					fireContentInserted(startLine,offset,
+						integerArray.getSize(),newLength);
+				}
+
+				multiEdit = null;
+
+				/* otherwise it will be delivered later */
+				if(!undoInProgress && !insideCompoundEdit())
+					fireTransactionComplete();
+			}
+		}
+		finally
+		{
+			multiEdit = null;
+			transaction = false;
+
+			writeUnlock();
+		}
+	} //}}}
+
+	//{{{ getMultiEdit() method
+	/**
+	 * Returns the batch of edits being applied, while the listeners are
+	 * notified of it.
+	 * @return the batch, or null if the current change is not a batch
+	 * @see #applyEdits(MultiEdit)
+	 * @since jEdit 5.7pre1
+	 */
+	public MultiEdit getMultiEdit()
+	{
+		return multiEdit;
+	} //}}}
+
 	//}}}
 
 	//{{{ Indentation
@@ -969,34 +1199,85 @@ public class JEditBuffer
 	 */
 	public void indentLines(int start, int end)
 	{
-		try
-		{
-			beginCompoundEdit();
-			for(int i = start; i <= end; i++)
-				indentLine(i,true);
-		}
-		finally
-		{
-			endCompoundEdit();
-		}
+		if(end < start)
+			return;
+
+		int[] lines = new int[end - start + 1];
+		for(int i = 0; i < lines.length; i++)
+			lines[i] = start + i;
+		indentLines(lines);
 	}
 
 	/**
-	 * Indents all specified lines.
+	 * Indents all specified lines. The new indents are computed line by
+	 * line, each line seeing the new indent of the lines before it, and
+	 * applied as a single batch of edits, see
+	 * {@link #applyEdits(MultiEdit)}.
 	 * @param lines The line numbers
 	 * @since jEdit 3.2pre1
 	 */
 	public void indentLines(int[] lines)
 	{
+		if(!isSorted(lines))
+		{
+			try
+			{
+				beginCompoundEdit();
+				for (int line : lines)
+					indentLine(line, true);
+			}
+			finally
+			{
+				endCompoundEdit();
+			}
+			return;
+		}
+
 		try
 		{
-			beginCompoundEdit();
-			for (int line : lines)
-				indentLine(line, true);
+			writeLock();
+
+			MultiEdit edits = new MultiEdit();
+			List<String> oldIndents = new ArrayList<>();
+			int[] whitespaceChars = new int[1];
+			try
+			{
+				// the rules look at the indent of the lines
+				// above, so each new indent is written in the
+				// buffer, without notifying the listeners, and
+				// reverted before the batch is applied
+				int delta = 0;
+				for (int line : lines)
+				{
+					whitespaceChars[0] = 0;
+					String indent = getNewIndentString(line, true,
+						whitespaceChars);
+					if (indent == null)
+						continue;
+
+					int start = getLineStartOffset(line);
+					int length = whitespaceChars[0];
+					oldIndents.add(getText(start, length));
+					edits.add(start - delta, length, indent);
+					replaceIndent(line, start, length, indent);
+					delta += indent.length() - length;
+				}
+			}
+			finally
+			{
+				for (int i = oldIndents.size() - 1; i >= 0; i--)
+				{
+					int start = edits.getNewOffset(i);
+					replaceIndent(lineMgr.getLineOfOffset(start), start,
+						edits.getText(i).length(), oldIndents.get(i));
+				}
+			}
+
+			applyEdits(edits);
 		}
 		finally
 		{
-			endCompoundEdit();
+			writeUnlock();
 		}
 	} //}}}
 
@@ -1044,17 +1325,9 @@ public class JEditBuffer
 	public boolean indentLine(int lineIndex, boolean canDecreaseIndent)
 	{
 		int[] whitespaceChars = new int[1];
-		int currentIndent = getCurrentIndentForLine(lineIndex,
-			whitespaceChars);
-		int prevLineIndex = getPriorNonEmptyLine(lineIndex);
-		int prevLineIndent = (prevLineIndex == -1) ? 0 :
-			StandardUtilities.getLeadingWhiteSpaceWidth(getLineSegment(
-				prevLineIndex), getTabSize());
-		int idealIndent = getIdealIndentForLine(lineIndex, prevLineIndex,
-			prevLineIndent);
-
-		if (idealIndent == -1 || idealIndent == currentIndent ||
-			(!canDecreaseIndent && idealIndent < currentIndent))
+		String indentString = getNewIndentString(lineIndex,
+			canDecreaseIndent, whitespaceChars);
+		if (indentString == null)
 			return false;
 
 		// Do it
@@ -1065,27 +1338,6 @@ public class JEditBuffer
 			int start = getLineStartOffset(lineIndex);
 
 			remove(start,whitespaceChars[0]);
-			String prevIndentString = (prevLineIndex >= 0) ?
-				StandardUtilities.getIndentString(getLineText(
-					prevLineIndex)) : null;
-			String indentString;
-			if (prevIndentString == null)
-			{
-				indentString = StandardUtilities.createWhiteSpace(
-					idealIndent,
-					getBooleanProperty("noTabs") ? 0 : getTabSize());
-			}
-			else if (idealIndent == prevLineIndent)
-				indentString = prevIndentString;
-			else if (idealIndent < prevLineIndent)
-				indentString = StandardUtilities.truncateWhiteSpace(
-					idealIndent, getTabSize(), prevIndentString);
-			else
-				indentString = prevIndentString +
-					StandardUtilities.createWhiteSpace(
-						idealIndent - prevLineIndent,
-						getBooleanProperty("noTabs") ? 0 : getTabSize(),
-						prevLineIndent);
 			insert(start, indentString);
 		}
 		finally
@@ -1359,19 +1611,44 @@ loop:		for(int i = 0; i < seg.count; i++)
 	 */
 	public TokenMarker.LineContext getLineContext(int line)
 	{
-		return lineMgr.getLineContext(line);
+		synchronized(tokenLock)
+		{
+			return lineMgr.getLineContext(line);
+		}
 	}
 	//}}}
 
 	//{{{ markTokens() method
 	/**
 	 * Returns the syntax tokens for the specified line.
+	 * Tokenizing records the line contexts in the buffer, so the calls
+	 * are serialized. Threads holding the read lock, like the ones doing
+	 * layout or pagination in the background, may call it too.
 	 * @param lineIndex The line number
 	 * @param tokenHandler The token handler that will receive the syntax
 	 * tokens
 	 * @since jEdit 4.1pre1
 	 */
 	public void markTokens(int lineIndex, TokenHandler tokenHandler)
+	{
+		// the read lock is taken first, like the threads that tokenize
+		// while holding it
+		readLock();
+		try
+		{
+			synchronized(tokenLock)
+			{
+				markTokensLocked(lineIndex,tokenHandler);
+			}
+		}
+		finally
+		{
+			readUnlock();
+		}
+	} //}}}
+
+	//{{{ markTokensLocked() method
+	private void markTokensLocked(int lineIndex, TokenHandler tokenHandler)
 	{
 		Segment seg = new Segment();
 
@@ -1406,7 +1683,15 @@ loop:		for(int i = 0; i < seg.count; i++)
 			);
 
 			TokenHandler _tokenHandler = i == lineIndex ? tokenHandler : DummyTokenHandler.INSTANCE;
-			context = markTokens(seg, prevContext, _tokenHandler);
+			if(getRuleSetSpans(i,firstInvalidLineContext) == null)
+			{
+				// record the rule sets for getRuleSetAtOffset()
+				RuleSetSpans spans = new RuleSetSpans(_tokenHandler);
+				context = markTokens(seg, prevContext, spans);
+				lineMgr.setRuleSetSpans(i,spans);
+			}
+			else
+				context = markTokens(seg, prevContext, _tokenHandler);
 			lineMgr.setLineContext(i,context);
 		}
 
@@ -1433,12 +1718,16 @@ loop:		for(int i = 0; i < seg.count; i++)
 	{
 		TokenMarker oldTokenMarker = this.tokenMarker;
 
-		this.tokenMarker = tokenMarker;
-
-		// don't do this on initial token marker
-		if(oldTokenMarker != null && tokenMarker != oldTokenMarker)
+		synchronized(tokenLock)
 		{
-			lineMgr.setFirstInvalidLineContext(0);
+			this.tokenMarker = tokenMarker;
+			lineMgr.clearRuleSetSpans();
+
+			// don't do this on initial token marker
+			if(oldTokenMarker != null && tokenMarker != oldTokenMarker)
+			{
+				lineMgr.setFirstInvalidLineContext(0);
+			}
 		}
 	} //}}}
 
@@ -1885,10 +2174,26 @@ loop:		for(int i = 0; i < seg.count; i++)
 		if(offset != 0)
 			offset--;
 
-		DefaultTokenHandler tokens = new DefaultTokenHandler();
-		markTokens(line,tokens);
-		Token token = TextUtilities.getTokenAtOffset(tokens.getTokens(),offset);
-		return token.rules;
+		RuleSetSpans spans;
+		readLock();
+		try
+		{
+			synchronized(tokenLock)
+			{
+				spans = getRuleSetSpans(line,
+					lineMgr.getFirstInvalidLineContext());
+				if(spans == null)
+				{
+					markTokens(line,DummyTokenHandler.INSTANCE);
+					spans = lineMgr.getRuleSetSpans(line);
+				}
+			}
+		}
+		finally
+		{
+			readUnlock();
+		}
+		return spans.getRuleSet(offset);
 	} //}}}
 
 	//{{{ getKeywordMapAtOffset() method
@@ -2522,7 +2827,11 @@ loop:		for(int i = 0; i < seg.count; i++)
 	 */
 	public void setContextInsensitive(boolean contextInsensitive)
 	{
-		this.contextInsensitive = contextInsensitive;
+		synchronized(tokenLock)
+		{
+			this.contextInsensitive = contextInsensitive;
+			lineMgr.clearRuleSetSpans();
+		}
 	}//}}}
 
 	//}}}
@@ -2763,6 +3072,7 @@ loop:		for(int i = 0; i < seg.count; i++)
 			// have seg.offset != 0 but
 			// SegmentBuffer never does that
 			contentMgr._setContent(seg.array,seg.count);
+			editLog.reset(++version);
 
 			lineMgr._contentInserted(endOffsets);
 			positionMgr.contentInserted(0,seg.count);
@@ -2848,6 +3158,9 @@ loop:		for(int i = 0; i < seg.count; i++)
 	//}}}
 
 	//{{{ Private members
+	/** The number of edits kept to transform offsets. */
+	private static final int EDIT_LOG_CAPACITY = 1024;
+
 	private final List<Listener> bufferListeners;
 	private boolean closed;
 	private final ReentrantReadWriteLock lock;
@@ -2858,6 +3171,11 @@ loop:		for(int i = 0; i < seg.count; i++)
 	private FoldHandler foldHandler;
 	private final IntegerArray integerArray;
 	private boolean undoInProgress;
+	/** The batch of edits being applied. */
+	private MultiEdit multiEdit;
+	/** Incremented on each change of the content. */
+	private volatile long version;
+	private final EditLog editLog;
 	private boolean dirty;
 	private boolean readOnly;
 	private boolean readOnlyOverride;
@@ -2867,12 +3185,115 @@ loop:		for(int i = 0; i < seg.count; i++)
 	private boolean io;
 	private final Map<Object, PropValue> properties;
 	private final Object propertyLock;
+	/**
+	 * Guards the line contexts and the rule sets recorded by
+	 * {@link #markTokens(int,TokenHandler)}. Taken after the read lock.
+	 */
+	private final Object tokenLock = new Object();
 	/** This field should be read instead of "elasticTabstops" property
 	  * when efficiency matters. */
 	// synchronization done in TextArea.propertiesChanged()
 	public boolean elasticTabstopsOn;
 	private ColumnBlock columnBlock;
 
+	//{{{ getRuleSetSpans() method
+	/**
+	 * @return the rule sets recorded when a line was tokenized, or null
+	 * if they are not valid anymore
+	 */
+	private RuleSetSpans getRuleSetSpans(int line, int firstInvalidLineContext)
+	{
+		if(!contextInsensitive && firstInvalidLineContext != -1
+			&& line >= firstInvalidLineContext)
+			return null;
+		return lineMgr.getRuleSetSpans(line);
+	} //}}}
+
+	//{{{ canTransform() method
+	private boolean canTransform(long fromVersion, long toVersion)
+	{
+		return fromVersion <= toVersion && toVersion <= version
+			&& editLog.canMap(fromVersion);
+	} //}}}
+
+	//{{{ getNewIndentString() method
+	/**
+	 * @return the new leading whitespace of a line, or null if its indent
+	 * does not change
+	 * @param whitespaceChars The number of whitespace characters currently
+	 * leading the line is stored at the 0 index
+	 */
+	private String getNewIndentString(int lineIndex, boolean canDecreaseIndent,
+		int[] whitespaceChars)
+	{
+		int currentIndent = getCurrentIndentForLine(lineIndex,
+			whitespaceChars);
+		int prevLineIndex = getPriorNonEmptyLine(lineIndex);
+		int prevLineIndent = (prevLineIndex == -1) ? 0 :
+			StandardUtilities.getLeadingWhiteSpaceWidth(getLineSegment(
+				prevLineIndex), getTabSize());
+		int idealIndent = getIdealIndentForLine(lineIndex, prevLineIndex,
+			prevLineIndent);
+
+		if (idealIndent == -1 || idealIndent == currentIndent ||
+			(!canDecreaseIndent && idealIndent < currentIndent))
+			return null;
+
+		String prevIndentString = (prevLineIndex >= 0) ?
+			StandardUtilities.getIndentString(getLineText(
+				prevLineIndex)) : null;
+		if (prevIndentString == null)
+		{
+			return StandardUtilities.createWhiteSpace(idealIndent,
+				getBooleanProperty("noTabs") ? 0 : getTabSize());
+		}
+		else if (idealIndent == prevLineIndent)
+			return prevIndentString;
+		else if (idealIndent < prevLineIndent)
+			return StandardUtilities.truncateWhiteSpace(
+				idealIndent, getTabSize(), prevIndentString);
+		else
+			return prevIndentString +
+				StandardUtilities.createWhiteSpace(
+					idealIndent - prevLineIndent,
+					getBooleanProperty("noTabs") ? 0 : getTabSize(),
+					prevLineIndent);
+	} //}}}
+
+	//{{{ replaceIndent() method
+	/**
+	 * Replaces the leading whitespace of a line, without notifying the
+	 * listeners nor recording the change for undo. Used by
+	 * {@link #indentLines(int[])}, which reverts it before applying
+	 * the edits.
+	 */
+	private void replaceIndent(int line, int start, int length, String indent)
+	{
+		if(length != 0)
+		{
+			contentMgr.remove(start,length);
+			lineMgr.contentRemoved(line,start,0,length);
+		}
+		if(!indent.isEmpty())
+		{
+			contentMgr.insert(start,indent);
+			integerArray.clear();
+			lineMgr.contentInserted(line,start,0,indent.length(),
+				integerArray);
+		}
+	} //}}}
+
+	//{{{ isSorted() method
+	private static boolean isSorted(int[] lines)
+	{
+		for(int i = 1; i < lines.length; i++)
+		{
+			if(lines[i] <= lines[i - 1])
+				return false;
+		}
+		return true;
+	} //}}}
+
 	//{{{ getListener() method
 	private BufferListener getListener(int index)
 	{
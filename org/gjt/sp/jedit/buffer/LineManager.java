@@ -27,6 +27,8 @@ import org.gjt.sp.jedit.syntax.*;
 import org.gjt.sp.jedit.Debug;
 import org.gjt.sp.util.IntegerArray;
 import org.gjt.sp.util.Log;
+
+import java.util.Arrays;
 //}}}
 
 /**
@@ -49,6 +51,7 @@ public class LineManager
 		endOffsets[0] = 1;
 		foldLevels = new short[1];
 		lineContext = new TokenMarker.LineContext[1];
+		ruleSetSpans = new RuleSetSpans[1];
 		lineCount = 1;
 	} //}}}
 
@@ -168,6 +171,32 @@ public class LineManager
 		lineContext[line] = context;
 	} //}}}
 
+	//{{{ getRuleSetSpans() method
+	/**
+	 * @return the rule sets recorded when the line was last tokenized,
+	 * or null if the text of the line changed since then. They are only
+	 * valid if the line context is.
+	 */
+	final RuleSetSpans getRuleSetSpans(int line)
+	{
+		return ruleSetSpans[line];
+	} //}}}
+
+	//{{{ setRuleSetSpans() method
+	final void setRuleSetSpans(int line, RuleSetSpans spans)
+	{
+		ruleSetSpans[line] = spans;
+	} //}}}
+
+	//{{{ clearRuleSetSpans() method
+	/**
+	 * Drops the recorded rule sets, after the tokenization changed.
+	 */
+	void clearRuleSetSpans()
+	{
+		Arrays.fill(ruleSetSpans,null);
+	} //}}}
+
 	//{{{ setFirstInvalidLineContext() method
 	public void setFirstInvalidLineContext(int firstInvalidLineContext)
 	{
@@ -188,9 +217,11 @@ public class LineManager
 		firstInvalidLineContext = firstInvalidFoldLevel = 0;
 		lineCount = endOffsets.getSize();
 		this.endOffsets = endOffsets.getArray();
+		endOffsetsShared = false;
 		foldLevels = new short[lineCount];
 
 		lineContext = new TokenMarker.LineContext[lineCount];
+		ruleSetSpans = new RuleSetSpans[lineCount];
 	} //}}}
 
 	//{{{ contentInserted() method
@@ -198,6 +229,7 @@ public class LineManager
 		int numLines, int length, IntegerArray endOffsets)
 	{
 		int endLine = startLine + numLines;
+		unshareEndOffsets();
 
 		//{{{ Update line info and line context arrays
 		if(numLines > 0)
@@ -231,12 +263,23 @@ public class LineManager
 				lineContext = lineContextN;
 			}
 
+			if(ruleSetSpans.length <= lineCount)
+			{
+				RuleSetSpans[] ruleSetSpansN
+					= new RuleSetSpans[(lineCount + 1) * 2];
+				System.arraycopy(ruleSetSpans,0,ruleSetSpansN,0,
+						 ruleSetSpans.length);
+				ruleSetSpans = ruleSetSpansN;
+			}
+
 			System.arraycopy(this.endOffsets,startLine,
 				this.endOffsets,endLine,lineCount - endLine);
 			System.arraycopy(foldLevels,startLine,foldLevels,
 				endLine,lineCount - endLine);
 			System.arraycopy(lineContext,startLine,lineContext,
 				endLine,lineCount - endLine);
+			System.arraycopy(ruleSetSpans,startLine,ruleSetSpans,
+				endLine,lineCount - endLine);
 
 			if(startLine <= gapLine)
 				gapLine += numLines;
@@ -250,6 +293,9 @@ public class LineManager
 			}
 		} //}}}
 
+		for(int i = startLine; i <= endLine; i++)
+			ruleSetSpans[i] = null;
+
 		if(firstInvalidLineContext == -1 || firstInvalidLineContext > startLine)
 			firstInvalidLineContext = startLine;
 
@@ -263,6 +309,7 @@ public class LineManager
 		int numLines, int length)
 	{
 		int endLine = startLine + numLines;
+		unshareEndOffsets();
 
 		//{{{ Update line info and line context arrays
 		if(numLines > 0)
@@ -282,8 +329,12 @@ public class LineManager
 				startLine,lineCount - startLine);
 			System.arraycopy(lineContext,endLine,lineContext,
 				startLine,lineCount - startLine);
+			System.arraycopy(ruleSetSpans,endLine,ruleSetSpans,
+				startLine,lineCount - startLine);
 		} //}}}
 
+		ruleSetSpans[startLine] = null;
+
 		if(firstInvalidLineContext == -1 || firstInvalidLineContext > startLine)
 			firstInvalidLineContext = startLine;
 
@@ -292,12 +343,37 @@ public class LineManager
 		moveGap(startLine,-length,"contentRemoved");
 	} //}}}
 
+	//{{{ shareEndOffsets() method
+	/**
+	 * Returns the line end offsets array, for a {@link BufferSnapshot}.
+	 * The array is not changed anymore, it is copied before the next
+	 * change.
+	 */
+	int[] shareEndOffsets()
+	{
+		endOffsetsShared = true;
+		return endOffsets;
+	} //}}}
+
+	//{{{ getGapLine() method
+	int getGapLine()
+	{
+		return gapLine;
+	} //}}}
+
+	//{{{ getGapWidth() method
+	int getGapWidth()
+	{
+		return gapWidth;
+	} //}}}
+
 	//{{{ Private members
 
 	//{{{ Instance variables
 	private int[] endOffsets;
 	private short[] foldLevels;
 	private TokenMarker.LineContext[] lineContext;
+	private RuleSetSpans[] ruleSetSpans;
 
 	private int lineCount;
 
@@ -309,6 +385,9 @@ public class LineManager
 	private int gapLine;
 	private int gapWidth;
 
+	/** Set if the end offsets array is used by a snapshot. */
+	private boolean endOffsetsShared;
+
 	/**
 	 * If -1, all contexts are valid. Otherwise, all lines after this have
 	 * an invalid context.
@@ -327,6 +406,16 @@ public class LineManager
 	private int getLineOfOffsetLine = -1;
 	//}}}
 
+	//{{{ unshareEndOffsets() method
+	private void unshareEndOffsets()
+	{
+		if(endOffsetsShared)
+		{
+			endOffsets = endOffsets.clone();
+			endOffsetsShared = false;
+		}
+	} //}}}
+
 	//{{{ setLineEndOffset() method
 	private void setLineEndOffset(int line, int end)
 	{
@@ -0,0 +1,298 @@
+/*
+ * MultiEdit.java - A batch of edits applied at once
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import java.util.Arrays;
+//}}}
+
+/**
+ * A batch of edits, applied to a buffer in one step by
+ * {@link JEditBuffer#applyEdits(MultiEdit)}.<p>
+ *
+ * Each edit removes <code>length</code> characters at <code>offset</code>
+ * and inserts a text in their place. The edits must be added in increasing
+ * offset order and must not overlap, and all offsets are relative to the
+ * buffer before the batch is applied. The result is the same as applying
+ * the edits one by one, from the last one to the first one, but the
+ * buffer listeners are only notified once, of a single replacement of
+ * the range spanned by the edits, and the batch is undone in one step.<p>
+ *
+ * Listeners which track offsets more precisely than the notified range,
+ * like the text area for its carets and selections, can call
+ * {@link JEditBuffer#getMultiEdit()} while they are notified, and map
+ * their offsets with {@link #mapOffset(int)}.
+ *
+ * @since jEdit 5.7pre1
+ */
+public class MultiEdit
+{
+	//{{{ MultiEdit constructor
+	public MultiEdit()
+	{
+		offsets = new int[16];
+		lengths = new int[16];
+		texts = new String[16];
+		deltas = new int[16];
+	} //}}}
+
+	//{{{ add() method
+	/**
+	 * Adds an edit to the batch.
+	 * @param offset The offset of the edit, in the buffer before the
+	 * batch is applied
+	 * @param length The number of characters to remove
+	 * @param text The text to insert, may be null
+	 * @throws IllegalArgumentException if the edit is before the end of
+	 * the previous one
+	 */
+	public void add(int offset, int length, CharSequence text)
+	{
+		if(offset < 0 || length < 0)
+			throw new IllegalArgumentException(offset + ":" + length);
+		if(size != 0 && offset < offsets[size - 1] + lengths[size - 1])
+		{
+			throw new IllegalArgumentException("Edit at " + offset
+				+ " overlaps or precedes the previous edit");
+		}
+
+		int textLength = text == null ? 0 : text.length();
+		if(length == 0 && textLength == 0)
+			return;
+
+		if(size == offsets.length)
+		{
+			int capacity = size * 2;
+			offsets = Arrays.copyOf(offsets,capacity);
+			lengths = Arrays.copyOf(lengths,capacity);
+			texts = Arrays.copyOf(texts,capacity);
+			deltas = Arrays.copyOf(deltas,capacity);
+		}
+
+		offsets[size] = offset;
+		lengths[size] = length;
+		// copied, the batch is kept for undo
+		texts[size] = textLength == 0 ? "" : text.toString();
+		delta += textLength - length;
+		deltas[size] = delta;
+		size++;
+	} //}}}
+
+	//{{{ getSize() method
+	/**
+	 * @return the number of edits
+	 */
+	public int getSize()
+	{
+		return size;
+	} //}}}
+
+	//{{{ isEmpty() method
+	public boolean isEmpty()
+	{
+		return size == 0;
+	} //}}}
+
+	//{{{ getStart() method
+	/**
+	 * @return the start of the first edit
+	 */
+	public int getStart()
+	{
+		return size == 0 ? 0 : offsets[0];
+	} //}}}
+
+	//{{{ getEnd() method
+	/**
+	 * @return the end of the range removed by the last edit, in the buffer
+	 * before the batch is applied
+	 */
+	public int getEnd()
+	{
+		return size == 0 ? 0 : offsets[size - 1] + lengths[size - 1];
+	} //}}}
+
+	//{{{ getLengthDelta() method
+	/**
+	 * @return the change of the buffer length caused by the batch
+	 */
+	public int getLengthDelta()
+	{
+		return delta;
+	} //}}}
+
+	//{{{ isLinePreserving() method
+	/**
+	 * Returns if the batch, once applied, did not remove nor insert any
+	 * line separator. In that case, every line is still at the same
+	 * index, and only the text of some lines changed.
+	 */
+	public boolean isLinePreserving()
+	{
+		return linePreserving;
+	} //}}}
+
+	//{{{ mapOffset() method
+	/**
+	 * Maps an offset in the buffer before the batch was applied to the
+	 * buffer after. An offset in a removed range, or at the offset of an
+	 * edit, is moved after the inserted text, like with
+	 * {@link JEditBuffer#remove(int,int)} and
+	 * {@link JEditBuffer#insert(int,String)}.
+	 */
+	public int mapOffset(int offset)
+	{
+		// the last edit starting at or before the offset
+		int low = 0;
+		int high = size - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(offsets[mid] <= offset)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+
+		int edit = high;
+		if(edit == -1)
+			return offset;
+		int end = offsets[edit] + lengths[edit];
+		if(offset > end)
+			return offset + deltas[edit];
+		return getNewOffset(edit) + texts[edit].length();
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public String toString()
+	{
+		return "MultiEdit[size=" + size + ",start=" + getStart()
+			+ ",end=" + getEnd() + ",delta=" + delta + ']';
+	} //}}}
+
+	//{{{ Package-private members
+
+	//{{{ apply() method
+	/**
+	 * Returns the text replacing the range spanned by the edits.
+	 * @param text The text of that range, before the batch is applied
+	 */
+	String apply(CharSequence text)
+	{
+		int start = getStart();
+		StringBuilder buf = new StringBuilder(text.length() + delta);
+		boolean preserving = true;
+		removed = new String[size];
+		int last = start;
+		for(int i = 0; i < size; i++)
+		{
+			buf.append(text,last - start,offsets[i] - start);
+			removed[i] = text.subSequence(offsets[i] - start,
+				offsets[i] - start + lengths[i]).toString();
+			if(preserving && removed[i].indexOf('\n') != -1)
+				preserving = false;
+			String insert = texts[i];
+			if(preserving && insert.indexOf('\n') != -1)
+				preserving = false;
+			buf.append(insert);
+			last = offsets[i] + lengths[i];
+		}
+		linePreserving = preserving;
+		return buf.toString();
+	} //}}}
+
+	//{{{ invert() method
+	/**
+	 * Returns the batch undoing this one, which must have been applied.
+	 */
+	MultiEdit invert()
+	{
+		MultiEdit inverse = new MultiEdit();
+		for(int i = 0; i < size; i++)
+			inverse.add(getNewOffset(i),texts[i].length(),removed[i]);
+		return inverse;
+	} //}}}
+
+	//{{{ getOffset() method
+	/**
+	 * @return the offset of an edit, in the buffer before the batch is
+	 * applied
+	 */
+	int getOffset(int edit)
+	{
+		return offsets[edit];
+	} //}}}
+
+	//{{{ getLength() method
+	/**
+	 * @return the number of characters removed by an edit
+	 */
+	int getLength(int edit)
+	{
+		return lengths[edit];
+	} //}}}
+
+	//{{{ getNewOffset() method
+	/**
+	 * @return the offset of an edit, in the buffer after the batch is
+	 * applied
+	 */
+	int getNewOffset(int edit)
+	{
+		return offsets[edit] + (edit == 0 ? 0 : deltas[edit - 1]);
+	} //}}}
+
+	//{{{ getRemoved() method
+	/**
+	 * @return the text removed by an edit, once the batch is applied
+	 */
+	String getRemoved(int edit)
+	{
+		return removed[edit];
+	} //}}}
+
+	//{{{ getText() method
+	/**
+	 * @return the text inserted by an edit
+	 */
+	String getText(int edit)
+	{
+		return texts[edit];
+	} //}}}
+
+	//}}}
+
+	//{{{ Private members
+	private int[] offsets;
+	private int[] lengths;
+	private String[] texts;
+	/** The removed texts, set when the batch is applied. */
+	private String[] removed;
+	/** The change of the buffer length up to each edit, inclusive. */
+	private int[] deltas;
+	private int size;
+	private int delta;
+	private boolean linePreserving;
+	//}}}
+}
@@ -64,6 +64,8 @@ class PositionManager
 			{
 				positions.put(bh,bh);
 				existing = bh;
+				if(batch != null)
+					batch.add(bh);
 			}
 
 			posTopHalf = new PosTopHalf(existing);
@@ -111,6 +113,49 @@ class PositionManager
 
 	} //}}}
 
+	//{{{ contentRemoved() method
+	/**
+	 * Moves the positions after the range spanned by a batch of edits is
+	 * removed. The positions in the range are moved to its start until
+	 * {@link #contentInserted(MultiEdit)} puts them where the edits,
+	 * applied one by one, would have.
+	 */
+	public synchronized void contentRemoved(MultiEdit edits)
+	{
+		// the positions moved to the start share its offset, so they
+		// are kept here rather than looked up again in the map
+		batch = new ArrayList<>();
+		if(positions.isEmpty())
+			return;
+
+		Iterator<PosBottomHalf> iter = positions.tailMap(
+			new PosBottomHalf(edits.getStart())).keySet().iterator();
+
+		iteration = true;
+		while(iter.hasNext())
+		{
+			PosBottomHalf bh = iter.next();
+			bh.contentRemoved(edits);
+			batch.add(bh);
+		}
+		iteration = false;
+	} //}}}
+
+	//{{{ contentInserted() method
+	/**
+	 * Moves the positions after the new text of a batch of edits is
+	 * inserted.
+	 * @see #contentRemoved(MultiEdit)
+	 */
+	public synchronized void contentInserted(MultiEdit edits)
+	{
+		// also holds the positions created while the listeners were
+		// notified of the removal
+		for(PosBottomHalf bh : batch)
+			bh.contentInserted(edits);
+		batch = null;
+	} //}}}
+
 	private void unref(PosBottomHalf posBottomHalf)
 	{
 		synchronized (this)
@@ -124,6 +169,8 @@ class PositionManager
 	//{{{ Private members
 	private final JEditBuffer buffer;
 	private final SortedMap<PosBottomHalf, PosBottomHalf> positions = new TreeMap<>();
+	/** The positions moved by the batch of edits being applied */
+	private List<PosBottomHalf> batch;
 	//}}}
 
 	//{{{ Inner classes
@@ -161,6 +208,8 @@ class PositionManager
 	{
 		private int offset;
 		private int ref;
+		/** The offset a batch of edits moves to, while it is applied */
+		private int mappedOffset = -1;
 
 		//{{{ PosBottomHalf constructor
 		PosBottomHalf(int offset)
@@ -208,6 +257,33 @@ class PositionManager
 			checkInvariants();
 		} //}}}
 
+		//{{{ contentRemoved() method
+		void contentRemoved(MultiEdit edits)
+		{
+			// the offset once all the edits are applied
+			mappedOffset = edits.mapOffset(offset);
+			contentRemoved(edits.getStart(),edits.getEnd() - edits.getStart());
+		} //}}}
+
+		//{{{ contentInserted() method
+		void contentInserted(MultiEdit edits)
+		{
+			if(mappedOffset != -1)
+			{
+				offset = mappedOffset;
+				mappedOffset = -1;
+				checkInvariants();
+			}
+			else if(offset >= edits.getStart())
+			{
+				// created while the listeners were notified of
+				// the removal
+				contentInserted(edits.getStart(),
+					edits.getEnd() - edits.getStart()
+					+ edits.getLengthDelta());
+			}
+		} //}}}
+
 		//{{{ equals() method
 		@Override
 		public boolean equals(Object o)
@@ -0,0 +1,157 @@
+/*
+ * RuleSetSpans.java - The syntax rule sets of a line
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+//{{{ Imports
+import javax.swing.text.Segment;
+
+import org.gjt.sp.jedit.syntax.ParserRuleSet;
+import org.gjt.sp.jedit.syntax.Token;
+import org.gjt.sp.jedit.syntax.TokenHandler;
+import org.gjt.sp.jedit.syntax.TokenMarker;
+//}}}
+
+/**
+ * The ranges of a line covered by each syntax rule set, recorded while the
+ * line is tokenized, so that {@link JEditBuffer#getRuleSetAtOffset(int)}
+ * does not tokenize the line again.<p>
+ *
+ * An instance is filled as a token handler, forwarding the tokens to
+ * another handler, and is then only read.
+ *
+ * @since jEdit 5.7pre1
+ */
+class RuleSetSpans implements TokenHandler
+{
+	//{{{ RuleSetSpans constructor
+	/**
+	 * @param tokenHandler The handler the tokens are forwarded to
+	 */
+	RuleSetSpans(TokenHandler tokenHandler)
+	{
+		this.tokenHandler = tokenHandler;
+		starts = new int[1];
+		rules = new ParserRuleSet[1];
+	} //}}}
+
+	//{{{ getRuleSet() method
+	/**
+	 * Returns the rule set of the token containing an offset, like
+	 * {@link org.gjt.sp.jedit.TextUtilities#getTokenAtOffset(Token,int)}.
+	 * @param offset The offset in the line
+	 */
+	ParserRuleSet getRuleSet(int offset)
+	{
+		if(size == 0)
+		{
+			if(offset == 0)
+				return endRules;
+			throw new ArrayIndexOutOfBoundsException("offset > line length");
+		}
+		if(offset < 0 || offset >= length)
+			throw new ArrayIndexOutOfBoundsException("offset > line length");
+
+		// the last span starting at or before the offset
+		int low = 0;
+		int high = size - 1;
+		while(low < high)
+		{
+			int mid = (low + high + 1) >>> 1;
+			if(starts[mid] <= offset)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return rules[low];
+	} //}}}
+
+	//{{{ TokenHandler implementation
+	@Override
+	public void handleToken(Segment seg, byte id, int offset, int length,
+		TokenMarker.LineContext context)
+	{
+		tokenHandler.handleToken(seg,id,offset,length,context);
+
+		ParserRuleSet ruleSet = getParserRuleSet(context);
+		if(id == Token.END)
+		{
+			endRules = ruleSet;
+			return;
+		}
+		if(length == 0)
+			return;
+
+		this.length = offset + length;
+		if(size != 0 && rules[size - 1] == ruleSet)
+			return;
+		if(size == starts.length)
+		{
+			int[] startsN = new int[size * 2];
+			System.arraycopy(starts,0,startsN,0,size);
+			starts = startsN;
+			ParserRuleSet[] rulesN = new ParserRuleSet[size * 2];
+			System.arraycopy(rules,0,rulesN,0,size);
+			rules = rulesN;
+		}
+		starts[size] = offset;
+		rules[size] = ruleSet;
+		size++;
+	}
+
+	@Override
+	public void setLineContext(TokenMarker.LineContext lineContext)
+	{
+		tokenHandler.setLineContext(lineContext);
+	} //}}}
+
+	//{{{ Private members
+	private final TokenHandler tokenHandler;
+	/** The start offset of each span, and its rule set. */
+	private int[] starts;
+	private ParserRuleSet[] rules;
+	private int size;
+	/** The end offset of the last token. */
+	private int length;
+	/** The rule set at the end of the line. */
+	private ParserRuleSet endRules;
+
+	//{{{ getParserRuleSet() method
+	/**
+	 * The rule set of a token, like in
+	 * {@link org.gjt.sp.jedit.syntax.DefaultTokenHandler}.
+	 */
+	private static ParserRuleSet getParserRuleSet(TokenMarker.LineContext context)
+	{
+		while(context != null)
+		{
+			if(!context.rules.isBuiltIn())
+				return context.rules;
+
+			context = context.parent;
+		}
+
+		return null;
+	} //}}}
+
+	//}}}
+}
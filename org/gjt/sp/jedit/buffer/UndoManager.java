@@ -248,6 +248,38 @@ public class UndoManager
 		KillRing.getInstance().add(rem.str);
 	} //}}}
 
+	//{{{ contentReplaced() method
+	/**
+	 * Records a batch of edits, which must have been applied.
+	 * @since jEdit 5.7pre1
+	 */
+	public void contentReplaced(MultiEdit edits, boolean clearDirty)
+	{
+		MultiReplace rep = new MultiReplace(edits);
+
+		if(clearDirty)
+		{
+			redoClearDirty = getLastEdit();
+			undoClearDirty = rep;
+		}
+
+		if(compoundEdit != null)
+			compoundEdit.add(this, rep);
+		else
+		{
+			reviseUndoId();
+			addEdit(rep);
+		}
+
+		KillRing killRing = KillRing.getInstance();
+		for(int i = 0; i < edits.getSize(); i++)
+		{
+			String removed = edits.getRemoved(i);
+			if(!removed.isEmpty())
+				killRing.add(removed);
+		}
+	} //}}}
+
 	//{{{ resetClearDirty method
 	public void resetClearDirty()
 	{
@@ -546,6 +578,52 @@ public class UndoManager
 		String strRemove, strInsert;
 	} //}}}
 
+	//{{{ MultiReplace class
+	private static class MultiReplace extends Edit
+	{
+		//{{{ MultiReplace constructor
+		MultiReplace(MultiEdit edits)
+		{
+			this.edits = edits;
+		} //}}}
+
+		//{{{ undo() method
+		@Override
+		Selection[] undo(UndoManager mgr)
+		{
+			MultiEdit inverse = edits.invert();
+			mgr.buffer.applyEdits(inverse);
+			if(mgr.undoClearDirty == this)
+				mgr.buffer.setDirty(false);
+			Selection[] selections = new Selection[inverse.getSize()];
+			for(int i = 0; i < selections.length; i++)
+			{
+				int offset = inverse.getNewOffset(i);
+				selections[i] = new Selection.Range(offset,
+					offset + inverse.getText(i).length());
+			}
+			return selections;
+		} //}}}
+
+		//{{{ redo() method
+		@Override
+		Selection[] redo(UndoManager mgr)
+		{
+			mgr.buffer.applyEdits(edits);
+			if(mgr.redoClearDirty == this)
+				mgr.buffer.setDirty(false);
+			Selection[] selections = new Selection[edits.getSize()];
+			for(int i = 0; i < selections.length; i++)
+			{
+				int caret = edits.getNewOffset(i) + edits.getText(i).length();
+				selections[i] = new Selection.Range(caret, caret);
+			}
+			return selections;
+		} //}}}
+
+		final MultiEdit edits;
+	} //}}}
+
 	//{{{ CompressedReplace class
 	private static class CompressedReplace extends Replace
 	{
@@ -51,6 +51,7 @@ public class BufferAutosaveRequest extends BufferIORequest
 		Object session, VFS vfs, String path)
 	{
 		super(view,buffer,session,vfs,path);
+		setLane(Lane.MAINTENANCE);
 	} //}}}
 
 	//{{{ run() method
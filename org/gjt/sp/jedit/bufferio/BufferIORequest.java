@@ -25,12 +25,23 @@ package org.gjt.sp.jedit.bufferio;
 //{{{ Imports
 import java.io.BufferedOutputStream;
 import java.io.CharConversionException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.swing.text.Segment;
 
@@ -41,9 +52,11 @@ import org.gjt.sp.jedit.jEdit;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 import org.gjt.sp.jedit.io.VFS;
 import org.gjt.sp.jedit.io.VFSManager;
+import org.gjt.sp.jedit.io.CharsetEncoding;
 import org.gjt.sp.jedit.io.Encoding;
 import org.gjt.sp.jedit.io.EncodingServer;
 import org.gjt.sp.util.IntegerArray;
+import org.gjt.sp.util.ProgressObserver;
 import org.gjt.sp.util.SegmentBuffer;
 import org.gjt.sp.util.Log;
 //}}}
@@ -144,147 +157,74 @@ public abstract class BufferIORequest extends IoTask
 		return MiscUtilities.autodetect(in, buffer);
 	} //}}}
 
-	//{{{ read() method
+	//{{{ read() methods
 	protected SegmentBuffer read(Reader in, long length,
 		boolean insert) throws IOException, InterruptedException
 	{
-		/* we guess an initial size for the array */
-		IntegerArray endOffsets = new IntegerArray(
-			Math.max(1,(int)(length / 50)));
+		TextLoader loader = new TextLoader(length);
+		loader.read(in,startProgress(length));
+		return endRead(loader,insert);
+	}
 
-		// only true if the file size is known
-		boolean trackProgress = !buffer.isTemporary() && length != 0;
-
-		if(trackProgress)
+	/**
+	 * Reads a stream in an encoding. A stream in UTF-8 or in a single
+	 * byte encoding, whose length is known and large, is decoded in
+	 * parallel by chunks. The other streams, and those starting with a
+	 * byte order mark, are read with the text reader of the encoding.
+	 * @param in The stream
+	 * @param encoding The name of the encoding
+	 * @param length The length of the stream, 0 if unknown
+	 * @param insert true if the text is inserted in the buffer
+	 * @return the text read
+	 * @since jEdit 5.7pre1
+	 */
+	protected SegmentBuffer read(InputStream in, String encoding,
+		long length, boolean insert) throws IOException, InterruptedException
+	{
+		Encoding enc = EncodingServer.getEncoding(encoding);
+		if(length < PARALLEL_READ_LENGTH || length >= Integer.MAX_VALUE
+			|| enc.getClass() != CharsetEncoding.class
+			|| !TextLoader.canReadBytes(((CharsetEncoding)enc).getCharset()))
 		{
-			setMaximum(length);
-			setValue(0);
+			return read(enc.getTextReader(in),length,insert);
 		}
 
-		// if the file size is not known, start with a resonable
-		// default buffer size
-		if(length == 0)
-			length = IOBUFSIZE;
-
-		SegmentBuffer seg = new SegmentBuffer((int)length + 1);
-
-		char[] buf = new char[IOBUFSIZE];
-
-		/* Number of characters in 'buf' array.
-		 InputStream.read() doesn't always fill the
-		 array (eg, the file size is not a multiple of
-		 IOBUFSIZE, or it is a GZipped file, etc) */
- 		int len;
-
-		// True if a \n was read after a \r. Usually
-		// means this is a DOS/Windows file
-		boolean CRLF = false;
-
-		// A \r was read, hence a MacOS file
-		boolean CROnly = false;
-
-		// Was the previous read character a \r?
-		// If we read a \n and this is true, we assume
-		// we have a DOS/Windows file
-		boolean lastWasCR = false;
-
-		// Number of lines read. Every 100 lines, we update the
-		// progress bar
-		int lineCount = 0;
-
-		while((len = in.read(buf,0,buf.length)) != -1)
+		PushbackInputStream pushback = new PushbackInputStream(in,3);
+		byte[] bom = new byte[3];
+		int len = pushback.readNBytes(bom,0,3);
+		pushback.unread(bom,0,len);
+		if(len == 3 && (bom[0] & 0xff) == 0xef && (bom[1] & 0xff) == 0xbb
+			&& (bom[2] & 0xff) == 0xbf)
 		{
-			if(Thread.interrupted())
-				throw new InterruptedException();
-
-			// Offset of previous line, relative to
-			// the start of the I/O buffer (NOT
-			// relative to the start of the document)
-			int lastLine = 0;
+			return read(enc.getTextReader(pushback),length,insert);
+		}
 
-			for(int i = 0; i < len; i++)
-			{
-				// Look for line endings.
-				switch(buf[i])
-				{
-				case '\r':
-					// If we read a \r and
-					// lastWasCR is also true,
-					// it is probably a Mac file
-					// (\r\r in stream)
-					if(lastWasCR)
-					{
-						CROnly = true;
-						CRLF = false;
-					}
-					// Otherwise set a flag,
-					// so that \n knows that last
-					// was a \r
-					else
-					{
-						lastWasCR = true;
-					}
+		TextLoader loader = new TextLoader(length);
+		loader.read(pushback,((CharsetEncoding)enc).getCharset(),
+			startProgress(length));
+		return endRead(loader,insert);
+	} //}}}
 
-					// Insert a line
-					seg.append(buf,lastLine,i -
-						lastLine);
-					seg.append('\n');
-					endOffsets.add(seg.count);
-					if(trackProgress && lineCount++ % PROGRESS_INTERVAL == 0)
-						setValue(seg.count);
-
-					// This is i+1 to take the
-					// trailing \n into account
-					lastLine = i + 1;
-					break;
-				case '\n':
-					/* If lastWasCR is true, we just read a \r followed
-					 by a \n. We specify that this is a Windows file,
-					 but take no further action and just ignore the \r. */
-					if(lastWasCR)
-					{
-						CROnly = false;
-						CRLF = true;
-						lastWasCR = false;
-						/* Bump lastLine so that the next line doesn't erronously
-						  pick up the \r */
-						lastLine = i + 1;
-					}
-					/* Otherwise, we found a \n that follows some other
-					 *  character, hence we have a Unix file */
-					else
-					{
-						CROnly = false;
-						CRLF = false;
-						seg.append(buf,lastLine,
-							i - lastLine);
-						seg.append('\n');
-						endOffsets.add(seg.count);
-						if(trackProgress && lineCount++ % PROGRESS_INTERVAL == 0)
-							setValue(seg.count);
-						lastLine = i + 1;
-					}
-					break;
-				default:
-					/*  If we find some other character that follows
-					 a \r, so it is not a Windows file, and probably
-					 a Mac file */
-					if(lastWasCR)
-					{
-						CROnly = true;
-						CRLF = false;
-						lastWasCR = false;
-					}
-					break;
-				}
-			}
+	//{{{ startProgress() method
+	/**
+	 * @return this request as the observer of the progress of a read,
+	 * if the file size is known
+	 */
+	private ProgressObserver startProgress(long length)
+	{
+		if(buffer.isTemporary() || length == 0)
+			return null;
 
-			if(trackProgress)
-				setValue(seg.count);
+		setMaximum(length);
+		setValue(0);
+		return this;
+	} //}}}
 
-			// Add remaining stuff from buffer
-			seg.append(buf,lastLine,len - lastLine);
-		}
+	//{{{ endRead() method
+	private SegmentBuffer endRead(TextLoader loader, boolean insert)
+	{
+		SegmentBuffer seg = loader.seg;
+		IntegerArray endOffsets = loader.endOffsets;
 
 		setCancellable(false);
 
@@ -297,12 +237,8 @@ public abstract class BufferIORequest extends IoTask
 				"buffer.lineSeparator",
 				System.getProperty("line.separator"));
 		}
-		else if(CRLF)
-			lineSeparator = "\r\n";
-		else if(CROnly)
-			lineSeparator = "\r";
 		else
-			lineSeparator = "\n";
+			lineSeparator = loader.getLineSeparator();
 
 		// Chop trailing newline and/or ^Z (if any)
 		int bufferLength = seg.count;
@@ -352,13 +288,27 @@ public abstract class BufferIORequest extends IoTask
 		String encodingName
 			= buffer.getStringProperty(JEditBuffer.ENCODING);
 		Encoding encoding = EncodingServer.getEncoding(encodingName);
-		Writer writer = encoding.getTextWriter(
-			new BufferedOutputStream(out, getByteIOBufferSize()));
 
-		Segment lineSegment = new Segment();
 		String newline = buffer.getStringProperty(JEditBuffer.LINESEP);
 		if(newline == null)
 			newline = System.getProperty("line.separator");
+		boolean trailingEOL = jEdit.getBooleanProperty("stripTrailingEOL")
+			&& buffer.getBooleanProperty(Buffer.TRAILING_EOL);
+
+		// the encodings which are plain charsets, the most common
+		// case, are encoded directly from the buffer content
+		if(encoding.getClass() == CharsetEncoding.class)
+		{
+			write(buffer,out,encodingName,
+				((CharsetEncoding)encoding).getCharset(),
+				newline,trailingEOL);
+			return;
+		}
+
+		Writer writer = encoding.getTextWriter(
+			new BufferedOutputStream(out, getByteIOBufferSize()));
+
+		Segment lineSegment = new Segment();
 
 		final int bufferLineCount = buffer.getLineCount();
 		setMaximum(bufferLineCount / PROGRESS_INTERVAL);
@@ -376,9 +326,7 @@ public abstract class BufferIORequest extends IoTask
 				writer.write(lineSegment.array,
 					lineSegment.offset,
 					lineSegment.count);
-				if(i < bufferLineCount - 1
-					|| (jEdit.getBooleanProperty("stripTrailingEOL")
-						&& buffer.getBooleanProperty(Buffer.TRAILING_EOL)))
+				if(i < bufferLineCount - 1 || trailingEOL)
 				{
 					writer.write(newline);
 				}
@@ -418,7 +366,201 @@ public abstract class BufferIORequest extends IoTask
 
 	//{{{ Private members
 
-	//{{{ createEncodingErrorMessage() method
+	/** Size of the byte buffers used to write a buffer with a charset. */
+	/**
+	 * The length from which a stream is decoded in parallel, when its
+	 * encoding allows it.
+	 */
+	private static final long PARALLEL_READ_LENGTH = IOBUFSIZE * 64;
+
+	private static final int WRITE_BUFFER_SIZE = IOBUFSIZE * 16;
+
+	/**
+	 * The byte buffers, and their last encoder, of the writes done. They
+	 * are shared rather than kept per thread, since a write may run in a
+	 * new virtual thread each time. Past the size of the pool, the
+	 * buffers of concurrent writes are dropped after use.
+	 */
+	private static final BlockingQueue<WriteBuffer> writeBuffers
+		= new ArrayBlockingQueue<>(4);
+
+	//{{{ write() methods
+	/**
+	 * Writes the buffer with a charset. The text is encoded by large
+	 * ranges, each one PROGRESS_INTERVAL lines, read in place from the
+	 * buffer content: only the range containing the gap of the content
+	 * is copied. When the line separator is not a newline, the ranges
+	 * are the lines instead.
+	 * Must be called with the buffer read lock held.
+	 */
+	private void write(Buffer buffer, OutputStream out, String encodingName,
+		Charset charset, String newline, boolean trailingEOL)
+		throws IOException, InterruptedException
+	{
+		WriteBuffer writeBuffer = writeBuffers.poll();
+		if(writeBuffer == null)
+			writeBuffer = new WriteBuffer();
+		try
+		{
+			write(buffer,out,encodingName,writeBuffer.getEncoder(charset),
+				writeBuffer.bytes,newline,trailingEOL);
+		}
+		finally
+		{
+			writeBuffers.offer(writeBuffer);
+		}
+	}
+
+	private void write(Buffer buffer, OutputStream out, String encodingName,
+		CharsetEncoder encoder, ByteBuffer bytes, String newline,
+		boolean trailingEOL)
+		throws IOException, InterruptedException
+	{
+		encoder.reset();
+
+		WritableByteChannel channel;
+		if(out instanceof FileOutputStream)
+			channel = ((FileOutputStream)out).getChannel();
+		else
+			channel = Channels.newChannel(out);
+		bytes.clear();
+
+		CharBuffer separator = CharBuffer.wrap(newline);
+		boolean inBuffer = newline.equals("\n");
+		Segment seg = new Segment();
+
+		int lineCount = buffer.getLineCount();
+		int length = buffer.getLength();
+		setMaximum(lineCount / PROGRESS_INTERVAL);
+		setValue(0);
+
+		for(int i = 0; i < lineCount; i += PROGRESS_INTERVAL)
+		{
+			if(Thread.interrupted())
+				throw new InterruptedException();
+
+			int last = Math.min(i + PROGRESS_INTERVAL,lineCount) - 1;
+			if(inBuffer)
+			{
+				// the buffer separates the lines with newlines
+				// too, the lines are written at once
+				int start = buffer.getLineStartOffset(i);
+				int end = Math.min(buffer.getLineEndOffset(last),length);
+				buffer.getText(start,end - start,seg);
+				encode(buffer,encoder,seg,start,bytes,channel,encodingName);
+			}
+			else
+			{
+				for(int line = i; line <= last; line++)
+				{
+					int start = buffer.getLineStartOffset(line);
+					buffer.getText(start,
+						buffer.getLineEndOffset(line) - start - 1,seg);
+					encode(buffer,encoder,seg,start,bytes,channel,
+						encodingName);
+					if(line < lineCount - 1)
+					{
+						separator.rewind();
+						encode(encoder,separator,bytes,channel);
+					}
+				}
+			}
+
+			setValue((last + 1) / PROGRESS_INTERVAL);
+		}
+
+		if(trailingEOL)
+		{
+			separator.rewind();
+			encode(encoder,separator,bytes,channel);
+		}
+
+		CharBuffer empty = CharBuffer.allocate(0);
+		while(encoder.encode(empty,bytes,true).isOverflow())
+			drain(bytes,channel);
+		while(encoder.flush(bytes).isOverflow())
+			drain(bytes,channel);
+		drain(bytes,channel);
+		out.flush();
+	} //}}}
+
+	//{{{ encode() methods
+	/**
+	 * Encodes a range of the buffer.
+	 * @param seg The text of the range
+	 * @param start The offset of the range
+	 */
+	private static void encode(Buffer buffer, CharsetEncoder encoder,
+		Segment seg, int start, ByteBuffer bytes,
+		WritableByteChannel channel, String encodingName)
+		throws IOException
+	{
+		CharBuffer chars = CharBuffer.wrap(seg.array,seg.offset,seg.count);
+		CoderResult result = encode(encoder,chars,bytes,channel);
+		// the ranges end with a line, a character left over is a
+		// lone high surrogate
+		if(result.isUnderflow() && chars.hasRemaining())
+			result = CoderResult.malformedForLength(chars.remaining());
+		if(result.isError())
+		{
+			int offset = start + chars.position() - seg.offset;
+			int line = buffer.getLineOfOffset(offset);
+			int column = offset - buffer.getLineStartOffset(line);
+			String message = getWriteEncodingErrorMessage(
+				encodingName, line, column, buffer.getText(offset,1).charAt(0));
+			IOException wrapping = new CharConversionException(message);
+			try
+			{
+				result.throwException();
+			}
+			catch(CharacterCodingException e)
+			{
+				wrapping.initCause(e);
+			}
+			throw wrapping;
+		}
+	}
+
+	/**
+	 * Encodes the characters, writing the bytes to the channel each
+	 * time the byte buffer is full.
+	 * @return the result of the encoding, an underflow or an error
+	 */
+	private static CoderResult encode(CharsetEncoder encoder, CharBuffer chars,
+		ByteBuffer bytes, WritableByteChannel channel) throws IOException
+	{
+		CoderResult result;
+		while((result = encoder.encode(chars,bytes,false)).isOverflow())
+			drain(bytes,channel);
+		return result;
+	} //}}}
+
+	//{{{ drain() method
+	private static void drain(ByteBuffer bytes, WritableByteChannel channel)
+		throws IOException
+	{
+		bytes.flip();
+		while(bytes.hasRemaining())
+			channel.write(bytes);
+		bytes.clear();
+	} //}}}
+
+	//{{{ WriteBuffer class
+	/** A byte buffer of {@link #writeBuffers}, and its last encoder. */
+	private static class WriteBuffer
+	{
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		private CharsetEncoder encoder;
+
+		CharsetEncoder getEncoder(Charset charset)
+		{
+			if(encoder == null || !encoder.charset().equals(charset))
+				encoder = charset.newEncoder();
+			return encoder;
+		}
+	} //}}}
+
+	//{{{ createEncodingErrorMessage() methods
 	private static String getWriteEncodingErrorMessage(
 		String encodingName, Encoding encoding,
 		Segment line, int lineIndex)
@@ -435,8 +577,8 @@ public abstract class BufferIORequest extends IoTask
 			if(0 <= charIndex && charIndex < line.count)
 			{
 				char c = line.array[line.offset + charIndex];
-				args[2] = Integer.toString(charIndex + 1);
-				args[3] = "'" + c + "' (U+" + Integer.toHexString(c).toUpperCase() + ")";
+				return getWriteEncodingErrorMessage(encodingName,
+					lineIndex, charIndex, c);
 			}
 		}
 		catch(Exception e)
@@ -444,6 +586,18 @@ public abstract class BufferIORequest extends IoTask
 			// Ignore.
 		}
 		return jEdit.getProperty("ioerror.write-encoding-error", args);
+	}
+
+	private static String getWriteEncodingErrorMessage(
+		String encodingName, int lineIndex, int charIndex, char c)
+	{
+		String args[] = {
+			encodingName,
+			Integer.toString(lineIndex + 1),
+			Integer.toString(charIndex + 1),
+			"'" + c + "' (U+" + Integer.toHexString(c).toUpperCase() + ")"
+		};
+		return jEdit.getProperty("ioerror.write-encoding-error", args);
 	} //}}}
 
 	//{{{ getFirstGuiltyCharacterIndex() method
@@ -242,7 +242,11 @@ public class BufferLoadRequest extends BufferIORequest
 				markedStream = rewindContentsStream(markedStream, gzipped);
 				try
 				{
-					read(EncodingServer.getTextReader(markedStream, encoding), length, false);
+					// a gzipped stream is longer than its length
+					if(gzipped)
+						read(EncodingServer.getTextReader(markedStream, encoding), length, false);
+					else
+						read(markedStream, encoding, length, false);
 					if(autodetect)
 					{
 						// Store the successful properties.
@@ -25,4 +25,8 @@ import org.gjt.sp.util.Task;
 
 public abstract class IoTask extends Task
 {
+	protected IoTask()
+	{
+		setLane(Lane.INTERACTIVE_IO);
+	}
 }
@@ -0,0 +1,722 @@
+/*
+ * TextLoader.java - Reads a text and finds its lines
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bufferio;
+
+//{{{ Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.gjt.sp.util.IntegerArray;
+import org.gjt.sp.util.ProgressObserver;
+import org.gjt.sp.util.SegmentBuffer;
+//}}}
+
+/**
+ * Reads a text in a segment, converting its line separators to \n, and
+ * records the end offset of each line.<p>
+ *
+ * A text in UTF-8, or in a single byte encoding where only the bytes 10
+ * and 13 are line separators, can also be read from its bytes. They are
+ * read by blocks, whose chunks are decoded in parallel while the next
+ * block is read, and whose line feeds are found 8 bytes at a time.
+ *
+ * @since jEdit 5.7pre1
+ */
+class TextLoader
+{
+	/** The text, with \n as the only line separator. */
+	final SegmentBuffer seg;
+	/** The offset after each \n of the text. */
+	final IntegerArray endOffsets;
+
+	//{{{ TextLoader constructor
+	/**
+	 * @param length The expected length of the text, 0 if unknown
+	 */
+	TextLoader(long length)
+	{
+		/* we guess an initial size for the array */
+		endOffsets = new IntegerArray(Math.max(1,(int)(length / 50)));
+
+		// if the file size is not known, start with a resonable
+		// default buffer size
+		if(length == 0)
+			length = BufferIORequest.IOBUFSIZE;
+
+		seg = new SegmentBuffer((int)length + 1);
+		separators = new LineSeparators(endOffsets);
+	} //}}}
+
+	//{{{ canReadBytes() method
+	/**
+	 * @return true if a text in this charset can be read from its bytes,
+	 * by {@link #read(InputStream,Charset,ProgressObserver)}
+	 */
+	static boolean canReadBytes(Charset charset)
+	{
+		if(charset.equals(StandardCharsets.UTF_8))
+			return true;
+
+		CharsetDecoder decoder = charset.newDecoder();
+		if(decoder.maxCharsPerByte() != 1f
+			|| decoder.averageCharsPerByte() != 1f)
+		{
+			return false;
+		}
+
+		// each byte is a character on its own, and only 10 and 13 are
+		// line separators
+		byte[] bytes = new byte[1];
+		CharBuffer chars = CharBuffer.allocate(2);
+		for(int b = 0; b < 256; b++)
+		{
+			bytes[0] = (byte)b;
+			chars.clear();
+			decoder.reset();
+			CoderResult result = decoder.decode(ByteBuffer.wrap(bytes),
+				chars,true);
+			if(!result.isError())
+				result = decoder.flush(chars);
+			if(result.isError())
+				continue;
+			if(chars.position() != 1)
+				return false;
+			char ch = chars.get(0);
+			if((ch == '\n') != (b == '\n') || (ch == '\r') != (b == '\r'))
+				return false;
+		}
+		return true;
+	} //}}}
+
+	//{{{ read() methods
+	/**
+	 * Reads the text of a reader.
+	 * @param in The reader
+	 * @param observer The observer of the number of characters read, or
+	 * null
+	 */
+	void read(Reader in, ProgressObserver observer)
+		throws IOException, InterruptedException
+	{
+		for(;;)
+		{
+			// the text is read directly at the end of the
+			// segment, and the line separators are converted
+			// in place
+			int room = seg.array.length - seg.count;
+			if(room == 0)
+			{
+				seg.reserve(BufferIORequest.IOBUFSIZE);
+				room = seg.array.length - seg.count;
+			}
+			int len = in.read(seg.array,seg.count,
+				Math.min(room,BufferIORequest.IOBUFSIZE));
+			if(len == -1)
+				break;
+
+			if(Thread.interrupted())
+				throw new InterruptedException();
+
+			seg.count = separators.convert(seg.array,seg.count,
+				seg.count + len,0);
+
+			if(observer != null)
+				observer.setValue(seg.count);
+		}
+	}
+
+	/**
+	 * Reads the text of a stream, in a charset for which
+	 * {@link #canReadBytes(Charset)} is true.
+	 * @param in The stream
+	 * @param charset The charset of the text
+	 * @param observer The observer of the number of bytes read, or null
+	 * @throws CharacterCodingException if the bytes are not valid in the
+	 * charset
+	 */
+	void read(InputStream in, Charset charset, ProgressObserver observer)
+		throws IOException, InterruptedException
+	{
+		read(in,charset,CHUNK_SIZE,
+			Math.max(1,Runtime.getRuntime().availableProcessors()),
+			observer);
+	}
+
+	/**
+	 * Reads the text of a stream by blocks of <code>chunkCount</code>
+	 * chunks of <code>chunkSize</code> bytes.
+	 */
+	void read(InputStream in, Charset charset, int chunkSize,
+		int chunkCount, ProgressObserver observer)
+		throws IOException, InterruptedException
+	{
+		boolean utf8 = charset.equals(StandardCharsets.UTF_8);
+		int blockSize = chunkSize * chunkCount;
+		// room for the start of a character left at the end of the
+		// previous block
+		byte[] block = new byte[blockSize + 3];
+		byte[] next = new byte[blockSize + 3];
+		Chunk[] chunks = new Chunk[chunkCount];
+		for(int i = 0; i < chunkCount; i++)
+			chunks[i] = new Chunk(charset.newDecoder(),utf8);
+		Future<?>[] futures = new Future<?>[chunkCount];
+
+		long read = 0;
+		int length = in.readNBytes(block,0,blockSize);
+		// the end of the stream was reached
+		boolean last = length < blockSize;
+		while(length != 0)
+		{
+			if(Thread.interrupted())
+				throw new InterruptedException();
+
+			int end = last || !utf8 ? length
+				: getCharacterStart(block,length);
+
+			// each chunk is decoded in the segment at the offset
+			// of its bytes, as it has at most one character for
+			// each byte
+			seg.reserve(end);
+			int base = seg.count;
+
+			// the chunks are cut before the first byte of a
+			// character
+			int start = 0;
+			int count = 0;
+			while(start < end)
+			{
+				int chunkEnd = count == chunkCount - 1 ? end
+					: Math.min(start + chunkSize,end);
+				while(utf8 && chunkEnd < end
+					&& isContinuation(block[chunkEnd]))
+				{
+					chunkEnd++;
+				}
+				Chunk chunk = chunks[count];
+				chunk.bytes = block;
+				chunk.from = start;
+				chunk.to = chunkEnd;
+				chunk.chars = seg.array;
+				chunk.offset = base + start;
+				futures[count++] = ForkJoinPool.commonPool().submit(chunk);
+				start = chunkEnd;
+			}
+
+			// the next block is read while this one is decoded,
+			// after the bytes of the last character if it is
+			// incomplete
+			int carry = length - end;
+			System.arraycopy(block,end,next,0,carry);
+			int nextLength = carry;
+			boolean nextLast = true;
+			if(!last)
+			{
+				int len = in.readNBytes(next,carry,blockSize);
+				nextLength += len;
+				nextLast = len < blockSize;
+			}
+
+			for(int i = 0; i < count; i++)
+			{
+				try
+				{
+					futures[i].get();
+				}
+				catch(InterruptedException e)
+				{
+					for(int j = i; j < count; j++)
+						futures[j].cancel(false);
+					throw e;
+				}
+				catch(ExecutionException e)
+				{
+					throw new IOException(e.getCause());
+				}
+				if(chunks[i].error != null)
+					throw chunks[i].error;
+				append(chunks[i]);
+			}
+
+			read += end;
+			if(observer != null)
+				observer.setValue(read);
+
+			if(last)
+				break;
+			byte[] swap = block;
+			block = next;
+			next = swap;
+			length = nextLength;
+			last = nextLast;
+		}
+	} //}}}
+
+	//{{{ getLineSeparator() method
+	/**
+	 * @return the line separator of the text read, the last one found
+	 * for a text mixing them
+	 */
+	String getLineSeparator()
+	{
+		if(separators.CRLF)
+			return "\r\n";
+		else if(separators.CROnly)
+			return "\r";
+		else
+			return "\n";
+	} //}}}
+
+	//{{{ Private members
+
+	/** The size of the chunks decoded in parallel. */
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	/** Reads 8 bytes of an array at a time. */
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(
+		long[].class,ByteOrder.LITTLE_ENDIAN);
+
+	private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long LINE_FEEDS = 0x0a0a0a0a0a0a0a0aL;
+	private static final long CARRIAGE_RETURNS = 0x0d0d0d0d0d0d0d0dL;
+
+	private final LineSeparators separators;
+
+	//{{{ append() method
+	/**
+	 * Appends a decoded chunk to the segment, moving it after the
+	 * previous one if they have fewer characters than bytes. Its line
+	 * separators were converted as if it was the start of the text, so
+	 * only its first character depends on the text before it.
+	 */
+	private void append(Chunk chunk)
+	{
+		LineSeparators local = chunk.separators;
+		int start = chunk.offset;
+		int length = chunk.length;
+		int skip = 0;
+		if(separators.lastWasCR)
+		{
+			// a \n after a \r of the previous chunk is dropped
+			if(chunk.first == '\n')
+			{
+				separators.CROnly = false;
+				separators.CRLF = true;
+				start++;
+				length--;
+				skip = 1;
+			}
+			else
+			{
+				separators.CROnly = true;
+				separators.CRLF = false;
+			}
+		}
+		else if(chunk.first == '\n')
+		{
+			separators.CROnly = false;
+			separators.CRLF = false;
+		}
+		if(local.changed)
+		{
+			separators.CROnly = local.CROnly;
+			separators.CRLF = local.CRLF;
+		}
+		separators.lastWasCR = local.lastWasCR;
+
+		if(start != seg.count)
+			System.arraycopy(seg.array,start,seg.array,seg.count,length);
+		IntegerArray lineEnds = local.endOffsets;
+		for(int i = skip; i < lineEnds.getSize(); i++)
+			endOffsets.add(seg.count + lineEnds.get(i) - skip);
+		seg.count += length;
+	} //}}}
+
+	//{{{ isContinuation() method
+	/**
+	 * @return true if the byte is not the first one of a character in
+	 * UTF-8
+	 */
+	private static boolean isContinuation(byte b)
+	{
+		return (b & 0xc0) == 0x80;
+	} //}}}
+
+	//{{{ getCharacterStart() method
+	/**
+	 * @return the start of the last character of some UTF-8 bytes, if it
+	 * needs more bytes, or the end of the bytes
+	 */
+	private static int getCharacterStart(byte[] bytes, int end)
+	{
+		int start = end - 1;
+		while(start > end - 4 && start > 0 && isContinuation(bytes[start]))
+			start--;
+
+		int lead = bytes[start] & 0xff;
+		int length;
+		if(lead >= 0xf0)
+			length = 4;
+		else if(lead >= 0xe0)
+			length = 3;
+		else if(lead >= 0xc0)
+			length = 2;
+		else
+			length = 1;
+		return start + length > end ? start : end;
+	} //}}}
+
+	//{{{ zeroBytes() method
+	/**
+	 * @return a word with the high bit of each byte set if that byte of
+	 * the given word is 0
+	 */
+	private static long zeroBytes(long word)
+	{
+		long low = (word & LOW_BITS) + LOW_BITS;
+		return ~(low | word | LOW_BITS);
+	} //}}}
+
+	//{{{ LineSeparators class
+	/**
+	 * Converts the line separators of a text to \n, and records the end
+	 * of its lines.
+	 */
+	private static class LineSeparators
+	{
+		// True if a \n was read after a \r. Usually
+		// means this is a DOS/Windows file
+		boolean CRLF;
+
+		// A \r was read, hence a MacOS file
+		boolean CROnly;
+
+		// Was the previous read character a \r?
+		// If we read a \n and this is true, we assume
+		// we have a DOS/Windows file
+		boolean lastWasCR;
+
+		/** true if CRLF and CROnly were set by the last conversions. */
+		boolean changed;
+
+		final IntegerArray endOffsets;
+
+		LineSeparators(IntegerArray endOffsets)
+		{
+			this.endOffsets = endOffsets;
+		}
+
+		void reset()
+		{
+			CRLF = false;
+			CROnly = false;
+			lastWasCR = false;
+			changed = false;
+			endOffsets.clear();
+		}
+
+		/**
+		 * Converts the line separators of some text in place.
+		 * @param array The array of the text
+		 * @param i The start of the text
+		 * @param end The end of the text
+		 * @param base The offset in the array of the offset 0 of the
+		 * line ends
+		 * @return the end of the converted text
+		 */
+		int convert(char[] array, int i, int end, int base)
+		{
+			// Unix text, in place and no separator to convert,
+			// until a \r is found
+			if(!lastWasCR)
+			{
+				boolean newline = false;
+				for(; i < end; i++)
+				{
+					char ch = array[i];
+					if(ch == '\n')
+					{
+						endOffsets.add(i + 1 - base);
+						newline = true;
+					}
+					else if(ch == '\r')
+						break;
+				}
+				if(newline)
+				{
+					CROnly = false;
+					CRLF = false;
+					changed = true;
+				}
+			}
+
+			// Write position, behind i once a \r\n was
+			// converted to a \n
+			int out = i;
+			for(; i < end; i++)
+			{
+				char ch = array[i];
+				// Look for line endings.
+				switch(ch)
+				{
+				case '\r':
+					// If we read a \r and
+					// lastWasCR is also true,
+					// it is probably a Mac file
+					// (\r\r in stream)
+					if(lastWasCR)
+					{
+						CROnly = true;
+						CRLF = false;
+						changed = true;
+					}
+					// Otherwise set a flag,
+					// so that \n knows that last
+					// was a \r
+					else
+					{
+						lastWasCR = true;
+					}
+
+					// Insert a line
+					array[out++] = '\n';
+					endOffsets.add(out - base);
+					break;
+				case '\n':
+					/* If lastWasCR is true, we just read a \r followed
+					 by a \n. We specify that this is a Windows file,
+					 but take no further action and just ignore the \n,
+					 the \r was already converted. */
+					if(lastWasCR)
+					{
+						CROnly = false;
+						CRLF = true;
+						lastWasCR = false;
+					}
+					/* Otherwise, we found a \n that follows some other
+					 *  character, hence we have a Unix file */
+					else
+					{
+						CROnly = false;
+						CRLF = false;
+						array[out++] = '\n';
+						endOffsets.add(out - base);
+					}
+					changed = true;
+					break;
+				default:
+					/*  If we find some other character that follows
+					 a \r, so it is not a Windows file, and probably
+					 a Mac file */
+					if(lastWasCR)
+					{
+						CROnly = true;
+						CRLF = false;
+						lastWasCR = false;
+						changed = true;
+					}
+					array[out++] = ch;
+					break;
+				}
+			}
+			return out;
+		}
+	} //}}}
+
+	//{{{ Chunk class
+	/**
+	 * Some bytes decoded in parallel with the other chunks of a block,
+	 * whose line separators are converted as if they were the start of
+	 * the text. They are decoded by slices, whose lines are found while
+	 * they are still in the cache.
+	 */
+	private static class Chunk implements Runnable
+	{
+		byte[] bytes;
+		int from;
+		int to;
+
+		/** The array of the segment, where the chunk is decoded. */
+		char[] chars;
+		int offset;
+		int length;
+		/** The first character, before the conversion. */
+		char first;
+		/** The line ends, and the separators after the first character. */
+		final LineSeparators separators = new LineSeparators(new IntegerArray());
+		CharacterCodingException error;
+
+		Chunk(CharsetDecoder decoder, boolean utf8)
+		{
+			this.decoder = decoder;
+			this.utf8 = utf8;
+		}
+
+		@Override
+		public void run()
+		{
+			error = null;
+			separators.reset();
+			hasCR = false;
+			try
+			{
+				decode();
+			}
+			catch(CharacterCodingException e)
+			{
+				error = e;
+				return;
+			}
+
+			first = chars[offset];
+			if(hasCR)
+			{
+				// the line feeds found before the \r are found
+				// again
+				separators.reset();
+				separators.convert(chars,offset,offset + 1,offset);
+				separators.changed = false;
+				length = separators.convert(chars,offset + 1,
+					offset + length,offset) - offset;
+			}
+			else
+			{
+				IntegerArray lineEnds = separators.endOffsets;
+				int count = lineEnds.getSize();
+				separators.changed = count != 0
+					&& lineEnds.get(count - 1) > 1;
+			}
+		}
+
+		private static final int SLICE_SIZE = 8192;
+
+		private final CharsetDecoder decoder;
+		private final boolean utf8;
+		private boolean hasCR;
+
+		private void decode() throws CharacterCodingException
+		{
+			decoder.reset();
+			ByteBuffer in = ByteBuffer.wrap(bytes,from,to - from);
+			// at most one character for each byte
+			CharBuffer out = CharBuffer.wrap(chars,offset,to - from);
+			for(int end = Math.min(from + SLICE_SIZE,to);;
+				end = Math.min(end + SLICE_SIZE,to))
+			{
+				int byteStart = in.position();
+				int charStart = out.position();
+				// the bytes of a character cut at the end of a
+				// slice stay in the input until the next one
+				in.limit(end);
+				CoderResult result = decoder.decode(in,out,end == to);
+				if(result.isError())
+					result.throwException();
+				if(!hasCR)
+					scan(byteStart,in.position(),charStart - offset);
+				if(end == to)
+					break;
+			}
+			CoderResult result = decoder.flush(out);
+			if(result.isError())
+				result.throwException();
+			length = out.position() - offset;
+		}
+
+		/**
+		 * Finds the \n and the \r of some decoded bytes, 8 bytes at a
+		 * time. In UTF-8, the offset of a character is the one of its
+		 * first byte, less the bytes continuing the characters before
+		 * it, plus one for each character before it made of two
+		 * surrogates.
+		 * @param start The first byte
+		 * @param end The end of the bytes
+		 * @param charOffset The offset of the first byte in the chunk
+		 */
+		private void scan(int start, int end, int charOffset)
+		{
+			IntegerArray lineEnds = separators.endOffsets;
+			int i = start;
+			for(; i <= end - 8; i += 8)
+			{
+				long word = (long)LONGS.get(bytes,i);
+				if(zeroBytes(word ^ CARRIAGE_RETURNS) != 0)
+				{
+					hasCR = true;
+					return;
+				}
+				long lineFeeds = zeroBytes(word ^ LINE_FEEDS);
+				long continuations = 0;
+				long surrogates = 0;
+				if(utf8 && (word & HIGH_BITS) != 0)
+				{
+					// 10xxxxxx and 11110xxx
+					continuations = word & ~(word << 1) & HIGH_BITS;
+					surrogates = word & (word << 1) & (word << 2)
+						& (word << 3) & HIGH_BITS;
+				}
+				while(lineFeeds != 0)
+				{
+					int bit = Long.numberOfTrailingZeros(lineFeeds);
+					long before = (1L << bit) - 1;
+					lineEnds.add(charOffset + (bit >>> 3) + 1
+						- Long.bitCount(continuations & before)
+						+ Long.bitCount(surrogates & before));
+					lineFeeds &= lineFeeds - 1;
+				}
+				charOffset += 8 - Long.bitCount(continuations)
+					+ Long.bitCount(surrogates);
+			}
+			for(; i < end; i++)
+			{
+				byte b = bytes[i];
+				if(b == '\r')
+				{
+					hasCR = true;
+					return;
+				}
+				if(b == '\n')
+					lineEnds.add(charOffset + 1);
+				if(!utf8 || !isContinuation(b))
+					charOffset++;
+				if(utf8 && (b & 0xf8) == 0xf0)
+					charOffset++;
+			}
+		}
+	} //}}}
+
+	//}}}
+}
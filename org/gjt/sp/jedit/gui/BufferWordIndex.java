@@ -0,0 +1,401 @@
+/*
+ * BufferWordIndex.java - Words of a buffer, for word completion
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.gui;
+
+//{{{ Imports
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.buffer.BufferAdapter;
+import org.gjt.sp.jedit.buffer.BufferSnapshot;
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
+//}}}
+
+/**
+ * The words of a buffer, with the number of times each word occurs.<p>
+ *
+ * The index is built in the background the first time it is requested,
+ * and then kept up to date from the buffer events, one line at a time.
+ * A word is a maximal run of letters, digits and <code>noWordSep</code>
+ * characters, like in {@link CompleteWord}.<p>
+ *
+ * The index is updated in the thread editing the buffer, and queried in
+ * the event dispatch thread, so all access is synchronized on the index.
+ *
+ * @since jEdit 5.7pre1
+ */
+class BufferWordIndex extends BufferAdapter
+{
+	//{{{ getIndex() method
+	/**
+	 * Returns the word index of a buffer. If the index does not exist
+	 * yet, or was built for other word characters, it is built in the
+	 * background and null is returned in the meantime.
+	 * Must be called from the event dispatch thread.
+	 */
+	static BufferWordIndex getIndex(Buffer buffer, String noWordSep)
+	{
+		BufferWordIndex index = indexes.get(buffer);
+		if(index != null && (index.invalid
+			|| !index.noWordSep.equals(noWordSep)))
+		{
+			index.dispose(buffer);
+			index = null;
+		}
+
+		if(index == null)
+		{
+			if(buffer.isLoading())
+				return null;
+			index = new BufferWordIndex(noWordSep);
+			indexes.put(buffer,index);
+			// events received before the index is built are ignored,
+			// the build will see their result
+			buffer.addBufferListener(index);
+			ThreadUtilities.runInBackground(new BuildTask(buffer,index));
+			return null;
+		}
+
+		return index.built ? index : null;
+	} //}}}
+
+	//{{{ countWords() method
+	/**
+	 * Counts the words starting with a prefix, by scanning the buffer.
+	 * Used for the buffers whose index is not built yet.
+	 */
+	static void countWords(JEditBuffer buffer, String prefix,
+		String noWordSep, Map<String,Integer> counts)
+	{
+		// scanned without blocking the edits
+		BufferSnapshot snapshot = buffer.getSnapshot();
+		for(int i = 0; i < snapshot.getLineCount(); i++)
+		{
+			CharSequence line = snapshot.getLineSegment(i);
+			int start = 0;
+			while((start = nextWordStart(line,start,noWordSep)) != -1)
+			{
+				int end = wordEnd(line,start,noWordSep);
+				if(end - start >= prefix.length()
+					&& regionMatches(line,start,prefix))
+				{
+					counts.merge(line.subSequence(start,end)
+						.toString(),1,Integer::sum);
+				}
+				start = end;
+			}
+		}
+	} //}}}
+
+	//{{{ getWords() method
+	/**
+	 * Adds the words starting with a prefix and their number of
+	 * occurrences to a map.
+	 */
+	synchronized void getWords(String prefix, Map<String,Integer> counts)
+	{
+		for(WordCount word : words.tailMap(prefix,true).values())
+		{
+			if(!word.word.startsWith(prefix))
+				break;
+			counts.merge(word.word,word.count,Integer::sum);
+		}
+	} //}}}
+
+	//{{{ splitWords() method
+	/**
+	 * Returns the words of a line, as seen by the word index.
+	 */
+	static List<String> splitWords(CharSequence line, String noWordSep)
+	{
+		List<String> lineWords = null;
+		int start = 0;
+		while((start = nextWordStart(line,start,noWordSep)) != -1)
+		{
+			int end = wordEnd(line,start,noWordSep);
+			if(lineWords == null)
+				lineWords = new ArrayList<>();
+			lineWords.add(line.subSequence(start,end).toString());
+			start = end;
+		}
+		return lineWords == null ? Collections.emptyList() : lineWords;
+	} //}}}
+
+	//{{{ BufferListener implementation
+	@Override
+	public synchronized void preContentRemoved(JEditBuffer buffer,
+		int startLine, int offset, int numLines, int length)
+	{
+		if(!isActive(buffer))
+			return;
+		if(startLine + numLines >= lines.size())
+		{
+			invalid = true;
+			return;
+		}
+		// the removed lines are joined into startLine, which is
+		// rescanned in contentRemoved()
+		for(int i = startLine; i <= startLine + numLines; i++)
+			removeLine(lines.get(i));
+		lines.subList(startLine + 1,startLine + numLines + 1).clear();
+		lines.set(startLine,null);
+	}
+
+	@Override
+	public synchronized void contentRemoved(JEditBuffer buffer,
+		int startLine, int offset, int numLines, int length)
+	{
+		if(!isActive(buffer))
+			return;
+		if(startLine >= lines.size())
+		{
+			invalid = true;
+			return;
+		}
+		lines.set(startLine,addLine(buffer.getLineSegment(startLine)));
+	}
+
+	@Override
+	public synchronized void contentInserted(JEditBuffer buffer,
+		int startLine, int offset, int numLines, int length)
+	{
+		// preContentInserted() is not used, since the content has
+		// already changed when it is sent, so the old words of the
+		// line are taken from the index here
+		if(!isActive(buffer))
+			return;
+		if(startLine >= lines.size()
+			|| lines.size() + numLines != buffer.getLineCount())
+		{
+			invalid = true;
+			return;
+		}
+		removeLine(lines.get(startLine));
+		lines.addAll(startLine + 1,Collections.nCopies(numLines,null));
+		for(int i = startLine; i <= startLine + numLines; i++)
+			lines.set(i,addLine(buffer.getLineSegment(i)));
+	}
+
+	@Override
+	public void bufferLoaded(JEditBuffer buffer)
+	{
+		// rebuilt on the next request
+		invalid = true;
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public synchronized String toString()
+	{
+		return "BufferWordIndex[lines=" + lines.size()
+			+ ",words=" + words.size() + ']';
+	} //}}}
+
+	//{{{ Private members
+	/** The index must not keep closed buffers alive. */
+	private static final Map<Buffer,BufferWordIndex> indexes = new WeakHashMap<>();
+
+	private final String noWordSep;
+	/** The words of each line, null if the line has no words. */
+	private final List<WordCount[]> lines;
+	private final TreeMap<String,WordCount> words;
+	private volatile boolean built;
+	/** Set if the index lost track of the buffer, and must be rebuilt. */
+	private volatile boolean invalid;
+
+	//{{{ BufferWordIndex constructor
+	private BufferWordIndex(String noWordSep)
+	{
+		this.noWordSep = noWordSep;
+		lines = new ArrayList<>();
+		words = new TreeMap<>();
+	} //}}}
+
+	//{{{ build() method
+	/**
+	 * Must be called with the buffer read lock held, so that the events
+	 * received after it are relative to the indexed content.
+	 */
+	private synchronized void build(JEditBuffer buffer)
+	{
+		if(invalid)
+			return;
+		int lineCount = buffer.getLineCount();
+		for(int i = 0; i < lineCount; i++)
+			lines.add(addLine(buffer.getLineSegment(i)));
+		built = true;
+	} //}}}
+
+	//{{{ dispose() method
+	private void dispose(Buffer buffer)
+	{
+		invalid = true;
+		buffer.removeBufferListener(this);
+		if(indexes.get(buffer) == this)
+			indexes.remove(buffer);
+	} //}}}
+
+	//{{{ isActive() method
+	private boolean isActive(JEditBuffer buffer)
+	{
+		if(!built || invalid)
+			return false;
+		if(buffer.isLoading())
+		{
+			invalid = true;
+			return false;
+		}
+		return true;
+	} //}}}
+
+	//{{{ addLine() method
+	private WordCount[] addLine(CharSequence line)
+	{
+		List<WordCount> lineWords = null;
+		int start = 0;
+		while((start = nextWordStart(line,start,noWordSep)) != -1)
+		{
+			int end = wordEnd(line,start,noWordSep);
+			String text = line.subSequence(start,end).toString();
+			WordCount word = words.get(text);
+			if(word == null)
+			{
+				word = new WordCount(text);
+				words.put(text,word);
+			}
+			word.count++;
+			if(lineWords == null)
+				lineWords = new ArrayList<>();
+			lineWords.add(word);
+			start = end;
+		}
+		return lineWords == null ? null : lineWords.toArray(new WordCount[0]);
+	} //}}}
+
+	//{{{ removeLine() method
+	private void removeLine(WordCount[] lineWords)
+	{
+		if(lineWords == null)
+			return;
+		for(WordCount word : lineWords)
+		{
+			if(--word.count == 0)
+				words.remove(word.word);
+		}
+	} //}}}
+
+	//{{{ nextWordStart() method
+	/**
+	 * @return the start of the first word at or after <code>from</code>,
+	 * or -1
+	 */
+	private static int nextWordStart(CharSequence line, int from, String noWordSep)
+	{
+		for(int i = from; i < line.length(); i++)
+		{
+			if(isWordChar(line.charAt(i),noWordSep))
+				return i;
+		}
+		return -1;
+	} //}}}
+
+	//{{{ wordEnd() method
+	private static int wordEnd(CharSequence line, int start, String noWordSep)
+	{
+		int end = start + 1;
+		while(end < line.length() && isWordChar(line.charAt(end),noWordSep))
+			end++;
+		return end;
+	} //}}}
+
+	//{{{ isWordChar() method
+	private static boolean isWordChar(char ch, String noWordSep)
+	{
+		return Character.isLetterOrDigit(ch) || noWordSep.indexOf(ch) != -1;
+	} //}}}
+
+	//{{{ regionMatches() method
+	private static boolean regionMatches(CharSequence line, int start, String prefix)
+	{
+		for(int i = 0; i < prefix.length(); i++)
+		{
+			if(line.charAt(start + i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	} //}}}
+
+	//}}}
+
+	//{{{ WordCount class
+	private static class WordCount
+	{
+		WordCount(String word)
+		{
+			this.word = word;
+		}
+
+		final String word;
+		int count;
+	} //}}}
+
+	//{{{ BuildTask class
+	private static class BuildTask extends Task
+	{
+		BuildTask(Buffer buffer, BufferWordIndex index)
+		{
+			this.buffer = buffer;
+			this.index = index;
+			setLabel(jEdit.getProperty("complete-word.indexing",
+				new Object[] { buffer.getName() }));
+		}
+
+		@Override
+		public void _run()
+		{
+			buffer.readLock();
+			try
+			{
+				if(buffer.isLoading())
+					index.invalid = true;
+				else
+					index.build(buffer);
+			}
+			finally
+			{
+				buffer.readUnlock();
+			}
+		}
+
+		private final Buffer buffer;
+		private final BufferWordIndex index;
+	} //}}}
+}
@@ -199,107 +199,86 @@ public class CompleteWord extends CompletionPopup
 	private static Completion[] getCompletions(final Buffer buffer, final String word,
 		final int caret)
 	{
-		// build a list of unique words in all buffers, or visible buffers,
-		// depending on completeFromAllBuffers
-		final Set<Completion> completions = new TreeSet<Completion>(new StandardUtilities
-			.StringCompare<Completion>());
-
 		// only complete current buffer's keyword map
 		final KeywordMap keywordMap = buffer.getKeywordMapAtOffset(caret);
 		final String noWordSep = getNonAlphaNumericWordChars(
 			buffer,keywordMap);
 
+		// count the words in all buffers, or visible buffers,
+		// depending on completeFromAllBuffers
 		final Collection<Buffer> sourceBuffers =
 			jEdit.getBooleanProperty("completeFromAllBuffers") ?
 				jEdit.getBufferManager().getBuffers() :
 				getVisibleBuffers();
 
+		Map<String,Integer> counts = new HashMap<>();
 		for (Buffer b : sourceBuffers)
 		{
-			// only complete current buffer's keyword map
-			KeywordMap _keywordMap;
-			if(b == buffer)
-				_keywordMap = keywordMap;
+			BufferWordIndex index = BufferWordIndex.getIndex(b,noWordSep);
+			if(index == null)
+				BufferWordIndex.countWords(b,word,noWordSep,counts);
 			else
-				_keywordMap = null;
-
-			int offset = (b == buffer ? caret : 0);
-
-			getCompletions(b,word,keywordMap,noWordSep,
-					offset,completions);
+				index.getWords(word,counts);
 		}
 
-		Completion[] completionArray = completions.toArray(EMPTY_COMPLETION_ARRAY);
-
-		return completionArray;
-	} //}}}
-
-	//{{{ getCompletions() method
-	private static void getCompletions(Buffer buffer, String word,
-		KeywordMap keywordMap, String noWordSep, int caret,
-		Collection<Completion> completions)
-	{
-		int wordLen = word.length();
-
-		//{{{ try to find matching keywords
-		if(keywordMap != null)
+		// the word being completed is not a completion by itself
+		int caretLine = buffer.getLineOfOffset(caret);
+		CharSequence caretLineText = buffer.getLineSegment(caretLine);
+		String current = completeWord(caretLineText,
+			caret - word.length() - buffer.getLineStartOffset(caretLine),
+			noWordSep);
+		if(sourceBuffers.contains(buffer))
+			counts.computeIfPresent(current,(text, count) -> count == 1 ? null : count - 1);
+
+		// words used near the caret come first
+		Map<String,Integer> distances = new HashMap<>();
+		int firstLine = Math.max(0,caretLine - PROXIMITY_LINES);
+		int lastLine = Math.min(buffer.getLineCount() - 1,caretLine + PROXIMITY_LINES);
+		for(int i = firstLine; i <= lastLine; i++)
 		{
-			String[] keywords = keywordMap.getKeywords();
-			for (String _keyword : keywords)
+			List<String> lineWords = BufferWordIndex.splitWords(
+				i == caretLine ? caretLineText : buffer.getLineSegment(i),
+				noWordSep);
+			boolean skipCurrent = i == caretLine;
+			for(String text : lineWords)
 			{
-				if (_keyword.regionMatches(keywordMap.getIgnoreCase(),
-							   0, word, 0, wordLen))
+				if(skipCurrent && text.equals(current))
 				{
-					Completion keyword = new Completion(_keyword, true);
-					if (!completions.contains(keyword))
-						completions.add(keyword);
+					skipCurrent = false;
+					continue;
 				}
+				if(text.startsWith(word))
+					distances.merge(text,Math.abs(i - caretLine),Math::min);
 			}
-		} //}}}
+		}
 
-		//{{{ loop through all lines of current buffer
-		for(int i = 0; i < buffer.getLineCount(); i++)
+		Map<String,Completion> completions = new HashMap<>();
+		for(Map.Entry<String,Integer> entry : counts.entrySet())
 		{
-			CharSequence line = buffer.getLineSegment(i);
-			int start = buffer.getLineStartOffset(i);
-
-			// check for match at start of line
-
-			if (StandardUtilities.startsWith(line, word) &&
-			    caret != start + word.length())
-			{
-				String _word = completeWord(line,0,noWordSep);
-				Completion comp = new Completion(_word,false);
-
-				// remove duplicates
-				if(!completions.contains(comp))
-				{
-					completions.add(comp);
-				}
-			}
+			String text = entry.getKey();
+			completions.put(text,new Completion(text,false,entry.getValue(),
+				distances.getOrDefault(text,Integer.MAX_VALUE)));
+		}
 
-			// check for match inside line
-			int len = line.length() - word.length();
-			for(int j = 0; j < len; j++)
+		//{{{ try to find matching keywords
+		if(keywordMap != null)
+		{
+			for (String _keyword : keywordMap.getKeywords())
 			{
-				char c = line.charAt(j);
-				if(!Character.isLetterOrDigit(c) && noWordSep.indexOf(c) == -1)
+				if (_keyword.regionMatches(keywordMap.getIgnoreCase(),
+							   0, word, 0, word.length()))
 				{
-					if (StandardUtilities.regionMatches(line,j + 1,word,0,wordLen)
-						&& caret != start + j + word.length() + 1)
-					{
-						String _word = completeWord(line,j + 1,noWordSep);
-						Completion comp = new Completion(_word,false);
-
-						// remove duplicates
-						if(!completions.contains(comp))
-						{
-							completions.add(comp);
-						}
-					}
+					Completion comp = completions.get(_keyword);
+					completions.put(_keyword,comp == null
+						? new Completion(_keyword,true,0,Integer.MAX_VALUE)
+						: new Completion(_keyword,true,comp.count,comp.distance));
 				}
 			}
 		} //}}}
+
+		Completion[] completionArray = completions.values().toArray(EMPTY_COMPLETION_ARRAY);
+		Arrays.sort(completionArray,RANKING);
+		return completionArray;
 	} //}}}
 
 	//{{{ completeWord() method
@@ -310,6 +289,15 @@ public class CompleteWord extends CompletionPopup
 		return line.subSequence(offset,wordEnd).toString();
 	} //}}}
 
+	/** Words used this close to the caret are ranked first. */
+	private static final int PROXIMITY_LINES = 25;
+
+	/** Nearest first, then the most frequent, then in alphabetical order. */
+	private static final Comparator<Completion> RANKING =
+		Comparator.<Completion>comparingInt(c -> c.distance)
+			.thenComparing(c -> c.count,Comparator.reverseOrder())
+			.thenComparing(new StandardUtilities.StringCompare<>());
+
 	//{{{ Instance variables
 	private final JEditTextArea textArea;
 	private final Buffer buffer;
@@ -322,11 +310,17 @@ public class CompleteWord extends CompletionPopup
 	{
 		final String text;
 		final boolean keyword;
+		/** Number of occurrences in the source buffers. */
+		final int count;
+		/** Distance in lines to the caret, if the word is used near it. */
+		final int distance;
 
-		Completion(String text, boolean keyword)
+		Completion(String text, boolean keyword, int count, int distance)
 		{
 			this.text = text;
 			this.keyword = keyword;
+			this.count = count;
+			this.distance = distance;
 		}
 
 		public String toString()
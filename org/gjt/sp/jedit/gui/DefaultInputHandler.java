@@ -145,7 +145,7 @@ public class DefaultInputHandler extends InputHandler
 			}
 		}
 
-		Object o = currentBindings.get(keyStroke);
+		Object o = getBinding(keyStroke);
 		if(o == null)
 		{
 			if (!dryRun)
@@ -295,6 +295,18 @@ public abstract class InputHandler extends AbstractInputHandler<EditAction>
 		readNextChar = code;
 	} //}}}
 
+	//{{{ getActionContext() method
+	/**
+	 * @return the jEdit action context, the key bindings are resolved
+	 * in it
+	 * @since jEdit 5.7pre1
+	 */
+	@Override
+	protected ActionContext getActionContext()
+	{
+		return jEdit.getActionContext();
+	} //}}}
+
 	//{{{ invokeAction() method
 	/**
 	 * Invokes the specified action, repeating and recording it as
@@ -165,6 +165,8 @@ public class KeyEventTranslator
 		/* I guess translated events do not have the 'evt' field set
 		so consuming won't work. I don't think this is a problem as
 		nothing uses translation anyway */
+		if(transMap.isEmpty())
+			return returnValue;
 		Key trans = transMap.get(returnValue);
 		if(trans == null)
 			return returnValue;
@@ -337,6 +339,7 @@ public class KeyEventTranslator
 		KeyEventTranslator.a = a;
 		KeyEventTranslator.m = m;
 		KeyEventTranslator.s = s;
+		modifierStrings = new String[1 << MODS.length];
 	} //}}}
 
 	//{{{ getSymbolicModifierName() method
@@ -372,18 +375,32 @@ public class KeyEventTranslator
 
 	public static String modifiersToString(int mods)
 	{
-		StringBuilder buf = null;
-
-		for (int modifier : MODS)
+		// called for every key stroke, the strings of the 16
+		// combinations are built once
+		int index = 0;
+		for (int i = 0; i < MODS.length; i++)
 		{
-			if ((mods & modifier) != 0)
-				buf = lazyAppend(buf, getSymbolicModifierName(modifier));
+			if ((mods & MODS[i]) != 0)
+				index |= 1 << i;
 		}
 
-		if(buf == null)
+		if(index == 0)
 			return null;
-		else
-			return buf.toString();
+
+		String[] strings = modifierStrings;
+		String str = strings[index];
+		if(str == null)
+		{
+			StringBuilder buf = null;
+			for (int i = 0; i < MODS.length; i++)
+			{
+				if ((index & (1 << i)) != 0)
+					buf = lazyAppend(buf, getSymbolicModifierName(MODS[i]));
+			}
+			str = buf.toString();
+			strings[index] = str;
+		}
+		return str;
 	} //}}}
 
 	//{{{ getModifierString() method
@@ -411,6 +428,9 @@ public class KeyEventTranslator
 
 	static int c, a, m, s;
 
+	/** The symbolic names of the combinations of {@link #MODS}. */
+	private static String[] modifierStrings = new String[16];
+
 	//{{{ Private members
 	/** This map is a pool of Key. */
 	private static final Map<Key, Key> transMap = new HashMap<Key, Key>();
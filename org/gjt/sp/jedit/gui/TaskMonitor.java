@@ -47,6 +47,8 @@ public class TaskMonitor extends JPanel implements TaskListener
 {
 	private final TaskTableModel model;
 	private final JLabel remainingCount;
+	private final JLabel laneStatus;
+	private final Timer laneStatusTimer;
 
 	//{{{ TaskMonitor constructor
 	public TaskMonitor()
@@ -70,6 +72,9 @@ public class TaskMonitor extends JPanel implements TaskListener
 		table.getColumnModel().getColumn(1).setMinWidth(16);
 		JScrollPane scroll = new JScrollPane(table);
 		panel.add(scroll);
+		laneStatus = new JLabel();
+		panel.add(laneStatus, BorderLayout.SOUTH);
+		laneStatusTimer = new Timer(1000, e -> updateLaneStatus());
 		updateTasksCount();
 
 		add(panel);
@@ -82,6 +87,8 @@ public class TaskMonitor extends JPanel implements TaskListener
 		TaskManager.instance.visit(model::addTask);
 		TaskManager.instance.addTaskListener(this);
 		super.addNotify();
+		updateLaneStatus();
+		laneStatusTimer.start();
 	} //}}}
 
 	//{{{ removeNotify() method
@@ -89,6 +96,7 @@ public class TaskMonitor extends JPanel implements TaskListener
 	public void removeNotify()
 	{
 		TaskManager.instance.removeTaskListener(this);
+		laneStatusTimer.stop();
 		super.removeNotify();
 		model.removeAll();
 	} //}}}
@@ -142,6 +150,22 @@ public class TaskMonitor extends JPanel implements TaskListener
 						new Object[]{model.getRowCount()}));
 	} //}}}
 
+	//{{{ updateLaneStatus() method
+	private void updateLaneStatus()
+	{
+		StringBuilder text = new StringBuilder("<html>");
+		for (Task.Lane lane : Task.Lane.values())
+		{
+			TaskManager.LaneStatistics stats = TaskManager.instance.getLaneStatistics(lane);
+			text.append(jEdit.getProperty("taskmanager.lane.label",
+				new Object[] { jEdit.getProperty("taskmanager.lane." + lane + ".label"),
+					stats.getRunning(), stats.getLimit(), stats.getQueued(),
+					stats.getAverageWait() }))
+				.append("<br>");
+		}
+		laneStatus.setText(text.toString());
+	} //}}}
+
 	//{{{ TaskCellRenderer class
 	private static class TaskCellRenderer implements TableCellRenderer
 	{
@@ -25,6 +25,9 @@ package org.gjt.sp.jedit.help;
 //{{{ Imports
 import java.io.*;
 import java.net.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.zip.*;
 import java.util.*;
 import org.gjt.sp.jedit.io.*;
@@ -32,6 +35,15 @@ import org.gjt.sp.jedit.*;
 import org.gjt.sp.util.Log;
 //}}}
 
+/**
+ * The full-text index of the help.<p>
+ *
+ * The index is made of sources: the doc directories of the jEdit
+ * installation and the plugin JARs. Each source has a fingerprint made of
+ * the modification times and sizes of its files, and the index of all
+ * sources is saved in the settings directory. When the help is indexed
+ * again, only the sources whose fingerprint changed are read.
+ */
 class HelpIndex
 {
 	//{{{ HelpIndex constructor
@@ -39,53 +51,28 @@ class HelpIndex
 	{
 		words = new HashMap<>();
 		files = new ArrayList<>();
-
-		ignoreWord("a");
-		ignoreWord("an");
-		ignoreWord("and");
-		ignoreWord("are");
-		ignoreWord("as");
-		ignoreWord("be");
-		ignoreWord("by");
-		ignoreWord("can");
-		ignoreWord("do");
-		ignoreWord("for");
-		ignoreWord("from");
-		ignoreWord("how");
-		ignoreWord("i");
-		ignoreWord("if");
-		ignoreWord("in");
-		ignoreWord("is");
-		ignoreWord("it");
-		ignoreWord("not");
-		ignoreWord("of");
-		ignoreWord("on");
-		ignoreWord("or");
-		ignoreWord("s");
-		ignoreWord("that");
-		ignoreWord("the");
-		ignoreWord("this");
-		ignoreWord("to");
-		ignoreWord("will");
-		ignoreWord("with");
-		ignoreWord("you");
+		sources = new LinkedHashMap<>();
 	} //}}}
 
 	//{{{ indexEditorHelp() method
 	/**
 	 * Indexes all available help, including the jEdit user's guide, FAQ,]
-	 * and plugin documentation.
+	 * and plugin documentation. The sources that did not change since the
+	 * index was last saved are not read again.
 	 */
 	public void indexEditorHelp()
 	{
+		Map<String, Source> cache = loadCache();
+		boolean changed = false;
+
 		try
 		{
 			String jEditHome = jEdit.getJEditHome();
 			if(jEditHome != null)
 			{
-				indexDirectory(MiscUtilities.constructPath(jEditHome,"doc","users-guide"));
-				indexDirectory(MiscUtilities.constructPath(jEditHome,"doc","FAQ"));
-				indexDirectory(MiscUtilities.constructPath(jEditHome,"doc","whatsnew"));
+				changed |= updateDirectory(MiscUtilities.constructPath(jEditHome,"doc","users-guide"),cache);
+				changed |= updateDirectory(MiscUtilities.constructPath(jEditHome,"doc","FAQ"),cache);
+				changed |= updateDirectory(MiscUtilities.constructPath(jEditHome,"doc","whatsnew"),cache);
 			}
 		}
 		catch(Throwable e)
@@ -99,7 +86,7 @@ class HelpIndex
 		{
 			try
 			{
-				indexJAR(jar.getZipFile());
+				changed |= updateJAR(jar,cache);
 			}
 			catch (Throwable e)
 			{
@@ -108,6 +95,11 @@ class HelpIndex
 			}
 		}
 
+		// uninstalled plugins are dropped from the cache
+		if(changed || cache == null || !cache.keySet().equals(sources.keySet()))
+			saveCache();
+
+		merge();
 		Log.log(Log.DEBUG,this,"Indexed " + words.size() + " words");
 	} //}}}
 
@@ -118,11 +110,9 @@ class HelpIndex
 	 */
 	public void indexDirectory(String dir) throws Exception
 	{
-		String[] files = VFSManager.getFileVFS()
-			._listDirectory(null,dir,"*.{html,txt}",true,null);
-
-		for (String file : files)
-			indexURL(file);
+		String[] files = listDirectory(dir);
+		sources.put(dir,indexDirectory(dir,files,getFingerprint(files)));
+		merge();
 	} //}}}
 
 	//{{{ indexJAR() method
@@ -132,22 +122,9 @@ class HelpIndex
 	 */
 	public void indexJAR(ZipFile jar) throws Exception
 	{
-		Enumeration e = jar.entries();
-		while(e.hasMoreElements())
-		{
-			ZipEntry entry = (ZipEntry)e.nextElement();
-			String name = entry.getName();
-			String lname = name.toLowerCase();
-			if(lname.endsWith(".html") || lname.endsWith(".txt") )
-			{
-				// only works for jEdit plugins
-				String url = "jeditresource:/" +
-					MiscUtilities.getFileName(jar.getName())
-					+ "!/" + name;
-				Log.log(Log.DEBUG,this,url);
-				indexStream(jar.getInputStream(entry),url);
-			}
-		}
+		String path = jar.getName();
+		sources.put(path,indexJAR(jar,path,getFingerprint(new File(path))));
+		merge();
 	} //}}}
 
 	//{{{ indexURL() method
@@ -158,27 +135,16 @@ class HelpIndex
 	 */
 	public void indexURL(String path) throws Exception
 	{
-		URL url;
-		if (MiscUtilities.isURL(path))
-			url = new URL(path);
-		else
-		{
-			File f = new File(path);
-			url = f.toURI().toURL();
-		}
-		InputStream _in;
-		_in =  url.openStream();
-		indexStream(_in, url.toString());
+		Source source = new Source(path,"");
+		indexURL(path,source);
+		sources.put(path,source);
+		merge();
 	} //}}}
 
 	//{{{ lookupWord() method
 	public Word lookupWord(String word)
 	{
-		Object o = words.get(word);
-		if(o == IGNORE)
-			return null;
-		else
-			return (Word)o;
+		return words.get(word);
 	} //}}}
 
 	//{{{ getFile() method
@@ -188,15 +154,134 @@ class HelpIndex
 	} //}}}
 
 	//{{{ Private members
-	// used to mark words to ignore (see constructor for the list)
-	private static final Object IGNORE = new Object();
-	private final Map<String, Object> words;
+	private static final int MAGIC = 0xB7A2E501;
+
+	// words that are not indexed
+	private static final Set<String> IGNORE = new HashSet<>(Arrays.asList(
+		"a", "an", "and", "are", "as", "be", "by", "can", "do", "for",
+		"from", "how", "i", "if", "in", "is", "it", "not", "of", "on",
+		"or", "s", "that", "the", "this", "to", "will", "with", "you"));
+
+	private final Map<String, Word> words;
 	private final List<HelpFile> files;
+	private final Map<String, Source> sources;
+
+	//{{{ updateDirectory() method
+	/**
+	 * Adds a doc directory to the index, reading it only if it changed.
+	 * @return true if the directory was read
+	 */
+	private boolean updateDirectory(String dir, Map<String, Source> cache)
+		throws Exception
+	{
+		String[] files = listDirectory(dir);
+		String fingerprint = getFingerprint(files);
+		Source source = cache == null ? null : cache.get(dir);
+		if(source != null && source.fingerprint.equals(fingerprint))
+		{
+			sources.put(dir,source);
+			return false;
+		}
 
-	//{{{ ignoreWord() method
-	private void ignoreWord(String word)
+		sources.put(dir,indexDirectory(dir,files,fingerprint));
+		return true;
+	} //}}}
+
+	//{{{ updateJAR() method
+	/**
+	 * Adds a plugin JAR to the index, reading it only if it changed.
+	 * @return true if the JAR was read
+	 */
+	private boolean updateJAR(PluginJAR jar, Map<String, Source> cache)
+		throws Exception
 	{
-		words.put(word,IGNORE);
+		String path = jar.getPath();
+		String fingerprint = getFingerprint(jar.getFile());
+		Source source = cache == null ? null : cache.get(path);
+		if(source != null && source.fingerprint.equals(fingerprint))
+		{
+			sources.put(path,source);
+			return false;
+		}
+
+		sources.put(path,indexJAR(jar.getZipFile(),path,fingerprint));
+		return true;
+	} //}}}
+
+	//{{{ listDirectory() method
+	private static String[] listDirectory(String dir) throws Exception
+	{
+		return VFSManager.getFileVFS()
+			._listDirectory(null,dir,"*.{html,txt}",true,null);
+	} //}}}
+
+	//{{{ getFingerprint() methods
+	private static String getFingerprint(String[] files)
+	{
+		long hash = 0L;
+		for (String path : files)
+		{
+			File file = new File(path);
+			hash = hash * 31L + path.hashCode();
+			hash = hash * 31L + file.lastModified();
+			hash = hash * 31L + file.length();
+		}
+		return files.length + ":" + Long.toHexString(hash);
+	}
+
+	private static String getFingerprint(File file)
+	{
+		return file.length() + ":" + file.lastModified();
+	} //}}}
+
+	//{{{ indexDirectory() method
+	private Source indexDirectory(String dir, String[] files, String fingerprint)
+		throws Exception
+	{
+		Source source = new Source(dir,fingerprint);
+		for (String file : files)
+			indexURL(file,source);
+		return source;
+	} //}}}
+
+	//{{{ indexJAR() method
+	private Source indexJAR(ZipFile jar, String key, String fingerprint)
+		throws Exception
+	{
+		Source source = new Source(key,fingerprint);
+		Enumeration<? extends ZipEntry> e = jar.entries();
+		while(e.hasMoreElements())
+		{
+			ZipEntry entry = e.nextElement();
+			String name = entry.getName();
+			String lname = name.toLowerCase();
+			if(lname.endsWith(".html") || lname.endsWith(".txt") )
+			{
+				// only works for jEdit plugins
+				String url = "jeditresource:/" +
+					MiscUtilities.getFileName(jar.getName())
+					+ "!/" + name;
+				Log.log(Log.DEBUG,this,url);
+				indexStream(jar.getInputStream(entry),url,source);
+			}
+		}
+		return source;
+	} //}}}
+
+	//{{{ indexURL() method
+	private void indexURL(String path, Source source) throws Exception
+	{
+		URL url;
+		if (MiscUtilities.isURL(path))
+			url = new URL(path);
+		else
+		{
+			File f = new File(path);
+			url = f.toURI().toURL();
+		}
+		InputStream _in;
+		_in =  url.openStream();
+		indexStream(_in, url.toString(), source);
 	} //}}}
 
 	//{{{ indexStream() method
@@ -205,13 +290,14 @@ class HelpIndex
 	 * index.
 	 * @param _in The input stream
 	 * @param fileName The file
+	 * @param source The source the file belongs to
 	 */
-	private void indexStream(InputStream _in, String fileName)
-		throws Exception
+	private static void indexStream(InputStream _in, String fileName,
+		Source source) throws Exception
 	{
 		HelpFile file = new HelpFile(fileName);
-		files.add(file);
-		int index = files.size() - 1;
+		source.files.add(file);
+		int index = source.files.size() - 1;
 
 		StringBuilder titleText = new StringBuilder();
 
@@ -251,7 +337,7 @@ class HelpIndex
 
 					if(word.length() != 0)
 					{
-						addWord(word.toString(),index,title);
+						source.addWord(word.toString(),index,title);
 						word.setLength(0);
 					}
 
@@ -265,7 +351,7 @@ class HelpIndex
 				{
 					if(word.length() != 0)
 					{
-						addWord(word.toString(),index,title);
+						source.addWord(word.toString(),index,title);
 						word.setLength(0);
 					}
 				}
@@ -280,19 +366,126 @@ class HelpIndex
 			file.title = titleText.toString();
 	} //}}}
 
-	//{{{ addWord() method
-	private void addWord(String word, int file, boolean title)
+	//{{{ merge() method
+	/**
+	 * Rebuilds the words and files of the index from its sources.
+	 */
+	private void merge()
+	{
+		files.clear();
+		Map<String, PostingList> merged = new HashMap<>();
+		for (Source source : sources.values())
+		{
+			int base = files.size();
+			files.addAll(source.files);
+			for (Map.Entry<String, PostingList> entry : source.postings.entrySet())
+			{
+				PostingList list = merged.computeIfAbsent(entry.getKey(),
+					word -> new PostingList(4));
+				PostingList postings = entry.getValue();
+				for (int i = 0; i < postings.size; i++)
+					list.add(base + postings.files[i],postings.counts[i]);
+			}
+		}
+
+		words.clear();
+		for (Map.Entry<String, PostingList> entry : merged.entrySet())
+		{
+			PostingList list = entry.getValue();
+			words.put(entry.getKey(),new Word(entry.getKey(),
+				Arrays.copyOf(list.files,list.size),
+				Arrays.copyOf(list.counts,list.size)));
+		}
+	} //}}}
+
+	//{{{ getCachePath() method
+	private static String getCachePath()
+	{
+		String settings = jEdit.getSettingsDirectory();
+		if(settings == null)
+			return null;
+		return MiscUtilities.constructPath(settings,"help-index.cache");
+	} //}}}
+
+	//{{{ loadCache() method
+	/**
+	 * @return the saved sources, or null if there is no usable cache
+	 */
+	private Map<String, Source> loadCache()
 	{
-		word = word.toLowerCase();
+		String path = getCachePath();
+		if(path == null || !new File(path).exists())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(path))))
+		{
+			if(in.readInt() != MAGIC || !in.readUTF().equals(jEdit.getBuild()))
+				return null;
+
+			Map<String, Source> cache = new HashMap<>();
+			int sourceCount = in.readInt();
+			for(int i = 0; i < sourceCount; i++)
+			{
+				Source source = Source.read(in);
+				cache.put(source.key,source);
+			}
+			return cache;
+		}
+		catch(IOException | RuntimeException e)
+		{
+			// the sources are then all read again
+			Log.log(Log.WARNING,this,"Cannot read help index " + path);
+			Log.log(Log.WARNING,this,e);
+			return null;
+		}
+	} //}}}
 
-		Object o = words.get(word);
-		if(o == IGNORE)
+	//{{{ saveCache() method
+	private void saveCache()
+	{
+		String path = getCachePath();
+		if(path == null)
 			return;
 
-		if(o == null)
-			words.put(word,new Word(word,file,title));
-		else
-			((Word)o).addOccurrence(file,title);
+		// written to a temporary file first, so that a crash cannot
+		// leave a truncated index behind, and named uniquely so that
+		// several jEdit instances sharing the settings directory don't
+		// write to the same file
+		File file = new File(path);
+		File temp = null;
+		try
+		{
+			temp = File.createTempFile("help-index",".tmp",
+				file.getParentFile());
+			try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				out.writeInt(MAGIC);
+				out.writeUTF(jEdit.getBuild());
+				out.writeInt(sources.size());
+				for (Source source : sources.values())
+					source.write(out);
+			}
+			try
+			{
+				Files.move(temp.toPath(),file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e)
+			{
+				Files.move(temp.toPath(),file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch(IOException e)
+		{
+			Log.log(Log.WARNING,this,"Cannot write help index " + path);
+			Log.log(Log.WARNING,this,e);
+			if(temp != null)
+				temp.delete();
+		}
 	} //}}}
 
 	//}}}
@@ -304,50 +497,32 @@ class HelpIndex
 		static final int TITLE_OCCUR = 10;
 
 		// the word
-		String word;
+		final String word;
 
-		// files it occurs in
-		int occurCount = 0;
-		Occurrence[] occurrences;
+		// files it occurs in, and the number of occurrences in each
+		private final int[] files;
+		private final int[] counts;
 
-		Word(String word, int file, boolean title)
+		Word(String word, int[] files, int[] counts)
 		{
 			this.word = word;
-			occurrences = new Occurrence[5];
-			addOccurrence(file,title);
+			this.files = files;
+			this.counts = counts;
 		}
 
-		void addOccurrence(int file, boolean title)
+		int getOccurrenceCount()
 		{
-			for(int i = 0; i < occurCount; i++)
-			{
-				if(occurrences[i].file == file)
-				{
-					occurrences[i].count += (title ? TITLE_OCCUR : 1);
-					return;
-				}
-			}
-
-			if(occurCount >= occurrences.length)
-			{
-				Occurrence[] newOccur = new Occurrence[occurrences.length * 2];
-				System.arraycopy(occurrences,0,newOccur,0,occurCount);
-				occurrences = newOccur;
-			}
-
-			occurrences[occurCount++] = new Occurrence(file,title);
+			return files.length;
 		}
 
-		static class Occurrence
+		int getFile(int occurrence)
 		{
-			int file;
-			int count;
+			return files[occurrence];
+		}
 
-			Occurrence(int file, boolean title)
-			{
-				this.file = file;
-				this.count = (title ? TITLE_OCCUR : 1);
-			}
+		int getCount(int occurrence)
+		{
+			return counts[occurrence];
 		}
 	} //}}}
 
@@ -375,4 +550,172 @@ class HelpIndex
 				return false;
 		}
 	} //}}}
-}
\ No newline at end of file
+
+	//{{{ Source class
+	/**
+	 * The indexed files of a doc directory or a plugin JAR.
+	 */
+	private static class Source
+	{
+		final String key;
+		final String fingerprint;
+		final List<HelpFile> files;
+		/**
+		 * The posting list of each word: the file indexes in this source,
+		 * in ascending order, and their number of occurrences.
+		 */
+		final Map<String, PostingList> postings;
+
+		Source(String key, String fingerprint)
+		{
+			this.key = key;
+			this.fingerprint = fingerprint;
+			files = new ArrayList<>();
+			postings = new HashMap<>();
+		}
+
+		//{{{ addWord() method
+		void addWord(String word, int file, boolean title)
+		{
+			word = word.toLowerCase();
+			if(IGNORE.contains(word))
+				return;
+
+			int count = (title ? Word.TITLE_OCCUR : 1);
+			PostingList list = postings.get(word);
+			if(list == null)
+			{
+				list = new PostingList(1);
+				postings.put(word,list);
+			}
+			// files are indexed one after the other, so only the
+			// last posting can be for the same file
+			else if(list.files[list.size - 1] == file)
+			{
+				list.counts[list.size - 1] += count;
+				return;
+			}
+			list.add(file,count);
+		} //}}}
+
+		//{{{ write() method
+		void write(DataOutputStream out) throws IOException
+		{
+			out.writeUTF(key);
+			out.writeUTF(fingerprint);
+			out.writeInt(files.size());
+			for (HelpFile file : files)
+			{
+				out.writeUTF(file.file);
+				out.writeUTF(file.title);
+			}
+			out.writeInt(postings.size());
+			for (Map.Entry<String, PostingList> entry : postings.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				PostingList list = entry.getValue();
+				writeVarInt(out,list.size);
+				// file indexes are ascending, store the gaps
+				int lastFile = 0;
+				for (int i = 0; i < list.size; i++)
+				{
+					writeVarInt(out,list.files[i] - lastFile);
+					writeVarInt(out,list.counts[i]);
+					lastFile = list.files[i];
+				}
+			}
+		} //}}}
+
+		//{{{ read() method
+		static Source read(DataInputStream in) throws IOException
+		{
+			Source source = new Source(in.readUTF(),in.readUTF());
+			int fileCount = in.readInt();
+			for (int i = 0; i < fileCount; i++)
+			{
+				HelpFile file = new HelpFile(in.readUTF());
+				file.title = in.readUTF();
+				source.files.add(file);
+			}
+			int wordCount = in.readInt();
+			for (int i = 0; i < wordCount; i++)
+			{
+				String word = in.readUTF();
+				// a file is at most once in a list, the size is
+				// checked before the list is allocated
+				int size = readVarInt(in);
+				if(size < 0 || size > fileCount)
+					throw new IOException("Corrupt posting list for " + word);
+				PostingList list = new PostingList(Math.max(size,1));
+				int lastFile = 0;
+				for (int j = 0; j < size; j++)
+				{
+					int gap = readVarInt(in);
+					int count = readVarInt(in);
+					if(gap < 0 || gap >= fileCount - lastFile || count < 0)
+						throw new IOException("Corrupt posting list for " + word);
+					lastFile += gap;
+					list.add(lastFile,count);
+				}
+				source.postings.put(word,list);
+			}
+			return source;
+		} //}}}
+
+		//{{{ writeVarInt() method
+		private static void writeVarInt(DataOutputStream out, int value)
+			throws IOException
+		{
+			while((value & ~0x7f) != 0)
+			{
+				out.writeByte((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		} //}}}
+
+		//{{{ readVarInt() method
+		private static int readVarInt(DataInputStream in) throws IOException
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7)
+			{
+				int b = in.readUnsignedByte();
+				value |= (b & 0x7f) << shift;
+				if((b & 0x80) == 0)
+					return value;
+			}
+			throw new IOException("Malformed varint");
+		} //}}}
+	} //}}}
+
+	//{{{ PostingList class
+	/**
+	 * A growable posting list: file indexes, in ascending order, and
+	 * their number of occurrences.
+	 */
+	private static class PostingList
+	{
+		int[] files;
+		int[] counts;
+		int size;
+
+		PostingList(int capacity)
+		{
+			files = new int[capacity];
+			counts = new int[capacity];
+		}
+
+		void add(int file, int count)
+		{
+			if(size == files.length)
+			{
+				files = Arrays.copyOf(files,size * 2);
+				counts = Arrays.copyOf(counts,size * 2);
+			}
+			files[size] = file;
+			counts[size] = count;
+			size++;
+		}
+	} //}}}
+}
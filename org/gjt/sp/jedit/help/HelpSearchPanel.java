@@ -63,7 +63,11 @@ public class HelpSearchPanel extends JPanel
 	private final JList<Result> results;
 	private HelpIndex index;
 
-	private HelpIndex getHelpIndex()
+	/**
+	 * Loads the saved index, updated for the changed doc directories and
+	 * plugins. Called from a background thread.
+	 */
+	private synchronized HelpIndex getHelpIndex()
 	{
 		if(index == null)
 		{
@@ -76,8 +80,9 @@ public class HelpSearchPanel extends JPanel
 			{
 				index = null;
 				Log.log(Log.ERROR,this,e);
-				GUIUtilities.error(helpViewer.getComponent(),"helpviewer.search.error",
-					new String[] { e.toString() });
+				ThreadUtilities.runInDispatchThread(() ->
+					GUIUtilities.error(helpViewer.getComponent(),"helpviewer.search.error",
+						new String[] { e.toString() }));
 			}
 		}
 
@@ -204,10 +209,6 @@ public class HelpSearchPanel extends JPanel
 		@Override
 		public void actionPerformed(ActionEvent evt)
 		{
-			final HelpIndex index = getHelpIndex();
-			if(index == null)
-				return;
-
 			results.setListData(new Result[] { 
 				new Result(jEdit.getProperty("helpviewer.searching")) 
 			});
@@ -217,6 +218,13 @@ public class HelpSearchPanel extends JPanel
 
 			ThreadUtilities.runInBackground(() ->
 			{
+				HelpIndex index = getHelpIndex();
+				if(index == null)
+				{
+					EventQueue.invokeLater(() -> results.setListData(new Result[0]));
+					return;
+				}
+
 				StringTokenizer st = new StringTokenizer(text,",.;:-? ");
 
 				// we later use this to compute a relative ranking
@@ -229,18 +237,18 @@ public class HelpSearchPanel extends JPanel
 					if(lookup == null)
 						continue;
 
-					for(int i = 0; i < lookup.occurCount; i++)
+					for(int i = 0; i < lookup.getOccurrenceCount(); i++)
 					{
-						HelpIndex.Word.Occurrence occur = lookup.occurrences[i];
+						int count = lookup.getCount(i);
 
 						boolean ok = false;
 
-						HelpIndex.HelpFile file = index.getFile(occur.file);
+						HelpIndex.HelpFile file = index.getFile(lookup.getFile(i));
 						for (Result result : resultModel)
 						{
 							if (result.file.equals(file.file))
 							{
-								result.rank += occur.count;
+								result.rank += count;
 								result.rank += 20; // multiple files w/ word bonus
 								maxRank = Math.max(result.rank, maxRank);
 								ok = true;
@@ -250,8 +258,8 @@ public class HelpSearchPanel extends JPanel
 
 						if(!ok)
 						{
-							maxRank = Math.max(occur.count,maxRank);
-							resultModel.add(new Result(file,occur.count));
+							maxRank = Math.max(count,maxRank);
+							resultModel.add(new Result(file,count));
 						}
 					}
 				}
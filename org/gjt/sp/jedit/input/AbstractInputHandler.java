@@ -29,10 +29,12 @@ import java.awt.event.KeyListener;
 import java.awt.event.KeyEvent;
 import java.util.Hashtable;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.gjt.sp.jedit.JEditAbstractEditAction;
+import org.gjt.sp.jedit.JEditActionContext;
 import org.gjt.sp.jedit.gui.ShortcutPrefixActiveEvent;
 
 /**
@@ -106,6 +108,7 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 	@SuppressWarnings({"unchecked"})
 	public void addKeyBinding(String keyBinding, Object action)
 	{
+		bindingsModCount.incrementAndGet();
 		Hashtable current = bindings;
 
 		String prefixStr = null;
@@ -150,6 +153,7 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 	 */
 	public void removeKeyBinding(String keyBinding)
 	{
+		bindingsModCount.incrementAndGet();
 		Hashtable current = bindings;
 
 		StringTokenizer st = new StringTokenizer(keyBinding);
@@ -190,6 +194,7 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 	 */
 	public void removeAllKeyBindings()
 	{
+		bindingsModCount.incrementAndGet();
 		bindings.clear();
 	} //}}}
 
@@ -289,11 +294,13 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 
 	//{{{ setBindings() method
 	/**
-	 * Replace the set of key bindings.
+	 * Replace the set of key bindings. Also to be called after changing
+	 * the key binding tables without the methods of this class.
 	 * @since jEdit 4.3pre1
 	 */
 	public void setBindings(Hashtable bindings)
 	{
+		bindingsModCount.incrementAndGet();
 		this.bindings = this.currentBindings = bindings;
 	} //}}}
 
@@ -303,6 +310,45 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 		currentBindings = bindings;
 	} //}}}
 
+	//{{{ getBinding() method
+	/**
+	 * Returns the binding of a key stroke in the current bindings, like
+	 * <code>currentBindings.get(keyStroke)</code>, from a compiled copy
+	 * of the key binding tables. The copy is compiled again when the key
+	 * bindings are changed through this class or when the actions of the
+	 * {@link #getActionContext() action context} change.
+	 * @param keyStroke The key stroke
+	 * @return the table of a prefix key, an action, an action name if
+	 * the action is not loaded yet, or null if the key stroke is not bound
+	 * @since jEdit 5.7pre1
+	 */
+	protected Object getBinding(KeyEventTranslator.Key keyStroke)
+	{
+		KeyBindingMap map = getCurrentBindingMap();
+		if(map == null)
+			return currentBindings.get(keyStroke);
+
+		Object o = map.get(keyStroke);
+		if(o instanceof KeyBindingMap)
+		{
+			prefixBindingMap = (KeyBindingMap)o;
+			return prefixBindingMap.getBindings();
+		}
+		return o;
+	} //}}}
+
+	//{{{ getActionContext() method
+	/**
+	 * Returns the context the action names of the key bindings are
+	 * resolved in when they are compiled. The default implementation
+	 * returns null, the names are not resolved.
+	 * @since jEdit 5.7pre1
+	 */
+	protected JEditActionContext<? extends E,?> getActionContext()
+	{
+		return null;
+	} //}}}
+
 	//{{{ handleKey() method
 	/**
 	 * Handles a keystroke.
@@ -424,7 +470,55 @@ public abstract class AbstractInputHandler<E extends JEditAbstractEditAction>
 	protected boolean shortcutOn = false;
 
 
+	/**
+	 * The key bindings, compiled into a {@link KeyBindingMap} when they
+	 * change. Only the changes made through the methods of this class
+	 * are seen: a subclass that changes the tables directly must then
+	 * call {@link #setBindings(Hashtable)} again.
+	 */
 	protected Hashtable bindings;
 	protected Hashtable currentBindings;
+
+	/**
+	 * Incremented when any key binding table is changed through this
+	 * class, the tables may be shared by several input handlers.
+	 */
+	private static final AtomicInteger bindingsModCount = new AtomicInteger();
+	private KeyBindingMap bindingMap;
+	private int bindingMapModCount;
+	private int actionsModCount;
+	/** The map of the last prefix key, if it is current. */
+	private KeyBindingMap prefixBindingMap;
+
+	//{{{ getCurrentBindingMap() method
+	private KeyBindingMap getCurrentBindingMap()
+	{
+		if(bindings == null || currentBindings == null)
+			return null;
+
+		JEditActionContext<? extends E,?> context = getActionContext();
+		int contextModCount = context == null ? 0 : context.getModCount();
+		int modCount = bindingsModCount.get();
+		if(bindingMap == null || bindingMap.getBindings() != bindings
+			|| bindingMapModCount != modCount
+			|| actionsModCount != contextModCount)
+		{
+			bindingMap = KeyBindingMap.compile(bindings,context);
+			bindingMapModCount = modCount;
+			actionsModCount = contextModCount;
+			prefixBindingMap = null;
+		}
+
+		if(currentBindings == bindings)
+			return bindingMap;
+		if(prefixBindingMap != null
+			&& prefixBindingMap.getBindings() == currentBindings)
+		{
+			return prefixBindingMap;
+		}
+		// a table set by another class, not compiled
+		return null;
+	} //}}}
+
 	//}}}
 }
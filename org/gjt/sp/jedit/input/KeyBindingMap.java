@@ -0,0 +1,210 @@
+/*
+ * KeyBindingMap.java - Compiled key bindings
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.gjt.sp.jedit.input;
+
+//{{{ Imports
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import org.gjt.sp.jedit.JEditActionContext;
+import org.gjt.sp.jedit.gui.KeyEventTranslator;
+//}}}
+
+/**
+ * An immutable copy of a key binding table, one node of a trie whose
+ * children are the tables of the prefix keys. The key strokes are hashed
+ * as numbers, and the action names are resolved to their actions when the
+ * table is compiled, so finding the binding of a key stroke does not
+ * compare strings, lock the table nor look up the action.<p>
+ *
+ * The input handlers compile their tables again when the key bindings or
+ * the actions change.
+ *
+ * @since jEdit 5.7pre1
+ */
+final class KeyBindingMap
+{
+	//{{{ compile() method
+	/**
+	 * Compiles a key binding table and its prefix tables.
+	 * @param bindings The key binding table
+	 * @param context The context the action names are resolved in, or
+	 * null to keep the names
+	 */
+	static KeyBindingMap compile(Hashtable<?,?> bindings,
+		JEditActionContext<?,?> context)
+	{
+		KeyBindingMap map = new KeyBindingMap(bindings);
+		Enumeration<?> keys = bindings.keys();
+		while(keys.hasMoreElements())
+		{
+			Object key = keys.nextElement();
+			// the tables also store the name of the prefix
+			if(!(key instanceof KeyEventTranslator.Key))
+				continue;
+
+			Object value = bindings.get(key);
+			if(value instanceof Hashtable)
+				value = compile((Hashtable<?,?>)value,context);
+			else if(value instanceof String && context != null)
+			{
+				// the action sets which are not loaded yet
+				// are not loaded for this, the name is kept
+				Object action = context.getLoadedAction((String)value);
+				if(action != null)
+					value = action;
+			}
+
+			if(value != null)
+				map.put((KeyEventTranslator.Key)key,value);
+		}
+		return map;
+	} //}}}
+
+	//{{{ getBindings() method
+	/**
+	 * @return the table this map was compiled from
+	 */
+	Hashtable<?,?> getBindings()
+	{
+		return bindings;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * @return the binding of a key stroke: a map for a prefix key, an
+	 * action, an action name, or null if the key stroke is not bound
+	 */
+	Object get(KeyEventTranslator.Key keyStroke)
+	{
+		long code = getCode(keyStroke);
+		if(code == UNPACKED)
+			return others == null ? null : others.get(keyStroke);
+		int mask = codes.length - 1;
+		for(int i = hash(code) & mask; ; i = (i + 1) & mask)
+		{
+			Object value = values[i];
+			if(value == null || codes[i] == code)
+				return value;
+		}
+	} //}}}
+
+	//{{{ Private members
+	private final Hashtable<?,?> bindings;
+	/** An open addressing hash table, the slots without value are free. */
+	private long[] codes;
+	private Object[] values;
+	private int size;
+	/** The key strokes which cannot be packed, rare. */
+	private Hashtable<KeyEventTranslator.Key,Object> others;
+
+	/** The code of the key strokes which cannot be packed. */
+	private static final long UNPACKED = -1L;
+
+	//{{{ KeyBindingMap constructor
+	private KeyBindingMap(Hashtable<?,?> bindings)
+	{
+		this.bindings = bindings;
+		codes = new long[8];
+		values = new Object[8];
+	} //}}}
+
+	//{{{ put() methods
+	private void put(KeyEventTranslator.Key keyStroke, Object value)
+	{
+		long code = getCode(keyStroke);
+		if(code == UNPACKED)
+		{
+			if(others == null)
+				others = new Hashtable<>();
+			others.put(keyStroke,value);
+		}
+		else
+			put(code,value);
+	}
+
+	private void put(long code, Object value)
+	{
+		// at most half full, the searches stay short
+		if((size + 1) << 1 > codes.length)
+		{
+			long[] oldCodes = codes;
+			Object[] oldValues = values;
+			codes = new long[oldCodes.length << 1];
+			values = new Object[oldValues.length << 1];
+			size = 0;
+			for(int i = 0; i < oldCodes.length; i++)
+			{
+				if(oldValues[i] != null)
+					put(oldCodes[i],oldValues[i]);
+			}
+		}
+
+		int mask = codes.length - 1;
+		int i = hash(code) & mask;
+		while(values[i] != null)
+			i = (i + 1) & mask;
+		codes[i] = code;
+		values[i] = value;
+		size++;
+	} //}}}
+
+	//{{{ getCode() method
+	/**
+	 * Packs a key stroke in a number: the key code, the modifiers and
+	 * the character. The modifiers are packed as the sequence of their
+	 * symbolic names, so that two key strokes have the same code only if
+	 * they are equal.
+	 * @return the code, or {@link #UNPACKED} if the modifiers are not a
+	 * sequence of at most four symbolic names
+	 */
+	private static long getCode(KeyEventTranslator.Key keyStroke)
+	{
+		int modifiers = 0;
+		String str = keyStroke.modifiers;
+		if(str != null)
+		{
+			int length = str.length();
+			if(length == 0 || length > 4)
+				return UNPACKED;
+			for(int i = 0; i < length; i++)
+			{
+				int modifier = "CAMS".indexOf(str.charAt(i));
+				if(modifier == -1)
+					return UNPACKED;
+				modifiers = (modifiers << 2) | modifier;
+			}
+			modifiers |= length << 8;
+		}
+		return ((long)keyStroke.key << 32) | (modifiers << 16)
+			| keyStroke.input;
+	} //}}}
+
+	//{{{ hash() method
+	private static int hash(long code)
+	{
+		long h = code * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	} //}}}
+
+	//}}}
+}
@@ -268,7 +268,7 @@ public abstract class TextAreaInputHandler extends AbstractInputHandler<JEditBea
 			}
 		}
 
-		Object o = currentBindings.get(keyStroke);
+		Object o = getBinding(keyStroke);
 		if(o == null)
 		{
 			if (!dryRun)
@@ -53,6 +53,17 @@ public class CharsetEncoding implements Encoding
 		body = charset;
 	} //}}}
 
+	//{{{ getCharset() method
+	/**
+	 * @return the charset of this encoding
+	 * @since jEdit 5.7pre1
+	 */
+	@Nonnull
+	public Charset getCharset()
+	{
+		return body;
+	} //}}}
+
 	//{{{ implements Encoding
 	@Override
 	@Nonnull
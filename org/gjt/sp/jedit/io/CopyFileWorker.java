@@ -111,6 +111,7 @@ public class CopyFileWorker extends Task
 		this.target = target;
 		behavior = Behavior.OVERWRITE;
 		this.latch = latch;
+		setLane(Lane.BULK_IO);
 		setLabel("Copy " + source + " to " + target);
 	}
 
@@ -146,6 +147,7 @@ public class CopyFileWorker extends Task
 		this.sources = sources;
 		this.target = target;
 		this.behavior = behavior;
+		setLane(Lane.BULK_IO);
 	} //}}}
 
 	//{{{ _run() method
@@ -36,6 +36,7 @@ import java.awt.Component;
 import java.io.*;
 import java.text.*;
 import java.util.Date;
+import java.util.function.Consumer;
 
 import org.gjt.sp.jedit.*;
 import org.gjt.sp.util.IOUtilities;
@@ -345,34 +346,9 @@ public class FileVFS extends VFS
 	public VFSFile[] _listFiles(Object session, String path,
 		Component comp)
 	{
-		//{{{ Windows work around
-		/* On Windows, paths of the form X: list the last *working
-		 * directory* on that drive. To list the root of the drive,
-		 * you must use X:\.
-		 *
-		 * However, the VFS browser and friends strip off trailing
-		 * path separators, for various reasons. So to work around
-		 * that, we add a '\' to drive letter paths on Windows.
-		 */
-		if(OperatingSystem.isWindows())
-		{
-			if(path.length() == 2 && path.charAt(1) == ':')
-				path = path.concat(File.separator);
-		} //}}}
-
-		File directory = new File(path);
-		File[] list = null;
-		if(directory.exists()) 
-		{
-			if (fsView == null)
-				fsView = FileSystemView.getFileSystemView();
-			list = fsView.getFiles(directory,false);
-		}
+		File[] list = listDirectory(path,comp);
 		if(list == null)
-		{
-			VFSManager.error(comp,path,"ioerror.directory-error-nomsg",null);
 			return null;
-		}
 
 		VFSFile[] list2 = new VFSFile[list.length];
 		for(int i = 0; i < list.length; i++)
@@ -381,6 +357,39 @@ public class FileVFS extends VFS
 		return list2;
 	} //}}}
 
+	//{{{ _listFiles() method
+	/**
+	 * Lists the directory in pages. The names are listed at once, but
+	 * the entries, which need a few file system calls each, are created
+	 * and handed over in pages of growing size. Stops early if the
+	 * thread is interrupted.
+	 * @since jEdit 5.7pre1
+	 */
+	@Override
+	public boolean _listFiles(Object session, String path,
+		Component comp, Consumer<VFSFile[]> pages)
+	{
+		File[] list = listDirectory(path,comp);
+		if(list == null)
+			return false;
+
+		int pageSize = FIRST_PAGE_SIZE;
+		for(int start = 0; start < list.length; start += pageSize)
+		{
+			if(Thread.currentThread().isInterrupted())
+				break;
+
+			int end = Math.min(list.length,start + pageSize);
+			VFSFile[] page = new VFSFile[end - start];
+			for(int i = start; i < end; i++)
+				page[i - start] = new LocalFile(list[i]);
+			pages.accept(page);
+			pageSize = Math.min(pageSize * 2,MAX_PAGE_SIZE);
+		}
+
+		return true;
+	} //}}}
+
 	//{{{ _getFile() method
 	@Override
 	public VFSFile _getFile(Object session, String path,
@@ -646,6 +655,41 @@ public class FileVFS extends VFS
 	//}}}
 
 	//{{{ Private members
+	private static final int FIRST_PAGE_SIZE = 256;
+	private static final int MAX_PAGE_SIZE = 16384;
+
 	private static FileSystemView fsView;
+
+	//{{{ listDirectory() method
+	private static File[] listDirectory(String path, Component comp)
+	{
+		//{{{ Windows work around
+		/* On Windows, paths of the form X: list the last *working
+		 * directory* on that drive. To list the root of the drive,
+		 * you must use X:\.
+		 *
+		 * However, the VFS browser and friends strip off trailing
+		 * path separators, for various reasons. So to work around
+		 * that, we add a '\' to drive letter paths on Windows.
+		 */
+		if(OperatingSystem.isWindows())
+		{
+			if(path.length() == 2 && path.charAt(1) == ':')
+				path = path.concat(File.separator);
+		} //}}}
+
+		File directory = new File(path);
+		File[] list = null;
+		if(directory.exists()) 
+		{
+			if (fsView == null)
+				fsView = FileSystemView.getFileSystemView();
+			list = fsView.getFiles(directory,false);
+		}
+		if(list == null)
+			VFSManager.error(comp,path,"ioerror.directory-error-nomsg",null);
+		return list;
+	} //}}}
+
 	//}}}
 }
@@ -28,6 +28,7 @@ import java.awt.Component;
 import java.io.*;
 import java.io.Closeable;
 import java.util.*;
+import java.util.function.Consumer;
 
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -901,6 +902,32 @@ public abstract class VFS
 		return null;
 	} //}}}
 
+	//{{{ _listFiles() method
+	/**
+	 * Lists the specified directory, handing the entries over in pages
+	 * as they are read, so that a large directory can be shown before it
+	 * is completely listed. The default implementation calls
+	 * {@link #_listFiles(Object,String,Component)} and hands over a
+	 * single page.
+	 * @param session The session
+	 * @param directory The directory
+	 * @param comp The component that will parent error dialog boxes
+	 * @param pages Receives the pages of entries, in the calling thread
+	 * @return false if the directory could not be listed
+	 * @exception IOException if an I/O error occurred
+	 * @since jEdit 5.7pre1
+	 */
+	public boolean _listFiles(Object session, String directory,
+		Component comp, Consumer<VFSFile[]> pages)
+		throws IOException
+	{
+		VFSFile[] files = _listFiles(session,directory,comp);
+		if(files == null)
+			return false;
+		pages.accept(files);
+		return true;
+	} //}}}
+
 	//{{{ _getFile() method
 	/**
 	 * Returns the specified directory entry.
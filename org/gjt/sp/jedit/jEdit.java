@@ -49,7 +49,6 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.MessageFormat;
 import java.util.*;
 import java.util.List;
 import java.lang.reflect.InvocationTargetException;
@@ -701,7 +700,7 @@ public class jEdit
 			if(value == null)
 				return null;
 			else
-				return MessageFormat.format(value,args);
+				return propMgr.format(value,args);
 		}
 	} //}}}
 
@@ -2997,6 +2996,9 @@ public class jEdit
 			// Send EditorExiting
 			EditBus.send(new EditorExiting(null));
 
+			if(Debug.EB_TIMER)
+				EditBus.logHandlerStatistics();
+
 			// Save view properties here
 			viewManager.forEach(v -> closeView(v, false));
 
@@ -291,6 +291,7 @@ public class PluginManagerOptionPane extends AbstractOptionPane
 		UpdateMirrorsThread(boolean download)
 		{
 			this.download = download;
+			setLane(Lane.BULK_IO);
 		}
 
 		//{{{ run() method
@@ -67,6 +67,7 @@ class PluginList extends Task
 	PluginList(Runnable dispatchThreadTask)
 	{
 		this.dispatchThreadTask = dispatchThreadTask;
+		setLane(Lane.BULK_IO);
 	} //}}}
 
 	//{{{ _run() method
@@ -348,7 +349,8 @@ class PluginList extends Task
 				installed,
 				downloadSource ? branch.downloadSource : branch.download,
 				installDirectory,
-				downloadSource ? branch.downloadSourceSize : branch.downloadSize);
+				downloadSource ? branch.downloadSourceSize : branch.downloadSize,
+				downloadSource ? branch.downloadSourceSha256 : branch.downloadSha256);
 
 		}
 
@@ -365,8 +367,11 @@ class PluginList extends Task
 		String date;
 		int downloadSize;
 		String download;
+		/** SHA-256 of the download, null if the plugin list has none. */
+		String downloadSha256;
 		int downloadSourceSize;
 		String downloadSource;
+		String downloadSourceSha256;
 		boolean obsolete;
 		final List<Dependency> deps = new ArrayList<>();
 
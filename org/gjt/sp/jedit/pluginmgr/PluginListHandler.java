@@ -91,6 +91,9 @@ class PluginListHandler extends DefaultHandler
 				if (size == 0)
 					Log.log(Log.WARNING, this, "SIZE = 0");
 				break;
+			case "SHA256":
+				sha256 = value;
+				break;
 		}
 	} //}}}
 
@@ -156,9 +159,13 @@ class PluginListHandler extends DefaultHandler
 				break;
 			case "DOWNLOAD":
 				downloadSize = size;
+				downloadSha256 = sha256;
+				sha256 = null;
 				break;
 			case "DOWNLOAD_SOURCE":
 				downloadSourceSize = size;
+				downloadSourceSha256 = sha256;
+				sha256 = null;
 				break;
 		}
 	} //}}}
@@ -196,13 +203,17 @@ class PluginListHandler extends DefaultHandler
 				branch.date = date;
 				branch.download = download.toString();
 				branch.downloadSize = downloadSize;
+				branch.downloadSha256 = downloadSha256;
 				branch.downloadSource = downloadSource.toString();
 				branch.downloadSourceSize = downloadSourceSize;
+				branch.downloadSourceSha256 = downloadSourceSha256;
 				branch.obsolete = obsolete;
 				plugin.branches.add(branch);
 				version = null;
 				download.setLength(0);
+				downloadSha256 = null;
 				downloadSource.setLength(0);
+				downloadSourceSha256 = null;
 				obsolete = false;
 				break;
 			case "DEPEND":
@@ -258,9 +269,12 @@ class PluginListHandler extends DefaultHandler
 	private String date;
 	private final StringBuilder download;
 	private int downloadSize;
+	private String downloadSha256;
 	private final StringBuilder downloadSource;
 	private int downloadSourceSize;
+	private String downloadSourceSha256;
 	private int size;
+	private String sha256;
 	private String depWhat;
 	private String depFrom;
 	private String depTo;
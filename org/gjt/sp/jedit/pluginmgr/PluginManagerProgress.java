@@ -60,8 +60,8 @@ class PluginManagerProgress extends JDialog implements ProgressObserver
 		JButton stop = new JButton(jEdit.getProperty("plugin-manager.progress.stop"));
 		stop.addActionListener(e ->
 		{
-			// TODO: Thread.stop is deprecated, this should probably be Thread.interrupt
-			thread.stop();
+			// the downloads are stopped, and resumed next time
+			thread.interrupt();
 			dispose();
 		});
 		JPanel panel = new JPanel(new FlowLayout(
@@ -80,13 +80,13 @@ class PluginManagerProgress extends JDialog implements ProgressObserver
 	/**
 	 * Update the progress value.
 	 *
-	 * @param value the new value
+	 * @param value the new value, for all the operations together
 	 * @since jEdit 4.3pre3
 	 */
 	@Override
 	public void setValue(final long value)
 	{
-		SwingUtilities.invokeLater(() -> progress.setValue(valueSoFar + (int) value));
+		SwingUtilities.invokeLater(() -> progress.setValue((int) value));
 	} //}}}
 
 	//{{{ setMaximum() method
@@ -115,24 +115,19 @@ class PluginManagerProgress extends JDialog implements ProgressObserver
 	} //}}}
 
 	//{{{ done() method
+	/**
+	 * Called when an operation is done, operations can run in parallel
+	 * and end in any order.
+	 */
 	public void done()
 	{
 		try
 		{
-			if(done == count)
+			SwingUtilities.invokeAndWait(() ->
 			{
-				SwingUtilities.invokeAndWait(this::dispose);
-			}
-			else
-			{
-				SwingUtilities.invokeAndWait(() ->
-				{
-					valueSoFar += roster.getOperation(done - 1)
-						.getMaximum();
-					progress.setValue(valueSoFar);
-					done++;
-				});
-			}
+				if(++done == count)
+					dispose();
+			});
 		}
 		catch(Exception e)
 		{
@@ -146,10 +141,7 @@ class PluginManagerProgress extends JDialog implements ProgressObserver
 
 	private final JProgressBar progress;
 	private final int count;
-	private int done = 1;
-
-	// progress value as of start of current task
-	private int valueSoFar;
+	private int done;
 
 	private final Roster roster;
 	//}}}
@@ -172,11 +164,9 @@ class PluginManagerProgress extends JDialog implements ProgressObserver
 		}
 
 		@Override
-		@SuppressWarnings("deprecation")
 		public void windowClosing(WindowEvent evt)
 		{
-			// TODO: Thread.stop is deprecated, this should probably be Thread.interrupt
-			thread.stop();
+			thread.interrupt();
 			dispose();
 		}
 	} //}}}
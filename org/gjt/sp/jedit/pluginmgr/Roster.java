@@ -28,6 +28,17 @@ import javax.swing.SwingUtilities;
 import java.awt.Component;
 import java.io.*;
 import java.net.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.*;
@@ -68,7 +79,18 @@ class Roster
 	//{{{ addInstall() method
 	void addInstall(String installed, String url, String installDirectory, int size)
 	{
-		addOperation(new Install(installed,url,installDirectory,size));
+		addInstall(installed,url,installDirectory,size,null);
+	}
+
+	/**
+	 * Add an install operation.
+	 * @param sha256 the expected SHA-256 checksum of the download, in
+	 * hexadecimal, or null if the plugin list does not have one
+	 */
+	void addInstall(String installed, String url, String installDirectory,
+		int size, String sha256)
+	{
+		addOperation(new Install(installed,url,installDirectory,size,sha256));
 	} //}}}
 
 	//{{{ addLoad() method
@@ -96,15 +118,81 @@ class Roster
 	} //}}}
 
 	//{{{ performOperationsInWorkThread() method
+	/**
+	 * Downloads the plugins, with up to
+	 * <code>plugin-manager.downloadConnections</code> downloads at the
+	 * same time. Interrupting the calling thread stops all downloads.
+	 */
 	void performOperationsInWorkThread(PluginManagerProgress progress)
 	{
-		for (Operation op : operations)
+		int connections = Math.max(1,jEdit.getIntegerProperty(
+			"plugin-manager.downloadConnections",4));
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService downloads = Executors.newFixedThreadPool(
+			Math.min(connections,Math.max(1,operations.size())),
+			runnable ->
+			{
+				Thread thread = new Thread(runnable,"Plugin download #"
+					+ threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+		TotalProgress total = new TotalProgress(progress,operations.size());
+		boolean interrupted = false;
+		try
 		{
-			op.runInWorkThread(progress);
-			progress.done();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < operations.size(); i++)
+			{
+				Operation op = operations.get(i);
+				ProgressObserver opProgress = total.getOperationProgress(i);
+				futures.add(downloads.submit(() ->
+				{
+					op.runInWorkThread(opProgress);
+					opProgress.setValue(op.getMaximum());
+					progress.done();
+				}));
+			}
 
-			if (Thread.interrupted())
-				return;
+			for (Future<?> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (ExecutionException e)
+				{
+					// one failed download doesn't stop the others
+					Log.log(Log.ERROR,this,e.getCause());
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// user clicked 'Stop', the partial downloads are kept
+			// and resumed next time
+			interrupted = true;
+		}
+		finally
+		{
+			downloads.shutdownNow();
+			// the downloads stop at their next read; don't leave
+			// any of them writing once the work is over
+			while (true)
+			{
+				try
+				{
+					if (downloads.awaitTermination(1L,TimeUnit.SECONDS))
+						break;
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
 		}
 	} //}}}
 
@@ -158,8 +246,49 @@ class Roster
 		operations.add(op);
 	} //}}}
 
+	//{{{ move() method
+	private static void move(File from, File to) throws IOException
+	{
+		try
+		{
+			Files.move(from.toPath(),to.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(AtomicMoveNotSupportedException e)
+		{
+			Files.move(from.toPath(),to.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+	} //}}}
+
+	//{{{ digest() method
+	private static String digest(File file) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+		try (InputStream in = new FileInputStream(file))
+		{
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				digest.update(buffer,0,n);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(String.format("%02x",b));
+		return hex.toString();
+	} //}}}
+
 	//{{{ getDownloadDir() method
-	private static String getDownloadDir()
+	private static synchronized String getDownloadDir()
 	{
 		if(downloadDir == null)
 		{
@@ -176,10 +305,56 @@ class Roster
 
 	//}}}
 
+	//{{{ TotalProgress class
+	/**
+	 * Sums the progress of the operations running at the same time.
+	 */
+	private static class TotalProgress
+	{
+		TotalProgress(ProgressObserver progress, int count)
+		{
+			this.progress = progress;
+			values = new long[count];
+		}
+
+		ProgressObserver getOperationProgress(int index)
+		{
+			return new ProgressObserver()
+			{
+				@Override
+				public void setValue(long value)
+				{
+					long sum = 0L;
+					synchronized (values)
+					{
+						values[index] = value;
+						for (long v : values)
+							sum += v;
+					}
+					progress.setValue(sum);
+				}
+
+				@Override
+				public void setMaximum(long value)
+				{
+				}
+
+				@Override
+				public void setStatus(String status)
+				{
+					progress.setStatus(status);
+				}
+			};
+		}
+
+		private final ProgressObserver progress;
+		private final long[] values;
+	} //}}}
+
 	//{{{ Operation interface
 	abstract static class Operation
 	{
-		public void runInWorkThread(PluginManagerProgress progress)
+		public void runInWorkThread(ProgressObserver progress)
 		{
 		}
 
@@ -279,7 +454,8 @@ class Roster
 		int size;
 
 		//{{{ Install constructor
-		Install(String installed, @Nonnull String url, String installDirectory, int size)
+		Install(String installed, @Nonnull String url, String installDirectory,
+			int size, String sha256)
 		{
 			// catch those hooligans passing null urls
 			Objects.requireNonNull(url);
@@ -288,6 +464,7 @@ class Roster
 			this.url = url;
 			this.installDirectory = installDirectory;
 			this.size = size;
+			this.sha256 = sha256;
 		} //}}}
 
 		//{{{ getMaximum() method
@@ -299,7 +476,7 @@ class Roster
 
 		//{{{ runInWorkThread() method
 		@Override
-		public void runInWorkThread(PluginManagerProgress progress)
+		public void runInWorkThread(ProgressObserver progress)
 		{
 			path = download(progress,url);
 		} //}}}
@@ -312,7 +489,45 @@ class Roster
 			if(path == null)
 				return;
 
-			/* if download OK, remove existing version
+			// extract the archive next to the install directory first,
+			// so that a broken archive leaves the installed version alone
+			File staging = new File(installDirectory,
+				".staging-" + MiscUtilities.getFileName(path));
+			List<String> files;
+			try
+			{
+				files = extract(staging);
+			}
+			catch(InterruptedIOException iio)
+			{
+				recursiveDelete(staging);
+				return;
+			}
+			catch(ZipException e)
+			{
+				Log.log(Log.ERROR,this,e);
+				recursiveDelete(staging);
+				GUIUtilities.error(null,"plugin-error-download",new Object[]{""});
+				return;
+			}
+			catch(IOException io)
+			{
+				Log.log(Log.ERROR,this,io);
+				recursiveDelete(staging);
+
+				String[] args = { io.getMessage() };
+				GUIUtilities.error(null,"ioerror",args);
+				return;
+			}
+			finally
+			{
+				if(jEdit.getBooleanProperty("plugin-manager.deleteDownloads"))
+				{
+					new File(path).delete();
+				}
+			}
+
+			/* if extraction OK, remove existing version
 			 * and bundled jars and files */
 			if(installed != null)
 			{
@@ -336,60 +551,17 @@ class Roster
 				}
 			}
 
-			ZipFile zipFile = null;
-
 			try
 			{
-				zipFile = new ZipFile(path);
-
-				Enumeration<? extends ZipEntry> e = zipFile.entries();
-				while(e.hasMoreElements())
+				for(String name : files)
 				{
-					ZipEntry entry = e.nextElement();
-					String name = entry.getName().replace('/',File.separatorChar);
 					File file = new File(installDirectory,name);
-					if(entry.isDirectory())
-						file.mkdirs();
-					else
-					{
-						new File(file.getParent()).mkdirs();
-						InputStream in = null;
-						FileOutputStream out = null;
-						try
-						{
-							in = zipFile.getInputStream(entry);
-							// According to java 6/7 doc "in" should never be
-							// null, but it happens with filenames
-							// containing non-ascii characaters, #3531320
-							if (in == null)
-								throw new ZipException("Entry "
-									+ entry.getName() + " from archive "
-									+ zipFile.getName()
-									+ " could not be processed.");
-							out = new FileOutputStream(file);
-							IOUtilities.copyStream(4096,
-								null,
-								in,
-								out,false);
-						}
-						finally
-						{
-							IOUtilities.closeQuietly((Closeable)in);
-							IOUtilities.closeQuietly((Closeable)out);
-						}
-						if(file.getName().toLowerCase().endsWith(".jar"))
-							toLoad.add(file.getPath());
-					}
+					new File(file.getParent()).mkdirs();
+					move(new File(staging,name),file);
+					if(file.getName().toLowerCase().endsWith(".jar"))
+						toLoad.add(file.getPath());
 				}
 			}
-			catch(InterruptedIOException iio)
-			{
-			}
-			catch(ZipException e)
-			{
-				Log.log(Log.ERROR,this,e);
-				GUIUtilities.error(null,"plugin-error-download",new Object[]{""});
-			}
 			catch(IOException io)
 			{
 				Log.log(Log.ERROR,this,io);
@@ -397,26 +569,9 @@ class Roster
 				String[] args = { io.getMessage() };
 				GUIUtilities.error(null,"ioerror",args);
 			}
-			catch(Exception e)
-			{
-				Log.log(Log.ERROR,this,e);
-			}
 			finally
 			{
-				try
-				{
-					if(zipFile != null)
-						zipFile.close();
-				}
-				catch(IOException io)
-				{
-					Log.log(Log.ERROR,this,io);
-				}
-
-				if(jEdit.getBooleanProperty("plugin-manager.deleteDownloads"))
-				{
-					new File(path).delete();
-				}
+				recursiveDelete(staging);
 			}
 		} //}}}
 
@@ -428,10 +583,67 @@ class Roster
 		} //}}}
 
 		//{{{ Private members
+		private static final int MAX_ATTEMPTS = 3;
+
 		private final String installed;
 		private final String url;
 		private final String installDirectory;
-		private String path;
+		private final String sha256;
+		// written by a download thread
+		private volatile String path;
+
+		//{{{ extract() method
+		/**
+		 * Extracts the downloaded archive in the staging directory.
+		 * @return the paths of the extracted files, relative to the
+		 * staging directory
+		 */
+		private List<String> extract(File staging) throws IOException
+		{
+			if(staging.exists())
+				recursiveDelete(staging);
+
+			List<String> files = new ArrayList<>();
+			try (ZipFile zipFile = new ZipFile(path))
+			{
+				Enumeration<? extends ZipEntry> e = zipFile.entries();
+				while(e.hasMoreElements())
+				{
+					ZipEntry entry = e.nextElement();
+					String name = entry.getName().replace('/',File.separatorChar);
+					File file = new File(staging,name);
+					if(!file.getCanonicalPath().startsWith(
+						staging.getCanonicalPath() + File.separator))
+					{
+						throw new ZipException("Entry " + entry.getName()
+							+ " is outside of the install directory");
+					}
+					if(entry.isDirectory())
+						file.mkdirs();
+					else
+					{
+						new File(file.getParent()).mkdirs();
+						try (InputStream in = zipFile.getInputStream(entry))
+						{
+							// According to java 6/7 doc "in" should never be
+							// null, but it happens with filenames
+							// containing non-ascii characaters, #3531320
+							if (in == null)
+								throw new ZipException("Entry "
+									+ entry.getName() + " from archive "
+									+ zipFile.getName()
+									+ " could not be processed.");
+							try (OutputStream out = new FileOutputStream(file))
+							{
+								IOUtilities.copyStream(4096,null,in,out,false);
+							}
+						}
+						files.add(name);
+					}
+				}
+			}
+			return files;
+		} //}}}
 
 		//{{{ download() method
 		private String download(ProgressObserver progress, String url)
@@ -442,41 +654,24 @@ class Roster
 				if (host == null || host.equals(MirrorList.Mirror.NONE))
 					host = "default";
 
-				// follow HTTP redirects
-				boolean finalUrlFound = false;
-				String finalUrl = url;
-				URLConnection conn = null;
-				while (!finalUrlFound)
+				for (int attempt = 1; ; attempt++)
 				{
-					Log.log(Log.DEBUG, this, String.format("Trying URL '%s'", finalUrl));
-					conn = new URL(finalUrl).openConnection();
-					HttpURLConnection httpConn = (HttpURLConnection) conn;
-					httpConn.setInstanceFollowRedirects(false);
-					httpConn.connect();
-					int responseCode = httpConn.getResponseCode();
-					String locationHeader = httpConn.getHeaderField("Location");
-					if ((responseCode >= 300) && (responseCode < 400) && (locationHeader != null))
-						finalUrl = locationHeader.replaceFirst("^https:", "http:");
-					else
-						finalUrlFound = true;
-				}
-				Log.log(Log.DEBUG, this, String.format("Final URL '%s' found", finalUrl));
-
-				String fileName = MiscUtilities.getFileName(finalUrl);
-				String path = MiscUtilities.constructPath(getDownloadDir(),fileName);
-				Matcher hostMatcher = HOST_REGEX.matcher(finalUrl);
-				if (hostMatcher.find())
-					host = hostMatcher.group();
-				String progressMessage = jEdit.getProperty("plugin-manager.progress", new String[]{fileName, host});
-				progress.setStatus(progressMessage);
-				try (InputStream in = conn.getInputStream();
-				     FileOutputStream out = new FileOutputStream(path))
-				{
-					if(!IOUtilities.copyStream(progress,progressMessage,in,out,true))
-						return null;
+					try
+					{
+						return transfer(progress,url,host);
+					}
+					catch(InterruptedIOException | FileNotFoundException e)
+					{
+						throw e;
+					}
+					catch(IOException e)
+					{
+						if(attempt == MAX_ATTEMPTS)
+							throw e;
+						Log.log(Log.WARNING,this,"Download of " + url
+							+ " failed, retrying: " + e);
+					}
 				}
-
-				return path;
 			}
 			catch(InterruptedIOException iio)
 			{
@@ -510,6 +705,160 @@ class Roster
 				return null;
 			}
 		} //}}}
+
+		//{{{ transfer() method
+		/**
+		 * Downloads the plugin to a <code>.part</code> file, resuming an
+		 * earlier partial download if the server supports it, verifies it
+		 * and renames it.
+		 * @return the path of the download, or null if it was stopped
+		 */
+		private String transfer(ProgressObserver progress, String url, String host)
+			throws IOException
+		{
+			// follow HTTP redirects
+			boolean finalUrlFound = false;
+			String finalUrl = url;
+			URLConnection conn = null;
+			while (!finalUrlFound)
+			{
+				Log.log(Log.DEBUG, this, String.format("Trying URL '%s'", finalUrl));
+				conn = new URL(finalUrl).openConnection();
+				if (!(conn instanceof HttpURLConnection))
+					break;
+				HttpURLConnection httpConn = (HttpURLConnection) conn;
+				httpConn.setInstanceFollowRedirects(false);
+				httpConn.connect();
+				int responseCode = httpConn.getResponseCode();
+				String locationHeader = httpConn.getHeaderField("Location");
+				if ((responseCode >= 300) && (responseCode < 400) && (locationHeader != null))
+					finalUrl = locationHeader.replaceFirst("^https:", "http:");
+				else
+					finalUrlFound = true;
+			}
+			Log.log(Log.DEBUG, this, String.format("Final URL '%s' found", finalUrl));
+
+			String fileName = MiscUtilities.getFileName(finalUrl);
+			String path = MiscUtilities.constructPath(getDownloadDir(),fileName);
+			File part = new File(path + ".part");
+
+			// resume with a range request
+			long resumeFrom = part.length();
+			boolean append = false;
+			if (resumeFrom > 0L && conn instanceof HttpURLConnection)
+			{
+				((HttpURLConnection) conn).disconnect();
+				HttpURLConnection httpConn = (HttpURLConnection)
+					new URL(finalUrl).openConnection();
+				httpConn.setInstanceFollowRedirects(false);
+				httpConn.setRequestProperty("Range","bytes=" + resumeFrom + '-');
+				int responseCode = httpConn.getResponseCode();
+				String contentRange = httpConn.getHeaderField("Content-Range");
+				if (responseCode == HttpURLConnection.HTTP_PARTIAL && contentRange != null
+					&& contentRange.startsWith("bytes " + resumeFrom + '-'))
+				{
+					Log.log(Log.DEBUG, this, "Resuming " + fileName
+						+ " at " + resumeFrom);
+					append = true;
+				}
+				else if (responseCode != HttpURLConnection.HTTP_OK)
+				{
+					httpConn.disconnect();
+					part.delete();
+					throw new IOException("Cannot resume " + finalUrl
+						+ ": HTTP " + responseCode);
+				}
+				conn = httpConn;
+			}
+			if (!append)
+				resumeFrom = 0L;
+
+			Matcher hostMatcher = HOST_REGEX.matcher(finalUrl);
+			if (hostMatcher.find())
+				host = hostMatcher.group();
+			String progressMessage = jEdit.getProperty("plugin-manager.progress", new String[]{fileName, host});
+			progress.setStatus(progressMessage);
+			ProgressObserver partProgress = new OffsetProgress(progress,resumeFrom);
+			try (InputStream in = conn.getInputStream();
+			     FileOutputStream out = new FileOutputStream(part,append))
+			{
+				if(!IOUtilities.copyStream(partProgress,progressMessage,in,out,true))
+					return null;
+			}
+
+			try
+			{
+				verify(part);
+			}
+			catch(IOException e)
+			{
+				// the next attempt starts from scratch
+				part.delete();
+				throw e;
+			}
+
+			File file = new File(path);
+			move(part,file);
+			return path;
+		} //}}}
+
+		//{{{ verify() method
+		/**
+		 * Checks the download against the checksum of the plugin list,
+		 * or at least that it is a readable archive.
+		 */
+		private void verify(File file) throws IOException
+		{
+			if (sha256 != null && !sha256.isEmpty())
+			{
+				String actual = digest(file);
+				if (!actual.equalsIgnoreCase(sha256))
+				{
+					throw new IOException("Checksum mismatch for "
+						+ file.getName() + ": expected " + sha256
+						+ ", got " + actual);
+				}
+			}
+			else
+			{
+				try (ZipFile zipFile = new ZipFile(file))
+				{
+					if (zipFile.size() == 0)
+						throw new ZipException(file.getName() + " is empty");
+				}
+			}
+		} //}}}
 		//}}}
 	} //}}}
+
+	//{{{ OffsetProgress class
+	/** Reports the progress of a resumed download from where it started. */
+	private static class OffsetProgress implements ProgressObserver
+	{
+		OffsetProgress(ProgressObserver progress, long offset)
+		{
+			this.progress = progress;
+			this.offset = offset;
+		}
+
+		@Override
+		public void setValue(long value)
+		{
+			progress.setValue(offset + value);
+		}
+
+		@Override
+		public void setMaximum(long value)
+		{
+		}
+
+		@Override
+		public void setStatus(String status)
+		{
+			progress.setStatus(status);
+		}
+
+		private final ProgressObserver progress;
+		private final long offset;
+	} //}}}
 }
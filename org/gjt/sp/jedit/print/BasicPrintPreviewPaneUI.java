@@ -27,9 +27,13 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.LayoutManager;
 import java.awt.print.PageFormat;
+import java.awt.image.BufferedImage;
 import java.awt.print.Paper;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.print.attribute.PrintRequestAttributeSet;
 import javax.print.attribute.standard.*;
@@ -52,6 +56,7 @@ public class BasicPrintPreviewPaneUI extends PrintPreviewPaneUI implements Chang
 	private PrintPreviewPane printPreviewPane = null;
 	private JScrollPane scrollPane = null;
 	private PrintPreviewRenderer printPreviewRenderer = null;
+	private static final int MAX_CACHED_PAGES = 4;
 
 
 	/**
@@ -185,6 +190,15 @@ public class BasicPrintPreviewPaneUI extends PrintPreviewPaneUI implements Chang
 	 */
 	public class PrintPreviewRenderer extends JPanel
 	{
+		// the last rendered pages, by page number, zoom level and size
+		private final Map<String, BufferedImage> pageImages = new LinkedHashMap<String, BufferedImage>( 16, 0.75f, true )
+		{
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, BufferedImage> eldest )
+			{
+				return size() > MAX_CACHED_PAGES;
+			}
+		};
 
 		public PrintPreviewRenderer()
 		{
@@ -272,14 +286,11 @@ public class BasicPrintPreviewPaneUI extends PrintPreviewPaneUI implements Chang
 			double width = currentSize.getWidth();
 			double height = currentSize.getHeight();
 
-			// paint background white
-			gfx.setColor( Color.WHITE );
-			gfx.fillRect( 0, 0, Double.valueOf( width ).intValue(), Double.valueOf( height ).intValue() );
-
-			// print the page into this panel
+			// print the page into this panel, the rendered pages are cached
+			// so that scrolling and going back to a page doesn't lay it out
+			// again
 			updateModel();
-			model.setGraphics( gfx );
-			BufferPrinter1_7.printPage( model );
+			gfx.drawImage( getPageImage( model, ( Graphics2D )gfx, width, height ), 0, 0, Double.valueOf( width ).intValue(), Double.valueOf( height ).intValue(), null );
 
 			scrollPane.revalidate();
 			printPreviewPane.revalidate();
@@ -287,6 +298,39 @@ public class BasicPrintPreviewPaneUI extends PrintPreviewPaneUI implements Chang
 		}
 
 
+		private BufferedImage getPageImage( PrintPreviewModel model, Graphics2D gfx, double width, double height )
+		{
+			// the pages are rendered at the resolution of the screen
+			double scale = gfx.getTransform().getScaleX();
+			
+			// the page is rendered again once the page ranges are known
+			String key = model.getPageNumber() + ":" + model.getZoomLevel() + ':' + width + 'x' + height + ':' + scale + ':' + model.getPageRanges().size();
+			BufferedImage image = pageImages.get( key );
+			if ( image == null )
+			{
+				image = new BufferedImage( Math.max( 1, ( int )Math.ceil( width * scale ) ), Math.max( 1, ( int )Math.ceil( height * scale ) ), BufferedImage.TYPE_INT_RGB );
+				Graphics2D imageGfx = image.createGraphics();
+				try
+				{
+					imageGfx.scale( scale, scale );
+					
+					// paint background white
+					imageGfx.setColor( Color.WHITE );
+					imageGfx.fillRect( 0, 0, Double.valueOf( width ).intValue(), Double.valueOf( height ).intValue() );
+					
+					model.setGraphics( imageGfx );
+					BufferPrinter1_7.printPage( model );
+				}
+				finally
+				{
+					imageGfx.dispose();
+				}
+				pageImages.put( key, image );
+			}
+			return image;
+		}
+
+
 		private void updateModel()
 		{
 			PrintPreviewModel pageFormat = printPreviewPane.getModel();
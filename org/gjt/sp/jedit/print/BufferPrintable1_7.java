@@ -38,6 +38,8 @@ import javax.print.attribute.PrintRequestAttributeSet;
 import javax.print.attribute.standard.PageRanges;
 
 import org.gjt.sp.jedit.syntax.*;
+import org.gjt.sp.jedit.textarea.DisplayManager;
+import org.gjt.sp.jedit.textarea.TextArea;
 import org.gjt.sp.jedit.*;
 //}}}
 
@@ -78,6 +80,11 @@ class BufferPrintable1_7 implements Printable
 
 	private FontRenderContext frc;
 
+	// the state of the text area, when the pages are calculated in
+	// another thread
+	private Object antiAliasHint = null;
+	private BitSet visibleLines = null;
+
 	private DisplayTokenHandler tokenHandler;
 	
 	BufferPrintable1_7(PrintRequestAttributeSet attributes, View view, Buffer buffer)
@@ -193,6 +200,18 @@ class BufferPrintable1_7 implements Printable
  	 * handle files that aren't particularly large but only have one line.
  	 */
 	protected HashMap<Integer, Range> calculatePages(Graphics _gfx, PageFormat pageFormat) throws PrinterException
+	{
+		return calculatePages(_gfx, pageFormat, null);
+	}
+	
+	/**
+	 * Same as calculatePages(Graphics, PageFormat), but also passes each page to
+	 * the listener as soon as it is laid out, so that the first pages can be shown
+	 * while the next ones are still being calculated. The calculation stops early
+	 * if the calling thread is interrupted.
+	 * @param listener The listener for the pages, may be null
+	 */
+	HashMap<Integer, Range> calculatePages(Graphics _gfx, PageFormat pageFormat, PageListener listener) throws PrinterException
 	{
 		//Log.log(Log.DEBUG, this, "calculatePages for " + buffer.getName());
 		//Log.log(Log.DEBUG, this, "graphics.getClip = " + _gfx.getClip());
@@ -226,7 +245,7 @@ class BufferPrintable1_7 implements Printable
 		// to be used to draw the characters and the javadoc says, "This is the 
 		// fastest way to render a set of characters to the screen."
 		Graphics2D gfx = (Graphics2D)_gfx;
-		gfx.setRenderingHint(KEY_TEXT_ANTIALIASING, view.getTextArea().getPainter().getAntiAlias().renderHint());
+		gfx.setRenderingHint(KEY_TEXT_ANTIALIASING, antiAliasHint != null ? antiAliasHint : view.getTextArea().getPainter().getAntiAlias().renderHint());
 		boolean useFractionalFontMetrics = jEdit.getBooleanProperty("view.fracFontMetrics");
 		gfx.setRenderingHint(KEY_FRACTIONALMETRICS, (useFractionalFontMetrics ? VALUE_FRACTIONALMETRICS_ON : VALUE_FRACTIONALMETRICS_OFF));
 		gfx.setFont(font);
@@ -310,12 +329,16 @@ class BufferPrintable1_7 implements Printable
 				// last page
 				Range range = new Range(startLine, currentPhysicalLine);
 				pages.put(Integer.valueOf(pageCount), range);
+				if (listener != null)
+				{
+					listener.pageCalculated(pageCount, range);
+				}
 				//Log.log(Log.DEBUG, this, "calculatePages, page " + pageCount + " has " + range);
 				break;
 			}
 			
 			// skip folded lines
-			if (!printFolds && !view.getTextArea().getDisplayManager().isLineVisible(currentPhysicalLine))
+			if (!printFolds && !isLineVisible(currentPhysicalLine))
 			{
 				++ currentPhysicalLine;
 				continue;
@@ -331,6 +354,14 @@ class BufferPrintable1_7 implements Printable
 			{
 				Range range = new Range(startLine, Math.max(0, currentPhysicalLine - 1));
 				pages.put(Integer.valueOf(pageCount), range);
+				if (listener != null)
+				{
+					listener.pageCalculated(pageCount, range);
+					if (Thread.currentThread().isInterrupted())
+					{
+						break;
+					}
+				}
 				//Log.log(Log.DEBUG, this, "calculatePages, page " + pageCount + " has " + range);
 				++ pageCount;
 				startLine = currentPhysicalLine;
@@ -349,6 +380,37 @@ class BufferPrintable1_7 implements Printable
 
 	// returns true if the given page number is one of the pages requested to
 	// be printed
+	/**
+	 * Records the state of the text area used by calculatePages, so that the
+	 * pages can be calculated in another thread. Must be called in the event
+	 * dispatch thread.
+	 */
+	void snapshotTextArea()
+	{
+		TextArea textArea = view.getTextArea();
+		antiAliasHint = textArea.getPainter().getAntiAlias().renderHint();
+		if (!jEdit.getBooleanProperty("print.folds", true))
+		{
+			DisplayManager displayManager = textArea.getDisplayManager();
+			visibleLines = new BitSet(buffer.getLineCount());
+			for (int line = displayManager.getFirstVisibleLine(); line != -1; line = displayManager.getNextVisibleLine(line))
+			{
+				visibleLines.set(line);
+			}
+		}
+	}
+	
+	
+	private boolean isLineVisible(int line)
+	{
+		if (visibleLines != null)
+		{
+			return visibleLines.get(line);
+		}
+		return view.getTextArea().getDisplayManager().isLineVisible(line);
+	}
+	
+	
 	private boolean inRange(int pageNumber)
 	{
 		PageRanges ranges = (PageRanges)attributes.get(PageRanges.class);
@@ -466,7 +528,7 @@ class BufferPrintable1_7 implements Printable
 				//Log.log(Log.DEBUG, this, "The end");
 				break;
 			}
-			if (!jEdit.getBooleanProperty("print.folds",true) && !view.getTextArea().getDisplayManager().isLineVisible(currentPhysicalLine))
+			if (!jEdit.getBooleanProperty("print.folds",true) && !isLineVisible(currentPhysicalLine))
 			{
 				//Log.log(Log.DEBUG, this, "Skipping invisible line");
 				continue;
@@ -558,6 +620,18 @@ class BufferPrintable1_7 implements Printable
 
 	
 	
+	/**
+	 * Receives the pages as they are calculated, in the thread calculating them.
+	 */
+	interface PageListener
+	{
+		/**
+		 * @param pageNumber The page number, 1-based
+		 * @param range The lines of the page
+		 */
+		void pageCalculated(int pageNumber, Range range);
+	}
+	
 	static class PrintTabExpander implements TabExpander
 	{
 		private double tabWidth;
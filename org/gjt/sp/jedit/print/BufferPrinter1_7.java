@@ -39,6 +39,7 @@ import javax.swing.JOptionPane;
 import org.gjt.sp.jedit.*;
 import org.gjt.sp.jedit.msg.PropertiesChanged;
 import org.gjt.sp.util.Log;
+import org.gjt.sp.util.Task;
 import org.gjt.sp.util.ThreadUtilities;
 
 
@@ -259,10 +260,67 @@ public class BufferPrinter1_7
 	}
 
 
+	/**
+	 * Returns a task calculating the page ranges of the buffer, like
+	 * getPageRanges(View, Buffer, PrintRequestAttributeSet), but passing each
+	 * page to the listener, in the task thread, as soon as it is laid out. This
+	 * lets the print preview show the first pages of a large buffer while the
+	 * next ones are still being calculated. The task must be started by the
+	 * caller, and can be cancelled. <code>done</code> is run in the task thread
+	 * once all the pages are calculated, or the task is cancelled. Must be
+	 * called in the event dispatch thread.
+	 */
+	static Task createPaginationTask( View view, Buffer buffer, PrintRequestAttributeSet attributes, BufferPrintable1_7.PageListener listener, Runnable done )
+	{
+		loadPrintSpec();
+		format.addAll(attributes);
+		// copied, since 'format' may change while the task runs
+		final PrintRequestAttributeSet pageAttributes = new HashPrintRequestAttributeSet( format );
+		final BufferPrintable1_7 printable = new BufferPrintable1_7( pageAttributes, view, buffer );
+		// the folds and the text area settings are read now, the task only
+		// reads the buffer, whose markTokens() is serialized with the
+		// painting of the text areas
+		printable.snapshotTextArea();
+		Task task = new Task()
+		{
+			@Override
+			public void _run()
+			{
+				buffer.readLock();
+				try
+				{
+					calculatePageRanges( printable, pageAttributes, listener );
+				}
+				finally
+				{
+					buffer.readUnlock();
+					done.run();
+				}
+			}
+		};
+		task.setLabel( jEdit.getProperty( "printpreview.dialog.title" ) );
+		return task;
+	}
+
+
 	// have the printable calculate the pages and ranges, the map has the page
 	// number as the key, a range containing the start and end line numbers of
 	// that page
 	private static HashMap<Integer, Range> getPageRanges( BufferPrintable1_7 printable, PrintRequestAttributeSet attributes )
+	{
+		HashMap<Integer, Range> newLineRanges = new HashMap<Integer, Range>();
+		if ( !calculatePageRanges( printable, attributes, newLineRanges::put ) )
+		{
+			return null;
+		}
+		return newLineRanges;
+	}
+
+
+	// have the printable calculate the pages and ranges, and pass the pages the
+	// user has selected to the listener. Returns false if the pages could not
+	// be calculated.
+	private static boolean calculatePageRanges( BufferPrintable1_7 printable, PrintRequestAttributeSet attributes, BufferPrintable1_7.PageListener listener )
 	{
 		PageFormat pageFormat = createPageFormat( attributes );
 		GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
@@ -273,27 +331,27 @@ public class BufferPrinter1_7
 		graphics.setClip(clipRegion);
 		try 
 		{
-			// calculate which lines belong to each page
-			HashMap<Integer, Range> pageLineRanges = printable.calculatePages( graphics, pageFormat );
 			PageRanges pr = (PageRanges)attributes.get(PageRanges.class);
 			if (pr == null) {
 				pr = new PageRanges( 1, 1000 );
 			}
-			// then keep only the pages the user has selected
-			HashMap<Integer, Range> newLineRanges = new HashMap<Integer, Range>();
-			for (Integer i : pageLineRanges.keySet())
+			final PageRanges selectedPages = pr;
+			
+			// calculate which lines belong to each page, and keep only the
+			// pages the user has selected
+			printable.calculatePages( graphics, pageFormat, ( pageNumber, range ) ->
 			{
-				if (pr.contains(i))
+				if ( selectedPages.contains( pageNumber ) )
 				{
-					newLineRanges.put(i, pageLineRanges.get(i));	
+					listener.pageCalculated( pageNumber, range );
 				}
-			}
-			return newLineRanges;
+			} );
+			return true;
 		}
 		catch(Exception e) 
 		{
 			e.printStackTrace();
-			return null;
+			return false;
 		}
 	}
 	
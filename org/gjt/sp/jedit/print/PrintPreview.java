@@ -39,6 +39,8 @@ import org.gjt.sp.jedit.View;
 import org.gjt.sp.jedit.gui.EnhancedDialog;
 import org.gjt.sp.jedit.jEdit;
 import org.gjt.sp.util.Log;
+import org.gjt.sp.util.Task;
+import org.gjt.sp.util.ThreadUtilities;
 
 
 public class PrintPreview extends EnhancedDialog
@@ -60,6 +62,12 @@ public class PrintPreview extends EnhancedDialog
 	private PrintService printService;
 	private PrintPreviewModel model;
 	private float zoomLevel = 1.0f;
+	private boolean reverse;
+	private Task pagination;
+	// the last page added to the page list
+	private int lastPage;
+	// pages calculated but not yet added to pageRanges
+	private final Map<Integer, Range> calculatedPages = new HashMap<Integer, Range>();
 
 
 	public PrintPreview( View view, Buffer buffer, PrintService printService, PrintRequestAttributeSet attributes )
@@ -176,6 +184,11 @@ public class PrintPreview extends EnhancedDialog
 
 				public void keyPressed( KeyEvent ke )
 				{
+					if ( pages.getItemCount() == 0 )
+					{
+						// no page yet
+						return;
+					}
 
 					int selectedIndex = pages.getSelectedIndex();
 					switch ( ke.getKeyCode() )
@@ -378,33 +391,117 @@ public class PrintPreview extends EnhancedDialog
 	}
 	
 
+	// the pages are calculated in the background, and added to the page list
+	// as they are laid out, so the first page is shown without waiting for
+	// the whole buffer to be laid out
 	private void init()
 	{
-		pageRanges = BufferPrinter1_7.getPageRanges( view, buffer, attributes );
-		DefaultComboBoxModel<Integer> pagesModel = new DefaultComboBoxModel<Integer>();
-		boolean reverse = attributes.containsKey(Reverse.class);
-		StringBuilder pr = new StringBuilder();
-		for ( Integer i : pageRanges.keySet() )
+		pageRanges = new HashMap<Integer, Range>();
+		pages.setModel( new DefaultComboBoxModel<Integer>() );
+		nextPage.setEnabled( false );
+		prevPage.setEnabled( false );
+		reverse = attributes.containsKey(Reverse.class);
+
+		// shows a blank page until the first page is calculated
+		model = new PrintPreviewModel( view, buffer, printService, attributes, pageRanges );
+		model.setPageNumber( 0 );
+		model.setZoomLevel( zoomLevel );
+		printPreviewPane.setModel( model );
+
+		pagination = BufferPrinter1_7.createPaginationTask( view, buffer, attributes, this::pageCalculated,
+			() -> ThreadUtilities.runInDispatchThread( this::paginationDone ) );
+		ThreadUtilities.runInBackground( pagination );
+	}
+
+
+	// called in the pagination thread
+	private void pageCalculated( int pageNumber, Range range )
+	{
+		synchronized ( calculatedPages )
+		{
+			calculatedPages.put( pageNumber, range );
+			if ( calculatedPages.size() > 1 )
+			{
+				// already scheduled
+				return;
+			}
+		}
+		ThreadUtilities.runInDispatchThread( this::addCalculatedPages );
+	}
+
+
+	private void addCalculatedPages()
+	{
+		if ( isClosed() )
+		{
+			return;
+		}
+		synchronized ( calculatedPages )
+		{
+			pageRanges.putAll( calculatedPages );
+			calculatedPages.clear();
+		}
+
+		// the page numbers are reversed once all the pages are known
+		if ( !reverse )
+		{
+			updatePages();
+		}
+	}
+
+
+	private void paginationDone()
+	{
+		if ( isClosed() )
+		{
+			return;
+		}
+		addCalculatedPages();
+		if ( reverse )
+		{
+			updatePages();
+		}
+	}
+
+
+	// true once the pagination was cancelled or the dialog disposed, the
+	// pages calculated until then are dropped
+	private boolean isClosed()
+	{
+		return pagination.isCancelled() || !isDisplayable();
+	}
+
+
+	// adds the new pages to the page list, and shows the first page
+	private void updatePages()
+	{
+		DefaultComboBoxModel<Integer> pagesModel = ( DefaultComboBoxModel<Integer> )pages.getModel();
+		if ( pagesModel.getSize() == pageRanges.size() )
+		{
+			return;
+		}
+		
+		boolean first = pagesModel.getSize() == 0;
+		for ( Integer i : new TreeSet<Integer>( pageRanges.keySet() ).tailSet( lastPage, false ) )
 		{
 			Integer pageNo = reverse ? pageRanges.size() - i  + 1: i;
 			pagesModel.addElement( pageNo );
-			//Log.log(Log.DEBUG, this, "init, i = " + i + ", range = " + pageRanges.get(i));
-			pr.append(i).append(',');
+			lastPage = i;
 		}
-		pr.deleteCharAt(pr.length() - 1);
-		pages.setModel( pagesModel );
-		pages.setSelectedIndex( 0 );
 
 		nextPage.setEnabled( pagesModel.getSize() > 1 );
 		prevPage.setEnabled( pagesModel.getSize() > 1 );
 
-		model = new PrintPreviewModel( view, buffer, printService, attributes, pageRanges );
-		int firstPage = ( Integer )pages.getSelectedItem();
-		model.setPageNumber( firstPage - 1 );
-		model.setPageRanges( pageRanges );
-		model.setZoomLevel( zoomLevel );
-		attributes.add( new PageRanges( firstPage ) );
-		printPreviewPane.setModel( model );
+		if ( first )
+		{
+			pages.setSelectedIndex( 0 );
+			int firstPage = ( Integer )pages.getSelectedItem();
+			model.setPageNumber( firstPage - 1 );
+			model.setPageRanges( pageRanges );
+			model.setZoomLevel( zoomLevel );
+			attributes.add( new PageRanges( firstPage ) );
+			printPreviewPane.setModel( model );
+		}
 	}
 
 
@@ -415,6 +512,7 @@ public class PrintPreview extends EnhancedDialog
 
 	public void cancel()
 	{
+		pagination.cancel();
 		PrintPreview.this.setVisible( false );
 		PrintPreview.this.dispose();
 	}
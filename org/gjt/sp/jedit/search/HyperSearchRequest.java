@@ -32,6 +32,7 @@ import org.gjt.sp.jedit.Buffer;
 import org.gjt.sp.jedit.GUIUtilities;
 import org.gjt.sp.jedit.jEdit;
 import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.buffer.BufferSnapshot;
 import org.gjt.sp.util.*;
 //}}}
 
@@ -250,6 +251,12 @@ class HyperSearchRequest extends Task
 			String noWordSep = buffer.getStringProperty("noWordSep");
 			matcher.setNoWordSep(noWordSep);
 		}
+		// the matches are searched in a snapshot, without blocking
+		// the edits, and only added to the results under the lock
+		BufferSnapshot snapshot = buffer.getSnapshot();
+		IntegerArray matches = new IntegerArray();
+		findMatches(snapshot,start,end,matches);
+
 		int resultCount = 0;
 		JEditTextArea textArea = jEdit.getActiveView().getTextArea();
 		int caretLine = textArea.getBuffer() == buffer ? textArea.getCaretLine() : -1;
@@ -257,31 +264,20 @@ class HyperSearchRequest extends Task
 		{
 			buffer.readLock();
 
-			boolean endOfLine = buffer.getLineEndOffset(
-				buffer.getLineOfOffset(end)) - 1 == end;
-
-			int offset = start;
+			if(snapshot.getVersion() != buffer.getVersion())
+			{
+				// the buffer was edited during the search
+				snapshot = buffer.getSnapshot();
+				matches.clear();
+				findMatches(snapshot,Math.min(start,snapshot.getLength()),
+					Math.min(end,snapshot.getLength()),matches);
+			}
 
 			HyperSearchResult lastResult = null;
-			for(int counter = 0; ; counter++)
+			for(int i = 0; i < matches.getSize(); i += 2)
 			{
-				boolean startOfLine = buffer.getLineStartOffset(
-					buffer.getLineOfOffset(offset)) == offset;
-
-				SearchMatcher.Match match = null;
-				try {
-					match = matcher.nextMatch(
-						buffer.getSegment(offset, end - offset),
-						startOfLine,endOfLine,counter == 0,
-						false);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-				if(match == null)
-					break;
-
-				int newLine = buffer.getLineOfOffset(
-					offset + match.start);
+				int matchStart = matches.get(i);
+				int newLine = buffer.getLineOfOffset(matchStart);
 				if(lastResult == null || lastResult.line != newLine)
 				{
 					lastResult = new HyperSearchResult(
@@ -293,10 +289,7 @@ class HyperSearchRequest extends Task
 					bufferNode.add(child);
 				}
 
-				lastResult.addOccur(offset + match.start,
-					offset + match.end);
-
-				offset += match.end;
+				lastResult.addOccur(matchStart,matches.get(i + 1));
 				resultCount++;
 			}
 		}
@@ -308,5 +301,40 @@ class HyperSearchRequest extends Task
 		return resultCount;
 	} //}}}
 
+	//{{{ findMatches() method
+	/**
+	 * Adds the start and end offsets of the matches in a range of a
+	 * snapshot to an array.
+	 */
+	private void findMatches(BufferSnapshot snapshot, int start, int end,
+		IntegerArray matches)
+	{
+		boolean endOfLine = snapshot.getLineEndOffset(
+			snapshot.getLineOfOffset(end)) - 1 == end;
+
+		int offset = start;
+		for(int counter = 0; ; counter++)
+		{
+			boolean startOfLine = snapshot.getLineStartOffset(
+				snapshot.getLineOfOffset(offset)) == offset;
+
+			SearchMatcher.Match match = null;
+			try {
+				match = matcher.nextMatch(
+					snapshot.getSegment(offset, end - offset),
+					startOfLine,endOfLine,counter == 0,
+					false);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(match == null)
+				break;
+
+			matches.add(offset + match.start);
+			matches.add(offset + match.end);
+			offset += match.end;
+		}
+	} //}}}
+
 	//}}}
 }
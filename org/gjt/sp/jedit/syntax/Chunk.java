@@ -31,7 +31,6 @@ import java.awt.font.*;
 import java.awt.geom.*;
 import java.awt.*;
 import java.util.*;
-import java.lang.ref.SoftReference;
 import java.util.List;
 
 import org.gjt.sp.jedit.Debug;
@@ -259,7 +258,31 @@ public class Chunk extends Token
 
 		// Clear cache, not to hold reference to old fonts which
 		// might become unused after properties changed.
-		glyphCache = null;
+		long budget = DEFAULT_GLYPH_CACHE_SIZE;
+		if (props != null)
+		{
+			try
+			{
+				budget = Long.parseLong(props.getProperty("view.glyphCacheSize")) << 10;
+			}
+			catch (NumberFormatException e)
+			{
+			}
+		}
+		glyphCache.setBudget(budget);
+	} //}}}
+
+	//{{{ getGlyphCacheStatistics() method
+	/**
+	 * Returns the size, hit, miss and eviction counters of the glyph
+	 * cache shared by all text areas, to tune the
+	 * <code>view.glyphCacheSize</code> property (in KB).
+	 *
+	 * @since jEdit 5.7pre1
+	 */
+	public static String getGlyphCacheStatistics()
+	{
+		return glyphCache.toString();
 	} //}}}
 
 	//{{{ getSubstFont() method
@@ -535,8 +558,7 @@ public class Chunk extends Token
 			chars = new char[length];
 			System.arraycopy(lineText.array, lineText.offset + offset, chars, 0, length);
 			GlyphKey cacheKey = new GlyphKey(chars, style.getFont(), fontRenderContext);
-			GlyphCache cache = getGlyphCache();
-			glyphData = cache.computeIfAbsent(cacheKey, key -> buildGlyphInfo(chars, fontRenderContext));
+			glyphData = glyphCache.computeIfAbsent(cacheKey, key -> buildGlyphInfo(chars, fontRenderContext));
 			width = glyphData.getWidth();
 		}
 		assert isInitialized();
@@ -564,20 +586,13 @@ public class Chunk extends Token
 	// which was an outclassing CPU bottleneck (profiled on jProfiler,
 	// Sun JDK 6, Windows XP).
 	//
-	// The capacity is roughly tuned so that the effect is clearly
-	// noticeable on very large random int table in C mode; like
-	// following:
-	//   int table000[100] = { 232, 190, 69, ..., 80, 246, 78 };
-	//   int table000[100] = { 69, 84, 206, ..., 160, 197, 161 };
-	//   ...
-	//   int table099[100] = { 219, 100, 60, ..., 100, 203, 8 };
-	//   int table100[100] = { 159, 189, 159, ..., 76, 9, 239, };
-	// and the additional heap usage is lower than 1 MB.
-	//
-	// Heap usage was measured as about 400 KB / 256 entries (JRE 7u3,
-	// Windows XP).
-	private static int glyphCacheCapacity = 256;
-	private static SoftReference<GlyphCache> glyphCache;
+	// It used to hold a fixed number of entries (256, about 400 KB),
+	// which thrashed on wide and dense files or with several text
+	// areas. It is now bounded by the estimated heap usage of the
+	// glyphs, see GlyphData.estimateSize().
+	private static final long DEFAULT_GLYPH_CACHE_SIZE = 4L << 20;
+	private static final GlyphCache<GlyphKey, GlyphData> glyphCache =
+		new GlyphCache<>(DEFAULT_GLYPH_CACHE_SIZE, GlyphData::estimateSize);
 	//}}}
 
 	//{{{ Instance variables
@@ -858,22 +873,6 @@ public class Chunk extends Token
 		}
 	} //}}}
 
-	//{{{ getGlyphCache() method
-	private static GlyphCache getGlyphCache()
-	{
-		if (glyphCache != null)
-		{
-			GlyphCache cache = glyphCache.get();
-			if (cache != null)
-			{
-				return cache;
-			}
-		}
-		GlyphCache newOne = new GlyphCache(glyphCacheCapacity);
-		glyphCache = new SoftReference<>(newOne);
-		return newOne;
-	} //}}}
-
 	//{{{ class GlyphKey
 	private static class GlyphKey
 	{
@@ -915,26 +914,7 @@ public class Chunk extends Token
 		}
 	} //}}}
 
-	//{{{ class GlyphCache
-	private static class GlyphCache extends LinkedHashMap<GlyphKey, GlyphData>
-	{
-		GlyphCache(int capacity)
-		{
-			// Avoid rehashing with known limit.
-			super(capacity + 1, 1.0f, true/*accessOrder*/);
-			this.capacity = capacity;
-		}
-
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<GlyphKey, GlyphData> eldest)
-		{
-			return size() > capacity;
-		}
-
-		private final int capacity;
-	} //}}}
-
-	//{{{ class GlyphCache
+	//{{{ class GlyphData
 	private static class GlyphData
 	{
 		private final GlyphVectorData[] glyphVectorData;
@@ -962,6 +942,19 @@ public class Chunk extends Token
 		{
 			return width;
 		}
+
+		/**
+		 * Estimates the heap used by the glyphs and the cache entry.
+		 * About 1 KB of fixed overhead per glyph vector, and the
+		 * glyph codes, positions and transforms of each glyph.
+		 */
+		int estimateSize()
+		{
+			int size = 0;
+			for (GlyphVectorData data : glyphVectorData)
+				size += 1024 + 48 * data.getGlyphVector().getNumGlyphs();
+			return size;
+		}
 	} //}}}
 
 	//{{{ class GlyphVectorData
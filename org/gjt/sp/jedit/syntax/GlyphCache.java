@@ -0,0 +1,272 @@
+/*
+ * GlyphCache.java - A size bounded cache for laid out glyphs
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.syntax;
+
+//{{{ Imports
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+//}}}
+
+/**
+ * A cache of laid out glyphs, bounded by the estimated size of its
+ * entries in bytes.<p>
+ *
+ * Entries are evicted in LRU order, but a new entry is only admitted if
+ * it has been requested more often than the entry it would evict
+ * (TinyLFU admission). The request frequencies are approximated by a
+ * count-min sketch of 4-bit counters which are halved periodically, so
+ * that old popularity fades out. This keeps the frequently painted
+ * tokens in the cache when scrolling through a file full of tokens that
+ * are only seen once, like minified JSON or CSV data.<p>
+ *
+ * The cache is shared by all text areas, all methods are thread safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @since jEdit 5.7pre1
+ */
+class GlyphCache<K, V>
+{
+	//{{{ GlyphCache constructor
+	/**
+	 * @param budget the maximum estimated size of the entries, in bytes
+	 * @param weigher estimates the size of an entry, in bytes
+	 */
+	GlyphCache(long budget, ToIntFunction<V> weigher)
+	{
+		this.weigher = weigher;
+		map = new LinkedHashMap<>(64, 0.75f, true);
+		setBudget(budget);
+	} //}}}
+
+	//{{{ computeIfAbsent() method
+	/**
+	 * Returns the cached value for the key, or computes it. The value
+	 * is computed without holding the cache lock.
+	 */
+	V computeIfAbsent(K key, Function<K, V> loader)
+	{
+		int hash = spread(key.hashCode());
+		synchronized (this)
+		{
+			increment(hash);
+			Entry<V> entry = map.get(key);
+			if (entry != null)
+			{
+				hits++;
+				return entry.value;
+			}
+			misses++;
+		}
+
+		V value = loader.apply(key);
+		int weight = weigher.applyAsInt(value);
+
+		synchronized (this)
+		{
+			if (map.containsKey(key))
+				return value;
+			if (!makeRoom(hash, weight))
+			{
+				rejected++;
+				return value;
+			}
+			map.put(key, new Entry<>(value, weight, hash));
+			size += weight;
+		}
+		return value;
+	} //}}}
+
+	//{{{ setBudget() method
+	/**
+	 * Changes the size budget. The cache is cleared, and the frequency
+	 * sketch is resized for the number of entries that fit the budget.
+	 */
+	synchronized void setBudget(long budget)
+	{
+		this.budget = budget;
+		// one 64-bit word holds 16 counters, aim at 8 counters per
+		// expected entry
+		long expectedEntries = Math.max(64L, budget / 1024L);
+		int words = Integer.highestOneBit((int) Math.min(1 << 20,
+			expectedEntries / 2L));
+		sketch = new long[Math.max(words, 32)];
+		sampleSize = (int) Math.min(Integer.MAX_VALUE, expectedEntries * 10L);
+		map.clear();
+		size = 0L;
+		additions = 0;
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public synchronized String toString()
+	{
+		long requests = hits + misses;
+		return "GlyphCache[entries=" + map.size()
+			+ ",size=" + (size >> 10) + "KB/" + (budget >> 10) + "KB"
+			+ ",hits=" + hits + ",misses=" + misses
+			+ ",hitRatio=" + (requests == 0L ? 0L : hits * 100L / requests) + '%'
+			+ ",rejected=" + rejected + ",evicted=" + evicted + ']';
+	} //}}}
+
+	//{{{ Private members
+	private final ToIntFunction<V> weigher;
+	private final LinkedHashMap<K, Entry<V>> map;
+	private long budget;
+	private long size;
+
+	/** 4 rows of 4-bit counters, interleaved in 64-bit words. */
+	private long[] sketch;
+	private int sampleSize;
+	private int additions;
+
+	private long hits;
+	private long misses;
+	private long rejected;
+	private long evicted;
+
+	//{{{ makeRoom() method
+	/**
+	 * Evicts the least recently used entries until the new one fits,
+	 * as long as the new entry is more popular than each victim.
+	 * @return false if the new entry should not be admitted
+	 */
+	private boolean makeRoom(int hash, int weight)
+	{
+		if (weight > budget)
+			return false;
+		if (size + weight <= budget)
+			return true;
+
+		int candidateFrequency = frequency(hash);
+		Iterator<Map.Entry<K, Entry<V>>> iter = map.entrySet().iterator();
+		long freed = 0L;
+		int victims = 0;
+		// check first, so that a rejected candidate does not evict anything
+		while (size - freed + weight > budget && iter.hasNext())
+		{
+			Entry<V> victim = iter.next().getValue();
+			if (frequency(victim.hash) >= candidateFrequency)
+				return false;
+			freed += victim.weight;
+			victims++;
+		}
+
+		iter = map.entrySet().iterator();
+		for (int i = 0; i < victims; i++)
+		{
+			size -= iter.next().getValue().weight;
+			iter.remove();
+			evicted++;
+		}
+		return true;
+	} //}}}
+
+	//{{{ increment() method
+	private void increment(int hash)
+	{
+		boolean added = false;
+		for (int row = 0; row < 4; row++)
+		{
+			int index = indexOf(hash, row);
+			int shift = counterShift(hash, row);
+			if (((sketch[index] >>> shift) & 0xfL) != 0xfL)
+			{
+				sketch[index] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && ++additions == sampleSize)
+			reset();
+	} //}}}
+
+	//{{{ frequency() method
+	private int frequency(int hash)
+	{
+		int frequency = Integer.MAX_VALUE;
+		for (int row = 0; row < 4; row++)
+		{
+			int count = (int) ((sketch[indexOf(hash, row)]
+				>>> counterShift(hash, row)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	} //}}}
+
+	//{{{ reset() method
+	/** Halves all counters. */
+	private void reset()
+	{
+		for (int i = 0; i < sketch.length; i++)
+			sketch[i] = (sketch[i] >>> 1) & 0x7777777777777777L;
+		additions /= 2;
+	} //}}}
+
+	//{{{ indexOf() method
+	private int indexOf(int hash, int row)
+	{
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & (sketch.length - 1);
+	} //}}}
+
+	//{{{ counterShift() method
+	/** Each row uses its own group of 4 counters in the word. */
+	private static int counterShift(int hash, int row)
+	{
+		int counter = (hash >>> (row << 3)) & 3;
+		return ((row << 2) + counter) << 2;
+	} //}}}
+
+	//{{{ spread() method
+	private static int spread(int hash)
+	{
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	} //}}}
+
+	private static final long[] SEEDS = {
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+		0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	//{{{ Entry class
+	private static class Entry<V>
+	{
+		Entry(V value, int weight, int hash)
+		{
+			this.value = value;
+			this.weight = weight;
+			this.hash = hash;
+		}
+
+		final V value;
+		final int weight;
+		final int hash;
+	} //}}}
+
+	//}}}
+}
@@ -939,17 +939,22 @@ unwind:		while(context.parent != null)
 		//{{{ intern() method
 		public LineContext intern()
 		{
-			WeakReference<LineContext> ref = intern.get(this);
-			if(ref != null)
+			// shared by the token markers of all the modes, which
+			// may run in several threads
+			synchronized(intern)
 			{
-				LineContext obj = ref.get();
-				if(obj != null)
+				WeakReference<LineContext> ref = intern.get(this);
+				if(ref != null)
 				{
-					return obj;
+					LineContext obj = ref.get();
+					if(obj != null)
+					{
+						return obj;
+					}
 				}
+				intern.put(this, new WeakReference<LineContext>(this));
+				return this;
 			}
-			intern.put(this, new WeakReference<LineContext>(this));
-			return this;
 		} //}}}
 
 		//{{{ hashCode() method
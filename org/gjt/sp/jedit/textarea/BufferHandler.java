@@ -97,27 +97,50 @@ class BufferHandler implements BufferListener
 		if(buffer.isLoading())
 			return;
 
-		displayManager.screenLineMgr.contentInserted(startLine,numLines);
+		displayManager.screenLineMgr.contentInserted(buffer.getVersion(),
+			startLine,numLines);
 
 		int endLine = startLine + numLines;
 
 		if(numLines != 0)
 			delayedMultilineUpdate = true;
 
-		displayManager.folds.contentInserted(startLine,numLines);
+		MultiEdit multiEdit = buffer.getMultiEdit();
+		boolean linesPreserved = multiEdit != null && multiEdit.isLinePreserving();
+		if(!linesPreserved)
+		{
+			int modCount = displayManager.folds.getModCount();
+			displayManager.folds.contentInserted(startLine,numLines);
+			if(numLines != 0)
+			{
+				displayManager.screenLineIndex.linesInserted(startLine,
+					numLines,modCount,displayManager.folds.getModCount());
+			}
+		}
+		displayManager.screenLineIndex.contentChanged(buffer.getVersion(),
+			startLine,numLines);
 
 		FirstLine firstLine = displayManager.firstLine;
 		ScrollLineCount scrollLineCount = displayManager.scrollLineCount;
 
 		if(textArea.getDisplayManager() == displayManager)
 		{
-			firstLine.contentInserted(startLine,numLines);
-			scrollLineCount.contentInserted(startLine,numLines);
+			if(!linesPreserved)
+			{
+				firstLine.contentInserted(startLine,numLines);
+				scrollLineCount.contentInserted(startLine,numLines);
 
-			if(delayedUpdateEnd >= startLine)
-				delayedUpdateEnd += numLines;
+				if(delayedUpdateEnd >= startLine)
+					delayedUpdateEnd += numLines;
+			}
 			delayUpdate(startLine,endLine);
 
+			if(multiEdit != null)
+			{
+				multiEditApplied(multiEdit);
+				return;
+			}
+
 			//{{{ resize selections if necessary
 			
 			Iterator<Selection> iter = textArea.getSelectionIterator();
@@ -173,6 +196,10 @@ class BufferHandler implements BufferListener
 		if(buffer.isLoading())
 			return;
 
+		MultiEdit multiEdit = buffer.getMultiEdit();
+		if(multiEdit != null && multiEdit.isLinePreserving())
+			return;
+
 		if(textArea.getDisplayManager() == displayManager)
 		{
 			getReadyToBreakFold(startLine);
@@ -201,6 +228,20 @@ class BufferHandler implements BufferListener
 		FirstLine firstLine = displayManager.firstLine;
 		ScrollLineCount scrollLineCount = displayManager.scrollLineCount;
 
+		MultiEdit multiEdit = buffer.getMultiEdit();
+		if(multiEdit != null && multiEdit.isLinePreserving())
+		{
+			// only the text of some lines changes, so the folds are
+			// kept, and the anchors are computed again afterwards
+			firstLine.setCallReset(true);
+			scrollLineCount.setCallReset(true);
+			if(textArea.getDisplayManager() == displayManager)
+				delayUpdate(startLine,startLine + numLines);
+			if(numLines != 0)
+				delayedMultilineUpdate = true;
+			return;
+		}
+
 		if(textArea.getDisplayManager() == displayManager)
 		{
 			if(numLines == 0)
@@ -239,19 +280,24 @@ class BufferHandler implements BufferListener
 			scrollLineCount.setCallReset(true);
 		}
 
-		displayManager.screenLineMgr.contentRemoved(startLine,numLines);
-
 		if(numLines == 0)
 			return;
 
 		delayedMultilineUpdate = true;
 
+		int modCount = displayManager.folds.getModCount();
 		if(displayManager.folds.preContentRemoved(startLine,numLines))
 		{
 			displayManager.folds.reset(buffer.getLineCount());
+			displayManager.screenLineIndex.invalidate();
 			firstLine.setCallReset(true);
 			scrollLineCount.setCallReset(true);
 		}
+		else
+		{
+			displayManager.screenLineIndex.linesRemoved(startLine,numLines,
+				modCount,displayManager.folds.getModCount());
+		}
 
 		if(firstLine.getPhysicalLine() > displayManager.getLastVisibleLine() ||
 		   firstLine.getPhysicalLine() < displayManager.getFirstVisibleLine() )
@@ -269,9 +315,37 @@ class BufferHandler implements BufferListener
 		if(buffer.isLoading())
 			return;
 
+		// not in preContentRemoved(), the other display managers
+		// sharing the screen line counts may still need the counts
+		// of the removed lines there
+		displayManager.screenLineMgr.contentRemoved(buffer.getVersion(),
+			startLine,numLines);
+
 		FirstLine firstLine = displayManager.firstLine;
 		ScrollLineCount scrollLineCount = displayManager.scrollLineCount;
 
+		MultiEdit multiEdit = buffer.getMultiEdit();
+		// the removed lines were dropped from the index before
+		displayManager.screenLineIndex.contentChanged(buffer.getVersion(),
+			startLine,multiEdit != null && multiEdit.isLinePreserving()
+			? numLines : 0);
+		if(multiEdit != null)
+		{
+			// the selections are moved once the new text is in, or
+			// now if there is no new text
+			if(textArea.getDisplayManager() == displayManager)
+			{
+				if(!multiEdit.isLinePreserving())
+				{
+					firstLine.contentRemoved(startLine,start,numLines);
+					scrollLineCount.contentRemoved(startLine,start,numLines);
+				}
+				if(length + multiEdit.getLengthDelta() == 0)
+					multiEditApplied(multiEdit);
+			}
+			return;
+		}
+
 		if(textArea.getDisplayManager() == displayManager)
 		{
 			firstLine.contentRemoved(startLine,start,numLines);
@@ -409,6 +483,35 @@ class BufferHandler implements BufferListener
 		buffer.getFoldLevel(delayedUpdateEnd);
 	} //}}}
 
+	//{{{ multiEditApplied() method
+	/**
+	 * Moves the selections and the caret after a batch of edits, as if
+	 * the edits were applied one by one. The notified range is usually
+	 * much larger than the edits, and would collapse them.
+	 */
+	private void multiEditApplied(MultiEdit multiEdit)
+	{
+		Iterator<Selection> iter = textArea.getSelectionIterator();
+		while(iter.hasNext())
+		{
+			Selection s = iter.next();
+			if(s.end < multiEdit.getStart())
+				continue;
+
+			s.start = multiEdit.mapOffset(s.start);
+			s.end = multiEdit.mapOffset(s.end);
+			s.startLine = buffer.getLineOfOffset(s.start);
+			s.endLine = buffer.getLineOfOffset(s.end);
+			delayUpdate(s.startLine,s.endLine);
+		}
+
+		int caret = textArea.getCaretPosition();
+		int scrollMode = textArea.caretAutoScroll()
+			? TextArea.ELECTRIC_SCROLL
+			: TextArea.NO_SCROLL;
+		textArea.moveCaretPosition(multiEdit.mapOffset(caret),scrollMode);
+	} //}}}
+
 	//{{{ delayUpdate() method
 	private void delayUpdate(int startLine, int endLine)
 	{
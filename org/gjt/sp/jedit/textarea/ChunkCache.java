@@ -24,7 +24,10 @@
 package org.gjt.sp.jedit.textarea;
 
 //{{{ Imports
+import java.awt.font.FontRenderContext;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.text.TabExpander;
 
@@ -39,7 +42,12 @@ import org.gjt.sp.util.Log;
  * The ChunkCache contains an array of LineInfo object.
  * Each LineInfo object is associated to one screen line of the TextArea and
  * contains informations about this line.
- * The array is resized when the TextArea geometry changes  
+ * The array is resized when the TextArea geometry changes.<p>
+ *
+ * When the text area scrolls, the chunks of the lines just beyond the
+ * visible area, in the scroll direction, are laid out in advance by a
+ * background worker. The AWT thread only installs the prepared chunks,
+ * if they are still valid, when the lines become visible.
  *
  * @author Slava Pestov
  * @version $Id$
@@ -53,6 +61,7 @@ class ChunkCache
 		outFull = new ArrayList<>();
 		outFullPhysicalLine = -1;
 		tokenHandler = new DisplayTokenHandler();
+		prepared = new HashMap<>();
 	} //}}}
 
 	//{{{ getMaxHorizontalScrollWidth() method
@@ -164,6 +173,11 @@ class ChunkCache
 	{
 		this.buffer = buffer;
 		lastScreenLine = lastScreenLineP = -1;
+		synchronized (prepared)
+		{
+			generation++;
+			prepared.clear();
+		}
 	} //}}}
 
 	//{{{ scrollDown() method
@@ -189,6 +203,7 @@ class ChunkCache
 		}
 
 		lastScreenLine = lastScreenLineP = -1;
+		prefetch(true, amount);
 	} //}}}
 
 	//{{{ scrollUp() method
@@ -217,6 +232,7 @@ class ChunkCache
 		}
 
 		lastScreenLine = lastScreenLineP = -1;
+		prefetch(false, amount);
 	} //}}}
 
 	//{{{ invalidateAll() method
@@ -239,6 +255,12 @@ class ChunkCache
 		if(physicalLine == outFullPhysicalLine)
 			outFullPhysicalLine = -1;
 
+		synchronized (prepared)
+		{
+			generation++;
+			prepared.keySet().removeIf(line -> line >= physicalLine);
+		}
+
 		for(int i = 0; i < firstInvalidLine; i++)
 		{
 			LineInfo info = lineInfo[i];
@@ -546,6 +568,9 @@ class ChunkCache
 	 */
 	private int outFullPhysicalLine;
 
+	/** The line context at the end of {@link #outFullPhysicalLine}. */
+	private TokenMarker.LineContext outFullLineContext;
+
 	/** The first invalid line. All lines before this one are valid. */
 	private int firstInvalidLine;
 	private int lastScreenLineP;
@@ -554,6 +579,31 @@ class ChunkCache
 	private boolean needFullRepaint;
 
 	private final DisplayTokenHandler tokenHandler;
+
+	/**
+	 * Chunks laid out by the background worker, by physical line.
+	 * Also used as the lock for {@link #generation}.
+	 */
+	private final Map<Integer, PreparedLine> prepared;
+
+	/**
+	 * Incremented when the buffer content changes. Layout done for an
+	 * older generation may be out of date.
+	 */
+	private int generation;
+
+	/** The last prefetch request, older ones are skipped. */
+	private volatile LayoutRequest lastRequest;
+
+	/** Lays out lines ahead of scrolling, shared by all text areas. */
+	private static final ExecutorService layoutWorker =
+		Executors.newSingleThreadExecutor(r ->
+		{
+			Thread t = new Thread(r, "jEdit chunk layout");
+			t.setDaemon(true);
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			return t;
+		});
 	//}}}
 
 	//{{{ getLineInfosForPhysicalLine() method
@@ -769,7 +819,7 @@ class ChunkCache
 			{
 				/* if the user changes the syntax token at the
 				 * end of a line, need to do a full repaint. */
-				if(tokenHandler.getLineContext() !=
+				if(outFullLineContext !=
 					info.lineContext)
 				{
 					lastScreenLine++;
@@ -802,7 +852,7 @@ class ChunkCache
 			info.offset = offset;
 			info.length = length;
 			info.chunks = chunks;
-			info.lineContext = tokenHandler.getLineContext();
+			info.lineContext = outFullLineContext;
 		}
 
 		firstInvalidLine = Math.max(lastScreenLine + 1,firstInvalidLine);
@@ -818,20 +868,211 @@ class ChunkCache
 		{
 			TextAreaPainter painter = textArea.getPainter();
 			TabExpander expander= textArea.getTabExpander();
-			tokenHandler.init(painter.getStyles(),
-					painter.getFontRenderContext(),
-					expander,outFull,
-					textArea.softWrap
-					? textArea.wrapMargin : 0.0f, buffer.getLineStartOffset(physicalLine));
+			float wrapMargin = textArea.softWrap
+				? textArea.wrapMargin : 0.0f;
 
 			outFull.clear();
-			buffer.markTokens(physicalLine,tokenHandler);
+			PreparedLine line = takePrepared(physicalLine,
+				painter.getStyles(), painter.getFontRenderContext(),
+				expander, wrapMargin);
+			if(line != null)
+			{
+				outFull.addAll(line.chunks);
+				outFullLineContext = line.lineContext;
+			}
+			else
+			{
+				tokenHandler.init(painter.getStyles(),
+						painter.getFontRenderContext(),
+						expander,outFull,
+						wrapMargin, buffer.getLineStartOffset(physicalLine));
+
+				buffer.markTokens(physicalLine,tokenHandler);
+				outFullLineContext = tokenHandler.getLineContext();
+			}
 			outFullPhysicalLine = physicalLine;
 		}
 	} //}}}
 
+	//{{{ takePrepared() method
+	/**
+	 * Returns the chunks laid out in the background for the given line,
+	 * if they were made with the current layout parameters.
+	 */
+	private PreparedLine takePrepared(int physicalLine, SyntaxStyle[] styles,
+		FontRenderContext frc, TabExpander expander, float wrapMargin)
+	{
+		PreparedLine line;
+		synchronized (prepared)
+		{
+			if(prepared.isEmpty())
+				return null;
+			line = prepared.remove(physicalLine);
+		}
+		if(line == null
+			|| line.request.buffer != buffer
+			|| line.request.tokenMarker != buffer.getTokenMarker()
+			|| line.request.styles != styles
+			|| line.request.expander != expander
+			|| line.request.wrapMargin != wrapMargin
+			|| !line.request.frc.equals(frc))
+		{
+			return null;
+		}
+		return line;
+	} //}}}
+
+	//{{{ prefetch() method
+	/**
+	 * Asks the layout worker to prepare the physical lines following
+	 * the visible area when scrolling down, or preceding it when
+	 * scrolling up.
+	 */
+	private void prefetch(boolean down, int amount)
+	{
+		TextAreaPainter painter = textArea.getPainter();
+		TabExpander expander = textArea.getTabExpander();
+		if(buffer.isLoading() || expander != painter)
+			return;
+
+		// the last physical line is not updated yet, we are called
+		// before the screen line changes are notified
+		int count = textArea.getVisibleLines() + amount;
+		int[] lines = new int[count];
+		int line = down ? textArea.getLastPhysicalLine()
+			: textArea.getFirstPhysicalLine();
+		int n = 0;
+		while(n < count)
+		{
+			line = down ? textArea.displayManager.getNextVisibleLine(line)
+				: textArea.displayManager.getPrevVisibleLine(line);
+			if(line == -1)
+				break;
+			lines[n++] = line;
+		}
+		if(n == 0)
+			return;
+
+		int min = Math.min(lines[0], lines[n - 1]);
+		int max = Math.max(lines[0], lines[n - 1]);
+		LayoutRequest request;
+		synchronized (prepared)
+		{
+			// drop what was prepared for the other direction or
+			// for far away lines
+			prepared.keySet().removeIf(l -> l < min || l > max);
+			request = new LayoutRequest(generation, buffer,
+				Arrays.copyOf(lines, n), painter.getStyles(),
+				painter.getFontRenderContext(), expander,
+				textArea.softWrap ? textArea.wrapMargin : 0.0f);
+		}
+		lastRequest = request;
+		layoutWorker.execute(() -> layout(request));
+	} //}}}
+
+	//{{{ layout() method
+	/**
+	 * Runs in the layout worker thread.
+	 */
+	private void layout(LayoutRequest request)
+	{
+		DisplayTokenHandler handler = new DisplayTokenHandler();
+		JEditBuffer buffer = request.buffer;
+		for(int physicalLine : request.lines)
+		{
+			if(lastRequest != request)
+				return;
+
+			synchronized (prepared)
+			{
+				if(request.generation != generation)
+					return;
+				if(prepared.containsKey(physicalLine))
+					continue;
+			}
+
+			List<Chunk> chunks = new ArrayList<>();
+			buffer.readLock();
+			try
+			{
+				if(buffer.isLoading() || physicalLine >= buffer.getLineCount())
+					return;
+				handler.init(request.styles, request.frc,
+					request.expander, chunks, request.wrapMargin,
+					buffer.getLineStartOffset(physicalLine));
+				// serialized by the buffer with the tokenizing
+				// done in the AWT thread
+				buffer.markTokens(physicalLine, handler);
+			}
+			catch(RuntimeException e)
+			{
+				// the text area may have changed under our feet,
+				// the line will be laid out in the AWT thread
+				Log.log(Log.DEBUG, this, e);
+				return;
+			}
+			finally
+			{
+				buffer.readUnlock();
+			}
+
+			synchronized (prepared)
+			{
+				if(request.generation != generation)
+					return;
+				prepared.put(physicalLine, new PreparedLine(request,
+					chunks, handler.getLineContext()));
+			}
+		}
+	} //}}}
+
 	//}}}
 
+	//{{{ LayoutRequest class
+	/** The lines to prepare, and the layout parameters to use. */
+	private static class LayoutRequest
+	{
+		LayoutRequest(int generation, JEditBuffer buffer, int[] lines,
+			SyntaxStyle[] styles, FontRenderContext frc,
+			TabExpander expander, float wrapMargin)
+		{
+			this.generation = generation;
+			this.buffer = buffer;
+			tokenMarker = buffer.getTokenMarker();
+			this.lines = lines;
+			this.styles = styles;
+			this.frc = frc;
+			this.expander = expander;
+			this.wrapMargin = wrapMargin;
+		}
+
+		final int generation;
+		final JEditBuffer buffer;
+		final TokenMarker tokenMarker;
+		final int[] lines;
+		final SyntaxStyle[] styles;
+		final FontRenderContext frc;
+		final TabExpander expander;
+		final float wrapMargin;
+	} //}}}
+
+	//{{{ PreparedLine class
+	/** The chunks of a line laid out by the background worker. */
+	private static class PreparedLine
+	{
+		PreparedLine(LayoutRequest request, List<Chunk> chunks,
+			TokenMarker.LineContext lineContext)
+		{
+			this.request = request;
+			this.chunks = chunks;
+			this.lineContext = lineContext;
+		}
+
+		final LayoutRequest request;
+		final List<Chunk> chunks;
+		final TokenMarker.LineContext lineContext;
+	} //}}}
+
 	//{{{ LineInfo class
 	/**
 	 * The informations on a line. (for fast access)
@@ -80,6 +80,7 @@ public class DisplayManager
 	public static void bufferClosed(JEditBuffer buffer)
 	{
 		bufferMap.remove(buffer);
+		ScreenLineManager.bufferClosed(buffer);
 	} //}}}
 
 	//{{{ textAreaDisposed() method
@@ -342,7 +343,9 @@ public class DisplayManager
 	 */
 	public void expandAllFolds()
 	{
-		showLineRange(0,buffer.getLineCount() - 1);
+		folds.reset(buffer.getLineCount());
+		firstLine.setCallReset(true);
+		scrollLineCount.setCallReset(true);
 		notifyScreenLineChanges();
 		textArea.foldStructureChanged();
 	} //}}}
@@ -377,7 +380,12 @@ public class DisplayManager
 
 		int lineCount = buffer.getLineCount();
 		int end = lineCount - 1;
-		showLineRange(0,end);
+		int physicalLine = firstLine.getPhysicalLine();
+
+		// the fold visibility map is built in one pass, from the first
+		// line to the last, and the anchors are computed again
+		// afterwards, instead of being moved for each fold
+		folds.reset(lineCount);
 
 		int leastFolded = -1;
 		int firstInvisible = 0;
@@ -396,17 +404,25 @@ public class DisplayManager
 			if (level < foldLevel || level == leastFolded)
 			{
 				if(firstInvisible != i)
-				{
-					hideLineRange(firstInvisible,
-						i - 1);
-				}
+					folds.hide(firstInvisible,i - 1);
 				firstInvisible = i + 1;
 			}
 		}
 
 		if(firstInvisible != lineCount)
-			hideLineRange(firstInvisible,end);
+			folds.hide(firstInvisible,end);
 
+		// if the first line is hidden, show the start of its fold,
+		// like hideLineRange()
+		if(!isLineVisible(physicalLine))
+		{
+			int prevLine = getPrevVisibleLine(physicalLine);
+			firstLine.setPhysicalLine(prevLine == -1
+				? getFirstVisibleLine() : prevLine);
+			firstLine.setSkew(0);
+		}
+		firstLine.setCallReset(true);
+		scrollLineCount.setCallReset(true);
 		notifyScreenLineChanges();
 		if(update && textArea.getDisplayManager() == this)
 		{
@@ -460,8 +476,10 @@ public class DisplayManager
 	//{{{ Package-private members
 	final FirstLine firstLine;
 	final ScrollLineCount scrollLineCount;
-	final ScreenLineManager screenLineMgr;
+	/** Shared with the text areas having the same layout. */
+	ScreenLineManager screenLineMgr;
 	final RangeMap folds;
+	final ScreenLineIndex screenLineIndex;
 
 	//{{{ init() method
 	void init()
@@ -470,6 +488,10 @@ public class DisplayManager
 		// DisplayManager is active in it.
 		assert textArea.getDisplayManager() == this;
 
+		// the text area may have changed since this display manager
+		// was last used
+		updateScreenLineLayout();
+
 		if(buffer.isLoading())
 			// init() will be called later from bufferLoaded().
 			return;
@@ -509,6 +531,14 @@ public class DisplayManager
 
 		try
 		{
+			// the scroll line count first, FirstLine.reset() updates
+			// the scroll bar, which would otherwise clamp the first
+			// line to the old count
+			if(scrollLineCount.isCallReset())
+				scrollLineCount.reset();
+			else if(scrollLineCount.isCallChanged())
+				scrollLineCount.changed();
+
 			if(firstLine.isCallReset())
 				firstLine.reset();
 			else if(firstLine.isCallChanged())
@@ -516,12 +546,9 @@ public class DisplayManager
 
 			if(scrollLineCount.isCallReset())
 			{
-				scrollLineCount.reset();
 				//FIXME: Why here?
 				firstLine.ensurePhysicalLineIsVisible();
 			}
-			else if(scrollLineCount.isCallChanged())
-				scrollLineCount.changed();
 
 			if(firstLine.isCallChanged() ||
 			   scrollLineCount.isCallReset() ||
@@ -627,12 +654,76 @@ public class DisplayManager
 		notifyScreenLineChanges();
 	} //}}}
 
-	//{{{ invalidateScreenLineCounts() method
-	void invalidateScreenLineCounts()
+	//{{{ updateScreenLineLayout() method
+	/**
+	 * Uses the screen line counts of the current layout of the text
+	 * area, shared with the other text areas having the same layout.
+	 * @return true if the layout changed, the screen lines must then be
+	 * computed again
+	 * @since jEdit 5.7pre1
+	 */
+	boolean updateScreenLineLayout()
 	{
-		screenLineMgr.invalidateScreenLineCounts();
+		ScreenLineManager.Layout layout = textArea.getScreenLineLayout();
+		if(layout.equals(screenLineMgr.getLayout()))
+			return false;
+
+		screenLineMgr.release();
+		screenLineMgr = ScreenLineManager.acquire(buffer,layout);
 		firstLine.setCallReset(true);
 		scrollLineCount.setCallReset(true);
+		return true;
+	} //}}}
+
+	//{{{ getScreenLineIndex() method
+	/**
+	 * Returns the index of the scroll line of each physical line.
+	 * @param build If the index must be built when it is out of date,
+	 * which takes a time linear in the number of lines
+	 * @return the index, or null if it is out of date and
+	 * <code>build</code> is false
+	 * @since jEdit 5.7pre1
+	 */
+	ScreenLineIndex getScreenLineIndex(boolean build)
+	{
+		assert textArea.getDisplayManager() == this;
+
+		int lineCount = buffer.getLineCount();
+		if(screenLineIndex.isUpToDate(buffer.getVersion(),
+			folds.getModCount(),screenLineMgr,lineCount))
+		{
+			for(int i = 0; i < screenLineIndex.getChangedRangeCount(); i++)
+			{
+				int end = Math.min(screenLineIndex.getChangedRangeEnd(i),
+					lineCount - 1);
+				for(int line = screenLineIndex.getChangedRangeStart(i);
+					line <= end; line++)
+				{
+					screenLineIndex.set(line,isLineVisible(line)
+						? getScreenLineCount(line) : 0);
+				}
+			}
+			screenLineIndex.clearChangedRanges();
+			return screenLineIndex;
+		}
+
+		if(!build)
+			return null;
+
+		if(Debug.SCROLL_DEBUG)
+			Log.log(Log.DEBUG,this,"getScreenLineIndex(): building");
+
+		int[] values = new int[lineCount];
+		int line = getFirstVisibleLine();
+		while(line != -1)
+		{
+			values[line] = getScreenLineCount(line);
+			line = getNextVisibleLine(line);
+		}
+		screenLineIndex.reset(values,lineCount);
+		screenLineIndex.setUpToDate(buffer.getVersion(),
+			folds.getModCount(),screenLineMgr);
+		return screenLineIndex;
 	} //}}}
 
 	//{{{ updateScreenLineCount() method
@@ -714,8 +805,10 @@ public class DisplayManager
 		DisplayManager copy)
 	{
 		this.buffer = buffer;
-		screenLineMgr = new ScreenLineManager(buffer);
+		screenLineMgr = ScreenLineManager.acquire(buffer,
+			textArea.getScreenLineLayout());
 		this.textArea = textArea;
+		screenLineIndex = new ScreenLineIndex();
 
 		scrollLineCount = new ScrollLineCount(this,textArea);
 		firstLine = new FirstLine(this,textArea);
@@ -749,6 +842,7 @@ public class DisplayManager
 	//{{{ dispose() method
 	private void dispose()
 	{
+		screenLineMgr.release();
 		buffer.removeBufferListener(bufferHandler);
 		buffer.removeBufferListener(elasticTabStopListener);
 	} //}}}
@@ -779,7 +873,9 @@ public class DisplayManager
 		}
 
 		/* update fold visibility map. */
+		int modCount = folds.getModCount();
 		folds.show(start,end);
+		screenLineIndex.foldsChanged(modCount,folds.getModCount(),start,end);
 	} //}}}
 
 	//{{{ hideLineRange() method
@@ -811,7 +907,9 @@ public class DisplayManager
 		scrollLineCount.moveScrollLine(scrollLines);
 
 		/* update fold visibility map. */
+		int modCount = folds.getModCount();
 		folds.hide(start,end);
+		screenLineIndex.foldsChanged(modCount,folds.getModCount(),start,end);
 
 		if(!isLineVisible(firstLine.getPhysicalLine()))
 		{
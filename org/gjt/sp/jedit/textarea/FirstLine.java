@@ -42,6 +42,12 @@ class FirstLine extends Anchor
 	private int skew;
 	private int preContentRemovedNumLines;
 
+	/**
+	 * From this number of lines, scrolling builds the screen line index
+	 * if it is out of date, instead of walking the lines.
+	 */
+	private static final int INDEX_SCROLL_AMOUNT = 1000;
+
 	//{{{ FirstLine constructor
 	FirstLine(DisplayManager displayManager,
 		TextArea textArea)
@@ -240,27 +246,26 @@ class FirstLine extends Anchor
 		if(Debug.SCROLL_DEBUG)
 			Log.log(Log.DEBUG,this,"reset()");
 
+		DisplayManager displayManager = getDisplayManager();
+		ScreenLineIndex index = displayManager.getScreenLineIndex(true);
 		int currentPhysicalLine = getPhysicalLine();
 
-		int physicalLine = getDisplayManager().getFirstVisibleLine();
-		int scrollLine = 0;
-
-		while(physicalLine != -1)
+		// the first visible line from the current one, or the last
+		// visible line
+		int physicalLine = displayManager.getFirstVisibleLine();
+		if(currentPhysicalLine > physicalLine)
 		{
-			if(physicalLine >= currentPhysicalLine)
-				break;
-
-			scrollLine += getDisplayManager().getScreenLineCount(physicalLine);
-
-			int nextLine = getDisplayManager().getNextVisibleLine(physicalLine);
-			if(nextLine == -1)
-				break;
+			int lastVisibleLine = displayManager.getLastVisibleLine();
+			if(currentPhysicalLine > lastVisibleLine)
+				physicalLine = lastVisibleLine;
+			else if(displayManager.isLineVisible(currentPhysicalLine))
+				physicalLine = currentPhysicalLine;
 			else
-				physicalLine = nextLine;
+				physicalLine = displayManager.getNextVisibleLine(currentPhysicalLine);
 		}
 
 		setPhysicalLine(physicalLine);
-		setScrollLine(scrollLine);
+		setScrollLine(index.getScrollLine(physicalLine));
 
 		int screenLines = getDisplayManager().getScreenLineCount(physicalLine);
 		if(getSkew() >= screenLines)
@@ -284,40 +289,63 @@ class FirstLine extends Anchor
 
 		setSkew(0);
 
-		if(!getDisplayManager().isLineVisible(currentPhysicalLine))
+		ScreenLineIndex index = getDisplayManager().getScreenLineIndex(
+			amount >= INDEX_SCROLL_AMOUNT);
+		if(index != null)
 		{
-			int lastVisibleLine = getDisplayManager().getLastVisibleLine();
-			if(currentPhysicalLine > lastVisibleLine)
-				setPhysicalLine(lastVisibleLine);
-			else
+			DisplayManager displayManager = getDisplayManager();
+			// the last visible line in the amount, or the next
+			// visible line if there is none
+			int physicalLine = Math.min(currentPhysicalLine + amount,
+				displayManager.getBuffer().getLineCount() - 1);
+			if(!displayManager.isLineVisible(physicalLine))
+				physicalLine = displayManager.getPrevVisibleLine(physicalLine);
+			if(physicalLine < currentPhysicalLine)
 			{
-				int nextPhysicalLine = getDisplayManager().getNextVisibleLine(currentPhysicalLine);
-				assert nextPhysicalLine > 0;
-				amount -= nextPhysicalLine - currentPhysicalLine;
-				moveScrollLine(getDisplayManager().getScreenLineCount(currentPhysicalLine));
-				setPhysicalLine(nextPhysicalLine);
+				physicalLine = displayManager.getNextVisibleLine(currentPhysicalLine);
+				if(physicalLine == -1)
+					physicalLine = displayManager.getLastVisibleLine();
 			}
+			setPhysicalLine(physicalLine);
+			setScrollLine(index.getScrollLine(physicalLine));
 		}
-
-		currentPhysicalLine = getPhysicalLine();
-		int scrollLines = 0;
-		while (true)
+		else
 		{
-			int nextPhysicalLine = getDisplayManager().getNextVisibleLine(currentPhysicalLine);
+			if(!getDisplayManager().isLineVisible(currentPhysicalLine))
+			{
+				int lastVisibleLine = getDisplayManager().getLastVisibleLine();
+				if(currentPhysicalLine > lastVisibleLine)
+					setPhysicalLine(lastVisibleLine);
+				else
+				{
+					int nextPhysicalLine = getDisplayManager().getNextVisibleLine(currentPhysicalLine);
+					assert nextPhysicalLine > 0;
+					amount -= nextPhysicalLine - currentPhysicalLine;
+					moveScrollLine(getDisplayManager().getScreenLineCount(currentPhysicalLine));
+					setPhysicalLine(nextPhysicalLine);
+				}
+			}
 
-			if(nextPhysicalLine == -1)
-				break;
-			else if(nextPhysicalLine > currentPhysicalLine + amount)
-				break;
-			else
+			currentPhysicalLine = getPhysicalLine();
+			int scrollLines = 0;
+			while (true)
 			{
-				scrollLines += getDisplayManager().getScreenLineCount(currentPhysicalLine);
-				amount -= nextPhysicalLine - currentPhysicalLine;
-				currentPhysicalLine = nextPhysicalLine;
+				int nextPhysicalLine = getDisplayManager().getNextVisibleLine(currentPhysicalLine);
+
+				if(nextPhysicalLine == -1)
+					break;
+				else if(nextPhysicalLine > currentPhysicalLine + amount)
+					break;
+				else
+				{
+					scrollLines += getDisplayManager().getScreenLineCount(currentPhysicalLine);
+					amount -= nextPhysicalLine - currentPhysicalLine;
+					currentPhysicalLine = nextPhysicalLine;
+				}
 			}
+			setPhysicalLine(currentPhysicalLine);
+			moveScrollLine(scrollLines);
 		}
-		setPhysicalLine(currentPhysicalLine);
-		moveScrollLine(scrollLines);
 
 		if(Debug.SCROLL_DEBUG)
 		{
@@ -346,36 +374,58 @@ class FirstLine extends Anchor
 		setSkew(0);
 
 		int currentPhysicalLine = getPhysicalLine();
-		if(!getDisplayManager().isLineVisible(currentPhysicalLine))
+		ScreenLineIndex index = getDisplayManager().getScreenLineIndex(
+			amount >= INDEX_SCROLL_AMOUNT);
+		if(index != null)
 		{
-			int firstVisibleLine = getDisplayManager().getFirstVisibleLine();
-			if(currentPhysicalLine < firstVisibleLine)
-				setPhysicalLine(firstVisibleLine);
-			else
+			DisplayManager displayManager = getDisplayManager();
+			// the first visible line in the amount, or the previous
+			// visible line if there is none
+			int physicalLine = Math.max(currentPhysicalLine - amount,0);
+			if(!displayManager.isLineVisible(physicalLine))
+				physicalLine = displayManager.getNextVisibleLine(physicalLine);
+			if(physicalLine == -1 || physicalLine > currentPhysicalLine)
 			{
-				int prevPhysicalLine = getDisplayManager().getPrevVisibleLine(currentPhysicalLine);
-				amount -= currentPhysicalLine - prevPhysicalLine;
+				physicalLine = displayManager.getPrevVisibleLine(currentPhysicalLine);
+				if(physicalLine == -1)
+					physicalLine = displayManager.getFirstVisibleLine();
 			}
+			setPhysicalLine(physicalLine);
+			setScrollLine(index.getScrollLine(physicalLine));
 		}
-
-		currentPhysicalLine = getPhysicalLine();
-		int scrollLines = 0;
-		while (true)
+		else
 		{
-			int prevPhysicalLine = getDisplayManager().getPrevVisibleLine(currentPhysicalLine);
-			if(prevPhysicalLine == -1)
-				break;
-			else if(prevPhysicalLine < currentPhysicalLine - amount)
-				break;
-			else
+			if(!getDisplayManager().isLineVisible(currentPhysicalLine))
+			{
+				int firstVisibleLine = getDisplayManager().getFirstVisibleLine();
+				if(currentPhysicalLine < firstVisibleLine)
+					setPhysicalLine(firstVisibleLine);
+				else
+				{
+					int prevPhysicalLine = getDisplayManager().getPrevVisibleLine(currentPhysicalLine);
+					amount -= currentPhysicalLine - prevPhysicalLine;
+				}
+			}
+
+			currentPhysicalLine = getPhysicalLine();
+			int scrollLines = 0;
+			while (true)
 			{
-				scrollLines -= getDisplayManager().getScreenLineCount(prevPhysicalLine);
-				amount -= currentPhysicalLine - prevPhysicalLine;
-				currentPhysicalLine = prevPhysicalLine;
+				int prevPhysicalLine = getDisplayManager().getPrevVisibleLine(currentPhysicalLine);
+				if(prevPhysicalLine == -1)
+					break;
+				else if(prevPhysicalLine < currentPhysicalLine - amount)
+					break;
+				else
+				{
+					scrollLines -= getDisplayManager().getScreenLineCount(prevPhysicalLine);
+					amount -= currentPhysicalLine - prevPhysicalLine;
+					currentPhysicalLine = prevPhysicalLine;
+				}
 			}
+			setPhysicalLine(currentPhysicalLine);
+			moveScrollLine(scrollLines);
 		}
-		setPhysicalLine(currentPhysicalLine);
-		moveScrollLine(scrollLines);
 
 		if(Debug.SCROLL_DEBUG)
 		{
@@ -400,6 +450,15 @@ class FirstLine extends Anchor
 
 		ensurePhysicalLineIsVisible();
 
+		ScreenLineIndex index = getDisplayManager().getScreenLineIndex(
+			amount >= INDEX_SCROLL_AMOUNT);
+		if(index != null)
+		{
+			setScrollPosition(index,index.getScrollLine(getPhysicalLine())
+				+ getSkew() + amount);
+			return;
+		}
+
 		amount += getSkew();
 
 		setSkew(0);
@@ -441,7 +500,14 @@ class FirstLine extends Anchor
 
 		ensurePhysicalLineIsVisible();
 
-		if(amount <= getSkew())
+		ScreenLineIndex index = getDisplayManager().getScreenLineIndex(
+			amount >= INDEX_SCROLL_AMOUNT);
+		if(index != null)
+		{
+			setScrollPosition(index,index.getScrollLine(getPhysicalLine())
+				+ getSkew() - amount);
+		}
+		else if(amount <= getSkew())
 		{
 			// the amount is less than the skew, so we stay in the same like, just going
 			// upper
@@ -484,6 +550,30 @@ class FirstLine extends Anchor
 			Log.log(Log.DEBUG,this,"scrollUp() after:" + this);
 	} //}}}
 
+	//{{{ setScrollPosition() method
+	/**
+	 * Moves to a scroll bar position, found with the screen line index.
+	 * A position before the first line is moved to the first line, and
+	 * a position after the last line to the start of the last line.
+	 */
+	private void setScrollPosition(ScreenLineIndex index, int position)
+	{
+		if(position >= index.getScrollLineCount())
+		{
+			int physicalLine = getDisplayManager().getLastVisibleLine();
+			setPhysicalLine(physicalLine);
+			setScrollLine(index.getScrollLine(physicalLine));
+			setSkew(0);
+			return;
+		}
+
+		int physicalLine = index.getPhysicalLine(Math.max(position,0));
+		int scrollLine = index.getScrollLine(physicalLine);
+		setPhysicalLine(physicalLine);
+		setScrollLine(scrollLine);
+		setSkew(Math.max(position - scrollLine,0));
+	} //}}}
+
 	//{{{ ensurePhysicalLineIsVisible() method
 	void ensurePhysicalLineIsVisible()
 	{
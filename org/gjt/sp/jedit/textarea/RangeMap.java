@@ -39,6 +39,14 @@ import org.gjt.sp.util.Log;
  * Collapsed fold from a to b: { 0, a + 1, b, buffer.getLineCount() }
  *
  * Note: length is always even.
+ *
+ * The array has a gap, like the line end offsets of the buffer's line
+ * manager: the entries before <code>gapStart</code> are stored as is,
+ * and <code>delta</code> must be added to the stored entries after the
+ * gap. Replacing entries, and shifting the lines after an insertion or a
+ * removal, only move the gap, so the folds expanded or collapsed in order,
+ * in either direction, and the edits made near each other, do not copy
+ * nor update the whole array.
  */
 class RangeMap
 {
@@ -47,6 +55,8 @@ class RangeMap
 	{
 		fvm = new int[2];
 		lastfvmget = -1;
+		gapStart = 0;
+		gapLength = 2;
 	} //}}}
 
 	//{{{ RangeMap constructor
@@ -54,6 +64,20 @@ class RangeMap
 	{
 		this.fvm = copy.fvm.clone();
 		this.fvmcount = copy.fvmcount;
+		this.gapStart = copy.gapStart;
+		this.gapLength = copy.gapLength;
+		this.delta = copy.delta;
+	} //}}}
+
+	//{{{ getModCount() method
+	/**
+	 * @return the number of changes of the map, which can be used to
+	 * know if the visible lines changed
+	 * @since jEdit 5.7pre1
+	 */
+	int getModCount()
+	{
+		return modCount;
 	} //}}}
 
 	//{{{ reset() method
@@ -63,24 +87,28 @@ class RangeMap
 		fvmcount = 2;
 		fvm[0] = 0;
 		fvm[1] = lines;
+		gapStart = 2;
+		gapLength = fvm.length - 2;
+		delta = 0;
+		modCount++;
 	} //}}}
 
 	//{{{ first() method
 	int first()
 	{
-		return fvm[0];
+		return get(0);
 	} //}}}
 
 	//{{{ last() method
 	int last()
 	{
-		return fvm[fvmcount - 1] - 1;
+		return get(fvmcount - 1) - 1;
 	} //}}}
 
 	//{{{ lookup() method
 	int lookup(int index)
 	{
-		return fvm[index];
+		return get(index);
 	} //}}}
 
 	//{{{ search() method
@@ -89,20 +117,28 @@ class RangeMap
 	 */
 	int search(int line)
 	{
-		if(line < fvm[0])
+		if(line < get(0))
 			return -1;
-		if(line >= fvm[fvmcount - 1])
+		if(line >= get(fvmcount - 1))
 			return fvmcount - 1;
 
 		if(lastfvmget != -1)
 		{
-			if(line >= fvm[lastfvmget])
+			if(line >= get(lastfvmget))
 			{
 				if(lastfvmget == fvmcount - 1
-					|| line < fvm[lastfvmget + 1])
+					|| line < get(lastfvmget + 1))
 				{
 					return lastfvmget;
 				}
+
+				// the lines are often walked in order, try the
+				// next range before searching
+				if(lastfvmget + 2 >= fvmcount
+					|| line < get(lastfvmget + 2))
+				{
+					return ++lastfvmget;
+				}
 			}
 		}
 
@@ -117,7 +153,7 @@ loop:		for(;;)
 				lastfvmget = start;
 				break loop;
 			case 1:
-				int value = fvm[end];
+				int value = get(end);
 				if(value <= line)
 					lastfvmget = end;
 				else
@@ -125,7 +161,7 @@ loop:		for(;;)
 				break loop;
 			default:
 				int pivot = (end + start) / 2;
-				value = fvm[pivot];
+				value = get(pivot);
 				if(value == line)
 				{
 					lastfvmget = pivot;
@@ -169,27 +205,32 @@ loop:		for(;;)
 		}
 		int putl = put == null ? 0 : put.length;
 
-		int delta = putl - (end - start);
-		if(fvmcount + delta > fvm.length)
-		{
-			int[] newfvm = new int[(fvm.length << 1) + 1];
-			System.arraycopy(fvm,0,newfvm,0,fvmcount);
-			fvm = newfvm;
-		}
+		// the replaced entries join the gap
+		moveGap(end);
+		gapStart = start;
+		gapLength += end - start;
+		fvmcount -= end - start;
 
-		if(delta != 0)
+		if(putl > gapLength)
 		{
-			System.arraycopy(fvm,end,fvm,start + putl,
-				fvmcount - end);
+			int tail = fvmcount - start;
+			int[] newfvm = new int[Math.max((fvm.length << 1) + 1,
+				fvmcount + putl)];
+			System.arraycopy(fvm,0,newfvm,0,start);
+			System.arraycopy(fvm,start + gapLength,newfvm,
+				newfvm.length - tail,tail);
+			gapLength = newfvm.length - fvmcount;
+			fvm = newfvm;
 		}
 
 		if(putl != 0)
 		{
-			System.arraycopy(put,0,fvm,start,put.length);
+			System.arraycopy(put,0,fvm,start,putl);
+			gapStart += putl;
+			gapLength -= putl;
+			fvmcount += putl;
 		}
 
-		fvmcount += delta;
-
 		dump();
 
 		if(fvmcount == 0)
@@ -207,9 +248,9 @@ loop:		for(;;)
 			Log.log(Log.DEBUG,this,"*fvmput2(" + starti + ","
 				+ endi + "," + start + "," + end + ")");
 		}
-		if(starti != -1 && fvm[starti] == start)
+		if(starti != -1 && get(starti) == start)
 		{
-			if(endi <= fvmcount - 2 && fvm[endi + 1]
+			if(endi <= fvmcount - 2 && get(endi + 1)
 				== end + 1)
 			{
 				put(starti,endi + 2,null);
@@ -222,7 +263,7 @@ loop:		for(;;)
 		}
 		else
 		{
-			if(endi != fvmcount - 1 && fvm[endi + 1]
+			if(endi != fvmcount - 1 && get(endi + 1)
 				== end + 1)
 			{
 				put(starti + 1,endi + 2,
@@ -249,17 +290,17 @@ loop:		for(;;)
 				return - 1;
 			/* start of next expanded range */
 			else
-				return fvm[index + 1];
+				return get(index + 1);
 		}
 		/* last in expanded range */
-		else if(line == fvm[index + 1] - 1)
+		else if(line == get(index + 1) - 1)
 		{
 			/* equal to last visible line */
 			if(fvmcount == index + 2)
 				return -1;
 			/* start of next expanded range */
 			else
-				return fvm[index + 2];
+				return get(index + 2);
 		}
 		/* next in expanded range */
 		else
@@ -277,17 +318,17 @@ loop:		for(;;)
 		else if(index % 2 == 1)
 		{
 			/* end of prev expanded range */
-			return fvm[index] - 1;
+			return get(index) - 1;
 		}
 		/* first in expanded range */
-		else if(line == fvm[index])
+		else if(line == get(index))
 		{
 			/* equal to first visible line */
 			if(index == 0)
 				return -1;
 			/* end of prev expanded range */
 			else
-				return fvm[index - 1] - 1;
+				return get(index - 1) - 1;
 		}
 		/* prev in expanded range */
 		else
@@ -307,12 +348,12 @@ loop:		for(;;)
 			else
 			{
 				if(endi != fvmcount - 1
-					&& fvm[endi + 1] == end + 1)
+					&& get(endi + 1) == end + 1)
 					put(starti + 1,endi + 2,null);
 				else
 				{
 					put(starti + 1,endi,null);
-					fvm[starti + 1] = end + 1;
+					set(starti + 1,end + 1);
 				}
 			}
 		}
@@ -320,12 +361,12 @@ loop:		for(;;)
 		{
 			if(endi % 2 == 0)
 			{
-				if(starti != -1 && fvm[starti] == start)
+				if(starti != -1 && get(starti) == start)
 					put(starti,endi + 1,null);
 				else
 				{
 					put(starti + 1,endi,null);
-					fvm[starti + 1] = start;
+					set(starti + 1,start);
 				}
 			}
 			else
@@ -333,6 +374,7 @@ loop:		for(;;)
 		}
 
 		lastfvmget = -1;
+		modCount++;
 	} //}}}
 	
 	//{{{ hide() method
@@ -347,12 +389,12 @@ loop:		for(;;)
 				put2(starti,endi,start,end);
 			else
 			{
-				if(start == fvm[0])
+				if(start == get(0))
 					put(starti,endi + 1,null);
 				else
 				{
 					put(starti + 1,endi,null);
-					fvm[starti + 1] = start;
+					set(starti + 1,start);
 				}
 			}
 		}
@@ -360,12 +402,12 @@ loop:		for(;;)
 		{
 			if(endi % 2 == 0)
 			{
-				if(end + 1 == fvm[fvmcount - 1])
+				if(end + 1 == get(fvmcount - 1))
 					put(starti + 1,endi + 2,null);
 				else
 				{
 					put(starti + 1,endi,null);
-					fvm[starti + 1] = end + 1;
+					set(starti + 1,end + 1);
 				}
 			}
 			else
@@ -373,6 +415,7 @@ loop:		for(;;)
 		}
 
 		lastfvmget = -1;
+		modCount++;
 	} //}}}
 
 	//{{{ count() method
@@ -391,7 +434,7 @@ loop:		for(;;)
 			{
 				if(i != 0)
 					buf.append(',');
-				buf.append(fvm[i]);
+				buf.append(get(i));
 			}
 			buf.append('}');
 			Log.log(Log.DEBUG,this,"fvm = " + buf);
@@ -404,12 +447,11 @@ loop:		for(;;)
 		if(numLines != 0)
 		{
 			int index = search(startLine);
-			int start = index + 1;
-
-			for(int i = start; i < fvmcount; i++)
-				fvm[i] += numLines;
+			moveGap(index + 1);
+			delta += numLines;
 
 			lastfvmget = -1;
+			modCount++;
 			dump();
 		}
 	} //}}}
@@ -447,7 +489,7 @@ loop:		for(;;)
 			}
 		}
 		/* collapse 2 */
-		else if(starti != -1 && fvm[starti] == startLine)
+		else if(starti != -1 && get(starti) == startLine)
 		{
 			if(endi - starti == fvmcount - 1)
 			{
@@ -464,23 +506,82 @@ loop:		for(;;)
 		else
 		{
 			put(starti + 1,endi,null);
-			fvm[starti + 1] = startLine;
+			set(starti + 1,startLine);
 			starti += 2;
 		}
 
 		/* update */
-		for(int i = starti; i < fvmcount; i++)
-			fvm[i] -= numLines;
+		moveGap(Math.min(starti,fvmcount));
+		delta -= numLines;
 
 		lastfvmget = -1;
+		modCount++;
 		dump();
 
 		return returnValue;
 	} //}}}
 
 	//{{{ Private members
+	/** The entries, with a gap of <code>gapLength</code> entries. */
 	private int[] fvm;
 	private int fvmcount;
 	private int lastfvmget;
+	private int modCount;
+	private int gapStart;
+	private int gapLength;
+	/** Added to the entries after the gap. */
+	private int delta;
+
+	//{{{ get() method
+	private int get(int index)
+	{
+		if(index < gapStart)
+			return fvm[index];
+		return fvm[index + gapLength] + delta;
+	} //}}}
+
+	//{{{ set() method
+	private void set(int index, int value)
+	{
+		if(index < gapStart)
+			fvm[index] = value;
+		else
+			fvm[index + gapLength] = value - delta;
+	} //}}}
+
+	//{{{ moveGap() method
+	/**
+	 * Moves the gap before an entry, in time proportional to the
+	 * number of entries it moves over.
+	 */
+	private void moveGap(int index)
+	{
+		if(index < gapStart)
+		{
+			int count = gapStart - index;
+			System.arraycopy(fvm,index,fvm,index + gapLength,count);
+			if(delta != 0)
+			{
+				for(int i = index + gapLength;
+					i < gapStart + gapLength; i++)
+				{
+					fvm[i] -= delta;
+				}
+			}
+		}
+		else if(index > gapStart)
+		{
+			int count = index - gapStart;
+			System.arraycopy(fvm,gapStart + gapLength,fvm,gapStart,
+				count);
+			if(delta != 0)
+			{
+				for(int i = gapStart; i < index; i++)
+					fvm[i] += delta;
+			}
+		}
+		gapStart = index;
+	} //}}}
+
 	//}}}
 }
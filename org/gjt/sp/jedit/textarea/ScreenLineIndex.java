@@ -0,0 +1,379 @@
+/*
+ * ScreenLineIndex.java - Scroll line of each physical line
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+//{{{ Imports
+import java.util.Arrays;
+//}}}
+
+/**
+ * The number of screen lines of each physical line of a display manager,
+ * 0 for the hidden lines, in a Fenwick tree. The scroll line of a physical
+ * line, the physical line at a scroll line and the number of scroll lines
+ * are found in logarithmic time, instead of walking the lines.<p>
+ *
+ * The index is built by {@link DisplayManager#getScreenLineIndex(boolean)}
+ * and kept up to date on the edits and on the fold changes: the values of
+ * the lines after the inserted or removed lines are moved, the changed
+ * lines are marked, and their values are updated on the next request. Any
+ * other change makes the index out of date, and it is built again on the
+ * next request which needs it.
+ *
+ * @since jEdit 5.7pre1
+ */
+class ScreenLineIndex
+{
+	//{{{ ScreenLineIndex constructor
+	ScreenLineIndex()
+	{
+		values = new int[0];
+		tree = new int[1];
+		dirty = new int[16];
+	} //}}}
+
+	//{{{ reset() method
+	/**
+	 * Sets the values of all the lines.
+	 * @param values The screen line count of each line, 0 if hidden
+	 * @param size The number of lines
+	 */
+	void reset(int[] values, int size)
+	{
+		if(this.values.length < size)
+		{
+			this.values = new int[size];
+			tree = new int[size + 1];
+		}
+		System.arraycopy(values,0,this.values,0,size);
+		this.size = size;
+		buildTree();
+		clearChangedRanges();
+	} //}}}
+
+	//{{{ getSize() method
+	int getSize()
+	{
+		return size;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * @return the screen line count of a line, 0 if it is hidden
+	 */
+	int get(int line)
+	{
+		return values[line];
+	} //}}}
+
+	//{{{ set() method
+	void set(int line, int value)
+	{
+		int delta = value - values[line];
+		if(delta == 0)
+			return;
+		values[line] = value;
+		for(int i = line + 1; i <= size; i += i & -i)
+			tree[i] += delta;
+	} //}}}
+
+	//{{{ getScrollLine() method
+	/**
+	 * @return the number of screen lines before a physical line
+	 */
+	int getScrollLine(int line)
+	{
+		int sum = 0;
+		for(int i = line; i > 0; i -= i & -i)
+			sum += tree[i];
+		return sum;
+	} //}}}
+
+	//{{{ getScrollLineCount() method
+	/**
+	 * @return the number of screen lines of all the lines
+	 */
+	int getScrollLineCount()
+	{
+		return getScrollLine(size);
+	} //}}}
+
+	//{{{ getPhysicalLine() method
+	/**
+	 * Returns the physical line containing a scroll line, that is the
+	 * visible line whose screen lines include it.
+	 * @param scrollLine The scroll line, at least 0
+	 * @return the physical line, or the number of lines if the scroll
+	 * line is after the last one
+	 */
+	int getPhysicalLine(int scrollLine)
+	{
+		// descend the tree, keeping the last line whose scroll line
+		// is not after the searched one
+		int line = 0;
+		int remaining = scrollLine;
+		for(int step = Integer.highestOneBit(Math.max(size,1));
+			step != 0; step >>= 1)
+		{
+			int next = line + step;
+			if(next <= size && tree[next] <= remaining)
+			{
+				line = next;
+				remaining -= tree[next];
+			}
+		}
+		return line;
+	} //}}}
+
+	//{{{ isUpToDate() method
+	/**
+	 * @return true if the index was built or updated for these versions
+	 * of the buffer, of the folds and of the screen line counts
+	 */
+	boolean isUpToDate(long version, int foldsModCount,
+		ScreenLineManager screenLineMgr, int lineCount)
+	{
+		return valid && version == this.version
+			&& foldsModCount == this.foldsModCount
+			&& screenLineMgr == this.screenLineMgr
+			&& lineCount == size;
+	} //}}}
+
+	//{{{ setUpToDate() method
+	void setUpToDate(long version, int foldsModCount,
+		ScreenLineManager screenLineMgr)
+	{
+		this.version = version;
+		this.foldsModCount = foldsModCount;
+		this.screenLineMgr = screenLineMgr;
+		valid = true;
+	} //}}}
+
+	//{{{ invalidate() method
+	void invalidate()
+	{
+		valid = false;
+		screenLineMgr = null;
+		clearChangedRanges();
+	} //}}}
+
+	//{{{ contentChanged() method
+	/**
+	 * Called when the text of some lines changed, after the values of
+	 * the inserted or removed lines are moved.
+	 * @param version The version of the buffer after the change
+	 * @param startLine The first changed line
+	 * @param numLines The number of changed lines after the first one
+	 */
+	void contentChanged(long version, int startLine, int numLines)
+	{
+		if(!valid)
+			return;
+		linesChanged(startLine,startLine + numLines);
+		this.version = version;
+	} //}}}
+
+	//{{{ linesInserted() method
+	/**
+	 * Called when some lines were inserted, after the folds moved them.
+	 * The values of the new lines are 0 until they are updated.
+	 * @param startLine The line where the text was inserted
+	 * @param numLines The number of lines inserted after it
+	 * @param oldModCount The modification count of the folds before
+	 * the change
+	 * @param newModCount The modification count of the folds after the
+	 * change
+	 */
+	void linesInserted(int startLine, int numLines, int oldModCount,
+		int newModCount)
+	{
+		if(!valid)
+			return;
+		if(oldModCount != foldsModCount)
+		{
+			invalidate();
+			return;
+		}
+
+		if(values.length < size + numLines)
+		{
+			values = Arrays.copyOf(values,Math.max(size + numLines,
+				values.length << 1));
+			tree = new int[values.length + 1];
+		}
+		System.arraycopy(values,startLine + 1,values,
+			startLine + 1 + numLines,size - startLine - 1);
+		Arrays.fill(values,startLine + 1,startLine + 1 + numLines,0);
+		size += numLines;
+		buildTree();
+
+		for(int i = 0; i < dirtyCount; i++)
+		{
+			if(dirty[i] > startLine)
+				dirty[i] += numLines;
+		}
+		foldsModCount = newModCount;
+	} //}}}
+
+	//{{{ linesRemoved() method
+	/**
+	 * Called when some lines are removed, after the folds moved them.
+	 * @param startLine The line where the text is removed
+	 * @param numLines The number of lines removed after it
+	 * @param oldModCount The modification count of the folds before
+	 * the change
+	 * @param newModCount The modification count of the folds after the
+	 * change
+	 */
+	void linesRemoved(int startLine, int numLines, int oldModCount,
+		int newModCount)
+	{
+		if(!valid)
+			return;
+		if(oldModCount != foldsModCount)
+		{
+			invalidate();
+			return;
+		}
+
+		int end = startLine + numLines;
+		System.arraycopy(values,end + 1,values,startLine + 1,
+			size - end - 1);
+		size -= numLines;
+		buildTree();
+
+		for(int i = 0; i < dirtyCount; i++)
+		{
+			if(dirty[i] > end)
+				dirty[i] -= numLines;
+			else if(dirty[i] > startLine)
+				dirty[i] = startLine;
+		}
+		foldsModCount = newModCount;
+	} //}}}
+
+	//{{{ foldsChanged() method
+	/**
+	 * Called when some lines were shown or hidden.
+	 * @param oldModCount The modification count of the folds before
+	 * the change
+	 * @param newModCount The modification count of the folds after the
+	 * change
+	 * @param start The first line
+	 * @param end The last line
+	 */
+	void foldsChanged(int oldModCount, int newModCount, int start, int end)
+	{
+		if(!valid)
+			return;
+		if(oldModCount != foldsModCount)
+			invalidate();
+		else
+		{
+			linesChanged(start,end);
+			foldsModCount = newModCount;
+		}
+	} //}}}
+
+	//{{{ getChangedRangeCount() method
+	/**
+	 * @return the number of changed line ranges, whose values must be
+	 * updated before the index is used
+	 */
+	int getChangedRangeCount()
+	{
+		return dirtyCount >> 1;
+	} //}}}
+
+	//{{{ getChangedRangeStart() method
+	int getChangedRangeStart(int range)
+	{
+		return dirty[range << 1];
+	} //}}}
+
+	//{{{ getChangedRangeEnd() method
+	int getChangedRangeEnd(int range)
+	{
+		return dirty[(range << 1) + 1];
+	} //}}}
+
+	//{{{ clearChangedRanges() method
+	void clearChangedRanges()
+	{
+		dirtyCount = 0;
+		dirtyLineCount = 0;
+	} //}}}
+
+	//{{{ Private members
+	/**
+	 * Past this number of changed lines, updating the values one by one
+	 * is slower than building the index again.
+	 */
+	private static final int MAX_CHANGED_LINES = 4096;
+
+	private int[] values;
+	/** tree[i] is the sum of values[i - (i & -i)] to values[i - 1]. */
+	private int[] tree;
+	private int size;
+
+	private boolean valid;
+	private long version;
+	private int foldsModCount;
+	private ScreenLineManager screenLineMgr;
+
+	/** The changed line ranges, as start and end (inclusive) pairs. */
+	private int[] dirty;
+	private int dirtyCount;
+	private int dirtyLineCount;
+
+	//{{{ buildTree() method
+	private void buildTree()
+	{
+		// each node is added to its parent once, linear time
+		tree[0] = 0;
+		System.arraycopy(values,0,tree,1,size);
+		for(int i = 1; i <= size; i++)
+		{
+			int parent = i + (i & -i);
+			if(parent <= size)
+				tree[parent] += tree[i];
+		}
+	} //}}}
+
+	//{{{ linesChanged() method
+	private void linesChanged(int start, int end)
+	{
+		dirtyLineCount += end - start + 1;
+		if(dirtyLineCount > MAX_CHANGED_LINES)
+		{
+			invalidate();
+			return;
+		}
+
+		if(dirtyCount == dirty.length)
+			dirty = Arrays.copyOf(dirty,dirtyCount << 1);
+		dirty[dirtyCount++] = start;
+		dirty[dirtyCount++] = end;
+	} //}}}
+
+	//}}}
+}
@@ -23,13 +23,24 @@
 package org.gjt.sp.jedit.textarea;
 
 //{{{ Imports
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.*;
+
 import org.gjt.sp.jedit.buffer.*;
+import org.gjt.sp.jedit.syntax.SyntaxStyle;
 import org.gjt.sp.jedit.Debug;
 import org.gjt.sp.util.Log;
 //}}}
 
 /**
- * Performs the Mapping between physical lines and screen lines.
+ * Performs the Mapping between physical lines and screen lines.<p>
+ *
+ * The screen line counts only depend on the buffer and on the layout of
+ * the text area, so the display managers of a buffer whose text areas
+ * have the same {@link Layout} share one instance, see
+ * {@link #acquire(JEditBuffer,Layout)}. Each edit is then applied once to
+ * the counts, instead of once per text area.
  * 
  * @since jEdit 4.3pre1
  * @author Slava Pestov
@@ -37,6 +48,45 @@ import org.gjt.sp.util.Log;
  */
 class ScreenLineManager
 {
+	//{{{ Static part
+
+	//{{{ acquire() method
+	/**
+	 * Returns the screen line counts of a buffer for a layout, shared
+	 * with the other display managers of the buffer using the same
+	 * layout. Must be called from the event dispatch thread.
+	 * @see #release()
+	 * @since jEdit 5.7pre1
+	 */
+	static ScreenLineManager acquire(JEditBuffer buffer, Layout layout)
+	{
+		List<ScreenLineManager> l = sharedMap.computeIfAbsent(buffer,
+			k -> new ArrayList<>());
+		for(ScreenLineManager screenLineMgr : l)
+		{
+			if(screenLineMgr.layout.equals(layout))
+			{
+				screenLineMgr.refCount++;
+				return screenLineMgr;
+			}
+		}
+
+		ScreenLineManager screenLineMgr = new ScreenLineManager(buffer);
+		screenLineMgr.layout = layout;
+		screenLineMgr.refCount = 1;
+		l.add(screenLineMgr);
+		return screenLineMgr;
+	} //}}}
+
+	//{{{ bufferClosed() method
+	static void bufferClosed(JEditBuffer buffer)
+	{
+		sharedMap.remove(buffer);
+	} //}}}
+
+	private static final Map<JEditBuffer, List<ScreenLineManager>> sharedMap = new HashMap<>();
+	//}}}
+
 	//{{{ ScreenLineManager constructor
 	ScreenLineManager(JEditBuffer buffer)
 	{
@@ -45,6 +95,33 @@ class ScreenLineManager
 			reset();
 	} //}}}
 	
+	//{{{ release() method
+	/**
+	 * Called by a display manager which does not use these counts
+	 * anymore.
+	 * @see #acquire(JEditBuffer,Layout)
+	 * @since jEdit 5.7pre1
+	 */
+	void release()
+	{
+		if(layout == null || --refCount > 0)
+			return;
+
+		List<ScreenLineManager> l = sharedMap.get(buffer);
+		if(l != null)
+		{
+			l.remove(this);
+			if(l.isEmpty())
+				sharedMap.remove(buffer);
+		}
+	} //}}}
+
+	//{{{ getLayout() method
+	Layout getLayout()
+	{
+		return layout;
+	} //}}}
+
 	//{{{ isScreenLineCountValid() method
 	boolean isScreenLineCountValid(int line)
 	{
@@ -161,6 +238,36 @@ class ScreenLineManager
 		}
 	} //}}}
 
+	//{{{ contentInserted() method
+	/**
+	 * Called by each display manager sharing these counts when content
+	 * is inserted: only the first call for an edit updates them.
+	 * @param version The version of the buffer after the edit
+	 * @since jEdit 5.7pre1
+	 */
+	void contentInserted(long version, int startLine, int numLines)
+	{
+		if(version == insertedVersion)
+			return;
+		insertedVersion = version;
+		contentInserted(startLine,numLines);
+	} //}}}
+
+	//{{{ contentRemoved() method
+	/**
+	 * Called by each display manager sharing these counts when content
+	 * was removed: only the first call for an edit updates them.
+	 * @param version The version of the buffer after the edit
+	 * @since jEdit 5.7pre1
+	 */
+	void contentRemoved(long version, int startLine, int numLines)
+	{
+		if(version == removedVersion)
+			return;
+		removedVersion = version;
+		contentRemoved(startLine,numLines);
+	} //}}}
+
 	//{{{ contentRemoved() method
 	public void contentRemoved(int startLine, int numLines)
 	{
@@ -175,8 +282,79 @@ class ScreenLineManager
 		}
 	} //}}}
 
+	//{{{ Layout class
+	/**
+	 * The parameters of a text area which the screen line counts depend
+	 * on. Without soft wrap, every line is one screen line whatever
+	 * the other parameters.
+	 * @since jEdit 5.7pre1
+	 */
+	static final class Layout
+	{
+		static final Layout UNWRAPPED = new Layout(0,null,null,0f,null);
+
+		Layout(int wrapMargin, FontRenderContext frc, SyntaxStyle[] styles,
+			float tabSize, Object tabExpander)
+		{
+			this.wrapMargin = wrapMargin;
+			this.frc = frc;
+			if(styles == null)
+				fonts = null;
+			else
+			{
+				fonts = new Font[styles.length];
+				for(int i = 0; i < styles.length; i++)
+				{
+					if(styles[i] != null)
+						fonts[i] = styles[i].getFont();
+				}
+			}
+			this.tabSize = tabSize;
+			this.tabExpander = tabExpander;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Layout))
+				return false;
+			Layout layout = (Layout)o;
+			return wrapMargin == layout.wrapMargin
+				&& Objects.equals(frc,layout.frc)
+				&& Arrays.equals(fonts,layout.fonts)
+				&& tabSize == layout.tabSize
+				&& tabExpander == layout.tabExpander;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return wrapMargin * 31 + Arrays.hashCode(fonts);
+		}
+
+		@Override
+		public String toString()
+		{
+			return this == UNWRAPPED ? "Layout[unwrapped]"
+				: "Layout[wrapMargin=" + wrapMargin + ",tabSize=" + tabSize + ']';
+		}
+
+		private final int wrapMargin;
+		private final FontRenderContext frc;
+		/** The fonts of the syntax styles. */
+		private final Font[] fonts;
+		private final float tabSize;
+		/** A custom tab expander, or null for the painter. */
+		private final Object tabExpander;
+	} //}}}
+
 	//{{{ Private members
 	private final JEditBuffer buffer;
+	/** The layout the counts are shared for, null if not shared. */
+	private Layout layout;
+	private int refCount;
+	private long insertedVersion = -1L;
+	private long removedVersion = -1L;
 
 	/** This array contains the screen line count for each physical line.
 	 * screenLines[physicalLineNo] == 0 -> invalid entry - No. of screen lines not calculated yet
@@ -48,17 +48,9 @@ class ScrollLineCount extends Anchor
 		if(Debug.SCROLL_DEBUG)
 			Log.log(Log.DEBUG,this,"reset()");
 
-		int scrollLine = 0;
-		int physicalLine = getDisplayManager().getFirstVisibleLine();
-
-		while(physicalLine != -1)
-		{
-			scrollLine += getDisplayManager().getScreenLineCount(physicalLine);
-			physicalLine = getDisplayManager().getNextVisibleLine(physicalLine);
-		}
-
+		ScreenLineIndex index = getDisplayManager().getScreenLineIndex(true);
 		setPhysicalLine(getDisplayManager().getBuffer().getLineCount());
-		setScrollLine(scrollLine);
+		setScrollLine(index.getScrollLineCount());
 	} //}}}
 
 	@Override
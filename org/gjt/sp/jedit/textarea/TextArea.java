@@ -43,6 +43,7 @@ import javax.swing.text.TabExpander;
 
 import org.gjt.sp.jedit.*;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.buffer.MultiEdit;
 import org.gjt.sp.jedit.buffer.WordWrap;
 import org.gjt.sp.jedit.input.AbstractInputHandler;
 import org.gjt.sp.jedit.input.DefaultInputHandlerProvider;
@@ -180,6 +181,12 @@ public abstract class TextArea extends JPanel
 			{
 				return actionContext.getAction(action);
 			}
+
+			@Override
+			protected JEditActionContext<JEditBeanShellAction,?> getActionContext()
+			{
+				return actionContext;
+			}
 		});
 	} //}}}
 
@@ -2093,11 +2100,21 @@ forward_scan:	do
 		}
 		else
 		{
+			Selection[] selection = getSelection();
+			MultiEdit edits = createMultiEdit(selection,selectedText);
+			if(edits != null)
+			{
+				// the selections are moved by the buffer listener,
+				// so the end is mapped from its value before the edits
+				int end = selection[selection.length - 1].end;
+				buffer.applyEdits(edits);
+				return edits.mapOffset(end);
+			}
+
 			try
 			{
 				buffer.beginCompoundEdit();
 
-				Selection[] selection = getSelection();
 				for (Selection aSelection : selection)
 					newCaret = aSelection.setText(buffer, selectedText);
 			}
@@ -2110,6 +2127,37 @@ forward_scan:	do
 		return newCaret;
 	} //}}}
 
+	//{{{ createMultiEdit() method
+	/**
+	 * Returns the edits replacing several range selections with a text,
+	 * or null if they should be replaced one by one.
+	 */
+	private static MultiEdit createMultiEdit(Selection[] selection,
+		String selectedText)
+	{
+		if(selection.length < 2)
+			return null;
+
+		for (Selection s : selection)
+		{
+			if(!(s instanceof Selection.Range))
+				return null;
+		}
+
+		Selection[] sorted = selection.clone();
+		Arrays.sort(sorted,Comparator.comparingInt(Selection::getStart));
+		MultiEdit edits = new MultiEdit();
+		for (Selection s : sorted)
+		{
+			// touching selections are edited one by one, as the end
+			// of one would be mapped after the text of the next
+			if(!edits.isEmpty() && s.start <= edits.getEnd())
+				return null;
+			edits.add(s.start,s.end - s.start,selectedText);
+		}
+		return edits;
+	} //}}}
+
 	//{{{ getSelectedLines() method
 	/**
 	 * Returns a sorted array of line numbers on which a selection or
@@ -4890,23 +4938,18 @@ loop:		for(int i = lineNo - 1; i >= 0; i--)
 			painter.getFontRenderContext()).getWidth() / charWidthSample.length();
 		charWidth = (int)Math.round(charWidthDouble);
 
-		WordWrap oldWrap = wrap;
 		wrap = buffer.getWordWrap();
 		hardWrap = wrap == hard;
 		LargeFileMode largeFileMode = buffer.getLargeFileMode();
 		softWrap = wrap == soft && !largeFileMode.isLongBufferMode();
-		boolean oldWrapToWidth = wrapToWidth;
-		int oldWrapMargin = wrapMargin;
 		setMaxLineLength(buffer.getIntegerProperty("maxLineLen", 0));
 
-		boolean wrapSettingsChanged = !(oldWrap == wrap
-			&& oldWrapToWidth == wrapToWidth
-			&& oldWrapMargin == wrapMargin);
-
+		// the screen lines are computed again if the wrap settings,
+		// the fonts or the tab size changed
 		if(displayManager != null && !bufferChanging
-			&& !buffer.isLoading() && wrapSettingsChanged)
+			&& !buffer.isLoading()
+			&& displayManager.updateScreenLineLayout())
 		{
-			displayManager.invalidateScreenLineCounts();
 			displayManager.notifyScreenLineChanges();
 		}
 		chunkCache.reset();
@@ -4914,6 +4957,23 @@ loop:		for(int i = lineNo - 1; i >= 0; i--)
 		painter.repaint();
 	} //}}}
 
+	//{{{ getScreenLineLayout() method
+	/**
+	 * Returns the parameters which the screen line counts depend on.
+	 * The text areas showing a buffer with the same parameters share the
+	 * screen line counts.
+	 * @since jEdit 5.7pre1
+	 */
+	ScreenLineManager.Layout getScreenLineLayout()
+	{
+		if(!softWrap)
+			return ScreenLineManager.Layout.UNWRAPPED;
+		TabExpander expander = getTabExpander();
+		return new ScreenLineManager.Layout(wrapMargin,
+			painter.getFontRenderContext(), painter.getStyles(), tabSize,
+			expander == painter ? null : expander);
+	} //}}}
+
 	//{{{ addActionSet() method
 	/**
 	 * Adds a new action set to the textarea's list of ActionSets.
@@ -0,0 +1,182 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=4:indentSize=4:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.gjt.sp.util;
+
+//{{{ Imports
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+//}}}
+
+/**
+ * Runs the tasks of one {@link Task.Lane}, at most <code>limit</code> of
+ * them at the same time. Extra tasks wait in a FIFO queue, and a worker
+ * that finishes a task takes the next one from the queue in the same
+ * thread.<p>
+ *
+ * A task submitted from a worker of the same lane does not count against
+ * the limit. Such a task is usually waited for by its parent, and
+ * queueing it behind the parent could deadlock the lane.
+ *
+ * @since jEdit 5.7pre1
+ */
+class LaneExecutor
+{
+	//{{{ LaneExecutor constructor
+	LaneExecutor(Task.Lane lane, int limit, int priority, Executor threads)
+	{
+		this.lane = lane;
+		this.limit = limit;
+		this.priority = priority;
+		this.threads = threads;
+		queue = new ArrayDeque<>();
+	} //}}}
+
+	//{{{ execute() method
+	void execute(Task task)
+	{
+		QueuedTask queued = new QueuedTask(task);
+		boolean nested = currentLane.get() == this;
+		synchronized (this)
+		{
+			if (!nested && permits >= limit)
+			{
+				queue.addLast(queued);
+				return;
+			}
+			if (!nested)
+				permits++;
+			running++;
+		}
+		threads.execute(() -> work(queued, !nested));
+	} //}}}
+
+	//{{{ remove() method
+	/**
+	 * Removes a task that did not start yet.
+	 * @return true if the task was waiting in the queue
+	 */
+	synchronized boolean remove(Task task)
+	{
+		Iterator<QueuedTask> iter = queue.iterator();
+		while (iter.hasNext())
+		{
+			if (iter.next().task == task)
+			{
+				iter.remove();
+				return true;
+			}
+		}
+		return false;
+	} //}}}
+
+	//{{{ getStatistics() method
+	synchronized TaskManager.LaneStatistics getStatistics()
+	{
+		return new TaskManager.LaneStatistics(lane, limit, running,
+			queue.size(), completed,
+			completed == 0 ? 0L : waitTime / completed / 1000000L,
+			completed == 0 ? 0L : runTime / completed / 1000000L);
+	} //}}}
+
+	//{{{ Private members
+	private static final ThreadLocal<LaneExecutor> currentLane = new ThreadLocal<>();
+
+	private final Task.Lane lane;
+	private final int limit;
+	private final int priority;
+	private final Executor threads;
+	private final Deque<QueuedTask> queue;
+
+	/** Number of workers counted against the limit. */
+	private int permits;
+	/** Number of tasks running, including the nested ones. */
+	private int running;
+	private long completed;
+	private long waitTime;
+	private long runTime;
+
+	//{{{ work() method
+	private void work(QueuedTask queued, boolean counted)
+	{
+		Thread thread = Thread.currentThread();
+		LaneExecutor previousLane = currentLane.get();
+		int previousPriority = thread.getPriority();
+		currentLane.set(this);
+		thread.setPriority(priority);
+		try
+		{
+			while (queued != null)
+			{
+				long start = System.nanoTime();
+				try
+				{
+					queued.task.run();
+				}
+				finally
+				{
+					long end = System.nanoTime();
+					synchronized (this)
+					{
+						completed++;
+						waitTime += start - queued.time;
+						runTime += end - start;
+						running--;
+						queued = counted ? next() : null;
+					}
+				}
+			}
+		}
+		finally
+		{
+			currentLane.set(previousLane);
+			thread.setPriority(previousPriority);
+		}
+	} //}}}
+
+	//{{{ next() method
+	/** Must be called with the lock held. */
+	private QueuedTask next()
+	{
+		QueuedTask next = queue.pollFirst();
+		if (next == null)
+			permits--;
+		else
+			running++;
+		return next;
+	} //}}}
+
+	//}}}
+
+	//{{{ QueuedTask class
+	private static class QueuedTask
+	{
+		QueuedTask(Task task)
+		{
+			this.task = task;
+			time = System.nanoTime();
+		}
+
+		final Task task;
+		final long time;
+	} //}}}
+}
@@ -88,6 +88,18 @@ public class SegmentBuffer extends Segment
 		count += len;
 	} //}}}
 
+	//{{{ reserve() method
+	/**
+	 * Makes room for appending text directly to the array, after
+	 * <code>count</code>. The array may be replaced.
+	 * @param len the number of characters to make room for
+	 * @since jEdit 5.7pre1
+	 */
+	public void reserve(int len)
+	{
+		ensureCapacity(count + len);
+	} //}}}
+
 	//{{{ Private members
 
 	//{{{ ensureCapacity() method
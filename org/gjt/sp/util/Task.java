@@ -31,6 +31,30 @@ import javax.swing.*;
  */
 public abstract class Task implements Runnable, ProgressObserver
 {
+	//{{{ Lane enum
+	/**
+	 * The lanes of the threadpool. Each lane runs a bounded number of
+	 * tasks at the same time, so that a burst of tasks of one kind
+	 * does not delay the others.
+	 *
+	 * @since jEdit 5.7pre1
+	 */
+	public enum Lane
+	{
+		/** I/O the user is waiting for, like loading or saving a buffer
+		 * or listing a directory. */
+		INTERACTIVE_IO,
+
+		/** Long running I/O, like downloads or copying files. */
+		BULK_IO,
+
+		/** Computations, like searching. This is the default lane. */
+		CPU,
+
+		/** Low priority work, like autosave. */
+		MAINTENANCE
+	} //}}}
+
 	private long value;
 	private String status;
 	private long maximum;
@@ -47,6 +71,10 @@ public abstract class Task implements Runnable, ProgressObserver
 
 	private volatile boolean cancellable = true;
 
+	private volatile boolean cancelled;
+
+	private volatile Lane lane = Lane.CPU;
+
 	//{{{ Task Constructor
 	protected Task()
 	{
@@ -57,6 +85,12 @@ public abstract class Task implements Runnable, ProgressObserver
 	@Override
 	public final void run()
 	{
+		if (cancelled)
+		{
+			state = SwingWorker.StateValue.DONE;
+			TaskManager.instance.fireDone(this);
+			return;
+		}
 		state = SwingWorker.StateValue.STARTED;
 		TaskManager.instance.fireRunning(this);
 		try
@@ -140,14 +174,57 @@ public abstract class Task implements Runnable, ProgressObserver
 		this.cancellable = cancellable;
 	}
 
+	/**
+	 * @return true if the task was cancelled. Long running tasks should
+	 * check it regularly, in addition to the interrupted state of their
+	 * thread.
+	 * @since jEdit 5.7pre1
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * @return the lane of the threadpool in which the task runs
+	 * @since jEdit 5.7pre1
+	 */
+	public Lane getLane()
+	{
+		return lane;
+	}
+
+	/**
+	 * Sets the lane of the threadpool in which the task runs. It must be
+	 * called before the task is given to {@link ThreadUtilities}.
+	 * @param lane the lane
+	 * @since jEdit 5.7pre1
+	 */
+	public void setLane(Lane lane)
+	{
+		this.lane = lane;
+	}
+
 	//{{{ cancel() method
 	/**
-	 * Cancel the task
+	 * Cancel the task. A task that is still waiting in the threadpool
+	 * queue is removed from it and will never run, a running task gets
+	 * its thread interrupted.
 	 */
 	public void cancel()
 	{
-		if (cancellable && thread != null)
+		if (!cancellable)
+			return;
+		cancelled = true;
+		Thread thread = this.thread;
+		if (thread != null)
 			thread.interrupt();
+		else if (state == SwingWorker.StateValue.PENDING &&
+			 ThreadUtilities.dequeue(this))
+		{
+			state = SwingWorker.StateValue.DONE;
+			TaskManager.instance.fireDone(this);
+		}
 	} //}}}
 
 	@Override
@@ -78,6 +78,18 @@ public class TaskManager
 		return size;
 	}
 
+	/**
+	 * Returns the queue depth and latencies of a lane of the threadpool.
+	 *
+	 * @param lane the lane
+	 * @return a snapshot of the lane statistics
+	 * @since jEdit 5.7pre1
+	 */
+	public LaneStatistics getLaneStatistics(Task.Lane lane)
+	{
+		return ThreadUtilities.getLaneStatistics(lane);
+	}
+
 	public void addTaskListener(TaskListener listener)
 	{
 		if (!listeners.contains(listener))
@@ -212,6 +224,82 @@ public class TaskManager
 		return new MyTask(runnable);
 	}
 
+	/**
+	 * A snapshot of the state of a lane of the threadpool.
+	 * @since jEdit 5.7pre1
+	 */
+	public static class LaneStatistics
+	{
+		private final Task.Lane lane;
+		private final int limit;
+		private final int running;
+		private final int queued;
+		private final long completed;
+		private final long averageWait;
+		private final long averageRun;
+
+		LaneStatistics(Task.Lane lane, int limit, int running, int queued,
+			       long completed, long averageWait, long averageRun)
+		{
+			this.lane = lane;
+			this.limit = limit;
+			this.running = running;
+			this.queued = queued;
+			this.completed = completed;
+			this.averageWait = averageWait;
+			this.averageRun = averageRun;
+		}
+
+		public Task.Lane getLane()
+		{
+			return lane;
+		}
+
+		/** @return the maximum number of tasks running at the same time */
+		public int getLimit()
+		{
+			return limit;
+		}
+
+		/** @return the number of running tasks */
+		public int getRunning()
+		{
+			return running;
+		}
+
+		/** @return the number of tasks waiting in the queue */
+		public int getQueued()
+		{
+			return queued;
+		}
+
+		/** @return the number of tasks that ran in this lane */
+		public long getCompleted()
+		{
+			return completed;
+		}
+
+		/** @return the average time spent in the queue, in ms */
+		public long getAverageWait()
+		{
+			return averageWait;
+		}
+
+		/** @return the average run time, in ms */
+		public long getAverageRun()
+		{
+			return averageRun;
+		}
+
+		@Override
+		public String toString()
+		{
+			return lane + "[running=" + running + '/' + limit + ",queued=" + queued +
+				",completed=" + completed + ",wait=" + averageWait + "ms,run=" +
+				averageRun + "ms]";
+		}
+	}
+
 	@FunctionalInterface
 	public interface TaskVisitor
 	{
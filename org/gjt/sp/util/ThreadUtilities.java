@@ -25,7 +25,10 @@ package org.gjt.sp.util;
 //{{{ Imports
 import java.awt.EventQueue;
 import java.lang.reflect.InvocationTargetException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -37,7 +40,13 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The threadpool of jEdit.
  * It uses a ExecutorService from the java.util.concurrent package.
  * You can run {@link Task} or {@link Runnable} in it, Runnables will be
- * encapsulated in Task and displayed in the Task Monitor. 
+ * encapsulated in Task and displayed in the Task Monitor. <p>
+ *
+ * Tasks are scheduled in separate lanes, see {@link Task.Lane}. Each
+ * lane runs a bounded number of tasks at the same time, the others wait
+ * in a queue. When the <code>jedit.virtualThreads</code> system property
+ * is set and the Java runtime supports it, the I/O lanes run their tasks
+ * in virtual threads.
  *
  * @author Matthieu Casanova
  * @author Marcelo Vanzin
@@ -174,25 +183,77 @@ public class ThreadUtilities
 		{
 			task = TaskManager.decorate(runnable);
 		}
-		TaskManager.instance.fireWaiting(task);
-		threadPool.execute(task);
+		runInBackground(task);
 	}
 
 	/**
-	 * Run the task in the threadpool.
+	 * Run the runnable in the given lane of the threadpool.
+	 * The runnable will be encapsulated in a {@link Task}
+	 *
+	 * @param runnable the runnable to run - it should return something meaningful from
+	 *    toString() so that we can display it in the Task Monitor.
+	 * @param lane the lane
+	 * @since jEdit 5.7pre1
+	 */
+	public static void runInBackground(Runnable runnable, Task.Lane lane)
+	{
+		Task task = TaskManager.decorate(runnable);
+		task.setLane(lane);
+		runInBackground(task);
+	}
+
+	/**
+	 * Run the task in the threadpool, in the lane returned by
+	 * {@link Task#getLane()}.
 	 *
 	 * @param task the task to run
 	 */
 	public static void runInBackground(Task task)
 	{
 		TaskManager.instance.fireWaiting(task);
-		threadPool.execute(task);
+		lanes.get(task.getLane()).execute(task);
+	} //}}}
+
+	//{{{ dequeue() method
+	/**
+	 * Removes a task that is waiting in its lane.
+	 * @return true if the task was removed
+	 */
+	static boolean dequeue(Task task)
+	{
+		return lanes.get(task.getLane()).remove(task);
+	} //}}}
+
+	//{{{ getLaneStatistics() method
+	static TaskManager.LaneStatistics getLaneStatistics(Task.Lane lane)
+	{
+		return lanes.get(lane).getStatistics();
 	} //}}}
 
 	private ThreadUtilities()
 	{
 	}
 
+	//{{{ createIoThreads() method
+	private static Executor createIoThreads()
+	{
+		if (Boolean.getBoolean("jedit.virtualThreads"))
+		{
+			try
+			{
+				return (Executor) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+			}
+			catch (ReflectiveOperationException e)
+			{
+				Log.log(Log.WARNING, ThreadUtilities.class,
+					"Virtual threads are not supported by this Java runtime");
+			}
+		}
+		return threadPool;
+	} //}}}
+
 	//{{{ JEditThreadFactory class
 	private static class JEditThreadFactory implements ThreadFactory
 	{
@@ -215,14 +276,29 @@ public class ThreadUtilities
 	} //}}}
 
 
+	/** The threads shared by the lanes. */
 	private static final ExecutorService threadPool;
 
+	private static final Map<Task.Lane, LaneExecutor> lanes;
+
 	private static final int CORE_POOL_SIZE = 4;
 
 	static
 	{
 		threadPool = Executors.newCachedThreadPool(new JEditThreadFactory());
 		((ThreadPoolExecutor) threadPool).setCorePoolSize(CORE_POOL_SIZE);
+
+		Executor ioThreads = createIoThreads();
+		int cpus = Runtime.getRuntime().availableProcessors();
+		lanes = new EnumMap<>(Task.Lane.class);
+		lanes.put(Task.Lane.INTERACTIVE_IO, new LaneExecutor(Task.Lane.INTERACTIVE_IO,
+			4, Thread.NORM_PRIORITY, ioThreads));
+		lanes.put(Task.Lane.BULK_IO, new LaneExecutor(Task.Lane.BULK_IO,
+			2, Thread.NORM_PRIORITY - 1, ioThreads));
+		lanes.put(Task.Lane.CPU, new LaneExecutor(Task.Lane.CPU,
+			Math.max(2, cpus), Thread.NORM_PRIORITY - 1, threadPool));
+		lanes.put(Task.Lane.MAINTENANCE, new LaneExecutor(Task.Lane.MAINTENANCE,
+			1, Thread.MIN_PRIORITY, threadPool));
 	}
 
 	//{{{ MyRunnable class
@@ -0,0 +1,139 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class PropertyManagerTest
+{
+	private PropertyManager manager;
+	private Properties plugin1;
+	private Properties plugin2;
+	private Properties pluginLocalization1;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		// each layer defines the properties a to f, and overrides the
+		// ones of the layers it has priority over
+		manager = new PropertyManager();
+		manager.loadSystemProps(new StringReader("a=system\nb=system\nc=system\nd=system\ne=system\nf=system\n"));
+		plugin1 = manager.loadPluginProps(stream("b=plugin1\nc=plugin1\n"));
+		plugin2 = manager.loadPluginProps(stream("b=plugin2\nc=plugin2\nd=plugin2\n"));
+		manager.loadSiteProps(stream("c=site\n"));
+		manager.loadLocalizationProps(new StringReader("e=localization\n"));
+		pluginLocalization1 = manager.loadPluginLocalizationProps(new StringReader("e=pluginLocalization1\nf=pluginLocalization1\n"));
+		manager.loadPluginLocalizationProps(new StringReader("e=pluginLocalization2\nf=pluginLocalization2\n"));
+		manager.loadUserProps(stream("f=user\n"));
+	}
+
+	/**
+	 * The flattened layers have the priorities of a lookup in each layer:
+	 * user, plugin localizations, localization, site, plugins and system,
+	 * the plugins added first having priority.
+	 */
+	@Test
+	public void flattenOrder()
+	{
+		assertEquals("system", manager.getProperty("a"));
+		assertEquals("plugin1", manager.getProperty("b"));
+		assertEquals("site", manager.getProperty("c"));
+		assertEquals("plugin2", manager.getProperty("d"));
+		assertEquals("pluginLocalization1", manager.getProperty("e"));
+		assertEquals("user", manager.getProperty("f"));
+		assertNull(manager.getProperty("g"));
+	}
+
+	@Test
+	public void layerChanges() throws Exception
+	{
+		assertEquals("plugin1", manager.getProperty("b"));
+		manager.removePluginProps(plugin1);
+		assertEquals("plugin2", manager.getProperty("b"));
+		manager.addPluginProps(plugin1);
+		assertEquals("plugin2", manager.getProperty("b"));
+		manager.removePluginProps(plugin2);
+		assertEquals("plugin1", manager.getProperty("b"));
+
+		manager.removePluginLocalizationProps(pluginLocalization1);
+		assertEquals("pluginLocalization2", manager.getProperty("e"));
+		manager.loadLocalizationProps(null);
+		assertEquals("pluginLocalization2", manager.getProperty("e"));
+		manager.loadSystemProps(new StringReader("g=system\n"));
+		assertEquals("system", manager.getProperty("g"));
+	}
+
+	@Test
+	public void propertyChanges()
+	{
+		// flatten first, so that the changes are recorded next to it
+		assertEquals("system", manager.getProperty("a"));
+
+		manager.setProperty("a", "changed");
+		assertEquals("changed", manager.getProperty("a"));
+		manager.setProperty("a", "system");
+		assertEquals("system", manager.getProperty("a"));
+
+		manager.unsetProperty("b");
+		assertEquals("", manager.getProperty("b"));
+		manager.resetProperty("b");
+		assertEquals("plugin1", manager.getProperty("b"));
+
+		manager.setProperty("g", "new");
+		assertEquals("new", manager.getProperty("g"));
+		manager.unsetProperty("g");
+		assertNull(manager.getProperty("g"));
+
+		// replaces the system property, below the other layers
+		manager.setTemporaryProperty("a", "temporary");
+		assertEquals("temporary", manager.getProperty("a"));
+		manager.setTemporaryProperty("f", "temporary");
+		assertEquals("pluginLocalization1", manager.getProperty("f"));
+
+		// and they survive the next flattening
+		manager.addPluginProps(new Properties());
+		assertEquals("temporary", manager.getProperty("a"));
+		assertEquals("plugin1", manager.getProperty("b"));
+		assertNull(manager.getProperty("g"));
+		assertEquals("pluginLocalization1", manager.getProperty("f"));
+	}
+
+	@Test
+	public void format()
+	{
+		assertEquals("1 of 2", manager.format("{0} of {1}", new Object[] { 1, 2 }));
+		assertEquals("3 of 4", manager.format("{0} of {1}", new Object[] { 3, 4 }));
+	}
+
+	private static ByteArrayInputStream stream(String text)
+	{
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1));
+	}
+}
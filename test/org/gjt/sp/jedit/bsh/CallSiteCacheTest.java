@@ -0,0 +1,170 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bsh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CallSiteCacheTest
+{
+	private Interpreter interpreter;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		interpreter = new Interpreter();
+	}
+
+	@Test
+	public void guards() throws Exception
+	{
+		CallSiteCache cache = new CallSiteCache();
+		Object[] args = { new Primitive(1) };
+		assertNull(cache.invoke(String.class, "abc", "substring", args));
+		cache.add(String.class, "substring", args, String.class.getMethod("substring", Integer.TYPE));
+		assertEquals("bc", cache.invoke(String.class, "abc", "substring", args));
+		// another argument type, receiver class or method name
+		assertNull(cache.invoke(String.class, "abc", "substring", new Object[] { new Primitive(1L) }));
+		assertNull(cache.invoke(StringBuilder.class, new StringBuilder("abc"), "substring", args));
+		assertNull(cache.invoke(String.class, "abc", "concat", args));
+		// not a static method
+		assertNull(cache.invoke(String.class, null, "substring", args));
+	}
+
+	@Test
+	public void megamorphic() throws Exception
+	{
+		CallSiteCache cache = new CallSiteCache();
+		List<Object> objects = Arrays.<Object>asList("a", new StringBuilder("b"), 3, 4L, 'e', new ArrayList<Object>());
+		for (Object object : objects)
+			cache.add(object.getClass(), "toString", new Object[0], object.getClass().getMethod("toString"));
+		for (int i = 0; i < objects.size(); i++)
+		{
+			Object object = objects.get(i);
+			Object ret = cache.invoke(object.getClass(), object, "toString", new Object[0]);
+			if (i < CallSiteCache.MAX_ENTRIES)
+				assertEquals(object.toString(), ret);
+			else
+				assertNull(ret);
+		}
+	}
+
+	@Test
+	public void overloads() throws Exception
+	{
+		Object ret = interpreter.eval("sb = new StringBuilder();\n"
+			+ "for (int i = 0; i < 9; i++) {\n"
+			+ "\tx = i % 3 == 0 ? i : i % 3 == 1 ? \"s\" : 2.5;\n"
+			+ "\tsb.append(x).append(',');\n"
+			+ "}\n"
+			+ "sb.toString();");
+		assertEquals("0,s,2.5,3,s,2.5,6,s,2.5,", ret);
+	}
+
+	@Test
+	public void polymorphic() throws Exception
+	{
+		interpreter.set("objects", new Object[] { "a", new StringBuilder("b"), 3, 4L, 'e', new ArrayList<Object>() });
+		Object ret = interpreter.eval("s = \"\";\n"
+			+ "for (int i = 0; i < 3; i++)\n"
+			+ "\tfor (o : objects) s += o.toString();\n"
+			+ "s;");
+		assertEquals("ab34e[]ab34e[]ab34e[]", ret);
+	}
+
+	@Test
+	public void staticMethods() throws Exception
+	{
+		Object ret = interpreter.eval("s = 0.0;\n"
+			+ "for (int i = 0; i < 6; i++)\n"
+			+ "\ts += i % 2 == 0 ? Math.max(i, 3) : Math.max(i + 0.5, 3);\n"
+			+ "s;");
+		assertEquals(3 + 3.0 + 3 + 3.5 + 4 + 5.5, ret);
+	}
+
+	@Test
+	public void castArguments() throws Exception
+	{
+		List<Object> list = new ArrayList<Object>();
+		interpreter.set("list", list);
+		interpreter.eval("for (int i = 0; i < 3; i++) { list.add(i); list.add(null); list.add(\"s\" + i); }");
+		assertEquals(Arrays.asList(0, null, "s0", 1, null, "s1", 2, null, "s2"), list);
+	}
+
+	@Test
+	public void exceptions() throws Exception
+	{
+		try
+		{
+			interpreter.eval("for (int i = 3; i >= -1; i--) \"abc\".substring(i);");
+			fail();
+		}
+		catch (TargetError e)
+		{
+			assertTrue(e.getTarget() instanceof StringIndexOutOfBoundsException);
+		}
+	}
+
+	/**
+	 * The call sites of a parsed script drop their methods with the class
+	 * manager caches, as when a plugin is unloaded.
+	 */
+	@Test
+	public void classManagerReset() throws Exception
+	{
+		Interpreter.ParsedScript script = Interpreter.parse(new StringReader(
+			"s = new StringBuilder();\n"
+			+ "for (int i = 0; i < 3; i++) s.append(\"abc\".substring(i));\n"), "test");
+		interpreter.eval(script, interpreter.getNameSpace());
+		List<CallSiteCache> caches = new ArrayList<CallSiteCache>();
+		for (SimpleNode statement : script.statements)
+			collectCallSites(statement, caches);
+		assertEquals(2, caches.size());
+		for (CallSiteCache cache : caches)
+			assertEquals(1, cache.size());
+
+		interpreter.getClassManager().reset();
+		for (CallSiteCache cache : caches)
+			assertEquals(0, cache.size());
+		// and the script still runs
+		interpreter.eval(script, interpreter.getNameSpace());
+		assertEquals("abcbcc", interpreter.eval("s.toString()"));
+	}
+
+	private static void collectCallSites(Node node, List<CallSiteCache> caches)
+	{
+		if (node instanceof BSHMethodInvocation)
+			caches.add(((BSHMethodInvocation) node).getCallSiteCache());
+		else if (node instanceof BSHPrimarySuffix
+			&& ((BSHPrimarySuffix) node).operation == BSHPrimarySuffix.NAME)
+			caches.add(((BSHPrimarySuffix) node).getCallSiteCache());
+		for (int i = 0; i < node.jjtGetNumChildren(); i++)
+			collectCallSites(node.jjtGetChild(i), caches);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bsh;
+
+import org.gjt.sp.jedit.textarea.Benchmarks;
+import org.gjt.sp.jedit.textarea.StandaloneTextArea;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times common macro idioms. Only run with
+ * <code>-Djedit.benchmark=true</code>, and compare with a run with
+ * <code>-Dbsh.callSiteCache=false</code> to measure the
+ * {@link CallSiteCache}s.
+ */
+public class MacroBenchmarkTest
+{
+	private static final int LINES = 20000;
+
+	private StandaloneTextArea textArea;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Benchmarks.assumeEnabled();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < LINES; i++)
+			text.append("line ").append(i).append('\n');
+		textArea = Benchmarks.createTextArea(text);
+	}
+
+	@Test
+	public void bufferIteration() throws Exception
+	{
+		int expected = 0;
+		for (int i = 0; i < LINES; i++)
+			expected += ("line " + i).length();
+		run("bufferIteration", expected,
+			"n = 0;\n"
+			+ "for (int i = 0; i < buffer.getLineCount(); i++) {\n"
+			+ "\tline = buffer.getLineText(i);\n"
+			+ "\tif (line.startsWith(\"line\")) n += line.length();\n"
+			+ "}\n"
+			+ "n;");
+	}
+
+	@Test
+	public void stringBuilding() throws Exception
+	{
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			expected.append(i).append(',').append("x");
+		run("stringBuilding", expected.length(),
+			"sb = new StringBuilder();\n"
+			+ "for (int i = 0; i < 20000; i++)\n"
+			+ "\tsb.append(i).append(',').append(\"x\");\n"
+			+ "sb.length();");
+	}
+
+	@Test
+	public void textAreaCalls() throws Exception
+	{
+		int expected = 0;
+		for (int i = 0; i < textArea.getLineCount(); i++)
+		{
+			int start = textArea.getLineStartOffset(i);
+			expected += textArea.getLineOfOffset(start) + textArea.getLineLength(i);
+			expected += Math.max(start, textArea.getLineEndOffset(i));
+		}
+		run("textAreaCalls", expected,
+			"n = 0;\n"
+			+ "for (int i = 0; i < textArea.getLineCount(); i++) {\n"
+			+ "\tstart = textArea.getLineStartOffset(i);\n"
+			+ "\tn += textArea.getLineOfOffset(start) + textArea.getLineLength(i);\n"
+			+ "\tn += Math.max(start, textArea.getLineEndOffset(i));\n"
+			+ "}\n"
+			+ "n;");
+	}
+
+	private void run(String name, Object expected, String script) throws Exception
+	{
+		if (!CallSiteCache.ENABLED)
+			name += " (no call site caches)";
+		for (int rep = 0; rep < 10; rep++)
+		{
+			Interpreter interpreter = new Interpreter();
+			interpreter.set("buffer", textArea.getBuffer());
+			interpreter.set("textArea", textArea);
+			assertEquals(expected, Benchmarks.time(name, () -> interpreter.eval(script)));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bsh;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ParsedScriptTest
+{
+	private static final String SCRIPT =
+		"int twice(int i) { return i * 2; }\n"
+		+ "total = 0;\n"
+		+ "for (int i = 0; i < 10; i++)\n"
+		+ "\ttotal += twice(i);\n";
+
+	@Test
+	public void evalTwice() throws Exception
+	{
+		Interpreter.ParsedScript script = Interpreter.parse(new StringReader(SCRIPT), "test.bsh");
+		assertEquals(3, script.getStatementCount());
+
+		Interpreter interpreter = new Interpreter();
+		for (int i = 0; i < 2; i++)
+		{
+			NameSpace nameSpace = new NameSpace(interpreter.getNameSpace(), "test");
+			interpreter.eval(script, nameSpace);
+			assertEquals(90, Primitive.unwrap(nameSpace.getVariable("total")));
+		}
+	}
+
+	@Test
+	public void sameAsSource() throws Exception
+	{
+		Interpreter interpreter = new Interpreter();
+		NameSpace parsed = new NameSpace(interpreter.getNameSpace(), "parsed");
+		interpreter.eval(Interpreter.parse(new StringReader(SCRIPT), "test.bsh"), parsed);
+		NameSpace source = new NameSpace(interpreter.getNameSpace(), "source");
+		interpreter.eval(new StringReader(SCRIPT), source, "test.bsh");
+		assertEquals(source.getVariable("total"), parsed.getVariable("total"));
+	}
+
+	@Test
+	public void returnValue() throws Exception
+	{
+		Interpreter.ParsedScript script = Interpreter.parse(
+			new StringReader("a = 1;\nreturn a + 1;\na = 5;\n"), "test.bsh");
+		Interpreter interpreter = new Interpreter();
+		NameSpace nameSpace = new NameSpace(interpreter.getNameSpace(), "test");
+		assertEquals(2, interpreter.eval(script, nameSpace));
+		assertEquals(1, Primitive.unwrap(nameSpace.getVariable("a")));
+	}
+
+	@Test
+	public void errorsAsSource() throws Exception
+	{
+		String script = "a = 1;\nb = \"abc\".substring(5);\n";
+		Interpreter interpreter = new Interpreter();
+		String[] messages = new String[2];
+		for (int i = 0; i < 2; i++)
+		{
+			NameSpace nameSpace = new NameSpace(interpreter.getNameSpace(), "test");
+			try
+			{
+				if (i == 0)
+					interpreter.eval(Interpreter.parse(new StringReader(script), "test.bsh"), nameSpace);
+				else
+					interpreter.eval(new StringReader(script), nameSpace, "test.bsh");
+				fail();
+			}
+			catch (TargetError e)
+			{
+				assertEquals(2, e.getErrorLineNumber());
+				messages[i] = e.getMessage();
+			}
+		}
+		assertEquals(messages[1], messages[0]);
+	}
+
+	@Test
+	public void concurrentEvals() throws Exception
+	{
+		// the scripted method gets compiled while the threads run it
+		Interpreter.ParsedScript script = Interpreter.parse(new StringReader(SCRIPT
+			+ "for (int i = 0; i < 1000; i++)\n"
+			+ "\ttotal += twice(i) - new StringBuilder().append(i).length();\n"), "test.bsh");
+		Interpreter interpreter = new Interpreter();
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<Object>> totals = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+			{
+				totals.add(threads.submit(() ->
+				{
+					NameSpace nameSpace = new NameSpace(interpreter.getNameSpace(), "test");
+					interpreter.eval(script, nameSpace);
+					return Primitive.unwrap(nameSpace.getVariable("total"));
+				}));
+			}
+			for (Future<Object> total : totals)
+				assertEquals(90 + 999000 - 2890, total.get());
+		}
+		finally
+		{
+			threads.shutdown();
+		}
+	}
+
+	@Test(expected = ParseException.class)
+	public void syntaxError() throws Exception
+	{
+		Interpreter.parse(new StringReader("a = 1;\nb = ;\n"), "test.bsh");
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BufferSnapshotTest
+{
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		buffer = TestBuffers.create("one\ntwo\nthree\n");
+	}
+
+	@Test
+	public void snapshotIsUnchangedByEdits()
+	{
+		BufferSnapshot snapshot = buffer.getSnapshot();
+		long version = buffer.getVersion();
+		assertEquals(version, snapshot.getVersion());
+
+		buffer.insert(4, "inserted\n");
+		buffer.remove(0, 2);
+		buffer.insert(buffer.getLength(), "four");
+		assertTrue(buffer.getVersion() > version);
+
+		assertEquals("one\ntwo\nthree\n", snapshot.toString());
+		assertEquals(14, snapshot.length());
+		assertEquals(4, snapshot.getLineCount());
+		assertEquals(4, snapshot.getLineStartOffset(1));
+		assertEquals(8, snapshot.getLineStartOffset(2));
+		assertEquals("two", snapshot.getLineSegment(1).toString());
+		assertEquals("e\ntw", snapshot.getText(2, 4));
+	}
+
+	@Test
+	public void sameAsBuffer()
+	{
+		// leave a gap in the text and in the line offsets
+		buffer.insert(8, "a\nb\n");
+		buffer.remove(2, 3);
+		BufferSnapshot snapshot = buffer.getSnapshot();
+		assertEquals(buffer.getText(), snapshot.toString());
+		assertEquals(buffer.getLineCount(), snapshot.getLineCount());
+		for (int i = 0; i < buffer.getLineCount(); i++)
+		{
+			assertEquals(buffer.getLineStartOffset(i), snapshot.getLineStartOffset(i));
+			assertEquals(buffer.getLineEndOffset(i), snapshot.getLineEndOffset(i));
+		}
+		for (int i = 0; i <= buffer.getLength(); i++)
+			assertEquals(buffer.getLineOfOffset(i), snapshot.getLineOfOffset(i));
+		for (int i = 0; i < buffer.getLength(); i++)
+			assertEquals(buffer.getText(i, 1).charAt(0), snapshot.charAt(i));
+	}
+}
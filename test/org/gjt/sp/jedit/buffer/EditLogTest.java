@@ -0,0 +1,99 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EditLogTest
+{
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		buffer = TestBuffers.create("int foo;\nint bar;\n");
+	}
+
+	@Test
+	public void transformOffset()
+	{
+		long version = buffer.getVersion();
+		buffer.insert(0, "// x\n");
+		buffer.remove(9, 3);
+		long current = buffer.getVersion();
+		assertEquals("// x\nint ;\nint bar;\n", buffer.getText());
+
+		assertEquals(5, buffer.transformOffset(0, version, current));
+		// in the removed range
+		assertEquals(9, buffer.transformOffset(5, version, current));
+		assertEquals(9, buffer.transformOffset(7, version, current));
+		assertEquals(15, buffer.transformOffset(13, version, current));
+		assertEquals(5, buffer.transformOffset(0, version, version + 1));
+		assertEquals(13, buffer.transformOffset(13, current, current));
+	}
+
+	@Test
+	public void transformRange()
+	{
+		long version = buffer.getVersion();
+		buffer.insert(4, "x");
+		buffer.insert(8, "y");
+		assertArrayEquals(new int[] { 5, 8 },
+			buffer.transformRange(4, 7, version, buffer.getVersion()));
+
+		version = buffer.getVersion();
+		buffer.remove(3, 7);
+		assertArrayEquals(new int[] { 3, 3 },
+			buffer.transformRange(5, 8, version, buffer.getVersion()));
+	}
+
+	@Test
+	public void batch()
+	{
+		long version = buffer.getVersion();
+		MultiEdit edits = new MultiEdit();
+		edits.add(4, 3, "quux");
+		edits.add(13, 3, "b");
+		buffer.applyEdits(edits);
+		assertEquals(version + 1, buffer.getVersion());
+		for (int offset = 0; offset <= 18; offset++)
+		{
+			assertEquals(edits.mapOffset(offset),
+				buffer.transformOffset(offset, version, buffer.getVersion()));
+		}
+	}
+
+	@Test
+	public void unknownVersions()
+	{
+		long version = buffer.getVersion();
+		for (int i = 0; i < 2000; i++)
+			buffer.insert(0, "x");
+		assertEquals(-1, buffer.transformOffset(0, version, buffer.getVersion()));
+		assertNull(buffer.transformRange(0, 1, version, buffer.getVersion()));
+		assertEquals(-1, buffer.transformOffset(0, buffer.getVersion(), buffer.getVersion() + 1));
+		assertEquals(11, buffer.transformOffset(1, buffer.getVersion() - 10, buffer.getVersion()));
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.textarea.StandaloneTextArea;
+import org.gjt.sp.util.StandardUtilities;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Position;
+
+import static org.junit.Assert.*;
+
+public class IndentLinesTest
+{
+	/** Java code with its indent mangled, and an unbalanced comment. */
+	private static final String TEXT =
+		"class A\n"
+		+ "{\n"
+		+ "void f(int i)\n"
+		+ "        {\n"
+		+ "if (i > 0)\n"
+		+ "  return;\n"
+		+ "\t\t\tfor (;;)\n"
+		+ "{\n"
+		+ "  /* one\n"
+		+ "two */\n"
+		+ "g(i);\n"
+		+ "      }\n"
+		+ "\n"
+		+ "   }\n"
+		+ "\t}\n";
+
+	private Mode mode;
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		mode = TestBuffers.getMode("java", "xml");
+		buffer = createBuffer();
+	}
+
+	/**
+	 * Each line sees the new indent of the lines before it, as when they
+	 * are indented one at a time.
+	 */
+	@Test
+	public void sameAsLineByLine()
+	{
+		JEditBuffer expected = createBuffer();
+		for (int i = 0; i < expected.getLineCount(); i++)
+			expected.indentLine(i, true);
+
+		buffer.indentLines(0, buffer.getLineCount() - 1);
+		assertEquals(expected.getText(), buffer.getText());
+		assertEquals("\tvoid f(int i)", buffer.getLineText(2));
+		assertEquals("\t\t\tg(i);", buffer.getLineText(10));
+	}
+
+	@Test
+	public void someLines()
+	{
+		int[] lines = { 2, 3, 6, 10 };
+		JEditBuffer expected = createBuffer();
+		for (int line : lines)
+			expected.indentLine(line, true);
+
+		buffer.indentLines(lines);
+		assertEquals(expected.getText(), buffer.getText());
+
+		// unsorted lines are indented one at a time, in their order
+		JEditBuffer unsorted = createBuffer();
+		unsorted.indentLines(new int[] { 10, 6, 3, 2 });
+		expected = createBuffer();
+		for (int i = lines.length - 1; i >= 0; i--)
+			expected.indentLine(lines[i], true);
+		assertEquals(expected.getText(), unsorted.getText());
+	}
+
+	/**
+	 * The positions in a replaced indent move after the new indent, as
+	 * with an insert at the start of the line, and the listeners see one
+	 * batch of edits.
+	 */
+	@Test
+	public void positionsAndEvents()
+	{
+		JEditBuffer expected = createBuffer();
+		for (int i = 0; i < expected.getLineCount(); i++)
+			expected.indentLine(i, true);
+
+		Position[] positions = createPositions(buffer);
+		int[] transactions = new int[1];
+		buffer.addBufferListener(new BufferAdapter()
+		{
+			@Override
+			public void transactionComplete(JEditBuffer buffer)
+			{
+				transactions[0]++;
+			}
+		});
+		buffer.indentLines(0, buffer.getLineCount() - 1);
+		assertEquals(1, transactions[0]);
+
+		JEditBuffer original = createBuffer();
+		Position[] originalPositions = createPositions(original);
+		for (int i = 0; i < positions.length; i++)
+		{
+			int line = i / 3;
+			int start = expected.getLineStartOffset(line);
+			int offset;
+			if (expected.getLineText(line).equals(original.getLineText(line)))
+				offset = start + originalPositions[i].getOffset() - original.getLineStartOffset(line);
+			else
+				offset = start + StandardUtilities.getLeadingWhiteSpace(expected.getLineText(line));
+			assertEquals("position " + i, offset, positions[i].getOffset());
+		}
+	}
+
+	@Test
+	public void undoInOneStep()
+	{
+		StandaloneTextArea textArea = StandaloneTextArea.createTextArea();
+		textArea.setBuffer(buffer);
+		buffer.indentLines(0, buffer.getLineCount() - 1);
+		assertNotEquals(TEXT, buffer.getText());
+		buffer.undo(textArea);
+		assertEquals(TEXT, buffer.getText());
+		assertFalse(buffer.canUndo());
+	}
+
+	/**
+	 * @return positions at the start, in the indent and after the indent
+	 * of every line
+	 */
+	private static Position[] createPositions(JEditBuffer buffer)
+	{
+		Position[] positions = new Position[buffer.getLineCount() * 3];
+		for (int i = 0; i < buffer.getLineCount(); i++)
+		{
+			int start = buffer.getLineStartOffset(i);
+			int indent = StandardUtilities.getLeadingWhiteSpace(buffer.getLineText(i));
+			positions[i * 3] = buffer.createPosition(start);
+			positions[i * 3 + 1] = buffer.createPosition(start + indent / 2);
+			positions[i * 3 + 2] = buffer.createPosition(start + indent);
+		}
+		return positions;
+	}
+
+	private JEditBuffer createBuffer()
+	{
+		JEditBuffer buffer = TestBuffers.create(TEXT, mode);
+		buffer.setIntegerProperty("tabSize", 4);
+		buffer.setIntegerProperty("indentSize", 4);
+		return buffer;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.syntax.DummyTokenHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MarkTokensTest
+{
+	private static final int LINES = 3000;
+
+	private Mode mode;
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		// the java mode delegates to the xml mode in comments
+		mode = TestBuffers.getMode("java", "xml");
+		buffer = createBuffer();
+	}
+
+	/**
+	 * Tokenizes while holding the read lock in another thread, like the
+	 * background layout and pagination, while another thread edits the
+	 * buffer, and checks that the recorded contexts are those of a
+	 * buffer tokenized in one thread.
+	 */
+	@Test
+	public void concurrentTokenizing() throws Exception
+	{
+		for (int rep = 0; rep < 6; rep++)
+		{
+			// opens or closes the comment spanning the buffer, so that
+			// the context of all the lines changes
+			if (rep % 2 == 0)
+				buffer.insert(buffer.getLineStartOffset(1), "*/\n");
+			else
+				buffer.remove(buffer.getLineStartOffset(1), 3);
+
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			Thread background = new Thread(() ->
+			{
+				try
+				{
+					for (int i = LINES - 1; i >= 0; i -= 7)
+					{
+						buffer.readLock();
+						try
+						{
+							buffer.markTokens(i, DummyTokenHandler.INSTANCE);
+						}
+						finally
+						{
+							buffer.readUnlock();
+						}
+					}
+				}
+				catch (Throwable t)
+				{
+					error.set(t);
+				}
+			});
+			// queues for the write lock while the others tokenize
+			Thread writer = new Thread(() ->
+			{
+				try
+				{
+					for (int i = 0; i < 200; i++)
+					{
+						int offset = buffer.getLength() - 1;
+						buffer.insert(offset, "x");
+						buffer.remove(offset, 1);
+					}
+				}
+				catch (Throwable t)
+				{
+					error.set(t);
+				}
+			});
+			background.start();
+			writer.start();
+			for (int i = 0; i < LINES; i += 3)
+				buffer.markTokens(i, DummyTokenHandler.INSTANCE);
+			background.join(60000);
+			writer.join(60000);
+			assertFalse("deadlock", background.isAlive() || writer.isAlive());
+			assertNull(error.get());
+
+			JEditBuffer expected = TestBuffers.create(buffer.getText(), mode);
+			int lineCount = buffer.getLineCount();
+			expected.markTokens(lineCount - 1, DummyTokenHandler.INSTANCE);
+			buffer.markTokens(lineCount - 1, DummyTokenHandler.INSTANCE);
+			for (int i = 0; i < lineCount; i++)
+				assertEquals("line " + i, expected.getLineContext(i), buffer.getLineContext(i));
+		}
+	}
+
+	private JEditBuffer createBuffer()
+	{
+		StringBuilder text = new StringBuilder("/*\n");
+		for (int i = 0; i < LINES; i++)
+			text.append("int f").append(i).append("() { return \"s\".length(); }\n");
+		text.append("*/\n");
+		return TestBuffers.create(text.toString(), mode);
+	}
+}
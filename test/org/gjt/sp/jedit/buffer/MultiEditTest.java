@@ -0,0 +1,216 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Position;
+
+import static org.junit.Assert.*;
+
+public class MultiEditTest
+{
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		buffer = TestBuffers.create("foo bar foo\nfoo baz\nbar foo\n");
+	}
+
+	@Test
+	public void applyEdits()
+	{
+		MultiEdit edits = new MultiEdit();
+		edits.add(0, 3, "quux");
+		edits.add(8, 3, "quux");
+		edits.add(12, 3, "quux");
+		edits.add(24, 3, "quux");
+		buffer.applyEdits(edits);
+		assertEquals("quux bar quux\nquux baz\nbar quux\n", buffer.getText());
+		assertEquals(4, buffer.getLineCount());
+		assertEquals(14, buffer.getLineStartOffset(1));
+		assertEquals(23, buffer.getLineStartOffset(2));
+		assertTrue(edits.isLinePreserving());
+		assertEquals(4, edits.getLengthDelta());
+	}
+
+	@Test
+	public void applyEditsChangingLines()
+	{
+		MultiEdit edits = new MultiEdit();
+		edits.add(3, 1, "\n");
+		edits.add(11, 1, " ");
+		edits.add(20, 0, "> ");
+		buffer.applyEdits(edits);
+		assertEquals("foo\nbar foo foo baz\n> bar foo\n", buffer.getText());
+		assertEquals(4, buffer.getLineCount());
+		assertEquals(4, buffer.getLineStartOffset(1));
+		assertEquals(20, buffer.getLineStartOffset(2));
+		assertFalse(edits.isLinePreserving());
+	}
+
+	@Test
+	public void sameAsSequentialEdits()
+	{
+		JEditBuffer sequential = TestBuffers.create(buffer.getText());
+
+		MultiEdit edits = new MultiEdit();
+		int[][] ranges = { { 1, 2 }, { 5, 0 }, { 5, 4 }, { 11, 1 }, { 19, 3 } };
+		String[] texts = { "", "<", "\n\n", "x", "yz" };
+		for (int i = 0; i < ranges.length; i++)
+			edits.add(ranges[i][0], ranges[i][1], texts[i]);
+		for (int i = ranges.length - 1; i >= 0; i--)
+		{
+			sequential.remove(ranges[i][0], ranges[i][1]);
+			sequential.insert(ranges[i][0], texts[i]);
+		}
+
+		buffer.applyEdits(edits);
+		assertEquals(sequential.getText(), buffer.getText());
+		assertEquals(sequential.getLineCount(), buffer.getLineCount());
+		for (int i = 0; i < buffer.getLineCount(); i++)
+			assertEquals(sequential.getLineStartOffset(i), buffer.getLineStartOffset(i));
+	}
+
+	@Test
+	public void mapOffset()
+	{
+		MultiEdit edits = new MultiEdit();
+		edits.add(2, 2, "XYZ");
+		edits.add(6, 0, "W");
+		assertEquals(0, edits.mapOffset(0));
+		assertEquals(1, edits.mapOffset(1));
+		// an offset in a removed range moves after the inserted text
+		assertEquals(5, edits.mapOffset(2));
+		assertEquals(5, edits.mapOffset(3));
+		assertEquals(5, edits.mapOffset(4));
+		assertEquals(6, edits.mapOffset(5));
+		assertEquals(8, edits.mapOffset(6));
+		assertEquals(9, edits.mapOffset(7));
+	}
+
+	@Test
+	public void positions()
+	{
+		Position foo = buffer.createPosition(8);
+		Position baz = buffer.createPosition(16);
+		MultiEdit edits = new MultiEdit();
+		edits.add(0, 3, "quux");
+		edits.add(8, 3, "quux");
+		buffer.applyEdits(edits);
+		assertEquals(13, foo.getOffset());
+		assertEquals(18, baz.getOffset());
+	}
+
+	@Test
+	public void positionsInTheRange()
+	{
+		// the positions in the range spanned by the edits all share its
+		// start, until the new text is inserted
+		Position[] positions = new Position[buffer.getLength() + 1];
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = buffer.createPosition(i);
+		MultiEdit edits = new MultiEdit();
+		edits.add(4, 3, "quux");
+		edits.add(12, 0, "> ");
+		edits.add(16, 4, null);
+		buffer.applyEdits(edits);
+		for (int i = 0; i < positions.length; i++)
+			assertEquals("position " + i, edits.mapOffset(i), positions[i].getOffset());
+	}
+
+	@Test
+	public void positionsSeenByListeners()
+	{
+		Position end = buffer.createPosition(buffer.getLength());
+		final int[] offsets = new int[2];
+		buffer.addBufferListener(new BufferAdapter()
+		{
+			@Override
+			public void contentRemoved(JEditBuffer buffer, int startLine,
+				int offset, int numLines, int length)
+			{
+				offsets[0] = end.getOffset();
+			}
+
+			@Override
+			public void contentInserted(JEditBuffer buffer, int startLine,
+				int offset, int numLines, int length)
+			{
+				offsets[1] = end.getOffset();
+			}
+		});
+		MultiEdit edits = new MultiEdit();
+		edits.add(0, 3, "quux");
+		edits.add(8, 3, "quux");
+		buffer.applyEdits(edits);
+		// the range spanned by the edits is removed, then inserted
+		assertEquals(28 - 11, offsets[0]);
+		assertEquals(30, offsets[1]);
+		assertEquals(30, end.getOffset());
+	}
+
+	@Test
+	public void noEventsWhileLoading()
+	{
+		final int[] events = new int[1];
+		buffer.addBufferListener(new BufferAdapter()
+		{
+			@Override
+			public void contentInserted(JEditBuffer buffer, int startLine,
+				int offset, int numLines, int length)
+			{
+				events[0]++;
+			}
+
+			@Override
+			public void contentRemoved(JEditBuffer buffer, int startLine,
+				int offset, int numLines, int length)
+			{
+				events[0]++;
+			}
+
+			@Override
+			public void transactionComplete(JEditBuffer buffer)
+			{
+				events[0]++;
+			}
+		});
+		buffer.setLoading(true);
+		MultiEdit edits = new MultiEdit();
+		edits.add(0, 3, "quux");
+		edits.add(8, 3, "quux");
+		buffer.applyEdits(edits);
+		buffer.setLoading(false);
+		assertEquals(0, events[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overlappingEdits()
+	{
+		MultiEdit edits = new MultiEdit();
+		edits.add(4, 3, "a");
+		edits.add(5, 1, "b");
+	}
+}
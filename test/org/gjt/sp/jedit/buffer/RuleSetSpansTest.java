@@ -0,0 +1,148 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.TextUtilities;
+import org.gjt.sp.jedit.syntax.DefaultTokenHandler;
+import org.gjt.sp.jedit.syntax.ParserRuleSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RuleSetSpansTest
+{
+	/** HTML with embedded JavaScript and CSS. */
+	private static final String TEXT =
+		"<html>\n"
+		+ "<head>\n"
+		+ "<style type=\"text/css\">\n"
+		+ "body { color: red; }\n"
+		+ "</style>\n"
+		+ "<script type=\"text/javascript\">\n"
+		+ "var s = \"</p>\"; // comment\n"
+		+ "</script>\n"
+		+ "</head>\n"
+		+ "<body onload=\"f(1)\" style=\"margin: 0\">\n"
+		+ "<!-- <script> -->\n"
+		+ "<p>&amp; text</p>\n"
+		+ "\n"
+		+ "</body>\n"
+		+ "</html>\n";
+
+	/** Bits of text opening and closing the delegated rule sets. */
+	private static final String[] INSERTS =
+	{
+		"<script>", "</script>", "<style>", "</style>", "<!--", "-->",
+		"\"", "/*", "*/", "\n", "x", "<p style=\"", "{"
+	};
+
+	private Mode mode;
+	private JEditBuffer buffer;
+
+	@Before
+	public void setUp()
+	{
+		mode = TestBuffers.getMode("html", "javascript", "css", "xml");
+		buffer = TestBuffers.create(TEXT, mode);
+	}
+
+	/**
+	 * The rule sets are those of the token at each offset, as when the
+	 * line is tokenized again.
+	 */
+	@Test
+	public void ruleSets()
+	{
+		assertRuleSets(buffer);
+		// recorded on the first lookup, and now only read
+		assertRuleSets(buffer);
+
+		boolean delegated = false;
+		for (int i = 0; i <= buffer.getLength(); i++)
+			delegated |= buffer.getRuleSetAtOffset(i).getModeName().equals("javascript");
+		assertTrue(delegated);
+	}
+
+	/**
+	 * After edits changing the context of the lines below, the rule sets
+	 * are those of a buffer tokenized from scratch.
+	 */
+	@Test
+	public void edits()
+	{
+		Random random = new Random(39);
+		for (int rep = 0; rep < 300; rep++)
+		{
+			int offset = random.nextInt(buffer.getLength() + 1);
+			if (random.nextBoolean() && offset < buffer.getLength())
+				buffer.remove(offset, Math.min(random.nextInt(12) + 1, buffer.getLength() - offset));
+			else
+				buffer.insert(offset, INSERTS[random.nextInt(INSERTS.length)]);
+
+			// looks up a few offsets, so that only some lines are
+			// tokenized between the edits
+			for (int i = 0; i < 3; i++)
+				buffer.getRuleSetAtOffset(random.nextInt(buffer.getLength() + 1));
+			if (rep % 30 == 0)
+				assertRuleSets(buffer);
+		}
+		assertRuleSets(buffer);
+	}
+
+	@Test
+	public void changedTokenMarker()
+	{
+		assertRuleSets(buffer);
+		buffer.setMode(TestBuffers.getMode("javascript"));
+		for (int i = 0; i <= buffer.getLength(); i++)
+			assertEquals("javascript", buffer.getRuleSetAtOffset(i).getModeName());
+	}
+
+	/**
+	 * Checks the rule sets at each offset against the tokens of a new
+	 * buffer holding the same text.
+	 */
+	private void assertRuleSets(JEditBuffer buffer)
+	{
+		JEditBuffer expected = TestBuffers.create(buffer.getText(), mode);
+		DefaultTokenHandler tokenHandler = new DefaultTokenHandler();
+		for (int line = 0; line < expected.getLineCount(); line++)
+		{
+			tokenHandler.init();
+			expected.markTokens(line, tokenHandler);
+			int start = expected.getLineStartOffset(line);
+			int length = expected.getLineLength(line);
+			for (int i = 0; i <= length; i++)
+			{
+				// the rule set of the character before the offset
+				ParserRuleSet rules = TextUtilities.getTokenAtOffset(
+					tokenHandler.getTokens(), i == 0 ? 0 : i - 1).rules;
+				assertSame("offset " + (start + i), rules,
+					buffer.getRuleSetAtOffset(start + i));
+			}
+		}
+	}
+}
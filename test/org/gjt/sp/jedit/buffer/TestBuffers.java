@@ -0,0 +1,85 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.buffer;
+
+import org.gjt.sp.jedit.Mode;
+import org.gjt.sp.jedit.syntax.ModeProvider;
+
+/**
+ * Buffers for the tests, which run without the jEdit instance.
+ */
+public final class TestBuffers
+{
+	private TestBuffers()
+	{
+	}
+
+	/**
+	 * @return a new buffer holding the text
+	 */
+	public static JEditBuffer create(String text)
+	{
+		// removed text goes to the kill ring, which has no size yet
+		KillRing.getInstance().propertiesChanged(10);
+		JEditBuffer buffer = new JEditBuffer();
+		buffer.insert(0, text);
+		return buffer;
+	}
+
+	/**
+	 * @return a new buffer holding the text, in the mode
+	 */
+	public static JEditBuffer create(String text, Mode mode)
+	{
+		if (FoldHandler.foldHandlerProvider == null)
+		{
+			// the fold handlers of a StandaloneTextArea
+			DefaultFoldHandlerProvider provider = new DefaultFoldHandlerProvider();
+			provider.addFoldHandler(new ExplicitFoldHandler());
+			provider.addFoldHandler(new IndentFoldHandler());
+			provider.addFoldHandler(new DummyFoldHandler());
+			FoldHandler.foldHandlerProvider = provider;
+		}
+		JEditBuffer buffer = create(text);
+		buffer.setMode(mode);
+		return buffer;
+	}
+
+	/**
+	 * Loads the modes from the modes directory the tests run in.
+	 * @param names The mode, and the modes its rules delegate to
+	 * @return the first mode
+	 */
+	public static Mode getMode(String... names)
+	{
+		for (String name : names)
+		{
+			if (ModeProvider.instance.getMode(name) == null)
+			{
+				Mode mode = new Mode(name);
+				mode.setProperty("file", "modes/" + name + ".xml");
+				ModeProvider.instance.addMode(mode);
+			}
+		}
+		return ModeProvider.instance.getMode(names[0]);
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.bufferio;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TextLoaderTest
+{
+	private static final String[] UTF8_PIECES =
+	{
+		"a", "bc", " ", "é", "€", "😀", "\r", "\n", "\r\n", "\r\r", "\n\n", "\u001a"
+	};
+
+	private static final String[] LATIN1_PIECES =
+	{
+		"a", "bc", " ", "é", "ÿ", "\r", "\n", "\r\n", "\r\r", "\n\n", "\u001a"
+	};
+
+	@Test
+	public void canReadBytes()
+	{
+		assertTrue(TextLoader.canReadBytes(StandardCharsets.UTF_8));
+		assertTrue(TextLoader.canReadBytes(StandardCharsets.ISO_8859_1));
+		assertTrue(TextLoader.canReadBytes(StandardCharsets.US_ASCII));
+		assertTrue(TextLoader.canReadBytes(Charset.forName("windows-1252")));
+		assertFalse(TextLoader.canReadBytes(StandardCharsets.UTF_16));
+		assertFalse(TextLoader.canReadBytes(Charset.forName("Shift_JIS")));
+		if (Charset.isSupported("IBM037"))
+			assertFalse(TextLoader.canReadBytes(Charset.forName("IBM037")));
+	}
+
+	/**
+	 * The text read from the bytes is the one read from a reader, for
+	 * every boundary of the chunks and of the blocks in the text.
+	 */
+	@Test
+	public void utf8()
+	{
+		Random random = new Random(43);
+		for (int rep = 0; rep < 200; rep++)
+			assertSameText(randomText(random, UTF8_PIECES), StandardCharsets.UTF_8, random);
+	}
+
+	@Test
+	public void latin1()
+	{
+		Random random = new Random(44);
+		for (int rep = 0; rep < 200; rep++)
+			assertSameText(randomText(random, LATIN1_PIECES), StandardCharsets.ISO_8859_1, random);
+	}
+
+	@Test
+	public void separators()
+	{
+		Random random = new Random(45);
+		String[] texts = { "", "\r", "\n", "\r\n", "a\r", "a\r\nb", "a\rb\nc", "a\r\r\nb\n\r", "\r\n\r\n\n" };
+		for (String text : texts)
+			assertSameText(text, StandardCharsets.UTF_8, random);
+	}
+
+	/**
+	 * A large text is cut in several chunks of the default size.
+	 */
+	@Test
+	public void largeText() throws Exception
+	{
+		Random random = new Random(46);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 3 << 20)
+			text.append(UTF8_PIECES[random.nextInt(UTF8_PIECES.length)]);
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+		TextLoader expected = readChars(bytes, StandardCharsets.UTF_8, 8192);
+		TextLoader loader = new TextLoader(bytes.length);
+		loader.read(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, null);
+		assertSameText(expected, loader, "large text");
+	}
+
+	@Test
+	public void malformed() throws Exception
+	{
+		byte[] bytes = "abc\r\né€".getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i <= bytes.length; i++)
+		{
+			// a character cut at the end, or a byte out of UTF-8
+			byte[] invalid = i == bytes.length ? Arrays.copyOf(bytes, bytes.length - 1) : bytes.clone();
+			if (i < bytes.length)
+				invalid[i] = (byte) 0xff;
+			for (int chunkSize = 1; chunkSize < 5; chunkSize++)
+			{
+				try
+				{
+					new TextLoader(0).read(new ByteArrayInputStream(invalid),
+						StandardCharsets.UTF_8, chunkSize, 2, null);
+					fail("no error at " + i);
+				}
+				catch (CharacterCodingException e)
+				{
+					// expected
+				}
+			}
+		}
+	}
+
+	private static String randomText(Random random, String[] pieces)
+	{
+		StringBuilder text = new StringBuilder();
+		int length = random.nextInt(40);
+		for (int i = 0; i < length; i++)
+			text.append(pieces[random.nextInt(pieces.length)]);
+		return text.toString();
+	}
+
+	/**
+	 * Reads the text from its bytes, with all the chunk sizes up to its
+	 * length, and compares it to the text read one character at a time,
+	 * and by random reads, from a reader.
+	 */
+	private static void assertSameText(String text, Charset charset, Random random)
+	{
+		byte[] bytes = text.getBytes(charset);
+		TextLoader expected = readChars(bytes, charset, 1);
+		assertSameText(expected, readChars(bytes, charset, 1 + random.nextInt(8)), text);
+		for (int chunkSize = 1; chunkSize <= bytes.length + 1; chunkSize++)
+		{
+			for (int chunkCount = 1; chunkCount <= 3; chunkCount++)
+			{
+				TextLoader loader = new TextLoader(0);
+				try
+				{
+					loader.read(new ByteArrayInputStream(bytes), charset, chunkSize, chunkCount, null);
+				}
+				catch (IOException | InterruptedException e)
+				{
+					throw new AssertionError(e);
+				}
+				assertSameText(expected, loader, text + " in chunks of " + chunkSize + " by " + chunkCount);
+			}
+		}
+	}
+
+	private static void assertSameText(TextLoader expected, TextLoader loader, String message)
+	{
+		assertEquals(message, expected.seg.toString(), loader.seg.toString());
+		assertArrayEquals(message,
+			Arrays.copyOf(expected.endOffsets.getArray(), expected.endOffsets.getSize()),
+			Arrays.copyOf(loader.endOffsets.getArray(), loader.endOffsets.getSize()));
+		assertEquals(message, expected.getLineSeparator(), loader.getLineSeparator());
+	}
+
+	/**
+	 * Reads the text from a reader returning at most the given number of
+	 * characters at a time.
+	 */
+	private static TextLoader readChars(byte[] bytes, Charset charset, int readLength)
+	{
+		TextLoader loader = new TextLoader(0);
+		Reader reader = new FilterReader(new InputStreamReader(new ByteArrayInputStream(bytes), charset.newDecoder()))
+		{
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException
+			{
+				return super.read(cbuf, off, Math.min(len, readLength));
+			}
+		};
+		try
+		{
+			loader.read(reader, null);
+		}
+		catch (IOException | InterruptedException e)
+		{
+			throw new AssertionError(e);
+		}
+		return loader;
+	}
+}
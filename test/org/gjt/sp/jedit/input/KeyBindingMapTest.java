@@ -0,0 +1,121 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.input;
+
+import org.gjt.sp.jedit.JEditBeanShellAction;
+import org.gjt.sp.jedit.gui.KeyEventTranslator;
+import org.gjt.sp.jedit.textarea.StandaloneTextArea;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import static org.junit.Assert.*;
+
+public class KeyBindingMapTest
+{
+	private AbstractInputHandler<?> inputHandler;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		StandaloneTextArea textArea = StandaloneTextArea.createTextArea();
+		inputHandler = textArea.getInputHandler();
+	}
+
+	@Test
+	public void resolvesActions()
+	{
+		inputHandler.addKeyBinding("C+F12", "select-all");
+		Object binding = inputHandler.getBinding(KeyEventTranslator.parseKey("C+F12"));
+		assertTrue(binding instanceof JEditBeanShellAction);
+		assertEquals("select-all", ((JEditBeanShellAction) binding).getName());
+	}
+
+	@Test
+	public void keepsUnknownActionNames()
+	{
+		inputHandler.addKeyBinding("C+F12", "no-such-action");
+		assertEquals("no-such-action", inputHandler.getBinding(KeyEventTranslator.parseKey("C+F12")));
+	}
+
+	@Test
+	public void prefix()
+	{
+		inputHandler.addKeyBinding("C+F11 C+F12", "select-all");
+		Object prefix = inputHandler.getBinding(KeyEventTranslator.parseKey("C+F11"));
+		assertTrue(prefix instanceof Hashtable);
+		assertSame(inputHandler.getKeyBinding("C+F11"), prefix);
+
+		inputHandler.setCurrentBindings((Hashtable) prefix);
+		Object binding = inputHandler.getBinding(KeyEventTranslator.parseKey("C+F12"));
+		assertTrue(binding instanceof JEditBeanShellAction);
+		assertNull(inputHandler.getBinding(KeyEventTranslator.parseKey("C+F11")));
+	}
+
+	@Test
+	public void compiledAgain()
+	{
+		KeyEventTranslator.Key key = KeyEventTranslator.parseKey("C+F12");
+		assertNull(inputHandler.getBinding(key));
+		inputHandler.addKeyBinding("C+F12", "select-all");
+		assertNotNull(inputHandler.getBinding(key));
+		inputHandler.removeKeyBinding("C+F12");
+		assertNull(inputHandler.getBinding(key));
+	}
+
+	@Test
+	public void sameAsTable()
+	{
+		Hashtable<?, ?> bindings = inputHandler.bindings;
+		assertFalse(bindings.isEmpty());
+		KeyBindingMap map = KeyBindingMap.compile(bindings, null);
+		Enumeration<?> keys = bindings.keys();
+		while (keys.hasMoreElements())
+		{
+			Object key = keys.nextElement();
+			if (!(key instanceof KeyEventTranslator.Key))
+				continue;
+			Object value = map.get((KeyEventTranslator.Key) key);
+			if (value instanceof KeyBindingMap)
+				value = ((KeyBindingMap) value).getBindings();
+			assertSame(bindings.get(key), value);
+		}
+		assertNull(map.get(new KeyEventTranslator.Key("CAMS", 0, 'x')));
+	}
+
+	@Test
+	public void distinctModifiers()
+	{
+		// as in the tables, the modifiers are compared as strings
+		String[] modifiers = { null, "C", "S", "CS", "SC", "CAMS", "X", "Y", "CX", "CAMSC", "" };
+		Hashtable<Object, Object> bindings = new Hashtable<>();
+		for (String modifier : modifiers)
+			bindings.put(new KeyEventTranslator.Key(modifier, 0, 'x'), String.valueOf(modifier));
+		KeyBindingMap map = KeyBindingMap.compile(bindings, null);
+		for (String modifier : modifiers)
+			assertEquals(String.valueOf(modifier), map.get(new KeyEventTranslator.Key(modifier, 0, 'x')));
+		assertNull(map.get(new KeyEventTranslator.Key("Z", 0, 'x')));
+		assertNull(map.get(new KeyEventTranslator.Key("X", 0, 'y')));
+	}
+}
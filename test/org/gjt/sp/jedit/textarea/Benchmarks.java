@@ -0,0 +1,85 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+import org.gjt.sp.jedit.buffer.KillRing;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Support for the benchmarks, which are only run with
+ * <code>-Djedit.benchmark=true</code>.
+ */
+public final class Benchmarks
+{
+	private Benchmarks()
+	{
+	}
+
+	/**
+	 * Skips the calling test unless the benchmarks are enabled.
+	 */
+	public static void assumeEnabled()
+	{
+		assumeTrue(Boolean.getBoolean("jedit.benchmark"));
+	}
+
+	/**
+	 * @return a text area showing a new buffer holding the text
+	 */
+	public static StandaloneTextArea createTextArea(CharSequence text)
+	{
+		KillRing.getInstance().propertiesChanged(100);
+		StandaloneTextArea textArea = StandaloneTextArea.createTextArea();
+		textArea.getBuffer().insert(0, text.toString());
+		return textArea;
+	}
+
+	/**
+	 * Runs a task and reports its time.
+	 */
+	public static void time(String name, Runnable task)
+	{
+		long start = System.nanoTime();
+		task.run();
+		report(name, System.nanoTime() - start);
+	}
+
+	/**
+	 * Runs a task and reports its time.
+	 * @return the result of the task
+	 */
+	public static <T> T time(String name, Callable<T> task) throws Exception
+	{
+		long start = System.nanoTime();
+		T result = task.call();
+		report(name, System.nanoTime() - start);
+		return result;
+	}
+
+	private static void report(String name, long nanos)
+	{
+		System.out.println(name + ": " + nanos / 1000000 + " ms");
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+import org.gjt.sp.jedit.buffer.IndentFoldHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times {@link DisplayManager#expandFolds(int)} on a buffer with many folds.
+ * Only run with <code>-Djedit.benchmark=true</code>.
+ */
+public class ExpandFoldsBenchmarkTest
+{
+	private static final int REGIONS = 100000;
+
+	private StandaloneTextArea textArea;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Benchmarks.assumeEnabled();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < REGIONS; i++)
+			text.append("fold ").append(i).append("\n\tinner a\n\t\tdeeper\n\tinner b\n");
+		textArea = Benchmarks.createTextArea(text);
+		textArea.propertiesChanged();
+		textArea.getBuffer().setFoldHandler(new IndentFoldHandler());
+	}
+
+	@Test
+	public void expandFolds()
+	{
+		DisplayManager displayManager = textArea.getDisplayManager();
+		// the visible lines at each level: the top level lines, then
+		// the lines indented once, then all the lines
+		int[] expected = { REGIONS, REGIONS * 3 + 1, REGIONS * 4 + 1 };
+		for (int rep = 0; rep < 5; rep++)
+		{
+			for (int level = 1; level <= 3; level++)
+			{
+				textArea.setFirstPhysicalLine(REGIONS * 2);
+				int foldLevel = level;
+				Benchmarks.time("expandFolds(" + level + ")",
+					() -> displayManager.expandFolds(foldLevel));
+				int visible = 0;
+				for (int line = displayManager.getFirstVisibleLine(); line != -1;
+					line = displayManager.getNextVisibleLine(line))
+				{
+					visible++;
+				}
+				assertEquals(expected[level - 1], visible);
+				assertEquals(expected[level - 1], displayManager.getScrollLineCount());
+			}
+			Benchmarks.time("expandAllFolds()", displayManager::expandAllFolds);
+		}
+	}
+}
@@ -90,6 +90,46 @@ public class FirstLineTest
 		assertEquals(34, preContentInsertedScrollLines.get(firstLine));
 	}
 
+	@Test
+	public void scrollDownToTheEnd()
+	{
+		mockScreenLineIndex();
+		firstLine.setPhysicalLine(0);
+		firstLine.scrollDown(6);
+		assertEquals(5, firstLine.getPhysicalLine());
+		assertEquals(5, firstLine.getScrollLine());
+		assertEquals(1, firstLine.getSkew());
+	}
+
+	@Test
+	public void scrollDownPastTheEnd()
+	{
+		mockScreenLineIndex();
+		firstLine.setPhysicalLine(0);
+		// the first position after the last line
+		firstLine.scrollDown(7);
+		assertEquals(5, firstLine.getPhysicalLine());
+		assertEquals(5, firstLine.getScrollLine());
+		assertEquals(0, firstLine.getSkew());
+
+		firstLine.scrollDown(100);
+		assertEquals(5, firstLine.getPhysicalLine());
+		assertEquals(5, firstLine.getScrollLine());
+		assertEquals(0, firstLine.getSkew());
+	}
+
+	@Test
+	public void scrollUpPastTheStart()
+	{
+		mockScreenLineIndex();
+		firstLine.setPhysicalLine(4);
+		firstLine.setScrollLine(4);
+		firstLine.scrollUp(100);
+		assertEquals(0, firstLine.getPhysicalLine());
+		assertEquals(0, firstLine.getScrollLine());
+		assertEquals(0, firstLine.getSkew());
+	}
+
 	@Test
 	public void setSkew()
 	{
@@ -97,4 +137,16 @@ public class FirstLineTest
 		assertEquals(42, firstLine.getSkew());
 		assertTrue(firstLine.isCallChanged());
 	}
+
+	/**
+	 * Lines 2 and 3 are hidden, and the last line has two screen lines.
+	 */
+	private void mockScreenLineIndex()
+	{
+		ScreenLineIndex index = new ScreenLineIndex();
+		index.reset(new int[] { 1, 3, 0, 0, 1, 2 }, 6);
+		when(displayManager.getScreenLineIndex(anyBoolean())).thenReturn(index);
+		when(displayManager.isLineVisible(anyInt())).thenReturn(true);
+		lenient().when(displayManager.getLastVisibleLine()).thenReturn(5);
+	}
 }
\ No newline at end of file
@@ -22,17 +22,22 @@
 package org.gjt.sp.jedit.textarea;
 
 import org.gjt.sp.jedit.Debug;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
 public class RangeMapTest
 {
 	private RangeMap rangeMap;
+	private boolean foldVisDebug;
 
 	@BeforeClass
 	public static void beforeClass() throws Exception
@@ -43,10 +48,18 @@ public class RangeMapTest
 	@Before
 	public void setUp() throws Exception
 	{
+		foldVisDebug = Debug.FOLD_VIS_DEBUG;
 		rangeMap = new RangeMap();
 		rangeMap.reset(40);
 	}
 
+	@After
+	public void tearDown()
+	{
+		// a failed test leaves the setting it changed
+		Debug.FOLD_VIS_DEBUG = foldVisDebug;
+	}
+
 	@Test
 	public void copy() throws NoSuchFieldException, IllegalAccessException
 	{
@@ -179,6 +192,62 @@ public class RangeMapTest
 		assertEquals(-1, rangeMap.search(0));
 	}
 
+	@Test
+	public void random()
+	{
+		// restored in tearDown()
+		Debug.FOLD_VIS_DEBUG = false;
+		Random random = new Random(42);
+		List<Boolean> visible = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+			visible.add(true);
+		for (int i = 0; i < 5000; i++)
+		{
+			int size = visible.size();
+			// the first line is kept visible
+			int start = 1 + random.nextInt(size - 1);
+			int end = Math.min(size - 1, start + random.nextInt(10));
+			switch (random.nextInt(4))
+			{
+			case 0:
+				// like a fold, the lines around are visible
+				if (!visible.get(start - 1)
+					|| (end != size - 1 && !visible.get(end + 1)))
+					break;
+				rangeMap.hide(start, end);
+				for (int line = start; line <= end; line++)
+					visible.set(line, false);
+				break;
+			case 1:
+				rangeMap.show(start, end);
+				for (int line = start; line <= end; line++)
+					visible.set(line, true);
+				break;
+			case 2:
+				int numLines = 1 + random.nextInt(5);
+				rangeMap.contentInserted(start, numLines);
+				for (int j = 0; j < numLines; j++)
+					visible.add(start + 1, visible.get(start));
+				break;
+			default:
+				if (size < 20)
+					break;
+				// this keeps the line at the end visible, and the
+				// first line of the gap takes its visibility
+				end = Math.min(size - 2, end);
+				if (start >= end)
+					break;
+				visible.set(start, visible.get(end));
+				assertFalse(rangeMap.preContentRemoved(start, end - start));
+				visible.subList(start + 1, end + 1).clear();
+				break;
+			}
+
+			for (int line = 0; line < visible.size(); line++)
+				assertEquals(visible.get(line), isVisibleLine(rangeMap, line));
+		}
+	}
+
 	private static boolean isVisibleLine(RangeMap rangeMap, int line)
 	{
 		return rangeMap.search(line) % 2 == 0;
@@ -0,0 +1,91 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+import org.gjt.sp.jedit.buffer.KillRing;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplaceSelectionTest
+{
+	private StandaloneTextArea textArea;
+
+	@Before
+	public void setUp()
+	{
+		KillRing.getInstance().propertiesChanged(10);
+		textArea = StandaloneTextArea.createTextArea();
+		textArea.setText("foo bar foo");
+	}
+
+	@Test
+	public void severalSelections()
+	{
+		textArea.setSelection(new Selection[] {
+			new Selection.Range(0, 3), new Selection.Range(8, 11) });
+		assertEquals(13, textArea.replaceSelection("quux"));
+		assertEquals("quux bar quux", textArea.getText());
+		Selection[] selection = textArea.getSelection();
+		assertEquals(2, selection.length);
+		assertEquals(4, selection[0].getEnd());
+		assertEquals(13, selection[1].getEnd());
+	}
+
+	@Test
+	public void setSelectedText()
+	{
+		textArea.setSelection(new Selection[] {
+			new Selection.Range(8, 11), new Selection.Range(0, 3) });
+		textArea.setSelectedText("x");
+		assertEquals("x bar x", textArea.getText());
+		assertEquals(7, textArea.getCaretPosition());
+		assertEquals(0, textArea.getSelectionCount());
+	}
+
+	@Test
+	public void adjacentSelections()
+	{
+		// touching selections are merged when they are added, but an
+		// edit removing the text between them leaves them apart
+		textArea.setSelection(new Selection[] {
+			new Selection.Range(4, 7), new Selection.Range(0, 3) });
+		textArea.getBuffer().remove(3, 1);
+		assertEquals(2, textArea.getSelectionCount());
+		textArea.replaceSelection("ab");
+		assertEquals("abab foo", textArea.getText());
+		// replaced one by one, the text of the second is inserted at
+		// the end of the first
+		Selection[] selection = textArea.getSelection();
+		assertEquals(2, selection.length);
+		for (Selection s : selection)
+		{
+			assertEquals(4, s.getStart());
+			assertEquals(4, s.getEnd());
+		}
+
+		// one undo reverts both
+		textArea.getBuffer().undo(textArea);
+		assertEquals("foobar foo", textArea.getText());
+	}
+}
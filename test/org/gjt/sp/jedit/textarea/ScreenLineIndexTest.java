@@ -0,0 +1,224 @@
+/*
+ * jEdit - Programmer's Text Editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright © 2026 jEdit contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gjt.sp.jedit.textarea;
+
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScreenLineIndexTest
+{
+	private ScreenLineIndex index;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		index = new ScreenLineIndex();
+		// line 2 and 3 are hidden
+		index.reset(new int[] { 1, 3, 0, 0, 2, 1 }, 6);
+	}
+
+	@Test
+	public void getScrollLine()
+	{
+		assertEquals(0, index.getScrollLine(0));
+		assertEquals(1, index.getScrollLine(1));
+		assertEquals(4, index.getScrollLine(2));
+		assertEquals(4, index.getScrollLine(4));
+		assertEquals(6, index.getScrollLine(5));
+		assertEquals(7, index.getScrollLineCount());
+	}
+
+	@Test
+	public void getPhysicalLine()
+	{
+		assertEquals(0, index.getPhysicalLine(0));
+		assertEquals(1, index.getPhysicalLine(1));
+		assertEquals(1, index.getPhysicalLine(3));
+		assertEquals(4, index.getPhysicalLine(4));
+		assertEquals(4, index.getPhysicalLine(5));
+		assertEquals(5, index.getPhysicalLine(6));
+		assertEquals(6, index.getPhysicalLine(7));
+	}
+
+	@Test
+	public void set()
+	{
+		index.set(2, 5);
+		index.set(1, 1);
+		assertEquals(5, index.get(2));
+		assertEquals(2, index.getScrollLine(2));
+		assertEquals(7, index.getScrollLine(3));
+		assertEquals(2, index.getPhysicalLine(6));
+		assertEquals(10, index.getScrollLineCount());
+	}
+
+	@Test
+	public void random()
+	{
+		Random random = new Random(42);
+		int size = 1000;
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++)
+			values[i] = random.nextInt(4);
+		index.reset(values, size);
+		for (int i = 0; i < 2000; i++)
+		{
+			int line = random.nextInt(size);
+			values[line] = random.nextInt(4);
+			index.set(line, values[line]);
+		}
+
+		int scrollLine = 0;
+		for (int line = 0; line < size; line++)
+		{
+			assertEquals(scrollLine, index.getScrollLine(line));
+			for (int i = 0; i < values[line]; i++)
+				assertEquals(line, index.getPhysicalLine(scrollLine + i));
+			scrollLine += values[line];
+		}
+		assertEquals(scrollLine, index.getScrollLineCount());
+	}
+
+	@Test
+	public void upToDate()
+	{
+		ScreenLineManager screenLineMgr = new ScreenLineManager(new JEditBuffer());
+		assertFalse(index.isUpToDate(1L, 1, screenLineMgr, 6));
+		index.setUpToDate(1L, 1, screenLineMgr);
+		assertTrue(index.isUpToDate(1L, 1, screenLineMgr, 6));
+
+		index.contentChanged(2L, 4, 0);
+		assertTrue(index.isUpToDate(2L, 1, screenLineMgr, 6));
+		index.foldsChanged(1, 2, 1, 3);
+		assertTrue(index.isUpToDate(2L, 2, screenLineMgr, 6));
+		assertEquals(2, index.getChangedRangeCount());
+		assertEquals(1, index.getChangedRangeStart(1));
+		assertEquals(3, index.getChangedRangeEnd(1));
+
+		// the folds changed without the index knowing it
+		index.foldsChanged(3, 4, 1, 3);
+		assertFalse(index.isUpToDate(2L, 4, screenLineMgr, 6));
+		assertEquals(0, index.getChangedRangeCount());
+
+		// lines inserted while the folds changed without the index
+		index.setUpToDate(2L, 4, screenLineMgr);
+		index.linesInserted(2, 1, 3, 5);
+		index.contentChanged(3L, 2, 1);
+		assertFalse(index.isUpToDate(3L, 5, screenLineMgr, 7));
+	}
+
+	@Test
+	public void linesInserted()
+	{
+		ScreenLineManager screenLineMgr = new ScreenLineManager(new JEditBuffer());
+		index.setUpToDate(1L, 1, screenLineMgr);
+		index.contentChanged(1L, 5, 0);
+		index.linesInserted(1, 2, 1, 2);
+		index.contentChanged(2L, 1, 2);
+		assertTrue(index.isUpToDate(2L, 2, screenLineMgr, 8));
+
+		// the new lines are 0 until they are updated
+		assertValues(1, 3, 0, 0, 0, 0, 2, 1);
+		assertEquals(2, index.getChangedRangeCount());
+		assertEquals(7, index.getChangedRangeStart(0));
+		assertEquals(1, index.getChangedRangeStart(1));
+		assertEquals(3, index.getChangedRangeEnd(1));
+	}
+
+	@Test
+	public void linesRemoved()
+	{
+		ScreenLineManager screenLineMgr = new ScreenLineManager(new JEditBuffer());
+		index.setUpToDate(1L, 1, screenLineMgr);
+		index.contentChanged(1L, 3, 2);
+		index.linesRemoved(1, 3, 1, 2);
+		index.contentChanged(2L, 1, 0);
+		assertTrue(index.isUpToDate(2L, 2, screenLineMgr, 3));
+
+		assertValues(1, 3, 1);
+		assertEquals(2, index.getChangedRangeCount());
+		assertEquals(1, index.getChangedRangeStart(0));
+		assertEquals(2, index.getChangedRangeEnd(0));
+	}
+
+	@Test
+	public void randomLines()
+	{
+		Random random = new Random(45);
+		ScreenLineManager screenLineMgr = new ScreenLineManager(new JEditBuffer());
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < 6; i++)
+			values.add(index.get(i));
+		index.setUpToDate(1L, 0, screenLineMgr);
+		for (int rep = 0; rep < 2000; rep++)
+		{
+			int line = random.nextInt(values.size());
+			int numLines = random.nextInt(20);
+			if (random.nextBoolean())
+			{
+				index.linesInserted(line, numLines, rep, rep + 1);
+				for (int i = 0; i < numLines; i++)
+					values.add(line + 1, 0);
+			}
+			else
+			{
+				numLines = Math.min(numLines, values.size() - line - 1);
+				index.linesRemoved(line, numLines, rep, rep + 1);
+				values.subList(line + 1, line + 1 + numLines).clear();
+			}
+			line = random.nextInt(values.size());
+			values.set(line, random.nextInt(4));
+			index.set(line, values.get(line));
+			index.clearChangedRanges();
+		}
+		assertTrue(index.isUpToDate(1L, 2000, screenLineMgr, values.size()));
+
+		int scrollLine = 0;
+		for (int line = 0; line < values.size(); line++)
+		{
+			assertEquals(values.get(line).intValue(), index.get(line));
+			assertEquals(scrollLine, index.getScrollLine(line));
+			scrollLine += values.get(line);
+		}
+		assertEquals(scrollLine, index.getScrollLineCount());
+	}
+
+	private void assertValues(int... values)
+	{
+		assertEquals(values.length, index.getSize());
+		int scrollLine = 0;
+		for (int line = 0; line < values.length; line++)
+		{
+			assertEquals(values[line], index.get(line));
+			assertEquals(scrollLine, index.getScrollLine(line));
+			scrollLine += values[line];
+		}
+		assertEquals(scrollLine, index.getScrollLineCount());
+	}
+}
@@ -505,6 +505,66 @@ public class ScreenLineManagerTest
 		assertEquals(5, screenLineManager.getScreenLineCount(2));
 	}
 
+	@Test
+	public void contentRemovedOncePerVersion()
+	{
+		int numLines = 1;
+		initForInsert(numLines, 100);
+		// called by two display managers sharing the counts
+		screenLineManager.contentRemoved(7L, 1, numLines);
+		screenLineManager.contentRemoved(7L, 1, numLines);
+
+		assertEquals(1, screenLineManager.getScreenLineCount(0));
+		assertFalse(screenLineManager.isScreenLineCountValid(1));
+		assertEquals(4, screenLineManager.getScreenLineCount(2));
+		assertEquals(5, screenLineManager.getScreenLineCount(3));
+	}
+
+	@Test
+	public void contentInsertedOncePerVersion()
+	{
+		int numLines = 1;
+		initForInsert(numLines, 5);
+		screenLineManager.contentInserted(7L, 1, numLines);
+		screenLineManager.contentInserted(7L, 1, numLines);
+
+		assertEquals(1, screenLineManager.getScreenLineCount(0));
+		assertFalse(screenLineManager.isScreenLineCountValid(1));
+		assertFalse(screenLineManager.isScreenLineCountValid(2));
+		assertEquals(3, screenLineManager.getScreenLineCount(3));
+		assertEquals(4, screenLineManager.getScreenLineCount(4));
+		assertEquals(5, screenLineManager.getScreenLineCount(5));
+	}
+
+	@Test
+	public void acquireSharesSameLayout()
+	{
+		when(buffer.getLineCount()).thenReturn(10);
+		ScreenLineManager.Layout wide = new ScreenLineManager.Layout(800,
+			null, null, 32f, null);
+		ScreenLineManager.Layout narrow = new ScreenLineManager.Layout(400,
+			null, null, 32f, null);
+		try
+		{
+			ScreenLineManager first = ScreenLineManager.acquire(buffer, wide);
+			ScreenLineManager second = ScreenLineManager.acquire(buffer,
+				new ScreenLineManager.Layout(800, null, null, 32f, null));
+			ScreenLineManager third = ScreenLineManager.acquire(buffer, narrow);
+			assertSame(first, second);
+			assertNotSame(first, third);
+
+			first.release();
+			assertSame(second, ScreenLineManager.acquire(buffer, wide));
+			second.release();
+			second.release();
+			assertNotSame(second, ScreenLineManager.acquire(buffer, wide));
+		}
+		finally
+		{
+			ScreenLineManager.bufferClosed(buffer);
+		}
+	}
+
 	private void initForInsert(int numLines, int arraySize)
 	{
 		int lineCountBeforeInsert = 5;